@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.appsearch.app
+
+import android.content.Context
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Indexes [batchSize] emails. Divide the batch size by the reported time for the throughput.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class AppSearchPutBenchmark(private val batchSize: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+
+    private lateinit var manager: AppSearchManager
+
+    private lateinit var emails: List<GenericDocument>
+
+    @Before
+    fun setup() {
+        manager = AppSearchManager.Builder(context).setDatabaseName("benchmark").build().get()
+            .resultValue
+        manager.resetAllInstances().get().resultValue
+        manager.setSchema(
+            AppSearchManager.SetSchemaRequest.Builder().addSchema(AppSearchEmail.SCHEMA).build()
+        ).get().resultValue
+        emails = List(batchSize) {
+            AppSearchEmail.Builder("uri$it")
+                .setFrom("from@example.com")
+                .setTo("to@example.com")
+                .setSubject("subject $it")
+                .setBody("body of the email number $it")
+                .build()
+        }
+    }
+
+    @After
+    fun teardown() {
+        manager.resetAllInstances().get()
+    }
+
+    /**
+     * The whole batch in one request, indexed under a few acquisitions of the write lock.
+     */
+    @Test
+    fun putDocuments_batch() {
+        val request = AppSearchManager.PutDocumentsRequest.Builder()
+            .addGenericDocument(emails)
+            .build()
+        benchmarkRule.measureRepeated {
+            manager.putDocuments(request).get().checkSuccess()
+        }
+    }
+
+    /**
+     * One request per document, which takes the write lock and checks for optimize each time.
+     */
+    @Test
+    fun putDocuments_oneByOne() {
+        val requests = emails.map {
+            AppSearchManager.PutDocumentsRequest.Builder().addGenericDocument(it).build()
+        }
+        benchmarkRule.measureRepeated {
+            for (request in requests) {
+                manager.putDocuments(request).get().checkSuccess()
+            }
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "batchSize={0}")
+        fun data(): List<Array<Any>> = listOf(arrayOf(100), arrayOf(1000))
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.appsearch.app
+
+import android.content.Context
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Queries [HIT_COUNT] emails and reads the documents of the first [PAGE_SIZE] results, as a
+ * list showing its first screen does.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class AppSearchQueryBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+
+    private lateinit var manager: AppSearchManager
+
+    private val searchSpec = SearchSpec.newBuilder()
+        .setTermMatchType(SearchSpec.TERM_MATCH_TYPE_PREFIX)
+        .setNumToRetrieve(HIT_COUNT)
+        .build()
+
+    @Before
+    fun setup() {
+        manager = AppSearchManager.Builder(context).setDatabaseName("benchmark").build().get()
+            .resultValue
+        manager.resetAllInstances().get().resultValue
+        manager.setSchema(
+            AppSearchManager.SetSchemaRequest.Builder().addSchema(AppSearchEmail.SCHEMA).build()
+        ).get().resultValue
+        val emails = List(HIT_COUNT) {
+            AppSearchEmail.Builder("uri$it")
+                .setFrom("from@example.com")
+                .setTo("to@example.com")
+                .setSubject("subject $it")
+                .setBody("body of the email number $it")
+                .build()
+        }
+        manager.putDocuments(
+            AppSearchManager.PutDocumentsRequest.Builder().addGenericDocument(emails).build()
+        ).get().checkSuccess()
+    }
+
+    @After
+    fun teardown() {
+        manager.resetAllInstances().get()
+    }
+
+    /**
+     * Only the documents of the first page have their prefixes removed.
+     */
+    @Test
+    fun query_firstPage() {
+        benchmarkRule.measureRepeated {
+            val results = manager.query("body", searchSpec).get().resultValue
+            for (result in results.getNextPage(PAGE_SIZE)) {
+                result.document
+            }
+        }
+    }
+
+    @Test
+    fun query_allResults() {
+        benchmarkRule.measureRepeated {
+            val results = manager.query("body", searchSpec).get().resultValue
+            while (results.hasNext()) {
+                results.next().document
+            }
+        }
+    }
+
+    companion object {
+        private const val HIT_COUNT = 100
+        private const val PAGE_SIZE = 10
+    }
+}
@@ -27,6 +27,8 @@ import com.google.android.icing.proto.SearchResultProto;
 
 import org.junit.Test;
 
+import java.util.List;
+
 @SmallTest
 public class SearchResultsTest {
 
@@ -57,6 +59,36 @@ public class SearchResultsTest {
         assertThat(res1.toString()).isEqualTo(res2.toString());
     }
 
+    @Test
+    public void testGetNextPage() {
+        SearchResultProto.Builder searchResultsBuilder = SearchResultProto.newBuilder();
+        for (int i = 0; i < 5; i++) {
+            searchResultsBuilder.addResults(SearchResultProto.ResultProto.newBuilder()
+                    .setDocument(DocumentProto.newBuilder()
+                            .setUri("uri" + i)
+                            .setSchema("testSchema")
+                            .build()));
+        }
+        SearchResults results = new SearchResults(searchResultsBuilder.build());
+
+        List<SearchResults.Result> page = results.getNextPage(2);
+        assertThat(page).hasSize(2);
+        assertThat(page.get(0).getDocument().getUri()).isEqualTo("uri0");
+        assertThat(page.get(1).getDocument().getUri()).isEqualTo("uri1");
+
+        // The page is reused but its results show the next documents.
+        SearchResults.Result first = page.get(0);
+        page = results.getNextPage(2);
+        assertThat(page).hasSize(2);
+        assertThat(page.get(0)).isSameInstanceAs(first);
+        assertThat(page.get(0).getDocument().getUri()).isEqualTo("uri2");
+        assertThat(page.get(1).getDocument().getUri()).isEqualTo("uri3");
+
+        assertThat(results.next().getDocument().getUri()).isEqualTo("uri4");
+        assertThat(results.getNextPage(2)).isEmpty();
+        assertThat(results.hasNext()).isFalse();
+    }
+
     @Test
     public void buildSearchSpecWithoutTermMatchType() {
         assertThrows(RuntimeException.class, () -> SearchSpec.newBuilder()
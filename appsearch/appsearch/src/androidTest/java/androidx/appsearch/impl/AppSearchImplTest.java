@@ -18,6 +18,7 @@ package androidx.appsearch.impl;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import androidx.appsearch.app.AppSearchBatchResult;
 import androidx.test.core.app.ApplicationProvider;
 
 import com.google.android.icing.proto.DocumentProto;
@@ -33,6 +34,9 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class AppSearchImplTest {
     private AppSearchImpl mAppSearchImpl;
 
@@ -145,6 +149,41 @@ public class AppSearchImplTest {
         assertThat(actualDocument.build()).isEqualTo(documentProto);
     }
 
+    @Test
+    public void testPutDocuments() throws Exception {
+        SchemaProto schema = SchemaProto.newBuilder()
+                .addTypes(SchemaTypeConfigProto.newBuilder()
+                        .setSchemaType("type").build())
+                .build();
+        mAppSearchImpl.setSchema("database", schema, false);
+
+        // More than one lock acquisition worth of documents, and one with an unknown type.
+        int count = AppSearchImpl.MAX_PUTS_PER_LOCK + 1;
+        List<DocumentProto> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            documents.add(DocumentProto.newBuilder()
+                    .setUri("uri" + i)
+                    .setSchema("type")
+                    .setNamespace("namespace")
+                    .build());
+        }
+        documents.add(DocumentProto.newBuilder()
+                .setUri("invalid")
+                .setSchema("unknownType")
+                .setNamespace("namespace")
+                .build());
+
+        AppSearchBatchResult<String, Void> result =
+                mAppSearchImpl.putDocuments("database", documents);
+
+        assertThat(result.getSuccesses()).hasSize(count);
+        assertThat(result.getFailures().keySet()).containsExactly("invalid");
+        assertThat(mAppSearchImpl.getDocument("database", "namespace", "uri0"))
+                .isEqualTo(documents.get(0));
+        assertThat(mAppSearchImpl.getDocument("database", "namespace", "uri" + (count - 1)))
+                .isEqualTo(documents.get(count - 1));
+    }
+
     @Test
     public void testOptimize() throws Exception {
         // Insert schema
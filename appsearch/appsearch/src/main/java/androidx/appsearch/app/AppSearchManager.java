@@ -407,18 +407,11 @@ public class AppSearchManager {
         // one big list.
         Preconditions.checkNotNull(request);
         return execute(() -> {
-            AppSearchBatchResult.Builder<String, Void> resultBuilder =
-                    new AppSearchBatchResult.Builder<>();
+            List<DocumentProto> documentProtos = new ArrayList<>(request.mDocuments.size());
             for (int i = 0; i < request.mDocuments.size(); i++) {
-                GenericDocument document = request.mDocuments.get(i);
-                try {
-                    mAppSearchImpl.putDocument(mDatabaseName, document.getProto());
-                    resultBuilder.setSuccess(document.getUri(), /*result=*/ null);
-                } catch (Throwable t) {
-                    resultBuilder.setResult(document.getUri(), throwableToFailedResult(t));
-                }
+                documentProtos.add(request.mDocuments.get(i).getProto());
             }
-            return resultBuilder.build();
+            return mAppSearchImpl.putDocuments(mDatabaseName, documentProtos);
         });
     }
 
@@ -574,10 +567,11 @@ public class AppSearchManager {
                 searchSpecProto = searchSpecProto.toBuilder().setQuery(queryExpression).build();
                 SearchResultProto searchResultProto = mAppSearchImpl.query(mDatabaseName,
                         searchSpecProto, searchSpec.getResultSpecProto(),
-                        searchSpec.getScoringSpecProto());
+                        searchSpec.getScoringSpecProto(), /*removePrefixes=*/ false);
 
+                // Only the documents the caller reads have their prefixes removed.
                 return AppSearchResult.newSuccessfulResult(
-                        new SearchResults(searchResultProto));
+                        new SearchResults(searchResultProto, mAppSearchImpl, mDatabaseName));
             } catch (Throwable t) {
                 return throwableToFailedResult(t);
             }
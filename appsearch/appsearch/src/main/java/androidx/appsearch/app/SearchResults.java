@@ -19,7 +19,9 @@ package androidx.appsearch.app;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
+import androidx.appsearch.impl.AppSearchImpl;
 
+import com.google.android.icing.proto.DocumentProto;
 import com.google.android.icing.proto.SearchResultProto;
 import com.google.android.icing.proto.SnippetMatchProto;
 import com.google.android.icing.proto.SnippetProto;
@@ -33,16 +35,47 @@ import java.util.NoSuchElementException;
  * SearchResults are a list of results that are returned from a query. Each result from this
  * list contains a document and may contain other fields like snippets based on request.
  * This iterator class is not thread safe.
+ *
+ * <p>Results can also be read a page at a time with {@link #getNextPage(int)}, which reuses the
+ * same list and {@link Result} objects for every page.
  * @hide
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public final class SearchResults implements Iterator<SearchResults.Result> {
 
     private final SearchResultProto mSearchResultProto;
+    @Nullable
+    private final AppSearchImpl mAppSearchImpl;
+    @Nullable
+    private final String mDatabaseName;
     private int mNextIdx;
 
+    // reused by getNextPage()
+    private final List<Result> mPage = new ArrayList<>();
+    private final List<Result> mPageResults = new ArrayList<>();
+
+    /**
+     * Creates the results of a query whose documents have already been rewritten for the
+     * caller.
+     */
     public SearchResults(@NonNull SearchResultProto searchResultProto) {
+        this(searchResultProto, /*appSearchImpl=*/ null, /*databaseName=*/ null);
+    }
+
+    /**
+     * Creates the results of a query whose documents still have the database prefixes used by
+     * {@link AppSearchImpl}. The prefixes are only removed from the documents that are accessed.
+     *
+     * @param searchResultProto The results returned by {@link AppSearchImpl} without removing
+     *                          the prefixes.
+     * @param appSearchImpl     The instance that ran the query.
+     * @param databaseName      The database that was queried.
+     */
+    SearchResults(@NonNull SearchResultProto searchResultProto,
+            @Nullable AppSearchImpl appSearchImpl, @Nullable String databaseName) {
         mSearchResultProto = searchResultProto;
+        mAppSearchImpl = appSearchImpl;
+        mDatabaseName = databaseName;
     }
 
     @Override
@@ -56,23 +89,61 @@ public final class SearchResults implements Iterator<SearchResults.Result> {
         if (!hasNext()) {
             throw new NoSuchElementException();
         }
-        Result result = new Result(mSearchResultProto.getResults(mNextIdx));
+        Result result = new Result(this);
+        result.reset(mSearchResultProto.getResults(mNextIdx));
         mNextIdx++;
         return result;
     }
 
+    /**
+     * Returns the next results, at most {@code pageSize} of them.
+     *
+     * <p>The list and its results are reused by the next call, callers must not keep them.
+     *
+     * @param pageSize The maximum number of results to return.
+     * @return The next results, empty when all the results have been returned.
+     */
+    @NonNull
+    public List<Result> getNextPage(int pageSize) {
+        mPage.clear();
+        int end = Math.min(mNextIdx + pageSize, mSearchResultProto.getResultsCount());
+        for (int i = 0; mNextIdx < end; i++, mNextIdx++) {
+            if (i == mPageResults.size()) {
+                mPageResults.add(new Result(this));
+            }
+            Result result = mPageResults.get(i);
+            result.reset(mSearchResultProto.getResults(mNextIdx));
+            mPage.add(result);
+        }
+        return mPage;
+    }
+
+    @NonNull
+    DocumentProto removePrefixes(@NonNull DocumentProto document) {
+        if (mAppSearchImpl == null) {
+            return document;
+        }
+        return mAppSearchImpl.removeDatabasePrefix(mDatabaseName, document);
+    }
+
     /**
      * This class represents the result obtained from the query. It will contain the document which
      * which matched the specified query string and specifications.
      */
     public static final class Result {
-        private final SearchResultProto.ResultProto mResultProto;
+        private final SearchResults mSearchResults;
+        private SearchResultProto.ResultProto mResultProto;
 
         @Nullable
         private GenericDocument mDocument;
 
-        Result(@NonNull SearchResultProto.ResultProto resultProto) {
+        Result(@NonNull SearchResults searchResults) {
+            mSearchResults = searchResults;
+        }
+
+        void reset(@NonNull SearchResultProto.ResultProto resultProto) {
             mResultProto = resultProto;
+            mDocument = null;
         }
 
         /**
@@ -82,7 +153,8 @@ public final class SearchResults implements Iterator<SearchResults.Result> {
         @NonNull
         public GenericDocument getDocument() {
             if (mDocument == null) {
-                mDocument = new GenericDocument(mResultProto.getDocument());
+                mDocument = new GenericDocument(
+                        mSearchResults.removePrefixes(mResultProto.getDocument()));
             }
             return mDocument;
         }
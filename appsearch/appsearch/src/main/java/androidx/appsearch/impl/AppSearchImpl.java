@@ -25,6 +25,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
+import androidx.appsearch.app.AppSearchBatchResult;
 import androidx.appsearch.app.AppSearchResult;
 import androidx.appsearch.exceptions.AppSearchException;
 
@@ -56,6 +57,7 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -108,6 +110,12 @@ public final class AppSearchImpl {
     static final int OPTIMIZE_THRESHOLD_BYTES = 1_000_000; // 1MB
     @VisibleForTesting
     static final int CHECK_OPTIMIZE_INTERVAL = 100;
+    /**
+     * The maximum number of documents {@link #putDocuments(String, List)} indexes under one
+     * acquisition of the write lock, so that queries are not blocked for the whole batch.
+     */
+    @VisibleForTesting
+    static final int MAX_PUTS_PER_LOCK = 200;
     // TODO(b/158350212) Remove SharedPreferences once getAllNamespace() is ready in Icing lib.
     // SharedPreferences is discouraged to be used in go/sharedpreferences.
     private final SharedPreferences mSharedPreferences;
@@ -264,6 +272,92 @@ public final class AppSearchImpl {
         checkSuccess(putResultProto.getStatus());
     }
 
+    /**
+     * Adds documents to the AppSearch index.
+     *
+     * <p>This method belongs to mutate group.
+     *
+     * <p>Unlike calling {@link #putDocument(String, DocumentProto)} for each document, the
+     * documents are rewritten before taking the write lock, indexed {@link #MAX_PUTS_PER_LOCK} at
+     * a time under a single acquisition of the lock, and {@link #checkForOptimize(int, boolean)}
+     * runs once for the whole batch.
+     *
+     * @param databaseName The databaseName these documents reside in.
+     * @param documents    The documents to index.
+     * @return The result of indexing each document, keyed by URI. Only the namespaces of the
+     *         documents successfully indexed are recorded.
+     * @throws AppSearchException if this instance failed to initialize.
+     * @throws InterruptedException if the current thread was interrupted during execution.
+     */
+    @NonNull
+    public AppSearchBatchResult<String, Void> putDocuments(@NonNull String databaseName,
+            @NonNull List<DocumentProto> documents)
+            throws AppSearchException, InterruptedException {
+        checkInitialized();
+
+        AppSearchBatchResult.Builder<String, Void> resultBuilder =
+                new AppSearchBatchResult.Builder<>();
+        String prefix = getDatabasePrefix(databaseName);
+        // Documents that failed to be rewritten are left null and not put.
+        DocumentProto[] rewrittenDocuments = new DocumentProto[documents.size()];
+        for (int i = 0; i < rewrittenDocuments.length; i++) {
+            DocumentProto document = documents.get(i);
+            try {
+                DocumentProto.Builder documentBuilder = document.toBuilder();
+                rewriteDocumentTypes(prefix, documentBuilder, /*add=*/ true);
+                rewrittenDocuments[i] = documentBuilder.build();
+            } catch (RuntimeException e) {
+                resultBuilder.setFailure(
+                        document.getUri(), AppSearchResult.RESULT_INTERNAL_ERROR, e.getMessage());
+            }
+        }
+
+        Set<String> namespaces = new HashSet<>();
+        int putCount = 0;
+        for (int start = 0; start < rewrittenDocuments.length; start += MAX_PUTS_PER_LOCK) {
+            int end = Math.min(start + MAX_PUTS_PER_LOCK, rewrittenDocuments.length);
+            mReadWriteLock.writeLock().lock();
+            try {
+                for (int i = start; i < end; i++) {
+                    if (rewrittenDocuments[i] == null) {
+                        continue;
+                    }
+                    DocumentProto document = documents.get(i);
+                    try {
+                        PutResultProto putResultProto =
+                                mIcingSearchEngine.put(rewrittenDocuments[i]);
+                        putCount++;
+                        checkSuccess(putResultProto.getStatus());
+                        namespaces.add(document.getNamespace());
+                        resultBuilder.setSuccess(document.getUri(), /*result=*/ null);
+                    } catch (AppSearchException e) {
+                        resultBuilder.setResult(document.getUri(), e.toAppSearchResult());
+                    } catch (RuntimeException e) {
+                        resultBuilder.setFailure(document.getUri(),
+                                AppSearchResult.RESULT_INTERNAL_ERROR, e.getMessage());
+                    }
+                }
+                if (end == rewrittenDocuments.length) {
+                    for (String namespace : namespaces) {
+                        addToSharedSet(databaseName, NAMESPACE_SET_NAME, namespace);
+                    }
+                    // The existing documents with same URI will be deleted, so there maybe some
+                    // resources could be released after optimize(). The documents are already
+                    // indexed, so a failure here doesn't fail their results.
+                    try {
+                        checkForOptimize(putCount, /* force= */false);
+                    } catch (AppSearchException e) {
+                        Log.w(TAG, "Failed to check for optimize after putting documents", e);
+                    }
+                }
+            } finally {
+                mReadWriteLock.writeLock().unlock();
+            }
+        }
+
+        return resultBuilder.build();
+    }
+
     /**
      * Retrieves a document from the AppSearch index by URI.
      *
@@ -309,13 +403,40 @@ public final class AppSearchImpl {
      * @throws AppSearchException on IcingSearchEngine error.
      * @throws InterruptedException if the current thread was interrupted during execution.
      */
-    // TODO(b/161838267) support getNextPage for query, under the read lock.
     @NonNull
     public SearchResultProto query(
             @NonNull String databaseName,
             @NonNull SearchSpecProto searchSpec,
             @NonNull ResultSpecProto resultSpec,
             @NonNull ScoringSpecProto scoringSpec) throws AppSearchException, InterruptedException {
+        return query(databaseName, searchSpec, resultSpec, scoringSpec, /*removePrefixes=*/ true);
+    }
+
+    /**
+     * Executes a query against the AppSearch index and returns results.
+     *
+     * <p>This method belongs to query group.
+     *
+     * @param databaseName   The databaseName this query for.
+     * @param searchSpec     Defines what and how to search
+     * @param resultSpec     Defines what results to show
+     * @param scoringSpec    Defines how to order results
+     * @param removePrefixes Whether to remove the database prefixes from the result documents.
+     *                       If {@code false}, the documents are returned as stored and the caller
+     *                       must call {@link #removeDatabasePrefix} on the ones it reads.
+     * @return The results of performing this search  The proto might have no {@code results} if no
+     * documents matched the query.
+     * @throws AppSearchException on IcingSearchEngine error.
+     * @throws InterruptedException if the current thread was interrupted during execution.
+     */
+    // TODO(b/161838267) support getNextPage for query, under the read lock.
+    @NonNull
+    public SearchResultProto query(
+            @NonNull String databaseName,
+            @NonNull SearchSpecProto searchSpec,
+            @NonNull ResultSpecProto resultSpec,
+            @NonNull ScoringSpecProto scoringSpec,
+            boolean removePrefixes) throws AppSearchException, InterruptedException {
         checkInitialized();
 
         SearchSpecProto.Builder searchSpecBuilder = searchSpec.toBuilder();
@@ -358,7 +479,7 @@ public final class AppSearchImpl {
         } finally {
             mReadWriteLock.readLock().unlock();
         }
-        if (searchResultProto.getResultsCount() == 0) {
+        if (!removePrefixes || searchResultProto.getResultsCount() == 0) {
             return searchResultProto;
         }
 
@@ -378,6 +499,22 @@ public final class AppSearchImpl {
         return searchResultsBuilder.build();
     }
 
+    /**
+     * Removes the database prefixes from a document returned by a query that did not remove
+     * them.
+     *
+     * @param databaseName The databaseName the document was queried from.
+     * @param document     The document as stored in IcingSearchEngine.
+     * @return The document as it was put by the caller.
+     */
+    @NonNull
+    public DocumentProto removeDatabasePrefix(
+            @NonNull String databaseName, @NonNull DocumentProto document) {
+        DocumentProto.Builder documentBuilder = document.toBuilder();
+        rewriteDocumentTypes(getDatabasePrefix(databaseName), documentBuilder, /*add=*/ false);
+        return documentBuilder.build();
+    }
+
     /**
      * Removes the given document by URI.
      *
@@ -699,7 +836,20 @@ public final class AppSearchImpl {
      */
     @GuardedBy("mReadWriteLock")
     private void checkForOptimize(boolean force) throws AppSearchException {
-        ++mOptimizeIntervalCount;
+        checkForOptimize(/* mutationCount= */1, force);
+    }
+
+    /**
+     * Checks whether {@link IcingSearchEngine#optimize()} should be called to release resources,
+     * after several mutations.
+     *
+     * @param mutationCount the number of mutations since the last check.
+     * @param force whether we should directly call {@link IcingSearchEngine#getOptimizeInfo()}.
+     * @see #checkForOptimize(boolean)
+     */
+    @GuardedBy("mReadWriteLock")
+    private void checkForOptimize(int mutationCount, boolean force) throws AppSearchException {
+        mOptimizeIntervalCount += mutationCount;
         if (force || mOptimizeIntervalCount >= CHECK_OPTIMIZE_INTERVAL) {
             mOptimizeIntervalCount = 0;
             GetOptimizeInfoResultProto optimizeInfo = getOptimizeInfoResult();
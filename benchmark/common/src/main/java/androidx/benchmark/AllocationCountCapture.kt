@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark
+
+import android.os.Debug
+
+@Suppress("DEPRECATION")
+internal class AllocationCountCapture : MetricCapture() {
+    override val name = "allocationCount"
+    private var currentPausedStarted = 0
+    private var currentTotalPaused = 0
+
+    override fun captureStart() {
+        currentTotalPaused = 0
+        Debug.startAllocCounting()
+    }
+
+    override fun captureStop(): Long {
+        Debug.stopAllocCounting()
+        return (Debug.getGlobalAllocCount() - currentTotalPaused).toLong()
+    }
+
+    override fun capturePaused() {
+        // Note - can't start/stop allocation counting to pause/resume, since that would clear
+        // the current counter (and is likely more disruptive than just querying count)
+        currentPausedStarted = Debug.getGlobalAllocCount()
+    }
+
+    override fun captureResumed() {
+        currentTotalPaused += Debug.getGlobalAllocCount() - currentPausedStarted
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark
+
+import android.os.Build
+import android.util.Log
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.gson.stream.JsonWriter
+import java.io.File
+
+/**
+ * Android implementation of the platform specific parts of the sources shared with the JVM
+ * benchmark library, in `src/shared`.
+ */
+internal object BenchmarkPlatform {
+    val outputDirHelp = """
+        Make sure the instrumentation argument additionalOutputDir is set to
+        a writable directory on device. If using a version of Android Gradle
+        Plugin that doesn't support additionalOutputDir, ensure your app's
+        manifest file enables legacy storage behavior by adding the
+        application attribute: android:requestLegacyExternalStorage="true"
+    """.trimIndent()
+
+    fun logDebug(message: String) {
+        Log.d(BenchmarkState.TAG, message)
+    }
+
+    fun getReportFile(): File {
+        val packageName =
+            InstrumentationRegistry.getInstrumentation().targetContext!!.packageName
+        return File(Arguments.testOutputDir, "$packageName-benchmarkData.json")
+    }
+
+    fun onReportWritten(file: File) {
+        InstrumentationResults.reportAdditionalFileToCopy("results_json", file.absolutePath)
+    }
+
+    /**
+     * Writes the fields of the `context` object of the report, describing the device.
+     */
+    fun writeContext(writer: JsonWriter) {
+        writer.name("build").beginObject()
+            .name("device").value(Build.DEVICE)
+            .name("fingerprint").value(Build.FINGERPRINT)
+            .name("model").value(Build.MODEL)
+            .name("version").beginObject().name("sdk").value(Build.VERSION.SDK_INT).endObject()
+            .endObject()
+            .name("cpuCoreCount").value(CpuInfo.coreDirs.size)
+            .name("cpuLocked").value(CpuInfo.locked)
+            .name("cpuMaxFreqHz").value(CpuInfo.maxFreqHz)
+            .name("memTotalBytes").value(MemInfo.memTotalBytes)
+            .name("sustainedPerformanceModeEnabled")
+            .value(IsolationActivity.sustainedPerformanceModeInUse)
+    }
+}
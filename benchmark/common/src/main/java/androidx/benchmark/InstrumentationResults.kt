@@ -86,4 +86,21 @@ internal object InstrumentationResults {
             .getInstrumentation()
             .sendStatus(2, bundle)
     }
-}
\ No newline at end of file
+}
+
+internal fun Stats.putInBundle(status: Bundle, prefix: String) {
+    if (name == "timeNs") {
+        // compatibility naming scheme.
+        // should be removed, once we timeNs_min has been in dashboard for several weeks
+        status.putLong("${prefix}min", min)
+        status.putLong("${prefix}median", median)
+        status.putLong("${prefix}standardDeviation", standardDeviation.toLong())
+    }
+
+    // format string for
+    val bundleName = name.toOutputMetricName()
+
+    status.putLong("${prefix}${bundleName}_min", min)
+    status.putLong("${prefix}${bundleName}_median", median)
+    status.putLong("${prefix}${bundleName}_stddev", standardDeviation.toLong())
+}
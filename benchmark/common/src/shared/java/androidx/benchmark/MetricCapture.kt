@@ -16,8 +16,6 @@
 
 package androidx.benchmark
 
-import android.os.Debug
-
 internal abstract class MetricCapture {
     abstract val name: String
 
@@ -81,30 +79,3 @@ internal class TimeCapture : MetricCapture() {
         currentTotalPaused += System.nanoTime() - currentPausedStarted
     }
 }
-
-@Suppress("DEPRECATION")
-internal class AllocationCountCapture : MetricCapture() {
-    override val name = "allocationCount"
-    private var currentPausedStarted = 0
-    private var currentTotalPaused = 0
-
-    override fun captureStart() {
-        currentTotalPaused = 0
-        Debug.startAllocCounting()
-    }
-
-    override fun captureStop(): Long {
-        Debug.stopAllocCounting()
-        return (Debug.getGlobalAllocCount() - currentTotalPaused).toLong()
-    }
-
-    override fun capturePaused() {
-        // Note - can't start/stop allocation counting to pause/resume, since that would clear
-        // the current counter (and is likely more disruptive than just querying count)
-        currentPausedStarted = Debug.getGlobalAllocCount()
-    }
-
-    override fun captureResumed() {
-        currentTotalPaused += Debug.getGlobalAllocCount() - currentPausedStarted
-    }
-}
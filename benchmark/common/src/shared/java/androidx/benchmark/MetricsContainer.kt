@@ -16,8 +16,6 @@
 
 package androidx.benchmark
 
-import android.util.Log
-
 internal class MetricsContainer(
     /**
      * Each MetricCapture represents a single metric to be captured. It is possible this may change.
@@ -105,8 +103,8 @@ internal class MetricsContainer(
     private fun doLog() {
         metrics.forEachIndexed { i, metric -> data[i].toList().chunked(10)
             .forEachIndexed { chunkNum, chunk ->
-                Log.d(
-                    BenchmarkState.TAG, metric.name + "[%2d:%2d]: %s".format(
+                BenchmarkPlatform.logDebug(
+                    metric.name + "[%2d:%2d]: %s".format(
                         chunkNum * 10,
                         (chunkNum + 1) * 10,
                         chunk.joinToString()
@@ -16,13 +16,15 @@
 
 package androidx.benchmark
 
-import android.os.Build
-import android.util.JsonWriter
 import androidx.annotation.VisibleForTesting
-import androidx.test.platform.app.InstrumentationRegistry
+import com.google.gson.stream.JsonWriter
 import java.io.File
 import java.io.IOException
 
+/**
+ * Writes the JSON report of the benchmarks. The platform specific parts, such as the
+ * `context` object and the location of the file, come from [BenchmarkPlatform].
+ */
 internal object ResultWriter {
     @VisibleForTesting
     internal val reports = ArrayList<BenchmarkState.Report>()
@@ -33,12 +35,9 @@ internal object ResultWriter {
         if (Arguments.outputEnable) {
             // Currently, we just overwrite the whole file
             // Ideally, append for efficiency
-            val packageName =
-                InstrumentationRegistry.getInstrumentation().targetContext!!.packageName
-
-            val file = File(Arguments.testOutputDir, "$packageName-benchmarkData.json")
+            val file = BenchmarkPlatform.getReportFile()
             writeReport(file, reports)
-            InstrumentationResults.reportAdditionalFileToCopy("results_json", file.absolutePath)
+            BenchmarkPlatform.onReportWritten(file)
         }
     }
 
@@ -51,15 +50,8 @@ internal object ResultWriter {
                     createNewFile()
                 } catch (exception: IOException) {
                     throw IOException(
-                        """
-                            Failed to create file for benchmark report in:
-                            $parent
-                            Make sure the instrumentation argument additionalOutputDir is set to 
-                            a writable directory on device. If using a version of Android Gradle 
-                            Plugin that doesn't support additionalOutputDir, ensure your app's 
-                            manifest file enables legacy storage behavior by adding the 
-                            application attribute: android:requestLegacyExternalStorage="true"
-                        """.trimIndent(),
+                        "Failed to create file for benchmark report in:\n$parent\n" +
+                                BenchmarkPlatform.outputDirHelp,
                         exception
                     )
                 }
@@ -71,13 +63,7 @@ internal object ResultWriter {
             writer.beginObject()
 
             writer.name("context").beginObject()
-                .name("build").buildInfoObject()
-                .name("cpuCoreCount").value(CpuInfo.coreDirs.size)
-                .name("cpuLocked").value(CpuInfo.locked)
-                .name("cpuMaxFreqHz").value(CpuInfo.maxFreqHz)
-                .name("memTotalBytes").value(MemInfo.memTotalBytes)
-                .name("sustainedPerformanceModeEnabled")
-                .value(IsolationActivity.sustainedPerformanceModeInUse)
+            BenchmarkPlatform.writeContext(writer)
             writer.endObject()
 
             writer.name("benchmarks").beginArray()
@@ -91,15 +77,6 @@ internal object ResultWriter {
         }
     }
 
-    private fun JsonWriter.buildInfoObject(): JsonWriter {
-        beginObject()
-            .name("device").value(Build.DEVICE)
-            .name("fingerprint").value(Build.FINGERPRINT)
-            .name("model").value(Build.MODEL)
-            .name("version").beginObject().name("sdk").value(Build.VERSION.SDK_INT).endObject()
-        return endObject()
-    }
-
     private fun JsonWriter.reportObject(report: BenchmarkState.Report): JsonWriter {
         beginObject()
             .name("name").value(report.testName)
@@ -16,7 +16,6 @@
 
 package androidx.benchmark
 
-import android.os.Bundle
 import kotlin.Double.Companion.NaN
 import kotlin.math.pow
 import kotlin.math.roundToLong
@@ -59,23 +58,6 @@ internal class Stats(data: LongArray, val name: String) {
                 "standardDeviation: $standardDeviation"
     }
 
-    internal fun putInBundle(status: Bundle, prefix: String) {
-        if (name == "timeNs") {
-            // compatibility naming scheme.
-            // should be removed, once we timeNs_min has been in dashboard for several weeks
-            status.putLong("${prefix}min", min)
-            status.putLong("${prefix}median", median)
-            status.putLong("${prefix}standardDeviation", standardDeviation.toLong())
-        }
-
-        // format string for
-        val bundleName = name.toOutputMetricName()
-
-        status.putLong("${prefix}${bundleName}_min", min)
-        status.putLong("${prefix}${bundleName}_median", median)
-        status.putLong("${prefix}${bundleName}_stddev", standardDeviation.toLong())
-    }
-
     override fun equals(other: Any?): Boolean {
         return (other is Stats && other.hashCode() == this.hashCode())
     }
@@ -16,7 +16,6 @@
 
 package androidx.benchmark
 
-import android.util.Log
 import java.util.concurrent.TimeUnit
 
 /**
@@ -83,8 +82,7 @@ internal class WarmupManager {
 
     fun logInfo() {
         if (iteration > 0) {
-            Log.d(
-                BenchmarkState.TAG,
+            BenchmarkPlatform.logDebug(
                 "Warmup: t=%.3f, iter=%d, fastAvg=%3.0f, slowAvg=%3.0f"
                     .format(
                         totalDurationNs / 1e9,
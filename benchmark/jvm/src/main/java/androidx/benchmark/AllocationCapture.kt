@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark
+
+import java.lang.management.ManagementFactory
+
+/**
+ * Captures the bytes allocated by the benchmark thread, with the allocated bytes counter of the
+ * HotSpot `ThreadMXBean`.
+ *
+ * Reading the counter can allocate itself, so the bytes allocated by an empty capture are
+ * measured when the capture is created and subtracted from each run. A benchmark that does not
+ * allocate reports 0.
+ */
+internal class AllocatedBytesCapture : MetricCapture() {
+    override val name = "allocatedBytes"
+
+    private val threadBean =
+        ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+    private var threadId = 0L
+    private var currentStarted = 0L
+    private var currentPausedStarted = 0L
+    private var currentTotalPaused = 0L
+    private var overheadBytes = 0L
+
+    init {
+        // the minimum over a few runs, to avoid counting one off allocations like class loading
+        var overhead = Long.MAX_VALUE
+        repeat(CALIBRATION_RUNS) {
+            captureStart()
+            overhead = minOf(overhead, captureStop())
+        }
+        overheadBytes = overhead
+    }
+
+    private fun allocatedBytes() = threadBean.getThreadAllocatedBytes(threadId)
+
+    override fun captureStart() {
+        threadId = Thread.currentThread().id
+        currentTotalPaused = 0
+        currentStarted = allocatedBytes()
+    }
+
+    override fun captureStop(): Long {
+        return allocatedBytes() - currentStarted - currentTotalPaused - overheadBytes
+    }
+
+    override fun capturePaused() {
+        currentPausedStarted = allocatedBytes()
+    }
+
+    override fun captureResumed() {
+        // a pause costs the same as a run
+        currentTotalPaused += allocatedBytes() - currentPausedStarted + overheadBytes
+    }
+
+    companion object {
+        private const val CALIBRATION_RUNS = 10
+
+        /**
+         * Whether the JVM supports measuring the bytes allocated by a thread.
+         */
+        val isSupported: Boolean by lazy {
+            val threadBean = ManagementFactory.getThreadMXBean()
+            threadBean is com.sun.management.ThreadMXBean &&
+                    threadBean.isThreadAllocatedMemorySupported &&
+                    threadBean.isThreadAllocatedMemoryEnabled
+        }
+    }
+}
+
+/**
+ * Captures the time spent in garbage collections, from the `GarbageCollectorMXBean`s.
+ *
+ * The collections of all threads are counted, as they pause the benchmark thread too. The beans
+ * report milliseconds, so short runs mostly report 0.
+ */
+internal class GcTimeCapture : MetricCapture() {
+    override val name = "gcTimeNs"
+
+    private val gcBeans = ManagementFactory.getGarbageCollectorMXBeans()
+    private var currentStarted = 0L
+    private var currentPausedStarted = 0L
+    private var currentTotalPaused = 0L
+
+    private fun gcTimeNs(): Long {
+        var total = 0L
+        for (i in 0 until gcBeans.size) {
+            // -1 if the collector does not report its time
+            total += gcBeans[i].collectionTime.coerceAtLeast(0)
+        }
+        return total * 1_000_000
+    }
+
+    override fun captureStart() {
+        currentTotalPaused = 0
+        currentStarted = gcTimeNs()
+    }
+
+    override fun captureStop(): Long {
+        return gcTimeNs() - currentStarted - currentTotalPaused
+    }
+
+    override fun capturePaused() {
+        currentPausedStarted = gcTimeNs()
+    }
+
+    override fun captureResumed() {
+        currentTotalPaused += gcTimeNs() - currentPausedStarted
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark
+
+import java.io.File
+
+/**
+ * Arguments of the JVM benchmarks, read from the `androidx.benchmark.*` system properties,
+ * e.g. set with `test { systemProperty("androidx.benchmark.output.enable", "true") }`.
+ */
+internal object Arguments {
+    val testOutputDir: File
+    val outputEnable: Boolean
+    val dryRunMode: Boolean
+    val baseline: File?
+    val regressionThreshold: Double
+    val regressionAlpha: Double
+
+    private val prefix = "androidx.benchmark."
+
+    private fun getArgument(key: String, defaultValue: String = "") =
+        System.getProperty(prefix + key, defaultValue)
+
+    init {
+        dryRunMode = getArgument("dryRunMode.enable").toBoolean()
+
+        outputEnable = !dryRunMode && getArgument("output.enable").toBoolean()
+
+        testOutputDir = File(getArgument("outputDir", "build/benchmark"))
+
+        // Report to compare the results with, see BaselineComparison
+        baseline = getArgument("baseline").ifBlank { null }?.let { File(it) }
+        regressionThreshold = getArgument("regression.threshold").ifBlank { null }?.toDouble()
+            ?: BaselineComparison.DEFAULT_THRESHOLD
+        regressionAlpha = getArgument("regression.alpha").ifBlank { null }?.toDouble()
+            ?: BaselineComparison.DEFAULT_ALPHA
+    }
+}
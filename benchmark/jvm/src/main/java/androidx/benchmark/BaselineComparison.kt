@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark
+
+import kotlin.math.abs
+import kotlin.math.exp
+import kotlin.math.sqrt
+
+/**
+ * Compares the samples of benchmark results against a baseline.
+ *
+ * A metric regressed when its median increased by more than [threshold], and the increase is
+ * significant: the one-sided Mann-Whitney U test of the samples rejects that they come from
+ * the same distribution, at the [alpha] level. The test only uses the ranks of the samples, so
+ * it is not thrown off by the outliers that noisy devices produce, unlike comparing means.
+ *
+ * @param threshold minimum relative increase of the median, e.g. `0.05` for 5%
+ * @param alpha significance level of the test
+ */
+internal class BaselineComparison(
+    private val threshold: Double = DEFAULT_THRESHOLD,
+    private val alpha: Double = DEFAULT_ALPHA
+) {
+    /**
+     * Comparison of a metric of a benchmark.
+     *
+     * @param change relative change of the median, positive when it increased
+     * @param pValue probability of an increase at least as large if nothing changed
+     */
+    class Result(
+        val benchmark: String,
+        val metric: String,
+        val baselineMedian: Long,
+        val currentMedian: Long,
+        val change: Double,
+        val pValue: Double,
+        val regressed: Boolean,
+        val improved: Boolean
+    )
+
+    /**
+     * Compares the metrics found in both the baseline and the current results.
+     */
+    fun compare(
+        baseline: List<ReportReader.Result>,
+        current: List<ReportReader.Result>
+    ): List<Result> {
+        val baselineByKey = baseline.associateBy { it.key }
+        val results = ArrayList<Result>()
+        for (result in current) {
+            val baselineResult = baselineByKey[result.key] ?: continue
+            for ((metric, runs) in result.runs) {
+                val baselineRuns = baselineResult.runs[metric] ?: continue
+                if (runs.isEmpty() || baselineRuns.isEmpty()) continue
+                results.add(compare(result.key, metric, baselineRuns, runs))
+            }
+        }
+        return results
+    }
+
+    fun compare(benchmark: String, metric: String, baseline: LongArray, current: LongArray):
+            Result {
+        val baselineMedian = Stats(baseline, metric).median
+        val currentMedian = Stats(current, metric).median
+        val change = when {
+            baselineMedian != 0L -> (currentMedian - baselineMedian) / baselineMedian.toDouble()
+            currentMedian == 0L -> 0.0
+            else -> Double.POSITIVE_INFINITY
+        }
+        val pIncrease = mannWhitneyPValue(baseline, current)
+        val pDecrease = mannWhitneyPValue(current, baseline)
+        return Result(
+            benchmark = benchmark,
+            metric = metric,
+            baselineMedian = baselineMedian,
+            currentMedian = currentMedian,
+            change = change,
+            pValue = pIncrease,
+            regressed = change > threshold && pIncrease < alpha,
+            improved = change < -threshold && pDecrease < alpha
+        )
+    }
+
+    companion object {
+        const val DEFAULT_THRESHOLD = 0.05
+        const val DEFAULT_ALPHA = 0.01
+
+        /**
+         * One-sided Mann-Whitney U test, with the normal approximation, which is accurate for
+         * the 50 samples of a benchmark.
+         *
+         * @return the p-value of [second] being stochastically larger than [first]
+         */
+        internal fun mannWhitneyPValue(first: LongArray, second: LongArray): Double {
+            val n1 = first.size
+            val n2 = second.size
+            val n = n1 + n2
+            // Sort all the samples, remembering which of them are from the second sample.
+            val all = LongArray(n)
+            first.copyInto(all)
+            second.copyInto(all, n1)
+            val order = (0 until n).sortedBy { all[it] }
+
+            // Sum the ranks of the second sample, ties getting the average of their ranks.
+            var rankSum = 0.0
+            var tieCorrection = 0.0
+            var i = 0
+            while (i < n) {
+                var j = i
+                while (j + 1 < n && all[order[j + 1]] == all[order[i]]) j++
+                val rank = (i + j) / 2.0 + 1
+                for (k in i..j) {
+                    if (order[k] >= n1) rankSum += rank
+                }
+                val ties = (j - i + 1).toDouble()
+                tieCorrection += ties * ties * ties - ties
+                i = j + 1
+            }
+            val u = rankSum - n2 * (n2 + 1) / 2.0
+            val mean = n1 * n2 / 2.0
+            val variance = n1 * n2 / 12.0 * ((n + 1) - tieCorrection / (n.toDouble() * (n - 1)))
+            if (variance <= 0) {
+                // all samples are equal
+                return 1.0
+            }
+            // with continuity correction
+            val z = (u - mean - 0.5) / sqrt(variance)
+            return 1 - normalCdf(z)
+        }
+
+        /**
+         * Standard normal cumulative distribution, from the erf approximation 7.1.26 of
+         * Abramowitz and Stegun, accurate to 1.5e-7.
+         */
+        private fun normalCdf(z: Double): Double {
+            val x = abs(z) / sqrt(2.0)
+            val t = 1 / (1 + 0.3275911 * x)
+            val erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 +
+                    t * (-1.453152027 + t * 1.061405429)))) * exp(-x * x)
+            return if (z >= 0) (1 + erf) / 2 else (1 - erf) / 2
+        }
+
+        /**
+         * Formats the results as a text report, one line per metric.
+         */
+        fun format(results: List<Result>): String = results.joinToString("\n") {
+            "%s %s: %d -> %d (%+.1f%%, p=%.4f)%s".format(
+                it.benchmark,
+                it.metric,
+                it.baselineMedian,
+                it.currentMedian,
+                it.change * 100,
+                it.pValue,
+                when {
+                    it.regressed -> " REGRESSION"
+                    it.improved -> " improvement"
+                    else -> ""
+                }
+            )
+        }
+    }
+}
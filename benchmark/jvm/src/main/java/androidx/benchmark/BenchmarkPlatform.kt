@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark
+
+import com.google.gson.stream.JsonWriter
+import java.io.File
+
+/**
+ * JVM implementation of the platform specific parts of the sources shared with the Android
+ * benchmark library.
+ */
+internal object BenchmarkPlatform {
+    val outputDirHelp =
+        "Make sure the androidx.benchmark.outputDir system property is a writable directory."
+
+    fun logDebug(message: String) {
+        println("${BenchmarkState.TAG}: $message")
+    }
+
+    fun getReportFile() = File(Arguments.testOutputDir, "benchmarkData.json")
+
+    fun onReportWritten(file: File) {
+        logDebug("results written to ${file.absolutePath}")
+    }
+
+    /**
+     * Writes the fields of the `context` object of the report, describing the host.
+     */
+    fun writeContext(writer: JsonWriter) {
+        writer.name("jvm").beginObject()
+            .name("name").value(System.getProperty("java.vm.name"))
+            .name("version").value(System.getProperty("java.version"))
+            .endObject()
+            .name("os").beginObject()
+            .name("name").value(System.getProperty("os.name"))
+            .name("arch").value(System.getProperty("os.arch"))
+            .name("version").value(System.getProperty("os.version"))
+            .endObject()
+            .name("cpuCoreCount").value(Runtime.getRuntime().availableProcessors())
+            .name("maxHeapBytes").value(Runtime.getRuntime().maxMemory())
+    }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark
+
+import androidx.annotation.RestrictTo
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+/**
+ * Control object for benchmarking in the code in Java, on the JVM.
+ *
+ * This is the JVM counterpart of the Android `BenchmarkState`, with the same API, so that a
+ * benchmark using [androidx.benchmark.junit4.BenchmarkRule] can run with either runner. It
+ * shares the warmup, statistics and JSON output of the Android library, but does not control
+ * thread priorities, CPU clocks or thermal throttling, which makes its results noisier.
+ *
+ * Instead of the allocation count measured on Android, the allocation stage measures the bytes
+ * allocated by the benchmark thread (`allocatedBytes`) and the time spent in garbage
+ * collections (`gcTimeNs`), per iteration.
+ *
+ * When the `androidx.benchmark.baseline` system property is the path of a report, each benchmark
+ * is compared with its result in the report, and fails if it regressed, see
+ * [BaselineComparison].
+ *
+ * Query a state object with [androidx.benchmark.junit4.BenchmarkRule.getState], and use it to
+ * measure a block of Java with [BenchmarkState.keepRunning]:
+ * ```
+ * @Rule
+ * public BenchmarkRule benchmarkRule = new BenchmarkRule();
+ *
+ * @Test
+ * public void sampleMethod() {
+ *     BenchmarkState state = benchmarkRule.getState();
+ *
+ *     int[] src = new int[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 };
+ *     while (state.keepRunning()) {
+ *         int[] dest = new int[src.length];
+ *         System.arraycopy(src, 0, dest, 0, src.length);
+ *     }
+ * }
+ * ```
+ */
+class BenchmarkState @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) constructor() {
+
+    private var stages = listOf(
+        MetricsContainer(arrayOf(TimeCapture()), 1),
+        MetricsContainer(arrayOf(TimeCapture()), REPEAT_COUNT_TIME),
+        if (AllocatedBytesCapture.isSupported) {
+            MetricsContainer(
+                arrayOf(GcTimeCapture(), AllocatedBytesCapture()),
+                REPEAT_COUNT_ALLOCATION
+            )
+        } else {
+            null
+        }
+    )
+
+    private var metrics = stages[0]!!
+
+    private var warmupRepeats = 0 // number of warmup repeats that occurred
+
+    /**
+     * Decreasing iteration count used when [state] == [RUNNING_TIME_STAGE]
+     * Used to determine when a main measurement stage finishes.
+     */
+    @JvmField // Used by [BenchmarkState.keepRunningInline()]
+    @PublishedApi
+    internal var iterationsRemaining = -1
+
+    /**
+     * Number of iterations in a repeat.
+     *
+     * This value is overridden by the end of the warmup stage. The default value defines
+     * behavior for dryRun mode, which bypasses warmup.
+     */
+    private var iterationsPerRepeat = 1
+
+    private var state = NOT_STARTED // Current benchmark state.
+
+    private val warmupManager = WarmupManager()
+
+    private var paused = false
+    private var totalRunTimeStartNs: Long = 0 // System.nanoTime() at start of benchmark.
+    private var totalRunTimeNs: Long = 0 // Total run time of a benchmark.
+
+    private var repeatCount = 0
+
+    private var stats = mutableListOf<Stats>()
+    private var allData = mutableListOf<LongArray>()
+
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    fun getMinTimeNanos(): Long {
+        checkState()
+        return stats.first { it.name == "timeNs" }.min
+    }
+
+    private fun checkState() {
+        check(state != NOT_STARTED) {
+            "The benchmark wasn't started! Every test in a class " +
+                    "with a BenchmarkRule must contain a benchmark. In Kotlin, call " +
+                    "benchmarkRule.measureRepeated {}, or in Java, call " +
+                    "benchmarkRule.getState().keepRunning() to run your benchmark."
+        }
+        check(state == FINISHED) {
+            "The benchmark hasn't finished! In Java, use " +
+                    "while(BenchmarkState.keepRunning()) to ensure keepRunning() returns " +
+                    "false before ending your test. In Kotlin, just use " +
+                    "benchmarkRule.measureRepeated {} to avoid the problem."
+        }
+    }
+
+    /**
+     * Stops the benchmark timer.
+     *
+     * This method can be called only when the timer is running.
+     *
+     * @throws [IllegalStateException] if the benchmark is already paused.
+     *
+     * @see resumeTiming
+     */
+    fun pauseTiming() {
+        check(!paused) { "Unable to pause the benchmark. The benchmark has already paused." }
+        if (state != RUNNING_WARMUP_STAGE) {
+            // only pause/resume metrics during non-warmup stages, as on Android.
+            metrics.capturePaused()
+        }
+        paused = true
+    }
+
+    /**
+     * Resumes the benchmark timer.
+     *
+     * This method can be called only when the timer is stopped.
+     *
+     * @throws [IllegalStateException] if the benchmark is already running.
+     *
+     * @see pauseTiming
+     */
+    fun resumeTiming() {
+        check(paused) { "Unable to resume the benchmark. The benchmark is already running." }
+        if (state != RUNNING_WARMUP_STAGE) {
+            metrics.captureResumed()
+        }
+        paused = false
+    }
+
+    private fun beginRunningStage() {
+        metrics = stages[state]!!
+        repeatCount = 0
+        metrics.captureInit()
+
+        if (state == RUNNING_WARMUP_STAGE) {
+            // Run GC to avoid memory pressure from previous run from affecting this one.
+            System.gc()
+            iterationsPerRepeat = 1
+        }
+        iterationsRemaining = iterationsPerRepeat
+        metrics.captureStart()
+    }
+
+    private fun endRunningStage() {
+        when (state) {
+            RUNNING_WARMUP_STAGE -> {
+                warmupRepeats = repeatCount
+                iterationsPerRepeat = computeMaxIterations()
+            }
+            RUNNING_TIME_STAGE, RUNNING_ALLOCATION_STAGE -> {
+                stats.addAll(metrics.captureFinished(maxIterations = iterationsPerRepeat))
+                allData.addAll(metrics.data)
+            }
+        }
+        state++
+        if (state == RUNNING_ALLOCATION_STAGE) {
+            // skip allocation stage if we are only doing minimal looping, or if the JVM
+            // can't measure allocations
+            if (Arguments.dryRunMode || stages[RUNNING_ALLOCATION_STAGE] == null) {
+                state++
+            }
+        }
+    }
+
+    /**
+     * @return whether the entire, multi-stage benchmark still has anything left to do
+     */
+    private fun startNextRepeat(): Boolean {
+        metrics.captureStop()
+        repeatCount++
+        // overwrite existing data, we don't keep data for warmup
+        if (state == RUNNING_WARMUP_STAGE) {
+            metrics.captureInit()
+            if (warmupManager.onNextIteration(metrics.data.last()[0])) {
+                endRunningStage()
+                beginRunningStage()
+            }
+        } else if (state == RUNNING_TIME_STAGE && repeatCount >= REPEAT_COUNT_TIME ||
+            state == RUNNING_ALLOCATION_STAGE && repeatCount >= REPEAT_COUNT_ALLOCATION
+        ) {
+            endRunningStage()
+            if (state == FINISHED) {
+                afterBenchmark()
+                return false
+            }
+            beginRunningStage()
+        }
+        iterationsRemaining = iterationsPerRepeat
+        metrics.captureStart()
+        return true
+    }
+
+    /**
+     * Inline fast-path function for inner benchmark loop.
+     *
+     * Kotlin users should use `BenchmarkRule.measureRepeated`
+     *
+     * @suppress
+     */
+    @Suppress("NOTHING_TO_INLINE")
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    inline fun keepRunningInline(): Boolean {
+        if (iterationsRemaining > 1) {
+            iterationsRemaining--
+            return true
+        }
+        return keepRunningInternal()
+    }
+
+    /**
+     * Returns true if the benchmark needs more samples - use this as the condition of a while loop.
+     *
+     * ```
+     * while (state.keepRunning()) {
+     *     int[] dest = new int[src.length];
+     *     System.arraycopy(src, 0, dest, 0, src.length);
+     * }
+     * ```
+     */
+    fun keepRunning(): Boolean {
+        if (iterationsRemaining > 1) {
+            iterationsRemaining--
+            return true
+        }
+        return keepRunningInternal()
+    }
+
+    /**
+     * Internal loop control for benchmarks - will return true as long as there are more
+     * measurements to perform.
+     *
+     * @return whether the benchmarking system has anything left to do
+     */
+    @PublishedApi
+    internal fun keepRunningInternal(): Boolean {
+        when (state) {
+            NOT_STARTED -> {
+                beforeBenchmark()
+                beginRunningStage()
+                return true
+            }
+            RUNNING_WARMUP_STAGE, RUNNING_TIME_STAGE, RUNNING_ALLOCATION_STAGE -> {
+                iterationsRemaining--
+                if (iterationsRemaining <= 0) {
+                    throwIfPaused() // only check at end of loop to save cycles
+                    return startNextRepeat()
+                }
+                return true
+            }
+            else -> throw IllegalStateException("The benchmark is in an invalid state.")
+        }
+    }
+
+    private fun beforeBenchmark() {
+        totalRunTimeStartNs = System.nanoTime() // Record this time to find total duration
+        state = RUNNING_WARMUP_STAGE // begin benchmarking
+        if (Arguments.dryRunMode) state = RUNNING_TIME_STAGE
+    }
+
+    private fun afterBenchmark() {
+        totalRunTimeNs = System.nanoTime() - totalRunTimeStartNs
+        warmupManager.logInfo()
+    }
+
+    private fun computeMaxIterations(): Int {
+        var idealIterations =
+            (REPEAT_DURATION_TARGET_NS / warmupManager.estimatedIterationTimeNs).toInt()
+        idealIterations = idealIterations.coerceIn(MIN_TEST_ITERATIONS, MAX_TEST_ITERATIONS)
+        OVERRIDE_ITERATIONS?.let { idealIterations = OVERRIDE_ITERATIONS }
+        return idealIterations
+    }
+
+    private fun throwIfPaused() = check(!paused) {
+        "Benchmark loop finished in paused state." +
+                " Call BenchmarkState.resumeTiming() before BenchmarkState.keepRunning()."
+    }
+
+    internal data class Report(
+        val className: String,
+        val testName: String,
+        val totalRunTimeNs: Long,
+        val data: List<List<Long>>,
+        val stats: List<Stats>,
+        val repeatIterations: Int,
+        val thermalThrottleSleepSeconds: Long,
+        val warmupIterations: Int
+    ) {
+        fun getStats(which: String): Stats {
+            return stats.first { it.name == which }
+        }
+    }
+
+    private fun getReport(testName: String, className: String) = Report(
+        className = className,
+        testName = testName,
+        totalRunTimeNs = totalRunTimeNs,
+        data = allData.map { it.toList() },
+        stats = stats,
+        repeatIterations = iterationsPerRepeat,
+        thermalThrottleSleepSeconds = 0,
+        warmupIterations = warmupRepeats
+    )
+
+    internal fun getReport() = checkState().run { getReport("", "") }
+
+    /**
+     * Prints the results, and adds them to the JSON output.
+     *
+     * @suppress
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    fun report(
+        fullClassName: String,
+        simpleClassName: String,
+        methodName: String
+    ) {
+        checkState() // this method is triggered externally
+        val fullTestName = "$simpleClassName.$methodName"
+        BenchmarkPlatform.logDebug(
+            "$fullTestName ${stats.map { it.getSummary() }} count=$iterationsPerRepeat"
+        )
+        BenchmarkPlatform.logDebug(
+            "%13s ns    %s".format("%,d".format(getMinTimeNanos()), fullTestName)
+        )
+
+        val report = getReport(
+            testName = methodName,
+            className = fullClassName
+        )
+        ResultWriter.appendReport(report)
+        Arguments.baseline?.let { compareWithBaseline(it, report) }
+    }
+
+    /**
+     * Compares the report with the one of the same benchmark in the baseline, and fails if a
+     * metric regressed.
+     */
+    private fun compareWithBaseline(baselineFile: File, report: Report) {
+        val current = ReportReader.Result(
+            key = "${report.className}#${report.testName}",
+            runs = report.stats.indices.associate {
+                report.stats[it].name to report.data[it].toLongArray()
+            }
+        )
+        val results = BaselineComparison(Arguments.regressionThreshold, Arguments.regressionAlpha)
+            .compare(baseline(baselineFile), listOf(current))
+        if (results.isEmpty()) {
+            BenchmarkPlatform.logDebug("${current.key} is not in the baseline")
+            return
+        }
+        val text = BaselineComparison.format(results)
+        BenchmarkPlatform.logDebug(text)
+        if (results.any { it.regressed }) {
+            throw AssertionError("Regression compared to ${baselineFile.path}:\n$text")
+        }
+    }
+
+    companion object {
+        internal const val TAG = "Benchmark"
+
+        private const val NOT_STARTED = -1 // The benchmark has not started yet.
+        private const val RUNNING_WARMUP_STAGE = 0 // The benchmark warmup stage is running.
+        private const val RUNNING_TIME_STAGE = 1 // The time benchmarking stage is running.
+        private const val RUNNING_ALLOCATION_STAGE = 2 // The alloc benchmarking stage is running.
+        private const val FINISHED = 3 // The benchmark has stopped; all stages are finished.
+
+        // Same values as on Android.
+        internal val REPEAT_COUNT_TIME = if (Arguments.dryRunMode) 1 else 50
+
+        internal const val REPEAT_COUNT_ALLOCATION = 5
+
+        private val OVERRIDE_ITERATIONS = if (Arguments.dryRunMode) 1 else null
+
+        private var baselineResults: List<ReportReader.Result>? = null
+
+        /**
+         * The results of the baseline report, read once.
+         */
+        private fun baseline(file: File): List<ReportReader.Result> =
+            baselineResults ?: ReportReader.read(file).also { baselineResults = it }
+
+        internal val REPEAT_DURATION_TARGET_NS = TimeUnit.SECONDS.toNanos(5) / REPEAT_COUNT_TIME
+        internal const val MAX_TEST_ITERATIONS = 1_000_000
+        internal const val MIN_TEST_ITERATIONS = 1
+    }
+}
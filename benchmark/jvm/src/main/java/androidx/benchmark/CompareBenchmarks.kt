@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@file:JvmName("CompareBenchmarks")
+
+package androidx.benchmark
+
+import java.io.File
+import kotlin.system.exitProcess
+
+private const val EXIT_NO_REGRESSION = 0
+private const val EXIT_REGRESSION = 1
+private const val EXIT_ERROR = 2
+
+/**
+ * Compares two JSON benchmark reports, written on Android or on the JVM, and prints the
+ * comparison of their metrics.
+ *
+ * ```
+ * java -cp ... androidx.benchmark.CompareBenchmarks baseline.json current.json \
+ *     [--threshold=0.05] [--alpha=0.01]
+ * ```
+ *
+ * Exits with status 0 if no metric regressed, 1 if one did, and 2 if the reports could not be
+ * compared.
+ *
+ * @see BaselineComparison
+ */
+fun main(args: Array<String>) {
+    exitProcess(compareBenchmarks(args))
+}
+
+internal fun compareBenchmarks(args: Array<String>): Int {
+    val files = args.filter { !it.startsWith("--") }
+    val options = args.filter { it.startsWith("--") }
+        .associate { it.substringBefore('=') to it.substringAfter('=', "") }
+    if (files.size != 2 || !options.keys.all { it == "--threshold" || it == "--alpha" }) {
+        System.err.println(
+            "Usage: CompareBenchmarks <baseline.json> <current.json> " +
+                    "[--threshold=${BaselineComparison.DEFAULT_THRESHOLD}] " +
+                    "[--alpha=${BaselineComparison.DEFAULT_ALPHA}]"
+        )
+        return EXIT_ERROR
+    }
+    val results = try {
+        BaselineComparison(
+            threshold = options["--threshold"]?.toDouble() ?: BaselineComparison.DEFAULT_THRESHOLD,
+            alpha = options["--alpha"]?.toDouble() ?: BaselineComparison.DEFAULT_ALPHA
+        ).compare(ReportReader.read(File(files[0])), ReportReader.read(File(files[1])))
+    } catch (exception: Exception) {
+        System.err.println("Unable to compare the reports: $exception")
+        return EXIT_ERROR
+    }
+    println(BaselineComparison.format(results))
+    return if (results.any { it.regressed }) EXIT_REGRESSION else EXIT_NO_REGRESSION
+}
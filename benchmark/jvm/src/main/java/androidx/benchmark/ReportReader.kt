@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark
+
+import com.google.gson.JsonParser
+import java.io.File
+
+/**
+ * Reads the benchmark results of a JSON report written by [ResultWriter], on Android or on the
+ * JVM.
+ */
+internal object ReportReader {
+    /**
+     * The results of a benchmark.
+     *
+     * @param key `className#name`, which identifies the benchmark across reports
+     * @param runs the samples of each metric, by metric name
+     */
+    class Result(val key: String, val runs: Map<String, LongArray>)
+
+    fun read(file: File): List<Result> = parse(file.readText())
+
+    fun parse(json: String): List<Result> {
+        val root = JsonParser().parse(json).asJsonObject
+        return root.getAsJsonArray("benchmarks").map { element ->
+            val benchmark = element.asJsonObject
+            val metrics = benchmark.getAsJsonObject("metrics").entrySet()
+            Result(
+                key = "${benchmark["className"].asString}#${benchmark["name"].asString}",
+                runs = metrics.associate { (name, metric) ->
+                    name to metric.asJsonObject.getAsJsonArray("runs")
+                        .map { it.asLong }.toLongArray()
+                }
+            )
+        }
+    }
+}
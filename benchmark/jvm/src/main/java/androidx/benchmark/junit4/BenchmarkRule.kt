@@ -0,0 +1,197 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark.junit4
+
+import androidx.annotation.RestrictTo
+import androidx.benchmark.BenchmarkState
+import org.junit.Assert.assertTrue
+import org.junit.rules.TestRule
+import org.junit.runner.Description
+import org.junit.runners.model.Statement
+
+/**
+ * JUnit rule for benchmarking code on the JVM.
+ *
+ * This is the JVM counterpart of the Android `BenchmarkRule`, with the same API, so that the same
+ * benchmark source can run as a host test or as an instrumentation test.
+ *
+ * In Kotlin, benchmark with [measureRepeated]:
+ *
+ * ```
+ * @get:Rule
+ * val benchmarkRule = BenchmarkRule();
+ *
+ * @Test
+ * fun myBenchmark() {
+ *     ...
+ *     benchmarkRule.measureRepeated {
+ *         doSomeWork()
+ *     }
+ *     ...
+ * }
+ * ```
+ *
+ * In Java, use `getState()`:
+ *
+ * ```
+ * @Rule
+ * public BenchmarkRule benchmarkRule = new BenchmarkRule();
+ *
+ * @Test
+ * public void myBenchmark() {
+ *     ...
+ *     BenchmarkState state = benchmarkRule.getState();
+ *     while (state.keepRunning()) {
+ *         doSomeWork();
+ *     }
+ *     ...
+ * }
+ * ```
+ *
+ * Benchmark results will be output:
+ * - Summary in the standard output of the test
+ * - In JSON format, in the directory of the `androidx.benchmark.outputDir` system property,
+ * when the `androidx.benchmark.output.enable` system property is `true`
+ *
+ * Every test in the Class using this @Rule must contain a single benchmark.
+ */
+class BenchmarkRule internal constructor(
+    /**
+     * Used to disable reporting, for correctness tests that shouldn't report values.
+     * Is always true when called non-internally.
+     */
+    private val enableReport: Boolean
+) : TestRule {
+    constructor() : this(true)
+
+    internal // synthetic access
+    val internalState = BenchmarkState()
+
+    /**
+     * Object used for benchmarking in Java.
+     *
+     * @throws [IllegalStateException] if the BenchmarkRule isn't correctly applied to a test.
+     */
+    fun getState(): BenchmarkState {
+        // Note: this is an explicit method instead of an accessor to help convey it's only for Java
+        // Kotlin users should call the [measureRepeated] method.
+        if (!applied) {
+            throw IllegalStateException(
+                "Cannot get state before BenchmarkRule is applied to a test. Check that your " +
+                        "BenchmarkRule is annotated correctly (@Rule in Java, @get:Rule in Kotlin)."
+            )
+        }
+        return internalState
+    }
+
+    internal // synthetic access
+    var applied = false
+
+    /** @suppress */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    val scope = Scope()
+
+    /**
+     * Handle used for controlling timing during [measureRepeated].
+     */
+    inner class Scope internal constructor() {
+        /**
+         * Disable timing for a block of code.
+         *
+         * ```
+         * @Test
+         * fun bitmapProcessing() = benchmarkRule.measureRepeated {
+         *     val input: Bitmap = runWithTimingDisabled { constructTestBitmap() }
+         *     processBitmap(input)
+         * }
+         * ```
+         */
+        inline fun <T> runWithTimingDisabled(block: () -> T): T {
+            getOuterState().pauseTiming()
+            val ret: T = block()
+            getOuterState().resumeTiming()
+            return ret
+        }
+
+        /**
+         * Allows the inline function [runWithTimingDisabled] to be called outside of this scope.
+         */
+        @PublishedApi
+        internal fun getOuterState(): BenchmarkState {
+            return getState()
+        }
+    }
+
+    override fun apply(base: Statement, description: Description) = Statement {
+        applied = true
+        var invokeMethodName = description.methodName
+        // Same test name simplification as on Android, so that results can be compared.
+        if (invokeMethodName.startsWith("test")) {
+            assertTrue(
+                "The test name $invokeMethodName is too short",
+                invokeMethodName.length > 5
+            )
+            invokeMethodName = invokeMethodName.substring(4, 5).toLowerCase() +
+                    invokeMethodName.substring(5)
+        }
+
+        base.evaluate()
+
+        if (enableReport) {
+            internalState.report(
+                fullClassName = description.className,
+                simpleClassName = description.testClass.simpleName,
+                methodName = invokeMethodName
+            )
+        }
+    }
+}
+
+/**
+ * Benchmark a block of code.
+ *
+ * ```
+ * @get:Rule
+ * val benchmarkRule = BenchmarkRule();
+ *
+ * @Test
+ * fun myBenchmark() {
+ *     ...
+ *     benchmarkRule.measureRepeated {
+ *         doSomeWork()
+ *     }
+ *     ...
+ * }
+ * ```
+ *
+ * @param block The block of code to benchmark.
+ */
+inline fun BenchmarkRule.measureRepeated(crossinline block: BenchmarkRule.Scope.() -> Unit) {
+    // Note: this is an extension function to discourage calling from Java.
+
+    // Extract members to locals, to ensure we check #applied, and we don't hit accessors
+    val localState = getState()
+    val localScope = scope
+
+    while (localState.keepRunningInline()) {
+        block(localScope)
+    }
+}
+
+internal inline fun Statement(crossinline evaluate: () -> Unit) = object : Statement() {
+    override fun evaluate() = evaluate()
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import java.util.Random
+
+@RunWith(JUnit4::class)
+class BaselineComparisonTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private val random = Random(0)
+
+    /**
+     * 50 samples around [median], with a few large outliers as on a noisy device.
+     */
+    private fun samples(median: Long) = LongArray(50) {
+        val noise = (random.nextGaussian() * median * 0.01).toLong()
+        if (it % 10 == 0) median * 3 + noise else median + noise
+    }
+
+    @Test
+    fun noChange() {
+        val result = BaselineComparison().compare("b", "timeNs", samples(1000), samples(1000))
+        assertFalse(result.regressed)
+        assertFalse(result.improved)
+        assertTrue(result.pValue > 0.01)
+    }
+
+    @Test
+    fun regression() {
+        val result = BaselineComparison().compare("b", "timeNs", samples(1000), samples(1100))
+        assertTrue(result.regressed)
+        assertEquals(0.1, result.change, 0.02)
+        assertTrue(result.pValue < 0.001)
+    }
+
+    @Test
+    fun belowThreshold() {
+        val result = BaselineComparison(threshold = 0.2)
+            .compare("b", "timeNs", samples(1000), samples(1100))
+        assertFalse(result.regressed)
+    }
+
+    @Test
+    fun improvement() {
+        val result = BaselineComparison().compare("b", "timeNs", samples(1000), samples(900))
+        assertFalse(result.regressed)
+        assertTrue(result.improved)
+    }
+
+    @Test
+    fun allocationFreeBaseline() {
+        val result = BaselineComparison()
+            .compare("b", "allocatedBytes", LongArray(5), longArrayOf(16, 16, 16, 16, 16))
+        assertTrue(result.regressed)
+        assertFalse(
+            BaselineComparison().compare("b", "allocatedBytes", LongArray(5), LongArray(5))
+                .regressed
+        )
+    }
+
+    @Test
+    fun compareReports() {
+        val baseline = tempFolder.newFile()
+        val current = tempFolder.newFile()
+        ResultWriter.writeReport(baseline, listOf(report("a", 1000), report("b", 1000)))
+        ResultWriter.writeReport(current, listOf(report("a", 1000), report("b", 1200)))
+
+        val results = BaselineComparison()
+            .compare(ReportReader.read(baseline), ReportReader.read(current))
+        assertEquals(listOf("Class#a", "Class#b"), results.map { it.benchmark })
+        assertEquals(listOf(false, true), results.map { it.regressed })
+
+        assertEquals(1, compareBenchmarks(arrayOf(baseline.path, current.path)))
+        assertEquals(0, compareBenchmarks(arrayOf(baseline.path, baseline.path)))
+        assertEquals(
+            0,
+            compareBenchmarks(arrayOf(baseline.path, current.path, "--threshold=0.5"))
+        )
+        assertEquals(2, compareBenchmarks(arrayOf(baseline.path)))
+    }
+
+    private fun report(name: String, median: Long): BenchmarkState.Report {
+        val data = samples(median)
+        return BenchmarkState.Report(
+            className = "Class",
+            testName = name,
+            totalRunTimeNs = 1,
+            data = listOf(data.toList()),
+            stats = listOf(Stats(data, "timeNs")),
+            repeatIterations = 1,
+            thermalThrottleSleepSeconds = 0,
+            warmupIterations = 1
+        )
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Assume.assumeTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import java.util.concurrent.TimeUnit
+
+@RunWith(JUnit4::class)
+class BenchmarkStateTest {
+    private fun us2ns(ms: Long): Long = TimeUnit.MICROSECONDS.toNanos(ms)
+
+    /**
+     * Spin-loop until durationUs has elapsed.
+     */
+    private fun spin(durationUs: Long) {
+        val end = System.nanoTime() + us2ns(durationUs)
+
+        @Suppress("ControlFlowWithEmptyBody") // intentionally spinning
+        while (System.nanoTime() < end) {}
+    }
+
+    @Test
+    fun validateMetrics() {
+        val state = BenchmarkState()
+        while (state.keepRunning()) {
+            spin(durationUs = 300)
+
+            state.pauseTiming()
+            spin(durationUs = 700)
+            state.resumeTiming()
+        }
+        val report = state.getReport()
+        val medianTime = report.getStats("timeNs").median
+        assertTrue(
+            "median time (ns) $medianTime should be roughly 300us",
+            medianTime in us2ns(280)..us2ns(900)
+        )
+        assertEquals(BenchmarkState.REPEAT_COUNT_TIME, report.data[0].size)
+        assertTrue(report.warmupIterations > 0)
+    }
+
+    @Test
+    fun allocatedBytes() {
+        assumeTrue(AllocatedBytesCapture.isSupported)
+        var array: ByteArray? = null
+        val state = BenchmarkState()
+        while (state.keepRunning()) {
+            array = ByteArray(1000)
+
+            state.pauseTiming()
+            array = ByteArray(2000)
+            state.resumeTiming()
+        }
+        assertEquals(2000, array!!.size)
+        val median = state.getReport().getStats("allocatedBytes").median
+        assertTrue(
+            "median allocated bytes $median should be roughly 1000",
+            median in 1000..1100
+        )
+        assertTrue(state.getReport().getStats("gcTimeNs").median >= 0)
+    }
+
+    @Test
+    fun allocationFree() {
+        assumeTrue(AllocatedBytesCapture.isSupported)
+        var sum = 0L
+        val state = BenchmarkState()
+        while (state.keepRunning()) {
+            sum += sum xor 31
+        }
+        assertEquals(0, state.getReport().getStats("allocatedBytes").max)
+        assertTrue(sum != 1L)
+    }
+
+    @Test
+    fun keepRunningMissingResume() {
+        val state = BenchmarkState()
+
+        assertEquals(true, state.keepRunning())
+        state.pauseTiming()
+        try {
+            state.keepRunning()
+            fail()
+        } catch (expected: IllegalStateException) {
+        }
+    }
+
+    @Test
+    fun pauseCalledTwice() {
+        val state = BenchmarkState()
+
+        assertEquals(true, state.keepRunning())
+        state.pauseTiming()
+        try {
+            state.pauseTiming()
+            fail()
+        } catch (expected: IllegalStateException) {
+        }
+    }
+
+    @Test
+    fun notFinished() {
+        val state = BenchmarkState()
+
+        assertEquals(true, state.keepRunning())
+        try {
+            state.getMinTimeNanos()
+            fail()
+        } catch (expected: IllegalStateException) {
+        }
+    }
+}
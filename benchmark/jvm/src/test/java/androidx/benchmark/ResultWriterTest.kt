@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark
+
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class ResultWriterTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private val data = arrayOf(longArrayOf(100, 101, 102))
+
+    private val report = BenchmarkState.Report(
+        testName = "MethodA[size=\"10\"]",
+        className = "package.Class1",
+        totalRunTimeNs = 900000000,
+        data = data.map { it.toList() },
+        stats = data.map { Stats(it, "timeNs") },
+        repeatIterations = 100000,
+        thermalThrottleSleepSeconds = 0,
+        warmupIterations = 8000
+    )
+
+    /**
+     * The benchmarks are written in the same format as on Android.
+     */
+    @Test
+    fun validateJson() {
+        val tempFile = tempFolder.newFile()
+
+        ResultWriter.writeReport(tempFile, listOf(report))
+        val benchmarks = tempFile.readText().substringAfter("\n    },\n")
+        assertEquals(
+            """
+            |    "benchmarks": [
+            |        {
+            |            "name": "MethodA[size=\"10\"]",
+            |            "params": {
+            |                "size": "\"10\""
+            |            },
+            |            "className": "package.Class1",
+            |            "totalRunTimeNs": 900000000,
+            |            "metrics": {
+            |                "timeNs": {
+            |                    "minimum": 100,
+            |                    "maximum": 102,
+            |                    "median": 101,
+            |                    "runs": [
+            |                        100,
+            |                        101,
+            |                        102
+            |                    ]
+            |                }
+            |            },
+            |            "warmupIterations": 8000,
+            |            "repeatIterations": 100000,
+            |            "thermalThrottleSleepSeconds": 0
+            |        }
+            |    ]
+            |}
+            """.trimMargin(),
+            benchmarks
+        )
+    }
+
+    @Test
+    fun emptyReport() {
+        val tempFile = tempFolder.newFile()
+
+        ResultWriter.writeReport(tempFile, listOf())
+        assertEquals(
+            "\n    \"benchmarks\": []\n}",
+            tempFile.readText().substringAfter("\n    },")
+        )
+    }
+}
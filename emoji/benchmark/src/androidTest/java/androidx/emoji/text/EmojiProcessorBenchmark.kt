@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.emoji.text
+
+import android.content.Context
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import androidx.test.filters.SdkSuppress
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Processes chat-like messages, as a list does when its items are bound.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+@SdkSuppress(minSdkVersion = 19)
+class EmojiProcessorBenchmark(private val message: String, private val text: String) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+
+    private lateinit var repo: MetadataRepo
+
+    @Before
+    fun setup() {
+        repo = MetadataRepo.create(context.assets, FONT_NAME)
+    }
+
+    @Test
+    fun process() {
+        val processor = EmojiProcessor(repo, EmojiCompat.SpanFactory(), false, null, 0)
+        benchmarkRule.measureRepeated {
+            processor.process(text, 0, text.length, EmojiCompat.EMOJI_COUNT_UNLIMITED, true)
+        }
+    }
+
+    @Test
+    fun process_cached() {
+        val processor = EmojiProcessor(repo, EmojiCompat.SpanFactory(), false, null, 100)
+        benchmarkRule.measureRepeated {
+            processor.process(text, 0, text.length, EmojiCompat.EMOJI_COUNT_UNLIMITED, true)
+        }
+    }
+
+    companion object {
+        private const val FONT_NAME = "NotoColorEmojiCompat.ttf"
+
+        private const val PLAIN = "Are we still meeting at the station at 10:30 tomorrow? " +
+            "Let me know, I can also pick you up on the way if that's easier."
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "{0}")
+        fun data(): List<Array<Any>> = listOf(
+            arrayOf("plain", PLAIN),
+            arrayOf("emojiAtEnd", "$PLAIN 😀"),
+            arrayOf(
+                "emojis",
+                "👍🏽 $PLAIN ❤️ 🇯🇵"
+            )
+        )
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.emoji.text
+
+import android.content.Context
+import android.graphics.Typeface
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.test.filters.SdkSuppress
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+@SdkSuppress(minSdkVersion = 19)
+class MetadataRepoBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+
+    private lateinit var typeface: Typeface
+    private lateinit var fontBuffer: ByteBuffer
+    private lateinit var trieFile: File
+    private lateinit var trieBuffer: ByteBuffer
+
+    @Before
+    fun setup() {
+        typeface = Typeface.createFromAsset(context.assets, FONT_NAME)
+        val font = context.assets.open(FONT_NAME).use { it.readBytes() }
+        fontBuffer = ByteBuffer.allocateDirect(font.size).put(font)
+        fontBuffer.flip()
+
+        // What the build would generate for the bundled font.
+        trieFile = File(context.cacheDir, "emoji.trie")
+        trieFile.outputStream().use {
+            MetadataRepo.create(typeface, fontBuffer.duplicate()).trie.write(it)
+        }
+        trieBuffer = RandomAccessFile(trieFile, "r").use {
+            it.channel.map(FileChannel.MapMode.READ_ONLY, 0, it.length())
+        }
+    }
+
+    @After
+    fun teardown() {
+        trieFile.delete()
+    }
+
+    /**
+     * Loading the metadata without a precompiled trie, which is built at runtime.
+     */
+    @Test
+    fun init_buildTrie() {
+        benchmarkRule.measureRepeated {
+            MetadataRepo.create(typeface, fontBuffer.duplicate())
+        }
+    }
+
+    /**
+     * Loading the metadata with the memory mapped precompiled trie.
+     */
+    @Test
+    fun init_precompiledTrie() {
+        benchmarkRule.measureRepeated {
+            MetadataRepo.create(typeface, fontBuffer.duplicate(), trieBuffer)
+        }
+    }
+
+    @Test
+    fun lookup_builtTrie() {
+        lookup(MetadataRepo.create(typeface, fontBuffer.duplicate()))
+    }
+
+    @Test
+    fun lookup_precompiledTrie() {
+        lookup(MetadataRepo.create(typeface, fontBuffer.duplicate(), trieBuffer))
+    }
+
+    /**
+     * Looks up each of [EMOJIS], which walks the trie for each of their codepoints.
+     */
+    private fun lookup(repo: MetadataRepo) {
+        val processor = EmojiProcessor(repo, EmojiCompat.SpanFactory(), false, null, 0)
+        benchmarkRule.measureRepeated {
+            for (emoji in EMOJIS) {
+                processor.getEmojiMetadata(emoji)
+            }
+        }
+    }
+
+    companion object {
+        private const val FONT_NAME = "NotoColorEmojiCompat.ttf"
+
+        private val EMOJIS = arrayOf(
+            "\uD83D\uDE00", // grinning face
+            "\u2764\uFE0F", // red heart
+            "\uD83D\uDC4D\uD83C\uDFFD", // thumbs up, medium skin tone
+            "\uD83C\uDDEF\uD83C\uDDF5", // flag of Japan
+            "\u0023\uFE0F\u20E3", // keycap number sign
+            "\uD83D\uDC68\u200D\uD83D\uDC69\u200D\uD83D\uDC67", // family
+            "a", // not an emoji
+            "\uD83D\uDE00\uD83D\uDE00" // more than one emoji
+        )
+    }
+}
@@ -406,6 +406,54 @@ public class EmojiCompatTest {
         }
     }
 
+    @Test
+    @SdkSuppress(minSdkVersion = 19)
+    public void testProcess_withLongTextBeforeEmoji() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append("abc def, ");
+        }
+        final int start = builder.length();
+        builder.append(new TestString(EMOJI_SINGLE_CODEPOINT).toString());
+        final int end = builder.length();
+        builder.append(" xyz");
+
+        final CharSequence processed = EmojiCompat.get().process(builder.toString());
+        assertThat(processed, hasEmojiCount(1));
+        assertThat(processed, hasEmojiAt(EMOJI_SINGLE_CODEPOINT, start, end));
+    }
+
+    @Test
+    @SdkSuppress(minSdkVersion = 19)
+    public void testProcess_withCache_createsNewSpans() {
+        EmojiCompat.reset(TestConfigBuilder.config().setProcessedTextCacheSize(10));
+        final String string = new TestString(EMOJI_SINGLE_CODEPOINT)
+                .append(EMOJI_WITH_ZWJ)
+                .withPrefix().withSuffix().toString();
+
+        final Spannable first = (Spannable) EmojiCompat.get().process(string);
+        final Spannable second = (Spannable) EmojiCompat.get().process(string);
+        assertThat(second, hasEmojiCount(2));
+
+        final EmojiSpan[] firstSpans = first.getSpans(0, first.length(), EmojiSpan.class);
+        final EmojiSpan[] secondSpans = second.getSpans(0, second.length(), EmojiSpan.class);
+        assertEquals(firstSpans.length, secondSpans.length);
+        for (int i = 0; i < firstSpans.length; i++) {
+            assertFalse(firstSpans[i] == secondSpans[i]);
+            assertSame(firstSpans[i].getMetadata(), secondSpans[i].getMetadata());
+            assertEquals(first.getSpanStart(firstSpans[i]), second.getSpanStart(secondSpans[i]));
+            assertEquals(first.getSpanEnd(firstSpans[i]), second.getSpanEnd(secondSpans[i]));
+        }
+    }
+
+    @Test
+    public void testProcess_withCache_returnsSameString_ifNoEmoji() {
+        EmojiCompat.reset(TestConfigBuilder.config().setProcessedTextCacheSize(10));
+        final String string = "abc";
+        assertSame(string, EmojiCompat.get().process(string));
+        assertSame(string, EmojiCompat.get().process(string));
+    }
+
     @SuppressLint("Range")
     @Test(expected = IllegalArgumentException.class)
     public void testProcess_throwsException_withMaxEmojiSetToNegative() {
@@ -93,15 +93,12 @@ public class MetadataRepoTest {
     }
 
     final EmojiMetadata getNode(final int[] codepoints) {
-        return getNode(mMetadataRepo.getRootNode(), codepoints, 0);
-    }
-
-    final EmojiMetadata getNode(MetadataRepo.Node node, final int[] codepoints, int start) {
-        if (codepoints.length < start) return null;
-        if (codepoints.length == start) return node.getData();
-
-        final MetadataRepo.Node childNode = node.get(codepoints[start]);
-        if (childNode == null) return null;
-        return getNode(childNode, codepoints, start + 1);
+        final MetadataTrie trie = mMetadataRepo.getTrie();
+        int node = MetadataTrie.ROOT;
+        for (int codepoint : codepoints) {
+            node = trie.getChild(node, codepoint);
+            if (node == MetadataTrie.NO_NODE) return null;
+        }
+        return mMetadataRepo.getMetadata(trie.getMetadataIndex(node));
     }
 }
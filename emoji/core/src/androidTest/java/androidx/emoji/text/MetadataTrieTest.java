@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.emoji.text;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SdkSuppress;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+@SdkSuppress(minSdkVersion = 19)
+public class MetadataTrieTest {
+
+    private static final int[][] SEQUENCES = new int[][]{
+            {0x1F600},
+            {0x1F468, 0x200D, 0x1F469},
+            {0x1F468},
+            {0x0023, 0xFE0F, 0x20E3},
+            {},
+            {0x1F468, 0x200D, 0x1F466},
+    };
+
+    @Test
+    public void testBuild_findsAllSequences() {
+        assertSequences(MetadataTrie.build(SEQUENCES, 3));
+    }
+
+    @Test
+    public void testBuild_lastDuplicateWins() {
+        final MetadataTrie trie = MetadataTrie.build(new int[][]{{1, 2}, {1, 2}}, 0);
+        assertEquals(1, getMetadataIndex(trie, new int[]{1, 2}));
+    }
+
+    @Test
+    public void testBuild_empty() {
+        final MetadataTrie trie = MetadataTrie.build(new int[0][], 0);
+        assertEquals(MetadataTrie.NO_NODE, trie.getChild(MetadataTrie.ROOT, 1));
+        assertEquals(MetadataTrie.NO_METADATA, trie.getMetadataIndex(MetadataTrie.ROOT));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        MetadataTrie.build(SEQUENCES, 3).write(outputStream);
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(outputStream.size());
+        buffer.put(outputStream.toByteArray());
+        buffer.flip();
+        final MetadataTrie trie = MetadataTrie.read(buffer);
+
+        assertEquals(0, buffer.position());
+        assertEquals(3, trie.getMetadataVersion());
+        assertEquals(SEQUENCES.length, trie.getMetadataCount());
+        assertSequences(trie);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_withInvalidMagic() throws IOException {
+        MetadataTrie.read(ByteBuffer.allocate(64));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_truncated() throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        MetadataTrie.build(SEQUENCES, 3).write(outputStream);
+        MetadataTrie.read(ByteBuffer.wrap(outputStream.toByteArray(), 0,
+                outputStream.size() - 4));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_childCountOutOfBounds() throws IOException {
+        // root: [NO_METADATA, 1, codepoint, child offset]
+        MetadataTrie.read(corrupt(1, 1000));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_childOffsetOutOfBounds() throws IOException {
+        MetadataTrie.read(corrupt(3, 1000));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_childOffsetCycle() throws IOException {
+        MetadataTrie.read(corrupt(3, MetadataTrie.ROOT));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_metadataIndexOutOfBounds() throws IOException {
+        // child: [metadata index, 0]
+        MetadataTrie.read(corrupt(4, 1));
+    }
+
+    /**
+     * Serializes the trie of a single one codepoint sequence and replaces one of its node ints.
+     */
+    private static ByteBuffer corrupt(int index, int value) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final MetadataTrie trie = MetadataTrie.build(new int[][]{{0x1F600}}, 3);
+        trie.write(outputStream);
+        final ByteBuffer buffer = ByteBuffer.wrap(outputStream.toByteArray());
+        // the nodes follow the header of 5 ints
+        buffer.putInt((5 + index) * 4, value);
+        // the unmodified trie is valid
+        assertEquals(0, MetadataTrie.read(ByteBuffer.wrap(outputStream.toByteArray()))
+                .getMetadataIndex(trie.getChild(MetadataTrie.ROOT, 0x1F600)));
+        return buffer;
+    }
+
+    private static void assertSequences(MetadataTrie trie) {
+        for (int i = 0; i < SEQUENCES.length; i++) {
+            if (SEQUENCES[i].length > 0) {
+                assertEquals(i, getMetadataIndex(trie, SEQUENCES[i]));
+            }
+        }
+        assertEquals(MetadataTrie.NO_METADATA, getMetadataIndex(trie, new int[]{0x1F468, 0x200D}));
+        assertEquals(MetadataTrie.NO_METADATA, getMetadataIndex(trie, new int[]{0x1F601}));
+        assertEquals(MetadataTrie.NO_METADATA,
+                getMetadataIndex(trie, new int[]{0x1F468, 0x200D, 0x1F467}));
+    }
+
+    private static int getMetadataIndex(MetadataTrie trie, int[] codepoints) {
+        int node = MetadataTrie.ROOT;
+        for (int codepoint : codepoints) {
+            node = trie.getChild(node, codepoint);
+            if (node == MetadataTrie.NO_NODE) return MetadataTrie.NO_METADATA;
+        }
+        return trie.getMetadataIndex(node);
+    }
+}
@@ -256,6 +256,12 @@ public class EmojiCompat {
      */
     @LoadStrategy private final int mMetadataLoadStrategy;
 
+    /**
+     * @see Config#setProcessedTextCacheSize(int)
+     */
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    final int mProcessedTextCacheSize;
+
     /**
      * Private constructor for singleton instance.
      *
@@ -271,6 +277,7 @@ public class EmojiCompat {
         mEmojiSpanIndicatorColor = config.mEmojiSpanIndicatorColor;
         mMetadataLoader = config.mMetadataLoader;
         mMetadataLoadStrategy = config.mMetadataLoadStrategy;
+        mProcessedTextCacheSize = config.mProcessedTextCacheSize;
         mMainHandler = new Handler(Looper.getMainLooper());
         mInitCallbacks = new ArraySet<>();
         if (config.mInitCallbacks != null && !config.mInitCallbacks.isEmpty()) {
@@ -908,6 +915,8 @@ public class EmojiCompat {
         int mEmojiSpanIndicatorColor = Color.GREEN;
         @SuppressWarnings("WeakerAccess") /* synthetic access */
         @LoadStrategy int mMetadataLoadStrategy = LOAD_STRATEGY_DEFAULT;
+        @SuppressWarnings("WeakerAccess") /* synthetic access */
+        int mProcessedTextCacheSize;
 
         /**
          * Default constructor.
@@ -1040,6 +1049,25 @@ public class EmojiCompat {
             return this;
         }
 
+        /**
+         * Sets the number of Strings whose emojis are remembered by
+         * {@link EmojiCompat#process(CharSequence)}, so that processing the same text again, for
+         * instance when a list item is bound again, only needs to create the spans. Only whole
+         * Strings processed without a maximum emoji count are remembered, the least recently
+         * processed ones are dropped first. The default value is {@code 0}, no text is
+         * remembered.
+         *
+         * @param cacheSize maximum number of Strings to remember, should be greater than or equal
+         *                  to {@code 0}
+         *
+         * @return EmojiCompat.Config instance
+         */
+        public Config setProcessedTextCacheSize(@IntRange(from = 0) int cacheSize) {
+            Preconditions.checkArgumentNonnegative(cacheSize, "cacheSize cannot be negative");
+            mProcessedTextCacheSize = cacheSize;
+            return this;
+        }
+
         /**
          * Determines the strategy to start loading the metadata. By default {@link EmojiCompat}
          * will start loading the metadata during {@link EmojiCompat#init(Config)}. When set to
@@ -1232,7 +1260,8 @@ public class EmojiCompat {
             mMetadataRepo = metadataRepo;
             mProcessor = new EmojiProcessor(mMetadataRepo, new SpanFactory(),
                     mEmojiCompat.mUseEmojiAsDefaultStyle,
-                    mEmojiCompat.mEmojiAsDefaultStyleExceptions);
+                    mEmojiCompat.mEmojiAsDefaultStyleExceptions,
+                    mEmojiCompat.mProcessedTextCacheSize);
 
             mEmojiCompat.onMetadataLoadSuccess();
         }
@@ -36,6 +36,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
+import androidx.collection.LruCache;
 import androidx.core.graphics.PaintCompat;
 import androidx.core.util.Preconditions;
 import androidx.emoji.widget.SpannableBuilder;
@@ -104,18 +105,48 @@ final class EmojiProcessor {
      */
     private final int[] mEmojiAsDefaultStyleExceptions;
 
+    /**
+     * Bit set of the chars that can start an emoji, i.e. the first codepoint of an emoji or its
+     * high surrogate. Runs of other chars are skipped without walking the trie.
+     */
+    private final long[] mEmojiStartChars;
+
+    /**
+     * Emojis found in whole Strings, {@code null} if caching is disabled.
+     *
+     * @see EmojiCompat.Config#setProcessedTextCacheSize(int)
+     */
+    @Nullable
+    private final LruCache<String, CachedResult> mResultCache;
+
     EmojiProcessor(@NonNull final MetadataRepo metadataRepo,
             @NonNull final EmojiCompat.SpanFactory spanFactory,
             final boolean useEmojiAsDefaultStyle,
-            @Nullable final int[] emojiAsDefaultStyleExceptions) {
+            @Nullable final int[] emojiAsDefaultStyleExceptions,
+            @IntRange(from = 0) final int resultCacheSize) {
         mSpanFactory = spanFactory;
         mMetadataRepo = metadataRepo;
         mUseEmojiAsDefaultStyle = useEmojiAsDefaultStyle;
         mEmojiAsDefaultStyleExceptions = emojiAsDefaultStyleExceptions;
+        mEmojiStartChars = createEmojiStartChars(metadataRepo.getTrie());
+        mResultCache = resultCacheSize > 0
+                ? new LruCache<String, CachedResult>(resultCacheSize) : null;
+    }
+
+    private static long[] createEmojiStartChars(final MetadataTrie trie) {
+        final long[] emojiStartChars = new long[(Character.MAX_VALUE + 1) / 64];
+        final int childCount = trie.getChildCount(MetadataTrie.ROOT);
+        for (int i = 0; i < childCount; i++) {
+            final int codePoint = trie.getChildCodePoint(MetadataTrie.ROOT, i);
+            final char c = Character.isBmpCodePoint(codePoint) ? (char) codePoint
+                    : Character.highSurrogate(codePoint);
+            emojiStartChars[c >>> 6] |= 1L << c;
+        }
+        return emojiStartChars;
     }
 
     EmojiMetadata getEmojiMetadata(@NonNull final CharSequence charSequence) {
-        final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getRootNode(),
+        final ProcessorSm sm = new ProcessorSm(mMetadataRepo,
                 mUseEmojiAsDefaultStyle, mEmojiAsDefaultStyleExceptions);
         final int end = charSequence.length();
         int currentOffset = 0;
@@ -160,6 +191,29 @@ final class EmojiProcessor {
     CharSequence process(@NonNull final CharSequence charSequence, @IntRange(from = 0) int start,
             @IntRange(from = 0) int end, @IntRange(from = 0) int maxEmojiCount,
             final boolean replaceAll) {
+        // Only whole Strings are cached, they cannot change nor have spans already.
+        final LruCache<String, CachedResult> resultCache = mResultCache;
+        if (resultCache == null || !(charSequence instanceof String) || start != 0
+                || end != charSequence.length()
+                || maxEmojiCount != EmojiCompat.EMOJI_COUNT_UNLIMITED) {
+            return processUncached(charSequence, start, end, maxEmojiCount, replaceAll);
+        }
+
+        // String.equals() checks identity first, repeated calls with the same instance are cheap
+        final String string = (String) charSequence;
+        final CachedResult cached = resultCache.get(string);
+        if (cached != null && cached.mReplaceAll == replaceAll) {
+            return cached.apply(string, mSpanFactory);
+        }
+        final CharSequence result = processUncached(string, start, end, maxEmojiCount,
+                replaceAll);
+        resultCache.put(string, CachedResult.create(result, replaceAll));
+        return result;
+    }
+
+    private CharSequence processUncached(@NonNull final CharSequence charSequence,
+            @IntRange(from = 0) int start, @IntRange(from = 0) int end,
+            @IntRange(from = 0) int maxEmojiCount, final boolean replaceAll) {
         final boolean isSpannableBuilder = charSequence instanceof SpannableBuilder;
         if (isSpannableBuilder) {
             ((SpannableBuilder) charSequence).beginBatchEdit();
@@ -217,11 +271,13 @@ final class EmojiProcessor {
             }
             // add new ones
             int addedCount = 0;
-            final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getRootNode(),
+            final ProcessorSm sm = new ProcessorSm(mMetadataRepo,
                     mUseEmojiAsDefaultStyle, mEmojiAsDefaultStyleExceptions);
 
+            start = skipNonEmojiStarts(charSequence, start, end);
             int currentOffset = start;
-            int codePoint = Character.codePointAt(charSequence, currentOffset);
+            int codePoint = currentOffset < end
+                    ? Character.codePointAt(charSequence, currentOffset) : 0;
 
             while (currentOffset < end && addedCount < maxEmojiCount) {
                 final int action = sm.check(codePoint);
@@ -229,6 +285,8 @@ final class EmojiProcessor {
                 switch (action) {
                     case ACTION_ADVANCE_BOTH:
                         start += Character.charCount(Character.codePointAt(charSequence, start));
+                        // the state machine is reset, nothing can match until an emoji start
+                        start = skipNonEmojiStarts(charSequence, start, end);
                         currentOffset = start;
                         if (currentOffset < end) {
                             codePoint = Character.codePointAt(charSequence, currentOffset);
@@ -276,6 +334,34 @@ final class EmojiProcessor {
         }
     }
 
+    /**
+     * @return index of the first char in {@code [start, end)} that can start an emoji, or
+     * {@code end} if there is none
+     */
+    private int skipNonEmojiStarts(final CharSequence charSequence, int start, final int end) {
+        final long[] emojiStartChars = mEmojiStartChars;
+        if (charSequence instanceof String) {
+            // avoid the interface call for the common case
+            final String string = (String) charSequence;
+            while (start < end) {
+                final char c = string.charAt(start);
+                if ((emojiStartChars[c >>> 6] & (1L << c)) != 0) {
+                    break;
+                }
+                start++;
+            }
+        } else {
+            while (start < end) {
+                final char c = charSequence.charAt(start);
+                if ((emojiStartChars[c >>> 6] & (1L << c)) != 0) {
+                    break;
+                }
+                start++;
+            }
+        }
+        return start;
+    }
+
     /**
      * Handles onKeyDown commands from a {@link KeyListener} and if {@code keyCode} is one of
      * {@link KeyEvent#KEYCODE_DEL} or {@link KeyEvent#KEYCODE_FORWARD_DEL} it tries to delete an
@@ -476,6 +562,61 @@ final class EmojiProcessor {
         mGlyphChecker = glyphChecker;
     }
 
+    /**
+     * Emojis found in a String by {@link #process}. The spans are created again for each result
+     * since they keep the measurements of the TextView that draws them.
+     */
+    private static final class CachedResult {
+        private static final CachedResult NO_EMOJI_REPLACE_ALL =
+                new CachedResult(true, new EmojiMetadata[0], new int[0]);
+        private static final CachedResult NO_EMOJI_REPLACE_NON_EXISTENT =
+                new CachedResult(false, new EmojiMetadata[0], new int[0]);
+
+        @SuppressWarnings("WeakerAccess") /* synthetic access */
+        final boolean mReplaceAll;
+        private final EmojiMetadata[] mMetadata;
+        /**
+         * Start and end of each emoji.
+         */
+        private final int[] mRanges;
+
+        private CachedResult(final boolean replaceAll, final EmojiMetadata[] metadata,
+                final int[] ranges) {
+            mReplaceAll = replaceAll;
+            mMetadata = metadata;
+            mRanges = ranges;
+        }
+
+        static CachedResult create(final CharSequence result, final boolean replaceAll) {
+            if (!(result instanceof Spanned)) {
+                return replaceAll ? NO_EMOJI_REPLACE_ALL : NO_EMOJI_REPLACE_NON_EXISTENT;
+            }
+            final Spanned spanned = (Spanned) result;
+            final EmojiSpan[] spans = spanned.getSpans(0, spanned.length(), EmojiSpan.class);
+            final EmojiMetadata[] metadata = new EmojiMetadata[spans.length];
+            final int[] ranges = new int[spans.length * 2];
+            for (int i = 0; i < spans.length; i++) {
+                metadata[i] = spans[i].getMetadata();
+                ranges[i * 2] = spanned.getSpanStart(spans[i]);
+                ranges[i * 2 + 1] = spanned.getSpanEnd(spans[i]);
+            }
+            return new CachedResult(replaceAll, metadata, ranges);
+        }
+
+        CharSequence apply(final String string, final EmojiCompat.SpanFactory spanFactory) {
+            if (mMetadata.length == 0) {
+                return string;
+            }
+            final SpannableString spannable = new SpannableString(string);
+            for (int i = 0; i < mMetadata.length; i++) {
+                final EmojiSpan span = spanFactory.createSpan(mMetadata[i]);
+                spannable.setSpan(span, mRanges[i * 2], mRanges[i * 2 + 1],
+                        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+            return spannable;
+        }
+    }
+
     /**
      * State machine for walking over the metadata trie.
      */
@@ -487,20 +628,25 @@ final class EmojiProcessor {
         private int mState = STATE_DEFAULT;
 
         /**
-         * Root of the trie
+         * Repo that holds the trie and the metadata.
+         */
+        private final MetadataRepo mMetadataRepo;
+
+        /**
+         * Trie of emoji codepoint sequences, nodes are offsets in the trie.
          */
-        private final MetadataRepo.Node mRootNode;
+        private final MetadataTrie mTrie;
 
         /**
          * Pointer to the node after last codepoint.
          */
-        private MetadataRepo.Node mCurrentNode;
+        private int mCurrentNode = MetadataTrie.ROOT;
 
         /**
          * The node where ACTION_FLUSH is called. Required since after flush action is
          * returned mCurrentNode is reset to be the root.
          */
-        private MetadataRepo.Node mFlushNode;
+        private int mFlushNode = MetadataTrie.ROOT;
 
         /**
          * The code point that was checked.
@@ -522,10 +668,10 @@ final class EmojiProcessor {
          */
         private final int[] mEmojiAsDefaultStyleExceptions;
 
-        ProcessorSm(MetadataRepo.Node rootNode, boolean useEmojiAsDefaultStyle,
+        ProcessorSm(MetadataRepo metadataRepo, boolean useEmojiAsDefaultStyle,
                 int[] emojiAsDefaultStyleExceptions) {
-            mRootNode = rootNode;
-            mCurrentNode = rootNode;
+            mMetadataRepo = metadataRepo;
+            mTrie = metadataRepo.getTrie();
             mUseEmojiAsDefaultStyle = useEmojiAsDefaultStyle;
             mEmojiAsDefaultStyleExceptions = emojiAsDefaultStyleExceptions;
         }
@@ -533,10 +679,10 @@ final class EmojiProcessor {
         @Action
         int check(final int codePoint) {
             final int action;
-            MetadataRepo.Node node = mCurrentNode.get(codePoint);
+            final int node = mTrie.getChild(mCurrentNode, codePoint);
             switch (mState) {
                 case STATE_WALKING:
-                    if (node != null) {
+                    if (node != MetadataTrie.NO_NODE) {
                         mCurrentNode = node;
                         mCurrentDepth += 1;
                         action = ACTION_ADVANCE_END;
@@ -545,7 +691,7 @@ final class EmojiProcessor {
                             action = reset();
                         } else if (isEmojiStyle(codePoint)) {
                             action = ACTION_ADVANCE_END;
-                        } else if (mCurrentNode.getData() != null) {
+                        } else if (hasMetadata(mCurrentNode)) {
                             if (mCurrentDepth == 1) {
                                 if (shouldUseEmojiPresentationStyleForSingleCodepoint()) {
                                     mFlushNode = mCurrentNode;
@@ -566,7 +712,7 @@ final class EmojiProcessor {
                     break;
                 case STATE_DEFAULT:
                 default:
-                    if (node == null) {
+                    if (node == MetadataTrie.NO_NODE) {
                         action = reset();
                     } else {
                         mState = STATE_WALKING;
@@ -584,7 +730,7 @@ final class EmojiProcessor {
         @Action
         private int reset() {
             mState = STATE_DEFAULT;
-            mCurrentNode = mRootNode;
+            mCurrentNode = MetadataTrie.ROOT;
             mCurrentDepth = 0;
             return ACTION_ADVANCE_BOTH;
         }
@@ -593,14 +739,14 @@ final class EmojiProcessor {
          * @return the metadata node when ACTION_FLUSH is returned
          */
         EmojiMetadata getFlushMetadata() {
-            return mFlushNode.getData();
+            return mMetadataRepo.getMetadata(mTrie.getMetadataIndex(mFlushNode));
         }
 
         /**
          * @return current pointer to the metadata node in the trie
          */
         EmojiMetadata getCurrentMetadata() {
-            return mCurrentNode.getData();
+            return mMetadataRepo.getMetadata(mTrie.getMetadataIndex(mCurrentNode));
         }
 
         /**
@@ -611,12 +757,16 @@ final class EmojiProcessor {
          * @return whether the current state requires an emoji to be added
          */
         boolean isInFlushableState() {
-            return mState == STATE_WALKING && mCurrentNode.getData() != null
+            return mState == STATE_WALKING && hasMetadata(mCurrentNode)
                     && (mCurrentDepth > 1 || shouldUseEmojiPresentationStyleForSingleCodepoint());
         }
 
+        private boolean hasMetadata(int node) {
+            return mTrie.getMetadataIndex(node) != MetadataTrie.NO_METADATA;
+        }
+
         private boolean shouldUseEmojiPresentationStyleForSingleCodepoint() {
-            if (mCurrentNode.getData().isDefaultEmoji()) {
+            if (getCurrentMetadata().isDefaultEmoji()) {
                 // The codepoint is emoji style by default.
                 return true;
             }
@@ -630,7 +780,7 @@ final class EmojiProcessor {
                 if (mEmojiAsDefaultStyleExceptions == null) {
                     return true;
                 }
-                final int codepoint = mCurrentNode.getData().getCodepointAt(0);
+                final int codepoint = getCurrentMetadata().getCodepointAt(0);
                 final int index = Arrays.binarySearch(mEmojiAsDefaultStyleExceptions, codepoint);
                 if (index < 0) {
                     // Index is negative, so the codepoint was not found in the array of exceptions.
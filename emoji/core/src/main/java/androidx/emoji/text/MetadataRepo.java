@@ -17,21 +17,27 @@ package androidx.emoji.text;
 
 import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP_PREFIX;
 
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 import android.graphics.Typeface;
-import android.util.SparseArray;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
 import androidx.core.util.Preconditions;
+import androidx.text.emoji.flatbuffer.MetadataItem;
 import androidx.text.emoji.flatbuffer.MetadataList;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class to hold the emoji metadata required to process and draw emojis.
@@ -39,11 +45,6 @@ import java.nio.ByteBuffer;
 @AnyThread
 @RequiresApi(19)
 public final class MetadataRepo {
-    /**
-     * The default children size of the root node.
-     */
-    private static final int DEFAULT_ROOT_SIZE = 1024;
-
     /**
      * MetadataList that contains the emoji metadata.
      */
@@ -56,9 +57,19 @@ public final class MetadataRepo {
     private final char[] mEmojiCharArray;
 
     /**
-     * Empty root node of the trie.
+     * Trie that maps codepoint sequences to metadata indices.
+     */
+    private MetadataTrie mTrie;
+
+    /**
+     * EmojiMetadata for each metadata index, created the first time the emoji is found.
+     */
+    private EmojiMetadata[] mMetadata;
+
+    /**
+     * Metadata added with {@link #put(EmojiMetadata)}, only used by tests.
      */
-    private final Node mRootNode;
+    private final List<EmojiMetadata> mPutMetadata;
 
     /**
      * Typeface to be used to render emojis.
@@ -74,8 +85,10 @@ public final class MetadataRepo {
     MetadataRepo() {
         mTypeface = null;
         mMetadataList = null;
-        mRootNode = new Node(DEFAULT_ROOT_SIZE);
         mEmojiCharArray = new char[0];
+        mPutMetadata = new ArrayList<>();
+        mMetadata = new EmojiMetadata[0];
+        mTrie = MetadataTrie.build(new int[0][], 0);
     }
 
     /**
@@ -83,14 +96,23 @@ public final class MetadataRepo {
      *
      * @param typeface Typeface to be used to render emojis
      * @param metadataList MetadataList that contains the emoji metadata
+     * @param trie precompiled trie for the metadata, or {@code null} to build it
      */
     private MetadataRepo(@NonNull final Typeface typeface,
-            @NonNull final MetadataList metadataList) {
+            @NonNull final MetadataList metadataList, @Nullable final MetadataTrie trie)
+            throws IOException {
         mTypeface = typeface;
         mMetadataList = metadataList;
-        mRootNode = new Node(DEFAULT_ROOT_SIZE);
-        mEmojiCharArray = new char[mMetadataList.listLength() * 2];
-        constructIndex(mMetadataList);
+        mPutMetadata = null;
+        final int length = metadataList.listLength();
+        mEmojiCharArray = new char[length * 2];
+        mMetadata = new EmojiMetadata[length];
+        if (trie != null && (trie.getMetadataCount() != length
+                || trie.getMetadataVersion() != metadataList.version())) {
+            throw new IOException("Emoji trie does not match the metadata");
+        }
+        final MetadataTrie builtTrie = constructIndex(metadataList, trie == null);
+        mTrie = trie != null ? trie : builtTrie;
     }
 
     /**
@@ -102,7 +124,7 @@ public final class MetadataRepo {
      */
     public static MetadataRepo create(@NonNull final Typeface typeface,
             @NonNull final InputStream inputStream) throws IOException {
-        return new MetadataRepo(typeface, MetadataListReader.read(inputStream));
+        return new MetadataRepo(typeface, MetadataListReader.read(inputStream), null);
     }
 
     /**
@@ -114,7 +136,7 @@ public final class MetadataRepo {
      */
     public static MetadataRepo create(@NonNull final Typeface typeface,
             @NonNull final ByteBuffer byteBuffer) throws IOException {
-        return new MetadataRepo(typeface, MetadataListReader.read(byteBuffer));
+        return new MetadataRepo(typeface, MetadataListReader.read(byteBuffer), null);
     }
 
     /**
@@ -127,22 +149,70 @@ public final class MetadataRepo {
     public static MetadataRepo create(@NonNull final AssetManager assetManager,
             final String assetPath) throws IOException {
         final Typeface typeface = Typeface.createFromAsset(assetManager, assetPath);
-        return new MetadataRepo(typeface, MetadataListReader.read(assetManager, assetPath));
+        return new MetadataRepo(typeface, MetadataListReader.read(assetManager, assetPath), null);
     }
 
     /**
-     * Read emoji metadata list and construct the trie.
+     * Construct MetadataRepo from an asset and the emoji trie precompiled for it, which saves
+     * building the trie at runtime. The trie asset has to be stored uncompressed so that it can be
+     * memory mapped. The trie is written by {@link MetadataTrie#write(java.io.OutputStream)}.
+     *
+     * @param assetManager AssetManager instance
+     * @param assetPath asset manager path of the file that the Typeface and metadata will be
+     *                  created from
+     * @param trieAssetPath asset manager path of the trie precompiled for {@code assetPath}
+     * @throws IOException if the trie asset cannot be mapped or does not match the metadata
      */
-    private void constructIndex(final MetadataList metadataList) {
-        int length = metadataList.listLength();
+    static MetadataRepo create(@NonNull final AssetManager assetManager,
+            @NonNull final String assetPath, @NonNull final String trieAssetPath)
+            throws IOException {
+        final MetadataTrie trie;
+        try (AssetFileDescriptor fd = assetManager.openFd(trieAssetPath);
+             FileInputStream inputStream = new FileInputStream(fd.getFileDescriptor())) {
+            // the mapping stays valid after the channel is closed
+            trie = MetadataTrie.read(inputStream.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    fd.getStartOffset(), fd.getLength()));
+        }
+        final Typeface typeface = Typeface.createFromAsset(assetManager, assetPath);
+        return new MetadataRepo(typeface, MetadataListReader.read(assetManager, assetPath), trie);
+    }
+
+    /**
+     * Construct MetadataRepo from a byte buffer and the emoji trie precompiled for it, see
+     * {@link MetadataTrie#write(java.io.OutputStream)}.
+     */
+    static MetadataRepo create(@NonNull final Typeface typeface,
+            @NonNull final ByteBuffer byteBuffer, @NonNull final ByteBuffer trieBuffer)
+            throws IOException {
+        return new MetadataRepo(typeface, MetadataListReader.read(byteBuffer),
+                MetadataTrie.read(trieBuffer));
+    }
+
+    /**
+     * Read the emoji chars from the metadata list and, if required, construct the trie.
+     *
+     * @return the trie, or {@code null} if {@code buildTrie} is {@code false}
+     */
+    private MetadataTrie constructIndex(final MetadataList metadataList,
+            final boolean buildTrie) {
+        final int length = metadataList.listLength();
+        final int[][] sequences = buildTrie ? new int[length][] : null;
+        final MetadataItem item = new MetadataItem();
         for (int i = 0; i < length; i++) {
-            final EmojiMetadata metadata = new EmojiMetadata(this, i);
+            metadataList.list(item, i);
             //since all emojis are mapped to a single codepoint in Private Use Area A they are 2
             //chars wide
             //noinspection ResultOfMethodCallIgnored
-            Character.toChars(metadata.getId(), mEmojiCharArray, i * 2);
-            put(metadata);
+            Character.toChars(item.id(), mEmojiCharArray, i * 2);
+            if (buildTrie) {
+                final int[] sequence = new int[item.codepointsLength()];
+                for (int j = 0; j < sequence.length; j++) {
+                    sequence[j] = item.codepoints(j);
+                }
+                sequences[i] = sequence;
+            }
         }
+        return buildTrie ? MetadataTrie.build(sequences, metadataList.version()) : null;
     }
 
     /**
@@ -165,8 +235,31 @@ public final class MetadataRepo {
      * @hide
      */
     @RestrictTo(LIBRARY_GROUP_PREFIX)
-    Node getRootNode() {
-        return mRootNode;
+    MetadataTrie getTrie() {
+        return mTrie;
+    }
+
+    /**
+     * @param index metadata index from the trie, see {@link MetadataTrie#getMetadataIndex(int)}
+     * @return the EmojiMetadata for the index, or {@code null} for
+     * {@link MetadataTrie#NO_METADATA}
+     *
+     * @hide
+     */
+    @RestrictTo(LIBRARY_GROUP_PREFIX)
+    EmojiMetadata getMetadata(final int index) {
+        if (index == MetadataTrie.NO_METADATA) {
+            return null;
+        }
+        final EmojiMetadata[] metadataArray = mMetadata;
+        EmojiMetadata metadata = metadataArray[index];
+        if (metadata == null) {
+            // Racing threads may each create an instance, which is harmless since EmojiMetadata
+            // only reads from this repo.
+            metadata = new EmojiMetadata(this, index);
+            metadataArray[index] = metadata;
+        }
+        return metadata;
     }
 
     /**
@@ -186,7 +279,7 @@ public final class MetadataRepo {
     }
 
     /**
-     * Add an EmojiMetadata to the index.
+     * Add an EmojiMetadata to the index. Rebuilds the trie, only meant for tests.
      *
      * @hide
      */
@@ -196,51 +289,18 @@ public final class MetadataRepo {
         Preconditions.checkNotNull(data, "emoji metadata cannot be null");
         Preconditions.checkArgument(data.getCodepointsLength() > 0,
                 "invalid metadata codepoint length");
+        Preconditions.checkState(mPutMetadata != null, "cannot add metadata to a loaded repo");
 
-        mRootNode.put(data, 0, data.getCodepointsLength() - 1);
-    }
-
-    /**
-     * Trie node that holds mapping from emoji codepoint(s) to EmojiMetadata. A single codepoint
-     * emoji is represented by a child of the root node.
-     *
-     * @hide
-     */
-    @RestrictTo(LIBRARY_GROUP_PREFIX)
-    static class Node {
-        private final SparseArray<Node> mChildren;
-        private EmojiMetadata mData;
-
-        private Node() {
-            this(1);
-        }
-
-        @SuppressWarnings("WeakerAccess") /* synthetic access */
-        Node(final int defaultChildrenSize) {
-            mChildren = new SparseArray<>(defaultChildrenSize);
-        }
-
-        Node get(final int key) {
-            return mChildren == null ? null : mChildren.get(key);
-        }
-
-        final EmojiMetadata getData() {
-            return mData;
-        }
-
-        @SuppressWarnings("WeakerAccess") /* synthetic access */
-        void put(@NonNull final EmojiMetadata data, final int start, final int end) {
-            Node node = get(data.getCodepointAt(start));
-            if (node == null) {
-                node = new Node();
-                mChildren.put(data.getCodepointAt(start), node);
-            }
-
-            if (end > start) {
-                node.put(data, start + 1, end);
-            } else {
-                node.mData = data;
+        mPutMetadata.add(data);
+        final int[][] sequences = new int[mPutMetadata.size()][];
+        for (int i = 0; i < sequences.length; i++) {
+            final EmojiMetadata metadata = mPutMetadata.get(i);
+            sequences[i] = new int[metadata.getCodepointsLength()];
+            for (int j = 0; j < sequences[i].length; j++) {
+                sequences[i][j] = metadata.getCodepointAt(j);
             }
         }
+        mMetadata = mPutMetadata.toArray(new EmojiMetadata[0]);
+        mTrie = MetadataTrie.build(sequences, 0);
     }
 }
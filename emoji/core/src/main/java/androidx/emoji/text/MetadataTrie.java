@@ -0,0 +1,366 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.emoji.text;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ * Trie that maps emoji codepoint sequences to the index of their metadata in
+ * {@link androidx.text.emoji.flatbuffer.MetadataList}, stored as a flat array of ints so that it
+ * can be written at build time and memory mapped at runtime instead of being built node by node.
+ * <p>
+ * A node is identified by its offset in the array, the root is at offset {@link #ROOT}. Each
+ * node is laid out as:
+ * <pre>
+ * [metadata index or NO_METADATA, child count n, n sorted codepoints, n child node offsets]
+ * </pre>
+ * The serialized form is a header of {@link #HEADER_SIZE} big endian ints (magic, format version,
+ * metadata version, metadata count, node array length) followed by the node array.
+ */
+@AnyThread
+@RequiresApi(19)
+final class MetadataTrie {
+    /**
+     * Offset of the root node.
+     */
+    static final int ROOT = 0;
+
+    /**
+     * Returned by {@link #getChild(int, int)} when the node has no child for the codepoint.
+     */
+    static final int NO_NODE = -1;
+
+    /**
+     * Returned by {@link #getMetadataIndex(int)} when no emoji ends at the node.
+     */
+    static final int NO_METADATA = -1;
+
+    private static final int MAGIC = 'E' << 24 | 'm' << 16 | 't' << 8 | 'r';
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 5;
+
+    private final IntBuffer mNodes;
+    private final int mMetadataVersion;
+    private final int mMetadataCount;
+
+    private MetadataTrie(final IntBuffer nodes, final int metadataVersion,
+            final int metadataCount) {
+        mNodes = nodes;
+        mMetadataVersion = metadataVersion;
+        mMetadataCount = metadataCount;
+    }
+
+    /**
+     * @param node offset of the node
+     * @param codePoint codepoint to look up
+     * @return offset of the child of the node for the codepoint, or {@link #NO_NODE}
+     */
+    int getChild(final int node, final int codePoint) {
+        final IntBuffer nodes = mNodes;
+        final int childCount = nodes.get(node + 1);
+        final int codePoints = node + 2;
+        int low = 0;
+        int high = childCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int value = nodes.get(codePoints + mid);
+            if (value < codePoint) {
+                low = mid + 1;
+            } else if (value > codePoint) {
+                high = mid - 1;
+            } else {
+                return nodes.get(codePoints + childCount + mid);
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * @param node offset of the node
+     * @return number of children of the node
+     */
+    int getChildCount(final int node) {
+        return mNodes.get(node + 1);
+    }
+
+    /**
+     * @param node offset of the node
+     * @param index index of the child, children are sorted by codepoint
+     * @return codepoint of the child
+     */
+    int getChildCodePoint(final int node, final int index) {
+        return mNodes.get(node + 2 + index);
+    }
+
+    /**
+     * @param node offset of the node
+     * @return index of the metadata of the emoji that ends at the node, or {@link #NO_METADATA}
+     */
+    int getMetadataIndex(final int node) {
+        return mNodes.get(node);
+    }
+
+    /**
+     * @return version of the metadata the trie was built from
+     */
+    int getMetadataVersion() {
+        return mMetadataVersion;
+    }
+
+    /**
+     * @return number of metadata items the trie was built from
+     */
+    int getMetadataCount() {
+        return mMetadataCount;
+    }
+
+    /**
+     * Writes the trie in the format expected by {@link #read(ByteBuffer)}. The stream is not
+     * closed.
+     */
+    void write(@NonNull final OutputStream outputStream) throws IOException {
+        final DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(mMetadataVersion);
+        out.writeInt(mMetadataCount);
+        out.writeInt(mNodes.limit());
+        for (int i = 0; i < mNodes.limit(); i++) {
+            out.writeInt(mNodes.get(i));
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a trie written by {@link #write(OutputStream)}. The nodes are not copied, the buffer
+     * is typically a memory mapped file. The position of the ByteBuffer does not change.
+     * <p>
+     * The nodes are checked once so that walking the trie can't read outside of the node array,
+     * even if the file is corrupt.
+     *
+     * @param byteBuffer ByteBuffer to read the trie from
+     * @throws IOException if the trie is truncated or corrupt
+     */
+    static MetadataTrie read(@NonNull final ByteBuffer byteBuffer) throws IOException {
+        final ByteBuffer buffer = byteBuffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (buffer.remaining() < HEADER_SIZE * 4) {
+            throw new IOException("Emoji trie is too short");
+        }
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Cannot read emoji trie, invalid magic");
+        }
+        final int formatVersion = buffer.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Cannot read emoji trie version " + formatVersion);
+        }
+        final int metadataVersion = buffer.getInt();
+        final int metadataCount = buffer.getInt();
+        final int nodeCount = buffer.getInt();
+        if (nodeCount < 2 || buffer.remaining() < nodeCount * 4L) {
+            throw new IOException("Emoji trie is truncated");
+        }
+        final IntBuffer nodes = buffer.asIntBuffer();
+        nodes.limit(nodeCount);
+        final IntBuffer slice = nodes.slice();
+        validate(slice, metadataCount);
+        return new MetadataTrie(slice, metadataVersion, metadataCount);
+    }
+
+    /**
+     * Checks that the nodes are laid out back to back as {@link #build(int[][], int)} writes them,
+     * that child counts and metadata indices are in range and that every child offset points to
+     * a node after its parent, which also rules out cycles.
+     */
+    private static void validate(final IntBuffer nodes, final int metadataCount)
+            throws IOException {
+        final int length = nodes.limit();
+        final BitSet nodeOffsets = new BitSet(length);
+        int node = ROOT;
+        while (node < length) {
+            if (length - node < 2) {
+                throw new IOException("Emoji trie node at " + node + " is truncated");
+            }
+            final int metadataIndex = nodes.get(node);
+            if (metadataIndex != NO_METADATA
+                    && (metadataIndex < 0 || metadataIndex >= metadataCount)) {
+                throw new IOException("Emoji trie node at " + node + " has an invalid metadata "
+                        + "index " + metadataIndex);
+            }
+            final int childCount = nodes.get(node + 1);
+            if (childCount < 0 || childCount > (length - node - 2) / 2) {
+                throw new IOException("Emoji trie node at " + node + " has an invalid child "
+                        + "count " + childCount);
+            }
+            for (int i = 1; i < childCount; i++) {
+                if (nodes.get(node + 1 + i) >= nodes.get(node + 2 + i)) {
+                    throw new IOException("Emoji trie node at " + node + " is not sorted");
+                }
+            }
+            nodeOffsets.set(node);
+            node += 2 + childCount * 2;
+        }
+        for (node = nodeOffsets.nextSetBit(0); node >= 0; node = nodeOffsets.nextSetBit(node + 1)) {
+            final int childCount = nodes.get(node + 1);
+            for (int i = 0; i < childCount; i++) {
+                final int child = nodes.get(node + 2 + childCount + i);
+                if (child <= node || child >= length || !nodeOffsets.get(child)) {
+                    throw new IOException("Emoji trie node at " + node + " has an invalid child "
+                            + "offset " + child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the trie for the given codepoint sequences. If the same sequence appears more than
+     * once, the last one is kept.
+     *
+     * @param sequences codepoint sequence of each metadata item, in metadata index order. Empty
+     *                  sequences are ignored.
+     * @param metadataVersion version of the metadata the sequences come from
+     */
+    static MetadataTrie build(@NonNull final int[][] sequences, final int metadataVersion) {
+        final Integer[] order = new Integer[sequences.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // Sorting places the sequences that share a prefix next to each other, with the prefix
+        // itself first, so that each node can be written from a contiguous range. The sort is
+        // stable, duplicates stay in index order.
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                final int[] a = sequences[first];
+                final int[] b = sequences[second];
+                final int length = Math.min(a.length, b.length);
+                for (int i = 0; i < length; i++) {
+                    if (a[i] != b[i]) {
+                        return a[i] < b[i] ? -1 : 1;
+                    }
+                }
+                return a.length - b.length;
+            }
+        });
+        int start = 0;
+        while (start < order.length && sequences[order[start]].length == 0) {
+            start++;
+        }
+        final IntArray nodes = new IntArray(sequences.length * 4 + 2);
+        writeNode(sequences, order, start, order.length, 0, nodes);
+        return new MetadataTrie(IntBuffer.wrap(nodes.toArray()), metadataVersion,
+                sequences.length);
+    }
+
+    /**
+     * Writes the node for the sequences in {@code order[from, to)}, which all share their first
+     * {@code depth} codepoints, and its children.
+     *
+     * @return offset of the node
+     */
+    private static int writeNode(final int[][] sequences, final Integer[] order, final int from,
+            final int to, final int depth, final IntArray nodes) {
+        int metadataIndex = NO_METADATA;
+        int start = from;
+        while (start < to && sequences[order[start]].length == depth) {
+            metadataIndex = order[start];
+            start++;
+        }
+
+        int childCount = 0;
+        for (int i = start; i < to; i = nextGroup(sequences, order, i, to, depth)) {
+            childCount++;
+        }
+
+        final int node = nodes.size();
+        nodes.add(metadataIndex);
+        nodes.add(childCount);
+        nodes.grow(childCount * 2);
+
+        int child = 0;
+        for (int i = start; i < to; child++) {
+            final int end = nextGroup(sequences, order, i, to, depth);
+            nodes.set(node + 2 + child, sequences[order[i]][depth]);
+            final int childNode = writeNode(sequences, order, i, end, depth + 1, nodes);
+            nodes.set(node + 2 + childCount + child, childNode);
+            i = end;
+        }
+        return node;
+    }
+
+    /**
+     * @return end of the range of sequences starting at {@code from} that have the same codepoint
+     * at {@code depth}
+     */
+    private static int nextGroup(final int[][] sequences, final Integer[] order, final int from,
+            final int to, final int depth) {
+        final int codePoint = sequences[order[from]][depth];
+        int end = from + 1;
+        while (end < to && sequences[order[end]][depth] == codePoint) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Growable int array used while building the trie.
+     */
+    private static final class IntArray {
+        private int[] mValues;
+        private int mSize;
+
+        IntArray(final int initialCapacity) {
+            mValues = new int[initialCapacity];
+        }
+
+        int size() {
+            return mSize;
+        }
+
+        void add(final int value) {
+            grow(1);
+            mValues[mSize - 1] = value;
+        }
+
+        void grow(final int count) {
+            final int size = mSize + count;
+            if (size > mValues.length) {
+                mValues = Arrays.copyOf(mValues, Math.max(size, mValues.length * 2));
+            }
+            mSize = size;
+        }
+
+        void set(final int index, final int value) {
+            mValues[index] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(mValues, mSize);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.exifinterface.media
+
+import android.content.Context
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.exifinterface.benchmark.test.R
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import org.junit.After
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.io.File
+import java.io.FileInputStream
+import java.io.IOException
+import java.util.concurrent.Executor
+
+@LargeTest
+@RunWith(Parameterized::class)
+class ExifInterfaceBenchmark(private val sample: String, private val resId: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+
+    private lateinit var file: File
+
+    @Before
+    fun setup() {
+        file = File(context.cacheDir, sample)
+        context.resources.openRawResource(resId).use { input ->
+            file.outputStream().use { output -> input.copyTo(output) }
+        }
+    }
+
+    @After
+    fun teardown() {
+        file.delete()
+    }
+
+    /**
+     * The common case of an indexer, reads the file through a path and asks for a couple of tags.
+     */
+    @Test
+    fun readOrientationAndDate_file() {
+        benchmarkRule.measureRepeated {
+            val exif = ExifInterface(file)
+            exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, 0)
+            exif.getAttribute(ExifInterface.TAG_DATETIME)
+        }
+    }
+
+    /**
+     * Same as [readOrientationAndDate_file] but reads the file as a stream, which can't be
+     * mapped into memory.
+     */
+    @Test
+    fun readOrientationAndDate_stream() {
+        benchmarkRule.measureRepeated {
+            val exif = FileInputStream(file).use { ExifInterface(it) }
+            exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, 0)
+            exif.getAttribute(ExifInterface.TAG_DATETIME)
+        }
+    }
+
+    /**
+     * Same as [readOrientationAndDate_file] but for [BATCH_SIZE] files through [ExifBatchReader],
+     * on the benchmark thread so that only the reuse of the parsing buffers is measured.
+     */
+    @Test
+    fun readOrientationAndDate_batch() {
+        val files = List(BATCH_SIZE) { file }
+        val tags = arrayOf(ExifInterface.TAG_ORIENTATION, ExifInterface.TAG_DATETIME)
+        val callback = object : ExifBatchReader.Callback<File> {
+            override fun onAttributesRead(source: File, values: Array<String?>) {}
+            override fun onReadFailed(source: File, e: IOException) {
+                throw e
+            }
+            override fun onCompleted() {}
+        }
+        benchmarkRule.measureRepeated {
+            ExifBatchReader.readAttributes(files, tags, Executor { it.run() }, 1, callback)
+        }
+    }
+
+    @Test
+    fun readAllTags_file() {
+        benchmarkRule.measureRepeated {
+            val exif = ExifInterface(file)
+            for (tag in TAGS) {
+                exif.getAttribute(tag)
+            }
+        }
+    }
+
+    /**
+     * Rotates the image by 90 degrees, which only needs to write the new orientation over the old
+     * one.
+     */
+    @Test
+    fun rotate_file() {
+        assumeTrue("Saving is not supported for $sample", sample != "dng")
+        val exif = ExifInterface(file)
+        benchmarkRule.measureRepeated {
+            exif.rotate(90)
+            exif.saveAttributes()
+        }
+    }
+
+    companion object {
+        private const val BATCH_SIZE = 100
+
+        private val TAGS = arrayOf(
+            ExifInterface.TAG_ORIENTATION,
+            ExifInterface.TAG_DATETIME,
+            ExifInterface.TAG_DATETIME_ORIGINAL,
+            ExifInterface.TAG_MAKE,
+            ExifInterface.TAG_MODEL,
+            ExifInterface.TAG_IMAGE_WIDTH,
+            ExifInterface.TAG_IMAGE_LENGTH,
+            ExifInterface.TAG_GPS_LATITUDE,
+            ExifInterface.TAG_GPS_LONGITUDE,
+            ExifInterface.TAG_EXPOSURE_TIME,
+            ExifInterface.TAG_F_NUMBER,
+            ExifInterface.TAG_PHOTOGRAPHIC_SENSITIVITY,
+            ExifInterface.TAG_FOCAL_LENGTH,
+            ExifInterface.TAG_WHITE_BALANCE,
+            ExifInterface.TAG_FLASH
+        )
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "sample={0}")
+        fun data(): List<Array<Any>> = listOf(
+            arrayOf("jpeg", R.raw.jpeg_with_exif_byte_order_ii),
+            arrayOf("dng", R.raw.dng_with_exif_with_xmp),
+            arrayOf("webp", R.raw.webp_with_exif)
+        )
+    }
+}
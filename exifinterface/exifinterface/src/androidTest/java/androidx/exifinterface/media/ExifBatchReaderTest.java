@@ -0,0 +1,235 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.exifinterface.media;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import androidx.exifinterface.test.R;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.MediumTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test {@link ExifBatchReader}.
+ */
+@MediumTest
+@RunWith(AndroidJUnit4.class)
+public class ExifBatchReaderTest {
+    private static final int[] IMAGE_RESOURCES = new int[] {
+            R.raw.jpeg_with_exif_byte_order_ii, R.raw.jpeg_with_exif_byte_order_mm,
+            R.raw.dng_with_exif_with_xmp, R.raw.jpeg_with_exif_with_xmp,
+            R.raw.png_with_exif_byte_order_ii, R.raw.webp_with_exif,
+            R.raw.jpeg_with_datetime_tag};
+    private static final String[] TAGS = new String[] {
+            ExifInterface.TAG_ORIENTATION, ExifInterface.TAG_MAKE, ExifInterface.TAG_MODEL,
+            ExifInterface.TAG_DATETIME_ORIGINAL, ExifInterface.TAG_GPS_LATITUDE};
+
+    private final List<File> mFiles = new ArrayList<>();
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() throws IOException {
+        for (int resource : IMAGE_RESOURCES) {
+            File file = new File(getApplicationContext().getCacheDir(), "batch_" + resource);
+            InputStream in = getApplicationContext().getResources().openRawResource(resource);
+            OutputStream out = new FileOutputStream(file);
+            try {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+                out.close();
+            }
+            mFiles.add(file);
+        }
+        mExecutor = Executors.newFixedThreadPool(3);
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdown();
+        for (File file : mFiles) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void readAttributes_matchesExifInterface() throws Exception {
+        Map<File, String[]> values = readAttributes(mFiles, 3).mValues;
+        assertEquals(mFiles.size(), values.size());
+        for (File file : mFiles) {
+            assertValues(file, values.get(file));
+        }
+    }
+
+    @Test
+    public void readAttributes_reusesBuffersAcrossFiles() throws Exception {
+        // With a single task, every file is read with the buffers of the previous one.
+        Map<File, String[]> values = readAttributes(mFiles, 1).mValues;
+        for (File file : mFiles) {
+            assertValues(file, values.get(file));
+        }
+    }
+
+    @Test
+    public void readAttributes_jpegWithTwoExifSegments() throws Exception {
+        File file = createJpegWithTwoExifSegments(mFiles.get(0));
+        mFiles.add(file);
+        Map<File, String[]> values = readAttributes(Collections.singletonList(file), 1).mValues;
+        // The values of the first segment are intact after the second one is read.
+        assertValues(file, values.get(file));
+        assertEquals("SAMSUNG", values.get(file)[1]);
+        ExifInterface exifInterface = new ExifInterface(file.getAbsolutePath(),
+                new ExifInterface.ParserBuffers());
+        assertEquals("SAMSUNG", exifInterface.getAttribute(ExifInterface.TAG_MAKE));
+        assertEquals("Second", exifInterface.getAttribute(ExifInterface.TAG_SOFTWARE));
+    }
+
+    @Test
+    public void readAttributes_reportsMissingFiles() throws Exception {
+        File missing = new File(getApplicationContext().getCacheDir(), "missing.jpg");
+        List<File> files = new ArrayList<>(mFiles);
+        files.add(missing);
+        TestCallback callback = readAttributes(files, 2);
+        assertEquals(mFiles.size(), callback.mValues.size());
+        assertEquals(Arrays.asList(missing), callback.mFailures);
+    }
+
+    @Test
+    public void readAttributes_empty() throws Exception {
+        TestCallback callback = readAttributes(new ArrayList<File>(), 2);
+        assertTrue(callback.mValues.isEmpty());
+    }
+
+    private TestCallback readAttributes(List<File> files, int parallelism)
+            throws InterruptedException {
+        TestCallback callback = new TestCallback();
+        ExifBatchReader.readAttributes(files, TAGS, mExecutor, parallelism, callback);
+        assertTrue(callback.mCompleted.await(10, TimeUnit.SECONDS));
+        return callback;
+    }
+
+    /**
+     * Copies the given JPEG, whose EXIF APP1 segment directly follows the SOI marker, and adds a
+     * second EXIF APP1 segment of the same size after the first one. The second segment only has
+     * a {@link ExifInterface#TAG_SOFTWARE} value.
+     */
+    private static File createJpegWithTwoExifSegments(File jpeg) throws IOException {
+        byte[] bytes = new byte[(int) jpeg.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(jpeg));
+        try {
+            in.readFully(bytes);
+        } finally {
+            in.close();
+        }
+        assertEquals((byte) 0xe1, bytes[3]);
+        int length = ((bytes[4] & 0xff) << 8) | (bytes[5] & 0xff);
+        int end = 4 + length;
+
+        byte[] software = "Second\0".getBytes(Charset.forName("US-ASCII"));
+        ByteBuffer segment = ByteBuffer.allocate(2 + length);
+        segment.put((byte) 0xff).put((byte) 0xe1).putShort((short) length);
+        segment.put("Exif\0\0".getBytes(Charset.forName("US-ASCII")));
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segment.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+        // IFD0 with a single entry whose value follows the IFD.
+        segment.putShort((short) 1);
+        segment.putShort((short) 0x0131).putShort((short) 2).putInt(software.length).putInt(26);
+        segment.putInt(0);
+        segment.put(software);
+        // Fill the rest so that the values of the first segment are lost if it is overwritten.
+        while (segment.hasRemaining()) {
+            segment.put((byte) 'X');
+        }
+
+        File file = new File(jpeg.getParentFile(), "two_exif_segments.jpg");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes, 0, end);
+            out.write(segment.array());
+            out.write(bytes, end, bytes.length - end);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static void assertValues(File file, String[] values) throws IOException {
+        ExifInterface exifInterface = new ExifInterface(file);
+        String[] expected = new String[TAGS.length];
+        for (int i = 0; i < TAGS.length; ++i) {
+            expected[i] = exifInterface.getAttribute(TAGS[i]);
+        }
+        assertArrayEquals(file.getName(), expected, values);
+    }
+
+    private static class TestCallback implements ExifBatchReader.Callback<File> {
+        final Map<File, String[]> mValues = new ConcurrentHashMap<>();
+        final List<File> mFailures = new ArrayList<>();
+        final CountDownLatch mCompleted = new CountDownLatch(1);
+
+        @Override
+        public void onAttributesRead(@NonNull File source, @NonNull String[] values) {
+            mValues.put(source, values);
+        }
+
+        @Override
+        public void onReadFailed(@NonNull File source, @NonNull IOException e) {
+            synchronized (mFailures) {
+                mFailures.add(source);
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            mCompleted.countDown();
+        }
+    }
+}
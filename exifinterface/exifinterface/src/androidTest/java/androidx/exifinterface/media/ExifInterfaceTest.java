@@ -61,7 +61,13 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Random;
@@ -759,6 +765,112 @@ public class ExifInterfaceTest {
         assertEquals(isoValue, exif.getAttribute(newTag));
     }
 
+    @Test
+    @SmallTest
+    public void testSaveAttributes_inPlace_onlyWritesChangedValue() throws IOException {
+        File imageFile = getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II);
+        byte[] original = readFile(imageFile);
+        ExifInterface exif = new ExifInterface(imageFile.getAbsolutePath());
+        long[] range = exif.getAttributeRange(ExifInterface.TAG_ORIENTATION);
+        assertNotNull(range);
+
+        exif.setAttribute(ExifInterface.TAG_ORIENTATION,
+                Integer.toString(ExifInterface.ORIENTATION_ROTATE_180));
+        exif.saveAttributes();
+
+        // Only the bytes of the value differ, everything else including the image data is intact.
+        byte[] saved = readFile(imageFile);
+        assertEquals(original.length, saved.length);
+        for (int i = 0; i < saved.length; ++i) {
+            if (i < range[0] || i >= range[0] + range[1]) {
+                assertEquals("Unexpected change at " + i, original[i], saved[i]);
+            }
+        }
+        // The offsets didn't change, so ranges are still known.
+        assertEquals(range[0], exif.getAttributeRange(ExifInterface.TAG_ORIENTATION)[0]);
+
+        // The value can be written over again through the same instance.
+        exif.setAttribute(ExifInterface.TAG_ORIENTATION,
+                Integer.toString(ExifInterface.ORIENTATION_ROTATE_270));
+        exif.saveAttributes();
+        exif = new ExifInterface(imageFile.getAbsolutePath());
+        assertIntTag(exif, ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_ROTATE_270);
+        assertNotNull(BitmapFactory.decodeFile(imageFile.getAbsolutePath()));
+    }
+
+    @Test
+    @SmallTest
+    public void testSaveAttributes_inPlace_withFileDescriptor() throws Exception {
+        if (Build.VERSION.SDK_INT < 21) {
+            return;
+        }
+        File imageFile = getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II);
+        long length = imageFile.length();
+        FileDescriptor fd = null;
+        try {
+            fd = Os.open(imageFile.getAbsolutePath(), OsConstants.O_RDWR, OsConstants.S_IRWXU);
+            ExifInterface exif = new ExifInterface(fd);
+            exif.setAttribute(ExifInterface.TAG_ORIENTATION,
+                    Integer.toString(ExifInterface.ORIENTATION_ROTATE_90));
+            exif.saveAttributes();
+            // The file descriptor is still open and usable.
+            assertEquals(0, Os.lseek(fd, 0, OsConstants.SEEK_SET));
+        } finally {
+            closeQuietly(fd);
+        }
+        assertEquals(length, imageFile.length());
+        ExifInterface exif = new ExifInterface(imageFile.getAbsolutePath());
+        assertIntTag(exif, ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_ROTATE_90);
+    }
+
+    @Test
+    @SmallTest
+    public void testSaveAttributes_rewritesFileIfValueDoesNotFit() throws IOException {
+        File imageFile = getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II);
+        ExifInterface exif = new ExifInterface(imageFile.getAbsolutePath());
+        String make = exif.getAttribute(ExifInterface.TAG_MAKE) + " with a longer name";
+        exif.setAttribute(ExifInterface.TAG_MAKE, make);
+        exif.saveAttributes();
+        try {
+            exif.getAttributeRange(ExifInterface.TAG_MAKE);
+            fail("The file should have been rewritten");
+        } catch (IllegalStateException e) {
+            // Success
+        }
+        exif = new ExifInterface(imageFile.getAbsolutePath());
+        assertStringTag(exif, ExifInterface.TAG_MAKE, make);
+        assertIntTag(exif, ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_ROTATE_90);
+    }
+
+    @Test
+    @SmallTest
+    public void testSaveAttributes_inPlace_interruptedWriteKeepsFileReadable() throws IOException {
+        File imageFile = getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II);
+        long length = imageFile.length();
+        // Fails after part of the new value has been written over the old one, like a crash.
+        ExifInterface exif = new ExifInterface(imageFile.getAbsolutePath()) {
+            @Override
+            FileChannel openChannelForInPlaceSave() throws IOException {
+                return new InterruptingFileChannel(super.openChannelForInPlaceSave(), 4);
+            }
+        };
+        exif.setAttribute(ExifInterface.TAG_DATETIME_ORIGINAL, "1999:12:31 23:59:59");
+        try {
+            exif.saveAttributes();
+            fail("The write should have been interrupted");
+        } catch (IOException e) {
+            // Success
+        }
+
+        // The file keeps its structure, only the torn value is affected.
+        assertEquals(length, imageFile.length());
+        exif = new ExifInterface(imageFile.getAbsolutePath());
+        assertStringTag(exif, ExifInterface.TAG_DATETIME_ORIGINAL, "1999:01:29 18:32:27");
+        assertStringTag(exif, ExifInterface.TAG_MAKE, "SAMSUNG");
+        assertNotNull(exif.getThumbnail());
+        assertNotNull(BitmapFactory.decodeFile(imageFile.getAbsolutePath()));
+    }
+
     private void printExifTagsAndValues(String fileName, ExifInterface exifInterface) {
         // Prints thumbnail information.
         if (exifInterface.hasThumbnail()) {
@@ -1182,6 +1294,17 @@ public class ExifInterfaceTest {
         }
     }
 
+    private byte[] readFile(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) in.length()];
+            in.readFully(bytes);
+            return bytes;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
     private int copy(InputStream in, OutputStream out) throws IOException {
         int total = 0;
         byte[] buffer = new byte[8192];
@@ -1219,4 +1342,110 @@ public class ExifInterfaceTest {
         return new File(getApplicationContext().getExternalFilesDir(Environment.DIRECTORY_PICTURES),
                 fileName);
     }
+
+    /**
+     * A channel that writes only the first bytes it is given and then fails every write.
+     */
+    private static class InterruptingFileChannel extends FileChannel {
+        private final FileChannel mDelegate;
+        private int mRemaining;
+
+        InterruptingFileChannel(FileChannel delegate, int byteCount) {
+            mDelegate = delegate;
+            mRemaining = byteCount;
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            if (mRemaining == 0) {
+                throw new IOException("Interrupted write");
+            }
+            ByteBuffer part = src.duplicate();
+            part.limit(part.position() + Math.min(part.remaining(), mRemaining));
+            int written = mDelegate.write(part, position);
+            src.position(src.position() + written);
+            mRemaining -= written;
+            return written;
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            mDelegate.close();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long position() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long size() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileChannel truncate(long size) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void force(boolean metaData) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.exifinterface.media;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads a few Exif tags from many image files in parallel, e.g. to index a media library.
+ * <p>
+ * This is cheaper than creating an {@link ExifInterface} for each file, the files are read by a
+ * fixed number of tasks running on the given {@link Executor} and each task reuses its parsing
+ * buffers for all the files it reads. Only the values of the requested tags are kept, in the
+ * order of the tags.
+ * <p>
+ * Example:
+ * <pre>
+ * ExifBatchReader.readAttributes(files,
+ *         new String[] { ExifInterface.TAG_ORIENTATION, ExifInterface.TAG_DATETIME },
+ *         executor,
+ *         new ExifBatchReader.Callback&lt;File&gt;() {
+ *             public void onAttributesRead(File file, String[] values) {
+ *                 index.put(file, values[0], values[1]);
+ *             }
+ *             public void onReadFailed(File file, IOException e) {
+ *                 Log.w(TAG, "Couldn't read " + file, e);
+ *             }
+ *             public void onCompleted() {
+ *                 index.commit();
+ *             }
+ *         });
+ * </pre>
+ */
+public final class ExifBatchReader {
+    /**
+     * Receives the values read by {@link ExifBatchReader}. The methods are called on the threads
+     * of the executor, possibly concurrently, as soon as each file is read.
+     *
+     * @param <T> The type of the sources, either {@link File} or {@link FileDescriptor}.
+     */
+    public interface Callback<T> {
+        /**
+         * Called when the tags of a file were read.
+         *
+         * @param source the file that was read.
+         * @param values the values of the requested tags in the same order, each of them is
+         *               {@code null} if the file doesn't have the tag. See
+         *               {@link ExifInterface#getAttribute(String)}.
+         */
+        void onAttributesRead(@NonNull T source, @NonNull String[] values);
+
+        /**
+         * Called when a file couldn't be read, e.g. because it doesn't exist. Files that are
+         * not images or that have invalid Exif data are not reported here, as with
+         * {@link ExifInterface} they have no values instead.
+         *
+         * @param source the file that couldn't be read.
+         * @param e the error that occurred.
+         */
+        void onReadFailed(@NonNull T source, @NonNull IOException e);
+
+        /**
+         * Called once after all the files were either read or failed to be read.
+         */
+        void onCompleted();
+    }
+
+    private ExifBatchReader() {
+    }
+
+    /**
+     * Reads the given tags from the given files, using as many tasks as there are available
+     * processors.
+     *
+     * @see #readAttributes(List, String[], Executor, int, Callback)
+     */
+    public static void readAttributes(@NonNull List<File> files, @NonNull String[] tags,
+            @NonNull Executor executor, @NonNull Callback<File> callback) {
+        readAttributes(files, tags, executor, Runtime.getRuntime().availableProcessors(),
+                callback);
+    }
+
+    /**
+     * Reads the given tags from the given files.
+     *
+     * @param files the image files to read.
+     * @param tags the names of the tags to read.
+     * @param executor the executor to read the files on.
+     * @param parallelism the maximum number of tasks to run on the executor at the same time.
+     * @param callback the callback to receive the values.
+     */
+    public static void readAttributes(@NonNull List<File> files, @NonNull String[] tags,
+            @NonNull Executor executor, int parallelism, @NonNull Callback<File> callback) {
+        read(files, tags, executor, parallelism, callback, new Reader<File>() {
+            @Override
+            public ExifInterface read(File source, ExifInterface.ParserBuffers buffers)
+                    throws IOException {
+                return new ExifInterface(source.getAbsolutePath(), buffers);
+            }
+        });
+    }
+
+    /**
+     * Reads the given tags from the given file descriptors, using as many tasks as there are
+     * available processors.
+     *
+     * @see #readAttributesFromFileDescriptors(List, String[], Executor, int, Callback)
+     */
+    public static void readAttributesFromFileDescriptors(
+            @NonNull List<FileDescriptor> fileDescriptors, @NonNull String[] tags,
+            @NonNull Executor executor, @NonNull Callback<FileDescriptor> callback) {
+        readAttributesFromFileDescriptors(fileDescriptors, tags, executor,
+                Runtime.getRuntime().availableProcessors(), callback);
+    }
+
+    /**
+     * Reads the given tags from the given file descriptors. As with
+     * {@link ExifInterface#ExifInterface(FileDescriptor)}, the file descriptors are not rewound
+     * and should be closed by the caller after {@link Callback#onCompleted()} is called.
+     *
+     * @param fileDescriptors the file descriptors of the image files to read.
+     * @param tags the names of the tags to read.
+     * @param executor the executor to read the files on.
+     * @param parallelism the maximum number of tasks to run on the executor at the same time.
+     * @param callback the callback to receive the values.
+     */
+    public static void readAttributesFromFileDescriptors(
+            @NonNull List<FileDescriptor> fileDescriptors, @NonNull String[] tags,
+            @NonNull Executor executor, int parallelism,
+            @NonNull Callback<FileDescriptor> callback) {
+        read(fileDescriptors, tags, executor, parallelism, callback, new Reader<FileDescriptor>() {
+            @Override
+            public ExifInterface read(FileDescriptor source, ExifInterface.ParserBuffers buffers)
+                    throws IOException {
+                return new ExifInterface(source, buffers);
+            }
+        });
+    }
+
+    private static <T> void read(List<T> sources, String[] tags, Executor executor,
+            int parallelism, Callback<T> callback, Reader<T> reader) {
+        if (sources == null) {
+            throw new NullPointerException("sources shouldn't be null");
+        }
+        if (tags == null) {
+            throw new NullPointerException("tags shouldn't be null");
+        }
+        if (executor == null) {
+            throw new NullPointerException("executor shouldn't be null");
+        }
+        if (callback == null) {
+            throw new NullPointerException("callback shouldn't be null");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism should be positive: " + parallelism);
+        }
+        if (sources.isEmpty()) {
+            callback.onCompleted();
+            return;
+        }
+        // Copy the inputs, the caller may change them while the tasks are running.
+        final List<T> sourcesCopy = new ArrayList<>(sources);
+        final String[] tagsCopy = tags.clone();
+        final int taskCount = Math.min(parallelism, sourcesCopy.size());
+        final ReadTask.State state = new ReadTask.State(taskCount);
+        for (int i = 0; i < taskCount; ++i) {
+            executor.execute(new ReadTask<>(sourcesCopy, tagsCopy, callback, reader, state));
+        }
+    }
+
+    private interface Reader<T> {
+        ExifInterface read(T source, ExifInterface.ParserBuffers buffers) throws IOException;
+    }
+
+    // Reads files until there is none left, each task has its own buffers so that they can be
+    // reused without synchronization.
+    private static class ReadTask<T> implements Runnable {
+        static class State {
+            final AtomicInteger mNextIndex = new AtomicInteger();
+            final AtomicInteger mRunningTasks;
+
+            State(int taskCount) {
+                mRunningTasks = new AtomicInteger(taskCount);
+            }
+        }
+
+        private final List<T> mSources;
+        private final String[] mTags;
+        private final Callback<T> mCallback;
+        private final Reader<T> mReader;
+        private final State mState;
+
+        ReadTask(List<T> sources, String[] tags, Callback<T> callback, Reader<T> reader,
+                State state) {
+            mSources = sources;
+            mTags = tags;
+            mCallback = callback;
+            mReader = reader;
+            mState = state;
+        }
+
+        @Override
+        public void run() {
+            final ExifInterface.ParserBuffers buffers = new ExifInterface.ParserBuffers();
+            try {
+                int index;
+                while ((index = mState.mNextIndex.getAndIncrement()) < mSources.size()) {
+                    final T source = mSources.get(index);
+                    final String[] values = read(source, buffers);
+                    if (values != null) {
+                        mCallback.onAttributesRead(source, values);
+                    }
+                }
+            } finally {
+                if (mState.mRunningTasks.decrementAndGet() == 0) {
+                    mCallback.onCompleted();
+                }
+            }
+        }
+
+        @Nullable
+        private String[] read(T source, ExifInterface.ParserBuffers buffers) {
+            final ExifInterface exifInterface;
+            try {
+                exifInterface = mReader.read(source, buffers);
+            } catch (IOException e) {
+                mCallback.onReadFailed(source, e);
+                return null;
+            }
+            // Read the values before the buffers are reused for the next file.
+            final String[] values = new String[mTags.length];
+            for (int i = 0; i < mTags.length; ++i) {
+                values[i] = exifInterface.getAttribute(mTags[i]);
+            }
+            return values;
+        }
+    }
+}
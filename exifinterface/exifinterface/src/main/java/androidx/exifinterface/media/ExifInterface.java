@@ -33,6 +33,7 @@ import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
@@ -51,10 +52,12 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
@@ -3083,7 +3086,11 @@ public class ExifInterface {
         public final int format;
         public final int numberOfComponents;
         public final long bytesOffset;
-        public final byte[] bytes;
+        // The value is copied out of the source only when it is first needed, null afterwards.
+        private byte[] mSource;
+        private final int mSourceOffset;
+        private final int mByteCount;
+        private byte[] mBytes;
 
         @SuppressWarnings("WeakerAccess") /* synthetic access */
         ExifAttribute(int format, int numberOfComponents, byte[] bytes) {
@@ -3095,7 +3102,34 @@ public class ExifInterface {
             this.format = format;
             this.numberOfComponents = numberOfComponents;
             this.bytesOffset = bytesOffset;
-            this.bytes = bytes;
+            mSourceOffset = 0;
+            mByteCount = bytes.length;
+            mBytes = bytes;
+        }
+
+        // Creates an attribute whose value is the given range of the source, e.g. the EXIF
+        // segment it is read from. The range is not copied until the value is accessed.
+        @SuppressWarnings("WeakerAccess") /* synthetic access */
+        ExifAttribute(int format, int numberOfComponents, long bytesOffset, byte[] source,
+                int sourceOffset, int byteCount) {
+            this.format = format;
+            this.numberOfComponents = numberOfComponents;
+            this.bytesOffset = bytesOffset;
+            mSource = source;
+            mSourceOffset = sourceOffset;
+            mByteCount = byteCount;
+        }
+
+        public byte[] getBytes() {
+            if (mBytes == null) {
+                mBytes = Arrays.copyOfRange(mSource, mSourceOffset, mSourceOffset + mByteCount);
+                mSource = null;
+            }
+            return mBytes;
+        }
+
+        public int getByteCount() {
+            return mByteCount;
         }
 
         public static ExifAttribute createUShort(int[] values, ByteOrder byteOrder) {
@@ -3201,13 +3235,14 @@ public class ExifInterface {
 
         @Override
         public String toString() {
-            return "(" + IFD_FORMAT_NAMES[format] + ", data length:" + bytes.length + ")";
+            return "(" + IFD_FORMAT_NAMES[format] + ", data length:" + mByteCount + ")";
         }
 
         @SuppressWarnings("WeakerAccess") /* synthetic access */
         Object getValue(ByteOrder byteOrder) {
             ByteOrderedDataInputStream inputStream = null;
             try {
+                final byte[] bytes = getBytes();
                 inputStream = new ByteOrderedDataInputStream(bytes);
                 inputStream.setByteOrder(byteOrder);
                 switch (format) {
@@ -3883,6 +3918,11 @@ public class ExifInterface {
     private int mOrfThumbnailOffset;
     private int mOrfThumbnailLength;
     private boolean mModified;
+    // A copy of the attributes as they are in the file, made when an attribute is first set so
+    // that saveAttributes() can find out which values changed. Null if nothing was set.
+    private HashMap<String, ExifAttribute>[] mSavedAttributes;
+    // Buffers shared with the instances that are used before and after this one, if any.
+    private ParserBuffers mBuffers;
     // XMP data can be contained as either part of the EXIF data (tag number 700), or as a
     // separate data marker (a separate MARKER_APP1).
     private boolean mXmpIsFromSeparateMarker;
@@ -3937,6 +3977,31 @@ public class ExifInterface {
         if (fileDescriptor == null) {
             throw new NullPointerException("fileDescriptor cannot be null");
         }
+        initForFileDescriptor(fileDescriptor);
+    }
+
+    /**
+     * Reads Exif tags from the specified image file, reusing the given buffers. The buffers are
+     * shared with the instance that is created next, so this instance must not be used anymore
+     * once the next one is created.
+     */
+    ExifInterface(@NonNull String filename, @NonNull ParserBuffers buffers) throws IOException {
+        mBuffers = buffers;
+        initForFilename(filename);
+    }
+
+    /**
+     * Reads Exif tags from the specified image file descriptor, reusing the given buffers. The
+     * buffers are shared with the instance that is created next, so this instance must not be
+     * used anymore once the next one is created.
+     */
+    ExifInterface(@NonNull FileDescriptor fileDescriptor, @NonNull ParserBuffers buffers)
+            throws IOException {
+        mBuffers = buffers;
+        initForFileDescriptor(fileDescriptor);
+    }
+
+    private void initForFileDescriptor(FileDescriptor fileDescriptor) throws IOException {
         mAssetInputStream = null;
         mFilename = null;
 
@@ -4185,7 +4250,7 @@ public class ExifInterface {
      * @param tag the name of the tag.
      * @param value the value of the tag.
      */
-    @SuppressWarnings("deprecation")
+    @SuppressWarnings({"deprecation", "unchecked"})
     public void setAttribute(@NonNull String tag, @Nullable String value) {
         if (tag == null) {
             throw new NullPointerException("tag shouldn't be null");
@@ -4219,6 +4284,13 @@ public class ExifInterface {
             }
         }
 
+        if (mSavedAttributes == null) {
+            mSavedAttributes = new HashMap[EXIF_TAGS.length];
+            for (int i = 0; i < EXIF_TAGS.length; ++i) {
+                mSavedAttributes[i] = new HashMap<>(mAttributes[i]);
+            }
+        }
+
         for (int i = 0 ; i < EXIF_TAGS.length; ++i) {
             if (i == IFD_TYPE_THUMBNAIL && !mHasThumbnail) {
                 continue;
@@ -4521,15 +4593,25 @@ public class ExifInterface {
             throw new NullPointerException("inputstream shouldn't be null");
         }
         try {
+            if (mBuffers != null) {
+                mBuffers.reset();
+            }
             // Initialize mAttributes.
             for (int i = 0; i < EXIF_TAGS.length; ++i) {
-                mAttributes[i] = new HashMap<>();
+                if (mBuffers != null) {
+                    mAttributes[i] = mBuffers.mAttributes[i];
+                    mAttributes[i].clear();
+                } else {
+                    mAttributes[i] = new HashMap<>();
+                }
             }
 
             // Check file type
             if (!mIsExifDataOnly) {
-                in = new BufferedInputStream(in, SIGNATURE_CHECK_SIZE);
-                mMimeType = getMimeType((BufferedInputStream) in);
+                if (!(in instanceof ByteBufferInputStream)) {
+                    in = new BufferedInputStream(in, SIGNATURE_CHECK_SIZE);
+                }
+                mMimeType = getMimeType(in);
             }
 
             // Create byte-ordered input stream
@@ -4637,12 +4719,18 @@ public class ExifInterface {
      * other. It's best to use {@link #setAttribute(String,String)} to set all attributes to write
      * and make a single call rather than multiple calls for each attribute.
      * <p>
+     * If only existing values of JPEG or WebP files were changed and the new values have the same
+     * size as the old ones, e.g. when changing {@link #TAG_ORIENTATION}, the new values are
+     * written over the old ones instead and the rest of the file is left untouched. For these
+     * files, if no attribute was set since the file was read or last saved, nothing is written.
+     * <p>
      * This method is supported for JPEG, PNG and WebP files.
      * <p class="note">
      * Note: after calling this method, any attempts to obtain range information
      * from {@link #getAttributeRange(String)} or {@link #getThumbnailRange()}
      * will throw {@link IllegalStateException}, since the offsets may have
-     * changed in the newly written file.
+     * changed in the newly written file. This doesn't apply if the values were written over the
+     * old ones.
      * <p>
      * For WebP format, the Exif data will be stored as an Extended File Format, and it may not be
      * supported for older readers.
@@ -4658,6 +4746,10 @@ public class ExifInterface {
                     "ExifInterface does not support saving attributes for the current input.");
         }
 
+        if (saveAttributesInPlace()) {
+            return;
+        }
+
         // Remember the fact that we've changed the file on disk from what was
         // originally parsed, meaning we can't answer range questions
         mModified = true;
@@ -4736,6 +4828,89 @@ public class ExifInterface {
         mThumbnailBytes = null;
     }
 
+    /**
+     * Writes the changed values over the old ones in the original image file, which is only
+     * possible if no attribute was added or removed and every changed value still has the format
+     * and size of the old one. As the size and the layout of the file don't change, the file stays
+     * valid if writing is interrupted, unlike when the whole file is rewritten.
+     *
+     * @return true if the attributes were saved, false if the whole file needs to be rewritten.
+     */
+    private boolean saveAttributesInPlace() throws IOException {
+        // The whole file has been rewritten, the offsets of the values are not known anymore.
+        if (mModified) {
+            return false;
+        }
+        // PNG chunks end with a CRC which would need to be updated as well.
+        if (mMimeType != IMAGE_TYPE_JPEG && mMimeType != IMAGE_TYPE_WEBP) {
+            return false;
+        }
+        if (mSavedAttributes == null) {
+            // Nothing was set since the file was read.
+            return true;
+        }
+        for (int i = 0; i < EXIF_TAGS.length; ++i) {
+            if (mAttributes[i].size() != mSavedAttributes[i].size()) {
+                return false;
+            }
+            for (Map.Entry<String, ExifAttribute> entry : mAttributes[i].entrySet()) {
+                final ExifAttribute savedAttribute = mSavedAttributes[i].get(entry.getKey());
+                final ExifAttribute attribute = entry.getValue();
+                if (savedAttribute == attribute) {
+                    continue;
+                }
+                if (savedAttribute == null
+                        || savedAttribute.bytesOffset == ExifAttribute.BYTES_OFFSET_UNKNOWN
+                        || savedAttribute.format != attribute.format
+                        || savedAttribute.numberOfComponents != attribute.numberOfComponents
+                        || savedAttribute.getByteCount() != attribute.getByteCount()) {
+                    return false;
+                }
+            }
+        }
+
+        final FileChannel channel = openChannelForInPlaceSave();
+        try {
+            for (int i = 0; i < EXIF_TAGS.length; ++i) {
+                for (Map.Entry<String, ExifAttribute> entry : mAttributes[i].entrySet()) {
+                    final ExifAttribute savedAttribute = mSavedAttributes[i].get(entry.getKey());
+                    final ExifAttribute attribute = entry.getValue();
+                    if (savedAttribute == attribute) {
+                        continue;
+                    }
+                    final ByteBuffer buffer = ByteBuffer.wrap(attribute.getBytes());
+                    long position = savedAttribute.bytesOffset;
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    // Keep the offset of the value so that it can be written over again.
+                    entry.setValue(new ExifAttribute(attribute.format,
+                            attribute.numberOfComponents, savedAttribute.bytesOffset,
+                            attribute.getBytes()));
+                }
+            }
+        } finally {
+            // Don't close the channel of a file descriptor, it would close the descriptor as well.
+            if (mFilename != null) {
+                closeQuietly(channel);
+            }
+        }
+        // The file has the same attributes again.
+        mSavedAttributes = null;
+        return true;
+    }
+
+    /**
+     * Opens the channel {@link #saveAttributesInPlace()} writes the changed values to.
+     */
+    @VisibleForTesting
+    FileChannel openChannelForInPlaceSave() throws IOException {
+        if (mFilename != null) {
+            return new RandomAccessFile(mFilename, "rw").getChannel();
+        }
+        return new FileOutputStream(mSeekableFileDescriptor).getChannel();
+    }
+
     /**
      * Returns true if the image file has a thumbnail.
      */
@@ -4926,7 +5101,7 @@ public class ExifInterface {
 
         final ExifAttribute attribute = getExifAttribute(tag);
         if (attribute != null) {
-            return new long[] { attribute.bytesOffset, attribute.bytes.length };
+            return new long[] { attribute.bytesOffset, attribute.getByteCount() };
         } else {
             return null;
         }
@@ -4946,7 +5121,7 @@ public class ExifInterface {
         }
         final ExifAttribute attribute = getExifAttribute(tag);
         if (attribute != null) {
-            return attribute.bytes;
+            return attribute.getBytes();
         } else {
             return null;
         }
@@ -5208,12 +5383,42 @@ public class ExifInterface {
             } else {
                 mSeekableFileDescriptor = null;
             }
-            loadAttributes(in);
+            ByteBuffer mappedFile = mapFile(in);
+            if (mappedFile != null) {
+                loadAttributes(new ByteBufferInputStream(mappedFile));
+            } else {
+                loadAttributes(in);
+            }
         } finally {
             closeQuietly(in);
         }
     }
 
+    /**
+     * Maps the rest of the given file into memory, so that it can be parsed by seeking directly
+     * to the IFD offsets instead of buffering everything that was read before.
+     *
+     * @return the mapped file or {@code null} if it can't be mapped, in which case it should be
+     *         read as a stream.
+     */
+    @Nullable
+    private static ByteBuffer mapFile(FileInputStream in) {
+        try {
+            FileChannel channel = in.getChannel();
+            long position = channel.position();
+            long size = channel.size() - position;
+            if (size <= 0 || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        } catch (IOException | RuntimeException e) {
+            if (DEBUG) {
+                Log.d(TAG, "Failed to map the file, reading it as a stream instead", e);
+            }
+            return null;
+        }
+    }
+
     private static double convertRationalLatLonToDouble(String rationalString, String ref) {
         try {
             String [] parts = rationalString.split(",", -1);
@@ -5254,7 +5459,7 @@ public class ExifInterface {
     }
 
     // Checks the type of image file
-    private int getMimeType(BufferedInputStream in) throws IOException {
+    private int getMimeType(InputStream in) throws IOException {
         // TODO (b/142218289): Need to handle case where input stream does not support mark
         in.mark(SIGNATURE_CHECK_SIZE);
         byte[] signatureCheckBytes = new byte[SIGNATURE_CHECK_SIZE];
@@ -5546,22 +5751,34 @@ public class ExifInterface {
             switch (marker) {
                 case MARKER_APP1: {
                     final int start = bytesRead;
-                    final byte[] bytes = new byte[length];
-                    in.readFully(bytes);
+                    final byte[] identifier =
+                            new byte[Math.min(length, IDENTIFIER_EXIF_APP1.length)];
+                    in.readFully(identifier);
                     bytesRead += length;
-                    length = 0;
 
-                    if (startsWith(bytes, IDENTIFIER_EXIF_APP1)) {
-                        final byte[] value = Arrays.copyOfRange(bytes, IDENTIFIER_EXIF_APP1.length,
-                                bytes.length);
+                    if (startsWith(identifier, IDENTIFIER_EXIF_APP1)) {
+                        // Read the EXIF data without the identifier, so that it starts at 0.
+                        final int valueLength = length - IDENTIFIER_EXIF_APP1.length;
+                        final byte[] value = mBuffers != null
+                                ? mBuffers.obtainSegment(valueLength) : new byte[valueLength];
+                        in.readFully(value, 0, valueLength);
+                        length = 0;
                         // Save offset to EXIF data for handling thumbnail and attribute offsets.
                         mOffsetToExifData = offsetToJpeg
                                 + /* offset to EXIF from JPEG start */ start
                                 + IDENTIFIER_EXIF_APP1.length;
-                        readExifSegment(value, imageType);
+                        readExifSegment(value, valueLength, imageType);
+
+                        setThumbnailData(new ByteOrderedDataInputStream(value, valueLength));
+                        break;
+                    }
 
-                        setThumbnailData(new ByteOrderedDataInputStream(value));
-                    } else if (startsWith(bytes, IDENTIFIER_XMP_APP1)) {
+                    final byte[] bytes = new byte[length];
+                    System.arraycopy(identifier, 0, bytes, 0, identifier.length);
+                    in.readFully(bytes, identifier.length, length - identifier.length);
+                    length = 0;
+
+                    if (startsWith(bytes, IDENTIFIER_XMP_APP1)) {
                         // See XMP Specification Part 3: Storage in Files, 1.1.3 JPEG, Table 6
                         final int offset = start + IDENTIFIER_XMP_APP1.length;
                         final byte[] value = Arrays.copyOfRange(bytes,
@@ -5653,7 +5870,7 @@ public class ExifInterface {
             if (makerNoteAttribute != null) {
                 // Create an ordered DataInputStream for MakerNote
                 ByteOrderedDataInputStream makerNoteDataInputStream =
-                        new ByteOrderedDataInputStream(makerNoteAttribute.bytes);
+                        new ByteOrderedDataInputStream(makerNoteAttribute.getBytes());
                 makerNoteDataInputStream.setByteOrder(mExifByteOrder);
 
                 // Seek to MakerNote data
@@ -5937,7 +6154,7 @@ public class ExifInterface {
         if (makerNoteAttribute != null) {
             // Create an ordered DataInputStream for MakerNote
             ByteOrderedDataInputStream makerNoteDataInputStream =
-                    new ByteOrderedDataInputStream(makerNoteAttribute.bytes);
+                    new ByteOrderedDataInputStream(makerNoteAttribute.getBytes());
             makerNoteDataInputStream.setByteOrder(mExifByteOrder);
 
             // There are two types of headers for Olympus MakerNotes
@@ -6019,7 +6236,7 @@ public class ExifInterface {
                 (ExifAttribute) mAttributes[IFD_TYPE_PRIMARY].get(TAG_RW2_JPG_FROM_RAW);
         if (jpgFromRawAttribute != null) {
             ByteOrderedDataInputStream jpegInputStream =
-                    new ByteOrderedDataInputStream(jpgFromRawAttribute.bytes);
+                    new ByteOrderedDataInputStream(jpgFromRawAttribute.getBytes());
             getJpegAttributes(jpegInputStream, (int) jpgFromRawAttribute.bytesOffset,
                     IFD_TYPE_PREVIEW);
         }
@@ -6648,11 +6865,17 @@ public class ExifInterface {
 
     // Reads the given EXIF byte area and save its tag data into attributes.
     private void readExifSegment(byte[] exifBytes, int imageType) throws IOException {
+        readExifSegment(exifBytes, exifBytes.length, imageType);
+    }
+
+    // Reads the EXIF byte area in the first exifLength bytes of the given array.
+    private void readExifSegment(byte[] exifBytes, int exifLength, int imageType)
+            throws IOException {
         ByteOrderedDataInputStream dataInputStream =
-                new ByteOrderedDataInputStream(exifBytes);
+                new ByteOrderedDataInputStream(exifBytes, exifLength);
 
         // Parse TIFF Headers. See JEITA CP-3451C Section 4.5.2. Table 1.
-        parseTiffHeaders(dataInputStream, exifBytes.length);
+        parseTiffHeaders(dataInputStream, exifLength);
 
         // Read TIFF image file directories. See JEITA CP-3451C Section 4.5.2. Figure 6.
         readImageFileDirectory(dataInputStream, imageType);
@@ -6907,10 +7130,20 @@ public class ExifInterface {
             }
 
             final int bytesOffset = dataInputStream.peek() + mOffsetToExifData;
-            final byte[] bytes = new byte[(int) byteCount];
-            dataInputStream.readFully(bytes);
-            ExifAttribute attribute = new ExifAttribute(dataFormat, numberOfComponents,
-                    bytesOffset, bytes);
+            final ExifAttribute attribute;
+            if (dataInputStream.mBytes != null) {
+                // Defer copying the value until it is read, most callers only read a few tags.
+                final int sourceOffset = dataInputStream.peek();
+                if (dataInputStream.skipBytes((int) byteCount) != (int) byteCount) {
+                    throw new EOFException();
+                }
+                attribute = new ExifAttribute(dataFormat, numberOfComponents, bytesOffset,
+                        dataInputStream.mBytes, sourceOffset, (int) byteCount);
+            } else {
+                final byte[] bytes = new byte[(int) byteCount];
+                dataInputStream.readFully(bytes);
+                attribute = new ExifAttribute(dataFormat, numberOfComponents, bytesOffset, bytes);
+            }
             mAttributes[ifdType].put(tag.name, attribute);
 
             // DNG files have a DNG Version tag specifying the version of specifications that the
@@ -7472,7 +7705,7 @@ public class ExifInterface {
                         dataOutputStream.writeUnsignedInt(dataOffset);
                         dataOffset += size;
                     } else {
-                        dataOutputStream.write(attribute.bytes);
+                        dataOutputStream.write(attribute.getBytes());
                         // Fill zero up to 4 bytes
                         if (size < 4) {
                             for (int i = size; i < 4; ++i) {
@@ -7495,8 +7728,8 @@ public class ExifInterface {
                 for (Map.Entry<String, ExifAttribute> entry : mAttributes[ifdType].entrySet()) {
                     ExifAttribute attribute = entry.getValue();
 
-                    if (attribute.bytes.length > 4) {
-                        dataOutputStream.write(attribute.bytes, 0, attribute.bytes.length);
+                    if (attribute.getByteCount() > 4) {
+                        dataOutputStream.write(attribute.getBytes(), 0, attribute.getByteCount());
                     }
                 }
             }
@@ -7600,6 +7833,105 @@ public class ExifInterface {
         return new Pair<>(IFD_FORMAT_STRING, -1);
     }
 
+    // Buffers that are reused by ExifInterface instances reading one file after another, see
+    // ExifBatchReader. Attributes refer to the buffers, so they are only valid until the next
+    // file is read.
+    static final class ParserBuffers {
+        @SuppressWarnings({"unchecked", "WeakerAccess"}) /* synthetic access */
+        final HashMap<String, ExifAttribute>[] mAttributes = new HashMap[EXIF_TAGS.length];
+        private byte[] mSegment = new byte[0];
+        private boolean mSegmentInUse;
+
+        ParserBuffers() {
+            for (int i = 0; i < mAttributes.length; ++i) {
+                mAttributes[i] = new HashMap<>();
+            }
+        }
+
+        // Called before a file is read, the buffers of the previous file can be reused.
+        @SuppressWarnings("WeakerAccess") /* synthetic access */
+        void reset() {
+            mSegmentInUse = false;
+        }
+
+        // Returns a buffer of at least the given length for an EXIF segment. Only the first
+        // segment of a file gets the shared buffer, attributes of that segment still refer to it
+        // while any other segment is read.
+        @SuppressWarnings("WeakerAccess") /* synthetic access */
+        byte[] obtainSegment(int length) {
+            if (mSegmentInUse) {
+                return new byte[length];
+            }
+            mSegmentInUse = true;
+            if (mSegment.length < length) {
+                mSegment = new byte[length];
+            }
+            return mSegment;
+        }
+    }
+
+    // An input stream that reads from a buffer, usually a memory mapped file. Unlike a
+    // BufferedInputStream, marking it does not buffer anything and both skip and reset are constant
+    // time, so seeking back and forth between IFDs doesn't read the whole file into memory.
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer mBuffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+
+        @Override
+        public int read() {
+            if (!mBuffer.hasRemaining()) {
+                return -1;
+            }
+            return mBuffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!mBuffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, mBuffer.remaining());
+            mBuffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) {
+            if (n <= 0) {
+                return 0;
+            }
+            int skipped = (int) Math.min(n, mBuffer.remaining());
+            mBuffer.position(mBuffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            mBuffer.mark();
+        }
+
+        @Override
+        public synchronized void reset() {
+            mBuffer.reset();
+        }
+    }
+
     // An input stream to parse EXIF data area, which can be written in either little or big endian
     // order.
     private static class ByteOrderedDataInputStream extends InputStream implements DataInput {
@@ -7612,22 +7944,38 @@ public class ExifInterface {
         final int mLength;
         @SuppressWarnings("WeakerAccess") /* synthetic access */
         int mPosition;
+        // The array this stream reads from, if any. Attributes read from it refer to the array
+        // instead of copying their values.
+        @SuppressWarnings("WeakerAccess") /* synthetic access */
+        @Nullable
+        final byte[] mBytes;
 
         public ByteOrderedDataInputStream(InputStream in) throws IOException {
             this(in, ByteOrder.BIG_ENDIAN);
         }
 
         ByteOrderedDataInputStream(InputStream in, ByteOrder byteOrder) throws IOException {
+            this(in, byteOrder, null);
+        }
+
+        public ByteOrderedDataInputStream(byte[] bytes) throws IOException {
+            this(bytes, bytes.length);
+        }
+
+        // Reads the first length bytes of the given array.
+        ByteOrderedDataInputStream(byte[] bytes, int length) throws IOException {
+            this(new ByteArrayInputStream(bytes, 0, length), ByteOrder.BIG_ENDIAN, bytes);
+        }
+
+        private ByteOrderedDataInputStream(InputStream in, ByteOrder byteOrder,
+                @Nullable byte[] bytes) throws IOException {
             mDataInputStream = new DataInputStream(in);
             mLength = mDataInputStream.available();
             mPosition = 0;
             // TODO (b/142218289): Need to handle case where input stream does not support mark
             mDataInputStream.mark(mLength);
             mByteOrder = byteOrder;
-        }
-
-        public ByteOrderedDataInputStream(byte[] bytes) throws IOException {
-            this(new ByteArrayInputStream(bytes));
+            mBytes = bytes;
         }
 
         public void setByteOrder(ByteOrder byteOrder) {
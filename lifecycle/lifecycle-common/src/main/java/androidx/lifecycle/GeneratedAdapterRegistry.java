@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import androidx.annotation.RestrictTo;
+
+import java.util.Map;
+
+/**
+ * Index of the {@link GeneratedAdapter}s generated by lifecycle-compiler for the observers of a
+ * package. Registries are listed in {@code META-INF/services} and loaded once by
+ * {@link Lifecycling}, so that it can create the adapters without reflection.
+ * <p>
+ * Registries are only generated with the {@code lifecycle.adapterRegistry} processor option, so
+ * {@link Lifecycling} only loads them once it finds a {@link RegisteredAdapter}.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public interface GeneratedAdapterRegistry {
+
+    /**
+     * Adds the adapter factories of this registry.
+     *
+     * @param factories the factories, keyed by the class of the observer they adapt
+     */
+    void registerAdapters(Map<Class<?>, Factory> factories);
+
+    /**
+     * Creates the {@link GeneratedAdapter} of an observer.
+     */
+    interface Factory {
+        /**
+         * @param observer the observer, an instance of the class the factory is registered for
+         * @return the adapter of the observer
+         */
+        GeneratedAdapter create(Object observer);
+    }
+
+    /**
+     * Implemented by the {@link GeneratedAdapter}s that lifecycle-compiler also lists in a
+     * registry.
+     */
+    interface RegisteredAdapter {
+    }
+}
@@ -19,6 +19,7 @@ package androidx.lifecycle;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -27,6 +28,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Internal class to handle lifecycle conversion etc.
@@ -39,9 +43,16 @@ public class Lifecycling {
     private static final int REFLECTIVE_CALLBACK = 1;
     private static final int GENERATED_CALLBACK = 2;
 
-    private static Map<Class<?>, Integer> sCallbackCache = new HashMap<>();
-    private static Map<Class<?>, List<Constructor<? extends GeneratedAdapter>>> sClassToAdapters =
-            new HashMap<>();
+    // Observers may be added from several threads, e.g. by ProcessLifecycleOwner and by views
+    // created on a background thread, both caches are filled concurrently.
+    private static Map<Class<?>, Integer> sCallbackCache = new ConcurrentHashMap<>();
+    private static Map<Class<?>, List<GeneratedAdapterRegistry.Factory>> sClassToAdapters =
+            new ConcurrentHashMap<>();
+
+    // Set once an adapter listed in a registry is found by name. Until then, the app may not
+    // have any registry and they are not looked for.
+    @VisibleForTesting
+    static volatile boolean sRegistryEnabled;
 
     // Left for binary compatibility when lifecycle-common goes up 2.1 as transitive dep
     // but lifecycle-runtime stays 2.0
@@ -80,35 +91,82 @@ public class Lifecycling {
         }
 
         final Class<?> klass = object.getClass();
+        // fast path for the observers indexed by lifecycle-compiler, no reflection nor caching
+        final GeneratedAdapterRegistry.Factory factory = registeredFactory(klass);
+        if (factory != null) {
+            return new SingleGeneratedAdapterObserver(factory.create(object));
+        }
+
         int type = getObserverConstructorType(klass);
         if (type == GENERATED_CALLBACK) {
-            List<Constructor<? extends GeneratedAdapter>> constructors =
-                    sClassToAdapters.get(klass);
-            if (constructors.size() == 1) {
-                GeneratedAdapter generatedAdapter = createGeneratedAdapter(
-                        constructors.get(0), object);
+            List<GeneratedAdapterRegistry.Factory> factories = sClassToAdapters.get(klass);
+            if (factories.size() == 1) {
+                GeneratedAdapter generatedAdapter = factories.get(0).create(object);
                 return new SingleGeneratedAdapterObserver(generatedAdapter);
             }
-            GeneratedAdapter[] adapters = new GeneratedAdapter[constructors.size()];
-            for (int i = 0; i < constructors.size(); i++) {
-                adapters[i] = createGeneratedAdapter(constructors.get(i), object);
+            GeneratedAdapter[] adapters = new GeneratedAdapter[factories.size()];
+            for (int i = 0; i < factories.size(); i++) {
+                adapters[i] = factories.get(i).create(object);
             }
             return new CompositeGeneratedAdaptersObserver(adapters);
         }
         return new ReflectiveGenericLifecycleObserver(object);
     }
 
-    private static GeneratedAdapter createGeneratedAdapter(
-            Constructor<? extends GeneratedAdapter> constructor, Object object) {
-        //noinspection TryWithIdenticalCatches
-        try {
-            return constructor.newInstance(object);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        } catch (InstantiationException e) {
-            throw new RuntimeException(e);
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException(e);
+    @Nullable
+    private static GeneratedAdapterRegistry.Factory registeredFactory(Class<?> klass) {
+        return sRegistryEnabled ? RegistryHolder.FACTORIES.get(klass) : null;
+    }
+
+    /**
+     * Holds the factories of all the {@link GeneratedAdapterRegistry}s, loaded the first time
+     * an observer is resolved once the registries are enabled. The class initialization
+     * guarantees they are loaded once and safely published, lookups do not need to lock.
+     */
+    private static class RegistryHolder {
+        static final Map<Class<?>, GeneratedAdapterRegistry.Factory> FACTORIES = loadFactories();
+
+        private static Map<Class<?>, GeneratedAdapterRegistry.Factory> loadFactories() {
+            final Map<Class<?>, GeneratedAdapterRegistry.Factory> factories = new HashMap<>();
+            try {
+                for (GeneratedAdapterRegistry registry : ServiceLoader.load(
+                        GeneratedAdapterRegistry.class,
+                        GeneratedAdapterRegistry.class.getClassLoader())) {
+                    registry.registerAdapters(factories);
+                }
+            } catch (ServiceConfigurationError e) {
+                // e.g. a registry was removed by a shrinker, the observers that are not
+                // registered are resolved by name and reflection like before
+            }
+            return factories;
+        }
+
+        private RegistryHolder() {
+        }
+    }
+
+    /**
+     * Creates adapters found by name, for the observers that have no registry.
+     */
+    private static class ConstructorFactory implements GeneratedAdapterRegistry.Factory {
+        private final Constructor<? extends GeneratedAdapter> mConstructor;
+
+        ConstructorFactory(Constructor<? extends GeneratedAdapter> constructor) {
+            mConstructor = constructor;
+        }
+
+        @Override
+        public GeneratedAdapter create(Object object) {
+            //noinspection TryWithIdenticalCatches
+            try {
+                return mConstructor.newInstance(object);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            } catch (InstantiationException e) {
+                throw new RuntimeException(e);
+            } catch (InvocationTargetException e) {
+                throw new RuntimeException(e);
+            }
         }
     }
 
@@ -154,10 +212,21 @@ public class Lifecycling {
             return REFLECTIVE_CALLBACK;
         }
 
-        Constructor<? extends GeneratedAdapter> constructor = generatedConstructor(klass);
-        if (constructor != null) {
-            sClassToAdapters.put(klass, Collections
-                    .<Constructor<? extends GeneratedAdapter>>singletonList(constructor));
+        GeneratedAdapterRegistry.Factory factory = registeredFactory(klass);
+        if (factory == null) {
+            Constructor<? extends GeneratedAdapter> constructor = generatedConstructor(klass);
+            if (constructor != null) {
+                if (GeneratedAdapterRegistry.RegisteredAdapter.class.isAssignableFrom(
+                        constructor.getDeclaringClass())) {
+                    // the app was compiled with registries, use them for the next observers
+                    sRegistryEnabled = true;
+                }
+                factory = new ConstructorFactory(constructor);
+            }
+        }
+        if (factory != null) {
+            sClassToAdapters.put(klass,
+                    Collections.<GeneratedAdapterRegistry.Factory>singletonList(factory));
             return GENERATED_CALLBACK;
         }
 
@@ -167,12 +236,12 @@ public class Lifecycling {
         }
 
         Class<?> superclass = klass.getSuperclass();
-        List<Constructor<? extends GeneratedAdapter>> adapterConstructors = null;
+        List<GeneratedAdapterRegistry.Factory> adapterFactories = null;
         if (isLifecycleParent(superclass)) {
             if (getObserverConstructorType(superclass) == REFLECTIVE_CALLBACK) {
                 return REFLECTIVE_CALLBACK;
             }
-            adapterConstructors = new ArrayList<>(sClassToAdapters.get(superclass));
+            adapterFactories = new ArrayList<>(sClassToAdapters.get(superclass));
         }
 
         for (Class<?> intrface : klass.getInterfaces()) {
@@ -182,13 +251,13 @@ public class Lifecycling {
             if (getObserverConstructorType(intrface) == REFLECTIVE_CALLBACK) {
                 return REFLECTIVE_CALLBACK;
             }
-            if (adapterConstructors == null) {
-                adapterConstructors = new ArrayList<>();
+            if (adapterFactories == null) {
+                adapterFactories = new ArrayList<>();
             }
-            adapterConstructors.addAll(sClassToAdapters.get(intrface));
+            adapterFactories.addAll(sClassToAdapters.get(intrface));
         }
-        if (adapterConstructors != null) {
-            sClassToAdapters.put(klass, adapterConstructors);
+        if (adapterFactories != null) {
+            sClassToAdapters.put(klass, adapterFactories);
             return GENERATED_CALLBACK;
         }
 
@@ -32,6 +32,8 @@ import androidx.lifecycle.observers.DerivedWithOverridenMethodsWithLfAnnotation;
 import androidx.lifecycle.observers.InterfaceImpl1;
 import androidx.lifecycle.observers.InterfaceImpl2;
 import androidx.lifecycle.observers.InterfaceImpl3;
+import androidx.lifecycle.observers.Registered;
+import androidx.lifecycle.observers.RegisteredByName;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -86,6 +88,33 @@ public class LifecyclingTest {
         assertThat(callback1, instanceOf(SingleGeneratedAdapterObserver.class));
     }
 
+    @Test
+    public void testRegistryIgnoredWithoutRegisteredAdapter() {
+        Lifecycling.sRegistryEnabled = false;
+        Registered observer = new Registered();
+        LifecycleEventObserver callback = lifecycleEventObserver(observer);
+        assertThat(callback, instanceOf(ReflectiveGenericLifecycleObserver.class));
+        assertThat(Lifecycling.sRegistryEnabled, is(false));
+    }
+
+    @Test
+    public void testRegisteredGeneratedAdapter() {
+        Lifecycling.sRegistryEnabled = false;
+        // the first adapter is found by name and enables the registries
+        RegisteredByName byName = new RegisteredByName();
+        LifecycleEventObserver callback = lifecycleEventObserver(byName);
+        assertThat(callback, instanceOf(SingleGeneratedAdapterObserver.class));
+        callback.onStateChanged(new DefaultLifecycleOwner(), Lifecycle.Event.ON_CREATE);
+        assertThat(byName.mCreateCount, is(1));
+        assertThat(Lifecycling.sRegistryEnabled, is(true));
+
+        Registered observer = new Registered();
+        callback = lifecycleEventObserver(observer);
+        assertThat(callback, instanceOf(SingleGeneratedAdapterObserver.class));
+        callback.onStateChanged(new DefaultLifecycleOwner(), Lifecycle.Event.ON_CREATE);
+        assertThat(observer.mCreateCount, is(1));
+    }
+
     // MUST BE HERE TILL Lifecycle 3.0.0 release for back-compatibility with other modules
     @SuppressWarnings("deprecation")
     @Test
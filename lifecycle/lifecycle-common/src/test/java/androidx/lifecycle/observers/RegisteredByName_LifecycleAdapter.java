@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle.observers;
+
+import androidx.lifecycle.GeneratedAdapter;
+import androidx.lifecycle.GeneratedAdapterRegistry;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.MethodCallsLogger;
+
+/**
+ * Adapter like the ones generated by lifecycle-compiler when it also generates registries.
+ */
+public class RegisteredByName_LifecycleAdapter implements GeneratedAdapter,
+        GeneratedAdapterRegistry.RegisteredAdapter {
+    private final RegisteredByName mReceiver;
+
+    public RegisteredByName_LifecycleAdapter(RegisteredByName receiver) {
+        mReceiver = receiver;
+    }
+
+    @Override
+    public void callMethods(LifecycleOwner source, Lifecycle.Event event, boolean onAny,
+            MethodCallsLogger logger) {
+        if (!onAny && event == Lifecycle.Event.ON_CREATE) {
+            mReceiver.onCreate();
+        }
+    }
+}
@@ -22,17 +22,48 @@ import javax.annotation.processing.SupportedAnnotationTypes
 import javax.lang.model.SourceVersion
 import javax.lang.model.element.TypeElement
 
+/**
+ * Option that makes the processor also generate a [GeneratedAdapterRegistry] per package, which
+ * lets [Lifecycling] create the adapters without looking them up by name and reflection.
+ */
+const val OPTION_ADAPTER_REGISTRY = "lifecycle.adapterRegistry"
+
 @SupportedAnnotationTypes("androidx.lifecycle.OnLifecycleEvent")
 class LifecycleProcessor : AbstractProcessor() {
+    private val registries = mutableListOf<String>()
+
     override fun process(
         annotations: MutableSet<out TypeElement>,
         roundEnv: RoundEnvironment
     ): Boolean {
+        if (roundEnv.processingOver()) {
+            if (registries.isNotEmpty()) {
+                writeRegistryServices(registries, processingEnv)
+            }
+            return true
+        }
         val input = collectAndVerifyInput(processingEnv, roundEnv)
-        writeModels(transformToOutput(processingEnv, input), processingEnv)
+        val adapters = transformToOutput(processingEnv, input)
+        writeModels(adapters, processingEnv, isRegistryEnabled())
+        if (isRegistryEnabled()) {
+            registries += writeRegistries(adapters, processingEnv)
+        }
         return true
     }
 
+    /**
+     * The registries and their services file aggregate all the observers, so the processor is
+     * only isolating for Gradle when they are not generated.
+     */
+    override fun getSupportedOptions(): Set<String> {
+        val mode = if (isRegistryEnabled()) "aggregating" else "isolating"
+        return setOf(OPTION_ADAPTER_REGISTRY, "org.gradle.annotation.processing.$mode")
+    }
+
+    // processingEnv is null until init
+    private fun isRegistryEnabled() =
+        processingEnv?.options?.get(OPTION_ADAPTER_REGISTRY)?.toBoolean() ?: false
+
     override fun getSupportedSourceVersion(): SourceVersion {
         return SourceVersion.latest()
     }
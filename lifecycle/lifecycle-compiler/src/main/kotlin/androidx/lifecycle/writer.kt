@@ -25,20 +25,58 @@ import com.squareup.javapoet.FieldSpec
 import com.squareup.javapoet.JavaFile
 import com.squareup.javapoet.MethodSpec
 import com.squareup.javapoet.ParameterSpec
+import com.squareup.javapoet.ParameterizedTypeName
 import com.squareup.javapoet.TypeName
 import com.squareup.javapoet.TypeSpec
+import com.squareup.javapoet.WildcardTypeName
 import javax.annotation.processing.ProcessingEnvironment
 import javax.lang.model.element.Modifier
 import javax.lang.model.element.TypeElement
 import javax.tools.StandardLocation
 
-fun writeModels(infos: List<AdapterClass>, processingEnv: ProcessingEnvironment) {
-    infos.forEach({ writeAdapter(it, processingEnv) })
+/**
+ * Writes the adapters, marked as [GeneratedAdapterRegistry.RegisteredAdapter]s if [registered],
+ * which tells [Lifecycling] that the app has registries to load.
+ */
+fun writeModels(
+    infos: List<AdapterClass>,
+    processingEnv: ProcessingEnvironment,
+    registered: Boolean = false
+) {
+    infos.forEach({ writeAdapter(it, processingEnv, registered) })
+}
+
+/**
+ * Writes a [GeneratedAdapterRegistry] for the adapters of each package.
+ *
+ * @return qualified names of the registries
+ */
+fun writeRegistries(
+    infos: List<AdapterClass>,
+    processingEnv: ProcessingEnvironment
+): List<String> {
+    return infos.groupBy { it.type.getPackageQName() }
+            .map { (packageName, adapters) -> writeRegistry(packageName, adapters, processingEnv) }
+}
+
+/**
+ * Lists the registries in the META-INF/services file read by the ServiceLoader of Lifecycling.
+ */
+fun writeRegistryServices(registries: List<String>, processingEnv: ProcessingEnvironment) {
+    val path = "META-INF/services/${GeneratedAdapterRegistry::class.java.name}"
+    val out = processingEnv.filer.createResource(StandardLocation.CLASS_OUTPUT, "", path)
+    out.openWriter().use { writer ->
+        registries.sorted().forEach { writer.write("$it\n") }
+    }
 }
 
 private val GENERATED_PACKAGE = "javax.annotation"
 private val GENERATED_NAME = "Generated"
 private val LIFECYCLE_EVENT = Lifecycle.Event::class.java
+private val FACTORY = ClassName.get(GeneratedAdapterRegistry.Factory::class.java)
+private val REGISTERED_ADAPTER =
+        ClassName.get(GeneratedAdapterRegistry.RegisteredAdapter::class.java)
+private const val REGISTRY_PREFIX = "GeneratedAdapterRegistry_"
 
 private val T = "\$T"
 private val N = "\$N"
@@ -56,7 +94,11 @@ private val METHODS_LOGGER: ParameterSpec = ParameterSpec.builder(
 
 private const val HAS_LOGGER_VAR = "hasLogger"
 
-private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnvironment) {
+private fun writeAdapter(
+    adapter: AdapterClass,
+    processingEnv: ProcessingEnvironment,
+    registered: Boolean
+) {
     val receiverField: FieldSpec = FieldSpec.builder(ClassName.get(adapter.type), "mReceiver",
             Modifier.FINAL).build()
     val dispatchMethodBuilder = MethodSpec.methodBuilder("callMethods")
@@ -121,6 +163,9 @@ private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnviron
             .addMethod(dispatchMethod)
             .addMethods(syntheticMethods)
             .addOriginatingElement(adapter.type)
+    if (registered) {
+        adapterTypeSpecBuilder.addSuperinterface(REGISTERED_ADAPTER)
+    }
 
     addGeneratedAnnotationIfAvailable(adapterTypeSpecBuilder, processingEnv)
 
@@ -130,6 +175,87 @@ private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnviron
     generateKeepRule(adapter.type, processingEnv)
 }
 
+/**
+ * Writes the registry of the adapters of a package. It lives in the package of the observers
+ * because the adapter constructors are package private, and its name is derived from the
+ * observers so that libraries and rounds that share a package do not write the same class.
+ */
+private fun writeRegistry(
+    packageName: String,
+    adapters: List<AdapterClass>,
+    processingEnv: ProcessingEnvironment
+): String {
+    val sorted = adapters.sortedBy { it.type.qualifiedName.toString() }
+    val hash = sorted.joinToString(",") { it.type.qualifiedName.toString() }.hashCode()
+    val registryName = "${REGISTRY_PREFIX}${Integer.toHexString(hash)}"
+
+    val factoryName = ClassName.get(packageName, registryName, "AdapterFactory")
+    val idField = FieldSpec.builder(TypeName.INT, "mId", Modifier.PRIVATE, Modifier.FINAL)
+            .build()
+    val idParam = ParameterSpec.builder(TypeName.INT, "id").build()
+    val observerParam = ParameterSpec.builder(TypeName.OBJECT, "observer").build()
+    // a single factory class switching on the id keeps the registry to two classes, however
+    // many observers the package has
+    val createMethod = MethodSpec.methodBuilder("create")
+            .addModifiers(Modifier.PUBLIC)
+            .addAnnotation(Override::class.java)
+            .returns(ClassName.get(GeneratedAdapter::class.java))
+            .addParameter(observerParam)
+            .apply {
+                beginControlFlow("switch ($N)", idField)
+                sorted.forEachIndexed { id, adapter ->
+                    addStatement("case $L: return new $T(($T) $N)", id,
+                            ClassName.get(packageName, getAdapterName(adapter.type)),
+                            ClassName.get(adapter.type), observerParam)
+                }
+                addStatement("default: throw new $T()", IllegalStateException::class.java)
+                endControlFlow()
+            }
+            .build()
+    val factory = TypeSpec.classBuilder(factoryName)
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+            .addSuperinterface(FACTORY)
+            .addField(idField)
+            .addMethod(MethodSpec.constructorBuilder()
+                    .addParameter(idParam)
+                    .addStatement("this.$N = $N", idField, idParam)
+                    .build())
+            .addMethod(createMethod)
+            .build()
+
+    val factoriesParam = ParameterSpec.builder(ParameterizedTypeName.get(
+            ClassName.get(Map::class.java),
+            ParameterizedTypeName.get(ClassName.get(Class::class.java),
+                    WildcardTypeName.subtypeOf(Any::class.java)),
+            FACTORY), "factories").build()
+    val registerMethod = MethodSpec.methodBuilder("registerAdapters")
+            .addModifiers(Modifier.PUBLIC)
+            .addAnnotation(Override::class.java)
+            .returns(TypeName.VOID)
+            .addParameter(factoriesParam)
+            .apply {
+                sorted.forEachIndexed { id, adapter ->
+                    addStatement("$N.put($T.class, new $T($L))", factoriesParam,
+                            ClassName.get(adapter.type), factoryName, id)
+                }
+            }
+            .build()
+
+    val registryTypeSpecBuilder = TypeSpec.classBuilder(registryName)
+            .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+            .addSuperinterface(ClassName.get(GeneratedAdapterRegistry::class.java))
+            .addMethod(registerMethod)
+            .addType(factory)
+    sorted.forEach { registryTypeSpecBuilder.addOriginatingElement(it.type) }
+
+    addGeneratedAnnotationIfAvailable(registryTypeSpecBuilder, processingEnv)
+
+    JavaFile.builder(packageName, registryTypeSpecBuilder.build())
+            .build().writeTo(processingEnv.filer)
+
+    return if (packageName.isEmpty()) registryName else "$packageName.$registryName"
+}
+
 private fun addGeneratedAnnotationIfAvailable(
     adapterTypeSpecBuilder: TypeSpec.Builder,
     processingEnv: ProcessingEnvironment
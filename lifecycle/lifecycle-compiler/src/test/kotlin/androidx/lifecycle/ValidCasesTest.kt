@@ -110,6 +110,24 @@ class ValidCasesTest {
                 .and().generatesProGuardRule("bar.DifferentPackagesDerived2.pro")
     }
 
+    @Test
+    fun testRegistry() {
+        JavaSourcesSubject.assertThat(load("foo.InheritanceOk2", ""))
+                .withCompilerOptions("-A$OPTION_ADAPTER_REGISTRY=true")
+                .processedWith(LifecycleProcessor())
+                .compilesWithoutError().and().generatesSources(
+                load("foo.GeneratedAdapterRegistry_fc869982", "expected"),
+                load("foo.InheritanceOk2Derived_LifecycleAdapter", "expected/registry")
+        ).and().generatesFileNamed(StandardLocation.CLASS_OUTPUT, "",
+                "META-INF/services/androidx.lifecycle.GeneratedAdapterRegistry")
+    }
+
+    @Test
+    fun testNoRegistryByDefault() {
+        val compileTester = processClass("foo.InheritanceOk2").compilesWithoutError()
+        doesntGenerateClass(compileTester, "foo", "GeneratedAdapterRegistry_fc869982")
+    }
+
     private fun <T> CompileTester.GeneratedPredicateClause<T>.generatesProGuardRule(name: String):
             CompileTester.SuccessfulFileClause<T> {
         return generatesFileNamed(StandardLocation.CLASS_OUTPUT, "", "META-INF/proguard/$name")
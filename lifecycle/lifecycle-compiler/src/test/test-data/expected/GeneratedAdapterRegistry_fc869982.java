@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foo;
+
+import androidx.lifecycle.GeneratedAdapter;
+import androidx.lifecycle.GeneratedAdapterRegistry;
+import java.lang.Class;
+import java.lang.IllegalStateException;
+import java.lang.Object;
+import java.lang.Override;
+import java.util.Map;
+import javax.annotation.Generated;
+
+@Generated("androidx.lifecycle.LifecycleProcessor")
+public final class GeneratedAdapterRegistry_fc869982 implements GeneratedAdapterRegistry {
+  @Override
+  public void registerAdapters(Map<Class<?>, GeneratedAdapterRegistry.Factory> factories) {
+    factories.put(InheritanceOk2Base.class, new AdapterFactory(0));
+    factories.put(InheritanceOk2Derived.class, new AdapterFactory(1));
+  }
+
+  private static final class AdapterFactory implements GeneratedAdapterRegistry.Factory {
+    private final int mId;
+
+    AdapterFactory(int id) {
+      this.mId = id;
+    }
+
+    @Override
+    public GeneratedAdapter create(Object observer) {
+      switch (mId) {
+        case 0: return new InheritanceOk2Base_LifecycleAdapter((InheritanceOk2Base) observer);
+        case 1: return new InheritanceOk2Derived_LifecycleAdapter((InheritanceOk2Derived) observer);
+        default: throw new IllegalStateException();
+      }
+    }
+  }
+}
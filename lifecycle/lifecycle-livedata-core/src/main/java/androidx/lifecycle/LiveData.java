@@ -82,17 +82,15 @@ public abstract class LiveData<T> {
     @SuppressWarnings("FieldCanBeLocal")
     private boolean mDispatchInvalidated;
     private final Runnable mPostValueRunnable = new Runnable() {
-        @SuppressWarnings("unchecked")
         @Override
         public void run() {
-            Object newValue;
-            synchronized (mDataLock) {
-                newValue = mPendingData;
-                mPendingData = NOT_SET;
-            }
-            setValue((T) newValue);
+            dispatchPendingValue();
         }
     };
+    // set when the posted values are delivered by a LiveDataDispatcher
+    volatile LiveDataDispatcher mDispatcher;
+    // position of this LiveData in the batches of mDispatcher
+    int mDispatchOrder;
 
     /**
      * Creates a LiveData initialized with the given {@code value}.
@@ -287,12 +285,27 @@ public abstract class LiveData<T> {
             postTask = mPendingData == NOT_SET;
             mPendingData = value;
         }
+        LiveDataDispatcher dispatcher = mDispatcher;
+        if (dispatcher != null) {
+            dispatcher.enqueue(this, postTask);
+            return;
+        }
         if (!postTask) {
             return;
         }
         ArchTaskExecutor.getInstance().postToMainThread(mPostValueRunnable);
     }
 
+    @SuppressWarnings("unchecked")
+    void dispatchPendingValue() {
+        Object newValue;
+        synchronized (mDataLock) {
+            newValue = mPendingData;
+            mPendingData = NOT_SET;
+        }
+        setValue((T) newValue);
+    }
+
     /**
      * Sets the value. If there are active observers, the value will be dispatched to them.
      * <p>
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.ArchTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Delivers the values posted to several {@link LiveData}s together.
+ * <p>
+ * By default each {@link LiveData#postValue(Object)} posts its own task to the main thread. The
+ * LiveDatas attached to a dispatcher instead share a single task: all the values posted before
+ * it runs are set in one pass, in the order the LiveDatas were attached. As with
+ * {@link LiveData#postValue(Object)}, if a LiveData is posted to several times before the task
+ * runs, only the last value is dispatched.
+ * <p>
+ * The task runs on the executor given to the constructor, which must run it on the main thread.
+ * The default executor posts it to the main thread right away. An executor that runs it on the
+ * next frame, such as {@code androidx.lifecycle.FrameExecutors#newFrameExecutor()} from
+ * lifecycle-runtime, coalesces the updates of a whole frame.
+ * <pre class="prettyprint">
+ * LiveDataDispatcher dispatcher = new LiveDataDispatcher();
+ * dispatcher.attach(price);
+ * dispatcher.attach(volume);
+ * // on a background thread, both values are set by the same main thread task
+ * price.postValue(newPrice);
+ * volume.postValue(newVolume);
+ * </pre>
+ */
+public final class LiveDataDispatcher {
+    private static final Comparator<LiveData<?>> BY_ATTACH_ORDER = new Comparator<LiveData<?>>() {
+        @Override
+        public int compare(LiveData<?> first, LiveData<?> second) {
+            return first.mDispatchOrder < second.mDispatchOrder ? -1
+                    : (first.mDispatchOrder == second.mDispatchOrder ? 0 : 1);
+        }
+    };
+
+    private final Executor mMainExecutor;
+    private final Object mLock = new Object();
+    // guarded by mLock
+    private ArrayList<LiveData<?>> mPending = new ArrayList<>();
+    private boolean mScheduled;
+    private long mBatchStartNanos;
+    private long mPostCount;
+    private long mDispatchCount;
+    private long mBatchCount;
+    private long mTotalLatencyNanos;
+    private long mMaxLatencyNanos;
+
+    // only accessed on the main thread
+    private int mNextOrder;
+
+    private final Runnable mDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatch();
+        }
+    };
+
+    /**
+     * Creates a dispatcher that posts its task to the main thread with
+     * {@link ArchTaskExecutor}.
+     */
+    public LiveDataDispatcher() {
+        this(new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                ArchTaskExecutor.getInstance().postToMainThread(command);
+            }
+        });
+    }
+
+    /**
+     * Creates a dispatcher that runs its task with the given executor.
+     *
+     * @param mainExecutor executor that runs the task on the main thread, later than the call
+     *                     to {@link Executor#execute(Runnable)}
+     */
+    public LiveDataDispatcher(@NonNull Executor mainExecutor) {
+        mMainExecutor = mainExecutor;
+    }
+
+    /**
+     * Makes the values posted to the given LiveData delivered by this dispatcher. LiveDatas are
+     * updated in the order they were attached. A value posted before the call is still
+     * delivered by its own task.
+     *
+     * @param liveData the LiveData
+     * @throws IllegalStateException if the LiveData is attached to another dispatcher
+     */
+    @MainThread
+    public void attach(@NonNull LiveData<?> liveData) {
+        LiveData.assertMainThread("attach");
+        if (liveData.mDispatcher == this) {
+            return;
+        }
+        if (liveData.mDispatcher != null) {
+            throw new IllegalStateException("LiveData is already attached to a dispatcher");
+        }
+        liveData.mDispatchOrder = mNextOrder++;
+        liveData.mDispatcher = this;
+    }
+
+    /**
+     * Makes the values posted to the given LiveData delivered by its own tasks again. A value
+     * that is pending when the call is made is still delivered by this dispatcher.
+     *
+     * @param liveData the LiveData
+     */
+    @MainThread
+    public void detach(@NonNull LiveData<?> liveData) {
+        LiveData.assertMainThread("detach");
+        if (liveData.mDispatcher == this) {
+            liveData.mDispatcher = null;
+        }
+    }
+
+    /**
+     * Returns the statistics of the values delivered since the dispatcher was created or
+     * {@link #resetStats()} was last called.
+     *
+     * @return a snapshot of the statistics
+     */
+    @NonNull
+    public Stats getStats() {
+        synchronized (mLock) {
+            return new Stats(mPostCount, mDispatchCount, mBatchCount, mTotalLatencyNanos,
+                    mMaxLatencyNanos);
+        }
+    }
+
+    /**
+     * Clears the statistics returned by {@link #getStats()}.
+     */
+    public void resetStats() {
+        synchronized (mLock) {
+            mPostCount = 0;
+            mDispatchCount = 0;
+            mBatchCount = 0;
+            mTotalLatencyNanos = 0;
+            mMaxLatencyNanos = 0;
+        }
+    }
+
+    /**
+     * Called by {@link LiveData#postValue(Object)}.
+     *
+     * @param liveData the LiveData a value was posted to
+     * @param newPending whether the LiveData had no pending value, otherwise the value replaces
+     *                   the pending one, which is not dispatched
+     */
+    void enqueue(LiveData<?> liveData, boolean newPending) {
+        boolean schedule = false;
+        synchronized (mLock) {
+            mPostCount++;
+            if (!newPending) {
+                return;
+            }
+            mPending.add(liveData);
+            if (!mScheduled) {
+                mScheduled = true;
+                mBatchStartNanos = System.nanoTime();
+                schedule = true;
+            }
+        }
+        if (schedule) {
+            mMainExecutor.execute(mDispatchRunnable);
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    void dispatch() {
+        List<LiveData<?>> batch;
+        long latencyNanos;
+        synchronized (mLock) {
+            batch = mPending;
+            mPending = new ArrayList<>();
+            mScheduled = false;
+            latencyNanos = System.nanoTime() - mBatchStartNanos;
+            mDispatchCount += batch.size();
+            mBatchCount++;
+            mTotalLatencyNanos += latencyNanos;
+            mMaxLatencyNanos = Math.max(mMaxLatencyNanos, latencyNanos);
+        }
+        Collections.sort(batch, BY_ATTACH_ORDER);
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).dispatchPendingValue();
+        }
+    }
+
+    /**
+     * Statistics of a {@link LiveDataDispatcher}.
+     */
+    public static final class Stats {
+        private final long mPostCount;
+        private final long mDispatchCount;
+        private final long mBatchCount;
+        private final long mTotalLatencyNanos;
+        private final long mMaxLatencyNanos;
+
+        Stats(long postCount, long dispatchCount, long batchCount, long totalLatencyNanos,
+                long maxLatencyNanos) {
+            mPostCount = postCount;
+            mDispatchCount = dispatchCount;
+            mBatchCount = batchCount;
+            mTotalLatencyNanos = totalLatencyNanos;
+            mMaxLatencyNanos = maxLatencyNanos;
+        }
+
+        /**
+         * @return number of values posted to the attached LiveDatas
+         */
+        public long getPostCount() {
+            return mPostCount;
+        }
+
+        /**
+         * @return number of values set on the attached LiveDatas
+         */
+        public long getDispatchCount() {
+            return mDispatchCount;
+        }
+
+        /**
+         * @return number of posted values that were replaced by a later one before being set
+         */
+        public long getCoalescedCount() {
+            return Math.max(0, mPostCount - mDispatchCount);
+        }
+
+        /**
+         * @return number of main thread tasks that set the values
+         */
+        public long getBatchCount() {
+            return mBatchCount;
+        }
+
+        /**
+         * @return average time between the first value of a batch being posted and the batch
+         * being dispatched, in nanoseconds
+         */
+        public long getAverageLatencyNanos() {
+            return mBatchCount == 0 ? 0 : mTotalLatencyNanos / mBatchCount;
+        }
+
+        /**
+         * @return longest time between the first value of a batch being posted and the batch
+         * being dispatched, in nanoseconds
+         */
+        public long getMaxLatencyNanos() {
+            return mMaxLatencyNanos;
+        }
+    }
+}
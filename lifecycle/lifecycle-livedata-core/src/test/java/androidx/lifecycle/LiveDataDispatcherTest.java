@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+@RunWith(JUnit4.class)
+public class LiveDataDispatcherTest {
+
+    @Rule
+    public InstantTaskExecutorRule mInstantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private final List<Runnable> mTasks = new ArrayList<>();
+    private final List<String> mDispatched = new ArrayList<>();
+    private LiveDataDispatcher mDispatcher;
+
+    @Before
+    public void init() {
+        mDispatcher = new LiveDataDispatcher(new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                mTasks.add(command);
+            }
+        });
+    }
+
+    @Test
+    public void postValues_deliveredInOneTask() {
+        MutableLiveData<String> first = observed("first");
+        MutableLiveData<String> second = observed("second");
+        mDispatcher.attach(first);
+        mDispatcher.attach(second);
+
+        second.postValue("a");
+        first.postValue("b");
+        assertThat(mTasks.size(), is(1));
+        assertThat(mDispatched.isEmpty(), is(true));
+
+        runTasks();
+        // in attach order, not post order
+        assertThat(mDispatched, is(Arrays.asList("first:b", "second:a")));
+    }
+
+    @Test
+    public void postValues_keepsLastValue() {
+        MutableLiveData<String> liveData = observed("data");
+        mDispatcher.attach(liveData);
+
+        liveData.postValue("a");
+        liveData.postValue("b");
+        liveData.postValue("c");
+        runTasks();
+
+        assertThat(mDispatched, is(Arrays.asList("data:c")));
+        LiveDataDispatcher.Stats stats = mDispatcher.getStats();
+        assertThat(stats.getPostCount(), is(3L));
+        assertThat(stats.getDispatchCount(), is(1L));
+        assertThat(stats.getCoalescedCount(), is(2L));
+        assertThat(stats.getBatchCount(), is(1L));
+    }
+
+    @Test
+    public void postValue_afterDispatch_schedulesNewTask() {
+        MutableLiveData<String> liveData = observed("data");
+        mDispatcher.attach(liveData);
+
+        liveData.postValue("a");
+        runTasks();
+        liveData.postValue("b");
+        runTasks();
+
+        assertThat(mDispatched, is(Arrays.asList("data:a", "data:b")));
+        assertThat(mDispatcher.getStats().getBatchCount(), is(2L));
+    }
+
+    @Test
+    public void detach_postsOwnTask() {
+        MutableLiveData<String> liveData = observed("data");
+        mDispatcher.attach(liveData);
+        mDispatcher.detach(liveData);
+
+        liveData.postValue("a");
+
+        // InstantTaskExecutorRule runs the LiveData's own task right away
+        assertThat(mTasks.isEmpty(), is(true));
+        assertThat(mDispatched, is(Arrays.asList("data:a")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void attach_toTwoDispatchers() {
+        MutableLiveData<String> liveData = new MutableLiveData<>();
+        mDispatcher.attach(liveData);
+        new LiveDataDispatcher().attach(liveData);
+    }
+
+    @Test
+    public void resetStats() {
+        MutableLiveData<String> liveData = observed("data");
+        mDispatcher.attach(liveData);
+        liveData.postValue("a");
+        runTasks();
+
+        mDispatcher.resetStats();
+
+        LiveDataDispatcher.Stats stats = mDispatcher.getStats();
+        assertThat(stats.getPostCount(), is(0L));
+        assertThat(stats.getBatchCount(), is(0L));
+        assertThat(stats.getAverageLatencyNanos(), is(0L));
+    }
+
+    private MutableLiveData<String> observed(final String name) {
+        MutableLiveData<String> liveData = new MutableLiveData<>();
+        liveData.observeForever(new Observer<String>() {
+            @Override
+            public void onChanged(String value) {
+                mDispatched.add(name + ":" + value);
+            }
+        });
+        return liveData;
+    }
+
+    private void runTasks() {
+        List<Runnable> tasks = new ArrayList<>(mTasks);
+        mTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+}
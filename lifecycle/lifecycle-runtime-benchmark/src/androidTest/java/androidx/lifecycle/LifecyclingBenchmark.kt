@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Adding annotated observers, whose adapters are indexed in the registry generated by
+ * lifecycle-compiler.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class LifecyclingBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val owner = object : LifecycleOwner {
+        val registry = LifecycleRegistry.createUnsafe(this)
+        override fun getLifecycle(): Lifecycle = registry
+    }
+
+    @Test
+    fun lifecycleEventObserver_registry() {
+        benchmarkRule.measureRepeated {
+            Lifecycling.lifecycleEventObserver(BenchmarkObserver())
+        }
+    }
+
+    /**
+     * What resolving an observer without the registry costs the first time its class is seen,
+     * before the result is cached: looking the adapter up by name and through reflection.
+     */
+    @Test
+    fun resolveAdapter_byName() {
+        val adapterName = BenchmarkObserver::class.java.`package`!!.name + "." +
+            Lifecycling.getAdapterName(BenchmarkObserver::class.java.simpleName)
+        benchmarkRule.measureRepeated {
+            Class.forName(adapterName).getDeclaredConstructor(BenchmarkObserver::class.java)
+        }
+    }
+
+    @Test
+    fun addObserver() {
+        owner.registry.currentState = Lifecycle.State.RESUMED
+        benchmarkRule.measureRepeated {
+            val observer = BenchmarkObserver()
+            owner.registry.addObserver(observer)
+            owner.registry.removeObserver(observer)
+        }
+    }
+}
+
+class BenchmarkObserver : LifecycleObserver {
+    var events = 0
+
+    @OnLifecycleEvent(Lifecycle.Event.ON_START)
+    fun onStart() {
+        events++
+    }
+
+    @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
+    fun onStop() {
+        events++
+    }
+}
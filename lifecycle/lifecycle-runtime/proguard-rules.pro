@@ -11,6 +11,15 @@
     <init>(...);
 }
 
+# Registries generated with the lifecycle.adapterRegistry option are listed in
+# META-INF/services/androidx.lifecycle.GeneratedAdapterRegistry and loaded by ServiceLoader, the
+# service file is only found if the interface keeps its name.
+-keepnames interface androidx.lifecycle.GeneratedAdapterRegistry
+
+-keep class * implements androidx.lifecycle.GeneratedAdapterRegistry {
+    <init>();
+}
+
 -keepclassmembers class ** {
     @androidx.lifecycle.OnLifecycleEvent *;
 }
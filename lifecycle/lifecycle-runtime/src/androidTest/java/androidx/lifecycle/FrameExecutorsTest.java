@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.view.Choreographer;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SdkSuppress;
+import androidx.test.filters.SmallTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+@SdkSuppress(minSdkVersion = 16)
+public class FrameExecutorsTest {
+    private final List<String> mEvents = new ArrayList<>();
+    private final CountDownLatch mDone = new CountDownLatch(1);
+    private int mFrame;
+
+    @Test
+    public void tasksOfSameFrameRunTogether() throws InterruptedException {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final Choreographer choreographer = Choreographer.getInstance();
+                // Registered before the executor's callback, so it counts each frame first
+                choreographer.postFrameCallback(new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        mFrame++;
+                        if (mDone.getCount() > 0) {
+                            choreographer.postFrameCallback(this);
+                        }
+                    }
+                });
+                final Executor executor = FrameExecutors.newFrameExecutor();
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        mEvents.add("a" + mFrame);
+                        executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                mEvents.add("c" + mFrame);
+                                mDone.countDown();
+                            }
+                        });
+                    }
+                });
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        mEvents.add("b" + mFrame);
+                    }
+                });
+                mEvents.add("posted");
+            }
+        });
+        assertTrue(mDone.await(5, TimeUnit.SECONDS));
+        assertEquals(4, mEvents.size());
+        assertEquals("posted", mEvents.get(0));
+        String frame = mEvents.get(1).substring(1);
+        assertEquals("a" + frame, mEvents.get(1));
+        assertEquals("b" + frame, mEvents.get(2));
+        assertEquals('c', mEvents.get(3).charAt(0));
+        assertTrue(Integer.parseInt(mEvents.get(3).substring(1)) > Integer.parseInt(frame));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import android.view.Choreographer;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Factory of {@link Executor}s that run tasks on the main thread at the next frame.
+ * <p>
+ * All the tasks given to such an executor before a frame run together in that frame, in the order
+ * they were given, which makes it suited to batch UI updates, e.g. with
+ * {@code androidx.lifecycle.LiveDataDispatcher}:
+ * <pre class="prettyprint">
+ * LiveDataDispatcher dispatcher = new LiveDataDispatcher(FrameExecutors.newFrameExecutor());
+ * </pre>
+ */
+public final class FrameExecutors {
+    private FrameExecutors() {
+        // No instances
+    }
+
+    /**
+     * Creates an executor that runs its tasks from a {@link Choreographer.FrameCallback} of the
+     * main thread. Tasks may be given from any thread, a task given while the tasks of a frame
+     * run is run at the next frame.
+     *
+     * @return a new executor
+     */
+    @MainThread
+    @RequiresApi(16)
+    @NonNull
+    public static Executor newFrameExecutor() {
+        return new FrameExecutor(Choreographer.getInstance());
+    }
+
+    @RequiresApi(16)
+    private static class FrameExecutor implements Executor, Choreographer.FrameCallback {
+        private final Choreographer mChoreographer;
+        private final Object mLock = new Object();
+        // guarded by mLock
+        private ArrayList<Runnable> mTasks = new ArrayList<>();
+
+        FrameExecutor(Choreographer choreographer) {
+            mChoreographer = choreographer;
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            final boolean schedule;
+            synchronized (mLock) {
+                schedule = mTasks.isEmpty();
+                mTasks.add(command);
+            }
+            if (schedule) {
+                mChoreographer.postFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            final ArrayList<Runnable> tasks;
+            synchronized (mLock) {
+                tasks = mTasks;
+                mTasks = new ArrayList<>();
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                tasks.get(i).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics
+
+import android.graphics.Bitmap
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.After
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.Random
+import java.util.concurrent.Executors
+
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class PaletteBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val bitmap = createBitmap()
+
+    private val executor = Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors()
+    )
+
+    @After
+    fun teardown() {
+        executor.shutdown()
+        bitmap.recycle()
+    }
+
+    /**
+     * Generating a palette with the default options, as for a cover in a list.
+     */
+    @Test
+    fun generate() {
+        benchmarkRule.measureRepeated {
+            Palette.from(bitmap).generate()
+        }
+    }
+
+    /**
+     * Generating a palette for a cover that was already bound once.
+     */
+    @Test
+    fun generate_cached() {
+        val cache = PaletteCache(16)
+        benchmarkRule.measureRepeated {
+            Palette.from(bitmap).setCache(cache).generate()
+        }
+    }
+
+    /**
+     * Generating a palette from all of the pixels of the bitmap.
+     */
+    @Test
+    fun generate_fullSize() {
+        benchmarkRule.measureRepeated {
+            Palette.from(bitmap).resizeBitmapArea(0).generate()
+        }
+    }
+
+    /**
+     * Generating a palette from all of the pixels of the bitmap, counting them in parallel.
+     */
+    @Test
+    fun generate_fullSize_executor() {
+        benchmarkRule.measureRepeated {
+            Palette.from(bitmap).resizeBitmapArea(0).setExecutor(executor).generate()
+        }
+    }
+
+    /**
+     * Generating a palette from all of the pixels of the bitmap, given as bands of rows as a
+     * decoder would, without copying the whole bitmap.
+     */
+    @Test
+    fun generate_histogram() {
+        val band = IntArray(SIZE * BAND_HEIGHT)
+        val histogram = ColorHistogram()
+        benchmarkRule.measureRepeated {
+            histogram.clear()
+            for (top in 0 until SIZE step BAND_HEIGHT) {
+                bitmap.getPixels(band, 0, SIZE, 0, top, SIZE, BAND_HEIGHT)
+                histogram.addPixels(band, 0, SIZE, SIZE, BAND_HEIGHT)
+            }
+            Palette.from(histogram).generate()
+        }
+    }
+
+    companion object {
+        private const val SIZE = 1024
+        private const val BAND_HEIGHT = 64
+
+        /**
+         * A bitmap with a few noisy areas of color, so that many boxes are split.
+         */
+        private fun createBitmap(): Bitmap {
+            val random = Random(0)
+            val baseColors = IntArray(16) { random.nextInt() and 0xff9f9f9f.toInt() }
+            val pixels = IntArray(SIZE * SIZE) {
+                val base = baseColors[(it % SIZE * 4 / SIZE) + (it / SIZE * 4 / SIZE) * 4]
+                base + (random.nextInt(0x60) shl 16) + (random.nextInt(0x60) shl 8) +
+                    random.nextInt(0x60)
+            }
+            return Bitmap.createBitmap(pixels, SIZE, SIZE, Bitmap.Config.ARGB_8888)
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class ColorHistogramTest {
+
+    private static final int TILE_SIZE = 100;
+
+    @Test
+    public void testTilesMatchFullBitmap() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final ColorHistogram histogram = new ColorHistogram();
+        for (int top = 0; top < bitmap.getHeight(); top += TILE_SIZE) {
+            for (int left = 0; left < bitmap.getWidth(); left += TILE_SIZE) {
+                Bitmap tile = Bitmap.createBitmap(bitmap, left, top,
+                        Math.min(TILE_SIZE, bitmap.getWidth() - left),
+                        Math.min(TILE_SIZE, bitmap.getHeight() - top));
+                histogram.addBitmap(tile);
+            }
+        }
+        assertEquals((long) bitmap.getWidth() * bitmap.getHeight(), histogram.getPixelCount());
+
+        Palette palette = Palette.from(bitmap).resizeBitmapArea(0).generate();
+        Palette histogramPalette = Palette.from(histogram).generate();
+        assertEquals(palette.getSwatches(), histogramPalette.getSwatches());
+        assertEquals(palette.getVibrantSwatch(), histogramPalette.getVibrantSwatch());
+        assertEquals(palette.getMutedSwatch(), histogramPalette.getMutedSwatch());
+    }
+
+    @Test
+    public void testAddPixelsWithStride() {
+        final int[] pixels = new int[] {
+                0xFF2196F3, 0xFF2196F3, 0xFF000000,
+                0xFF4CAF50, 0xFF4CAF50, 0xFF000000
+        };
+        final ColorHistogram histogram = new ColorHistogram();
+        histogram.addPixels(pixels, 0, 3, 2, 2);
+        assertEquals(4, histogram.getPixelCount());
+
+        Palette palette = Palette.from(histogram).clearFilters().generate();
+        assertEquals(2, palette.getSwatches().size());
+        for (Palette.Swatch swatch : palette.getSwatches()) {
+            assertEquals(2, swatch.getPopulation());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddPixelsOutOfBounds() {
+        new ColorHistogram().addPixels(new int[10], 5, 3, 3, 2);
+    }
+
+    @Test
+    public void testClear() {
+        final ColorHistogram histogram = new ColorHistogram();
+        histogram.addBitmap(TestUtils.loadSampleBitmap());
+        histogram.clear();
+
+        assertEquals(0, histogram.getPixelCount());
+        assertTrue(Palette.from(histogram).generate().getSwatches().isEmpty());
+    }
+}
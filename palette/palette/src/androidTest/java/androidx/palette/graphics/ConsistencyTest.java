@@ -26,6 +26,9 @@ import androidx.test.filters.SmallTest;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @RunWith(AndroidJUnit4.class)
 public class ConsistencyTest {
 
@@ -46,6 +49,39 @@ public class ConsistencyTest {
         }
     }
 
+    @Test
+    @SmallTest
+    public void testConsistencyWithExecutor() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // Disable resizing so that the histogram is built in parallel
+            Palette palette = Palette.from(bitmap).resizeBitmapArea(0).generate();
+            Palette parallelPalette = Palette.from(bitmap).resizeBitmapArea(0)
+                    .setExecutor(executor)
+                    .generate();
+            assertEquals(palette.getSwatches(), parallelPalette.getSwatches());
+            assetPalettesEqual(palette, parallelPalette);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @SmallTest
+    public void testConsistencyWithRejectingExecutor() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        // The executor rejects all the tasks, so they are run on the calling thread
+        Palette palette = Palette.from(bitmap).resizeBitmapArea(0).generate();
+        Palette rejectedPalette = Palette.from(bitmap).resizeBitmapArea(0)
+                .setExecutor(executor)
+                .generate();
+        assertEquals(palette.getSwatches(), rejectedPalette.getSwatches());
+        assetPalettesEqual(palette, rejectedPalette);
+    }
+
     private static void assetPalettesEqual(Palette p1, Palette p2) {
         assertEquals(p1.getVibrantSwatch(), p2.getVibrantSwatch());
         assertEquals(p1.getLightVibrantSwatch(), p2.getLightVibrantSwatch());
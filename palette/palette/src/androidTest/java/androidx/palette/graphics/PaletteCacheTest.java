@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class PaletteCacheTest {
+
+    @Test
+    public void testSameConfigurationIsCached() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final PaletteCache cache = new PaletteCache(4);
+
+        Palette first = Palette.from(bitmap).setCache(cache).generate();
+        Palette second = Palette.from(bitmap).setCache(cache).generate();
+
+        assertSame(first, second);
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    public void testDifferentConfigurationIsNotCached() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final PaletteCache cache = new PaletteCache(4);
+
+        Palette palette = Palette.from(bitmap).setCache(cache).generate();
+
+        assertNotSame(palette, Palette.from(bitmap).setCache(cache)
+                .maximumColorCount(24)
+                .generate());
+        assertNotSame(palette, Palette.from(bitmap).setCache(cache)
+                .setRegion(0, 0, bitmap.getWidth() / 2, bitmap.getHeight() / 2)
+                .generate());
+        assertNotSame(palette, Palette.from(bitmap).setCache(cache)
+                .clearTargets()
+                .addTarget(Target.VIBRANT)
+                .generate());
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void testModifiedBitmapIsNotCached() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap().copy(Bitmap.Config.ARGB_8888, true);
+        final PaletteCache cache = new PaletteCache(4);
+
+        Palette palette = Palette.from(bitmap).setCache(cache).generate();
+        bitmap.eraseColor(Color.BLUE);
+
+        assertNotSame(palette, Palette.from(bitmap).setCache(cache).generate());
+    }
+
+    @Test
+    public void testCachedTargetsAreNotModified() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final PaletteCache cache = new PaletteCache(4);
+        final Palette.Builder builder = Palette.from(bitmap).setCache(cache);
+
+        Palette palette = builder.generate();
+        builder.addTarget(new Target.Builder().build());
+
+        assertEquals(6, palette.getTargets().size());
+    }
+
+    @Test
+    public void testEviction() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final PaletteCache cache = new PaletteCache(1);
+
+        Palette palette = Palette.from(bitmap).setCache(cache).generate();
+        Palette.from(bitmap).setCache(cache).maximumColorCount(24).generate();
+        assertEquals(1, cache.size());
+        assertNotSame(palette, Palette.from(bitmap).setCache(cache).generate());
+
+        cache.evictAll();
+        assertEquals(0, cache.size());
+    }
+}
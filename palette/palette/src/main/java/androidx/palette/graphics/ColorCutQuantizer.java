@@ -27,6 +27,11 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * An color quantizer based on the Median-cut algorithm, but optimized for picking out distinct
@@ -48,6 +53,13 @@ final class ColorCutQuantizer {
 
     private static final int QUANTIZE_WORD_WIDTH = 5;
     private static final int QUANTIZE_WORD_MASK = (1 << QUANTIZE_WORD_WIDTH) - 1;
+    static final int HISTOGRAM_SIZE = 1 << (QUANTIZE_WORD_WIDTH * 3);
+
+    /**
+     * Minimum number of pixels given to each task of a parallel histogram build. Below this,
+     * merging the partial histograms costs more than what the parallel pass saves.
+     */
+    static final int MIN_PIXELS_PER_HISTOGRAM_TASK = 64 * 1024;
 
     final int[] mColors;
     final int[] mHistogram;
@@ -59,21 +71,16 @@ final class ColorCutQuantizer {
     /**
      * Constructor.
      *
-     * @param pixels histogram representing an image's pixel data
+     * @param histogram histogram of an image's quantized colors, as built by
+     *                  {@link #buildHistogram(int[], Executor)}. The populations of the colors
+     *                  which are filtered out are cleared.
      * @param maxColors The maximum number of colors that should be in the result palette.
      * @param filters Set of filters to use in the quantization stage
      */
-    ColorCutQuantizer(int[] pixels, int maxColors, @Nullable Palette.Filter[] filters) {
+    ColorCutQuantizer(int[] histogram, int maxColors, @Nullable Palette.Filter[] filters) {
         mFilters = filters;
 
-        final int[] hist = mHistogram = new int[1 << (QUANTIZE_WORD_WIDTH * 3)];
-        for (int i = 0; i < pixels.length; i++) {
-            final int quantizedColor = quantizeFromRgb888(pixels[i]);
-            // Now update the pixel value to the quantized value
-            pixels[i] = quantizedColor;
-            // And update the histogram
-            hist[quantizedColor]++;
-        }
+        final int[] hist = mHistogram = histogram;
 
         // Now let's count the number of distinct colors
         int distinctColorCount = 0;
@@ -109,6 +116,100 @@ final class ColorCutQuantizer {
         }
     }
 
+    /**
+     * Builds the histogram of the quantized colors of the given pixels.
+     * <p>
+     * When an executor is given and there are enough pixels, the pixels are split in ranges
+     * which are counted in partial histograms by separate tasks, then the partial histograms are
+     * merged. The calling thread counts the ranges that the executor has not started yet, so
+     * this completes even if the executor's threads are all busy or it rejects the tasks.
+     */
+    static int[] buildHistogram(int[] pixels, @Nullable Executor executor) {
+        final int taskCount = executor == null ? 1 : Math.min(
+                Runtime.getRuntime().availableProcessors(),
+                pixels.length / MIN_PIXELS_PER_HISTOGRAM_TASK);
+        if (taskCount <= 1) {
+            final int[] hist = new int[HISTOGRAM_SIZE];
+            countColors(pixels, 0, pixels.length, hist);
+            return hist;
+        }
+
+        final List<FutureTask<int[]>> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            final FutureTask<int[]> task = new FutureTask<>(new HistogramTask(pixels,
+                    (int) ((long) pixels.length * i / taskCount),
+                    (int) ((long) pixels.length * (i + 1) / taskCount)));
+            tasks.add(task);
+            // The first range is counted on this thread
+            if (i > 0) {
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    // The task is run on this thread below
+                }
+            }
+        }
+
+        final int[] hist = new int[HISTOGRAM_SIZE];
+        for (int i = 0; i < taskCount; i++) {
+            final FutureTask<int[]> task = tasks.get(i);
+            // Does nothing if the executor already started the task
+            task.run();
+            final int[] partial = getUninterruptibly(task);
+            for (int color = 0; color < HISTOGRAM_SIZE; color++) {
+                hist[color] += partial[color];
+            }
+        }
+        return hist;
+    }
+
+    static void countColors(int[] pixels, int start, int end, int[] hist) {
+        for (int i = start; i < end; i++) {
+            hist[quantizeFromRgb888(pixels[i])]++;
+        }
+    }
+
+    private static int[] getUninterruptibly(FutureTask<int[]> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Counts a range of the pixels in a partial histogram.
+     */
+    private static class HistogramTask implements Callable<int[]> {
+        private final int[] mPixels;
+        private final int mStart;
+        private final int mEnd;
+
+        HistogramTask(int[] pixels, int start, int end) {
+            mPixels = pixels;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        public int[] call() {
+            final int[] hist = new int[HISTOGRAM_SIZE];
+            countColors(mPixels, mStart, mEnd, hist);
+            return hist;
+        }
+    }
+
     /**
      * @return the list of quantized colors
      */
@@ -121,8 +222,9 @@ final class ColorCutQuantizer {
         // split the largest box in the queue
         final PriorityQueue<Vbox> pq = new PriorityQueue<>(maxColors, VBOX_COMPARATOR_VOLUME);
 
-        // To start, offer a box which contains all of the colors
-        pq.offer(new Vbox(0, mColors.length - 1));
+        // To start, offer a box which contains all of the colors. They were added in the order
+        // of the histogram, so they are already sorted by red
+        pq.offer(new Vbox(0, mColors.length - 1, COMPONENT_RED));
 
         // Now go through the boxes, splitting them until we have reached maxColors or there are no
         // more boxes to split
@@ -184,9 +286,13 @@ final class ColorCutQuantizer {
         private int mMinGreen, mMaxGreen;
         private int mMinBlue, mMaxBlue;
 
-        Vbox(int lowerIndex, int upperIndex) {
+        // The dimension which the colors of this box are sorted by
+        private int mSortedDimension;
+
+        Vbox(int lowerIndex, int upperIndex, int sortedDimension) {
             mLowerIndex = lowerIndex;
             mUpperIndex = upperIndex;
+            mSortedDimension = sortedDimension;
             fitBox();
         }
 
@@ -266,7 +372,8 @@ final class ColorCutQuantizer {
             // find median along the longest dimension
             final int splitPoint = findSplitPoint();
 
-            Vbox newBox = new Vbox(splitPoint + 1, mUpperIndex);
+            // Both halves of the sorted range are still sorted
+            Vbox newBox = new Vbox(splitPoint + 1, mUpperIndex, mSortedDimension);
 
             // Now change this box's upperIndex and recompute the color boundaries
             mUpperIndex = splitPoint;
@@ -296,8 +403,9 @@ final class ColorCutQuantizer {
          * Finds the point within this box's lowerIndex and upperIndex index of where to split.
          *
          * This is calculated by finding the longest color dimension, and then sorting the
-         * sub-array based on that dimension value in each color. The colors are then iterated over
-         * until a color is found with at least the midpoint of the whole box's dimension midpoint.
+         * sub-array based on that dimension value in each color, unless it is already sorted by
+         * it. The colors are then iterated over until a color is found with at least the midpoint
+         * of the whole box's dimension midpoint.
          *
          * @return the index of the colors array to split from
          */
@@ -307,15 +415,20 @@ final class ColorCutQuantizer {
             final int[] hist = mHistogram;
 
             // We need to sort the colors in this box based on the longest color dimension.
-            // As we can't use a Comparator to define the sort logic, we modify each color so that
-            // its most significant is the desired dimension
-            modifySignificantOctet(colors, longestDimension, mLowerIndex, mUpperIndex);
-
-            // Now sort... Arrays.sort uses a exclusive toIndex so we need to add 1
-            Arrays.sort(colors, mLowerIndex, mUpperIndex + 1);
-
-            // Now revert all of the colors so that they are packed as RGB again
-            modifySignificantOctet(colors, longestDimension, mLowerIndex, mUpperIndex);
+            // Boxes inherit the order of the box they were split from, which is often already
+            // sorted by the same dimension
+            if (longestDimension != mSortedDimension) {
+                // As we can't use a Comparator to define the sort logic, we modify each color so
+                // that its most significant is the desired dimension
+                modifySignificantOctet(colors, longestDimension, mLowerIndex, mUpperIndex);
+
+                // Now sort... Arrays.sort uses a exclusive toIndex so we need to add 1
+                Arrays.sort(colors, mLowerIndex, mUpperIndex + 1);
+
+                // Now revert all of the colors so that they are packed as RGB again
+                modifySignificantOctet(colors, longestDimension, mLowerIndex, mUpperIndex);
+                mSortedDimension = longestDimension;
+            }
 
             final int midPoint = mPopulation / 2;
             for (int i = mLowerIndex, count = 0; i <= mUpperIndex; i++)  {
@@ -336,9 +449,10 @@ final class ColorCutQuantizer {
         final Palette.Swatch getAverageColor() {
             final int[] colors = mColors;
             final int[] hist = mHistogram;
-            int redSum = 0;
-            int greenSum = 0;
-            int blueSum = 0;
+            // Populations can be large when the colors are counted from full size images
+            long redSum = 0;
+            long greenSum = 0;
+            long blueSum = 0;
             int totalPopulation = 0;
 
             for (int i = mLowerIndex; i <= mUpperIndex; i++) {
@@ -346,9 +460,9 @@ final class ColorCutQuantizer {
                 final int colorPopulation = hist[color];
 
                 totalPopulation += colorPopulation;
-                redSum += colorPopulation * quantizedRed(color);
-                greenSum += colorPopulation * quantizedGreen(color);
-                blueSum += colorPopulation * quantizedBlue(color);
+                redSum += (long) colorPopulation * quantizedRed(color);
+                greenSum += (long) colorPopulation * quantizedGreen(color);
+                blueSum += (long) colorPopulation * quantizedBlue(color);
             }
 
             final int redMean = Math.round(redSum / (float) totalPopulation);
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Counts the colors of an image which is provided in parts, such as bands of rows from a
+ * decoder or tiles from a {@link android.graphics.BitmapRegionDecoder}, to generate a
+ * {@link Palette} with {@link Palette#from(ColorHistogram)}.
+ * <p>
+ * Only the counts of the colors are kept, so the memory used does not depend on the size of the
+ * image, and the whole image never needs to be in memory:
+ *
+ * <pre>
+ * ColorHistogram histogram = new ColorHistogram();
+ * for (Rect tile : tiles) {
+ *     Bitmap bitmap = decoder.decodeRegion(tile, options);
+ *     histogram.addBitmap(bitmap);
+ *     bitmap.recycle();
+ * }
+ * Palette p = Palette.from(histogram).generate();
+ * </pre>
+ *
+ * Each pixel is counted as many times as it is added, so the parts should not overlap. Decoding
+ * them with {@link android.graphics.BitmapFactory.Options#inSampleSize} reduces the time spent
+ * decoding and counting, as resizing does for {@link Palette.Builder#resizeBitmapArea(int)}.
+ * <p>
+ * This class is not thread safe.
+ */
+public final class ColorHistogram {
+
+    /**
+     * Number of pixels read at once from a {@link Bitmap} by {@link #addBitmap(Bitmap)}.
+     */
+    private static final int BITMAP_BUFFER_SIZE = 16 * 1024;
+
+    private final int[] mHistogram = new int[ColorCutQuantizer.HISTOGRAM_SIZE];
+    private long mPixelCount;
+
+    /**
+     * Counts the colors of a region of pixels. The arguments are the same as those of
+     * {@link Bitmap#getPixels(int[], int, int, int, int, int, int)}.
+     *
+     * @param pixels the colors of the pixels, as packed ARGB ints.
+     * @param offset the index of the first pixel of the region.
+     * @param stride the number of entries in {@code pixels} between rows.
+     * @param width the number of pixels in each row of the region.
+     * @param height the number of rows of the region.
+     *
+     * @throws IllegalArgumentException if the region is not within {@code pixels}.
+     */
+    public void addPixels(@NonNull int[] pixels, int offset, int stride, int width,
+            int height) {
+        if (width < 0 || height < 0 || Math.abs(stride) < width) {
+            throw new IllegalArgumentException("Invalid region dimensions");
+        }
+        if (width == 0 || height == 0) {
+            return;
+        }
+        final long lastRow = offset + (long) (height - 1) * stride;
+        if (offset < 0 || lastRow < 0 || (long) offset + width > pixels.length
+                || lastRow + width > pixels.length) {
+            throw new IllegalArgumentException("The region is not within the pixels array");
+        }
+
+        for (int row = 0; row < height; row++) {
+            final int start = offset + row * stride;
+            ColorCutQuantizer.countColors(pixels, start, start + width, mHistogram);
+        }
+        mPixelCount += (long) width * height;
+    }
+
+    /**
+     * Counts the colors of all of the pixels of a {@link Bitmap}. The pixels are read a few rows
+     * at a time, so that they are not all copied at once.
+     *
+     * @param bitmap the bitmap, which is not modified or recycled.
+     */
+    public void addBitmap(@NonNull Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            throw new IllegalArgumentException("Bitmap is not valid");
+        }
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+        if (width == 0 || height == 0) {
+            return;
+        }
+
+        final int rowsPerBand = Math.max(1, Math.min(height, BITMAP_BUFFER_SIZE / width));
+        final int[] band = new int[rowsPerBand * width];
+        for (int top = 0; top < height; top += rowsPerBand) {
+            final int rows = Math.min(rowsPerBand, height - top);
+            bitmap.getPixels(band, 0, width, 0, top, width, rows);
+            addPixels(band, 0, width, width, rows);
+        }
+    }
+
+    /**
+     * Returns the number of pixels counted so far.
+     */
+    public long getPixelCount() {
+        return mPixelCount;
+    }
+
+    /**
+     * Removes all of the counted pixels, so that the histogram can be used for another image.
+     */
+    public void clear() {
+        Arrays.fill(mHistogram, 0);
+        mPixelCount = 0;
+    }
+
+    /**
+     * Returns a copy of the counts, which {@link ColorCutQuantizer} can modify.
+     */
+    int[] copyHistogram() {
+        return mHistogram.clone();
+    }
+}
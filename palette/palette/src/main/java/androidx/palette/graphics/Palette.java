@@ -34,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * A helper class to extract prominent colors from an image.
@@ -101,6 +102,15 @@ public final class Palette {
         return new Builder(bitmap);
     }
 
+    /**
+     * Start generating a {@link Palette} from the colors counted by a {@link ColorHistogram} with
+     * the returned {@link Builder} instance.
+     */
+    @NonNull
+    public static Builder from(@NonNull ColorHistogram histogram) {
+        return new Builder(histogram);
+    }
+
     /**
      * Generate a {@link Palette} from the pre-generated list of {@link Palette.Swatch} swatches.
      * This is useful for testing, or if you want to resurrect a {@link Palette} instance from a
@@ -592,6 +602,7 @@ public final class Palette {
     public static final class Builder {
         @Nullable private final List<Swatch> mSwatches;
         @Nullable private final Bitmap mBitmap;
+        @Nullable private final ColorHistogram mHistogram;
 
         private final List<Target> mTargets = new ArrayList<>();
 
@@ -602,6 +613,9 @@ public final class Palette {
         private final List<Filter> mFilters = new ArrayList<>();
         @Nullable private Rect mRegion;
 
+        @Nullable private Executor mExecutor;
+        @Nullable private PaletteCache mCache;
+
         /**
          * Construct a new {@link Builder} using a source {@link Bitmap}
          */
@@ -612,14 +626,26 @@ public final class Palette {
             mFilters.add(DEFAULT_FILTER);
             mBitmap = bitmap;
             mSwatches = null;
+            mHistogram = null;
 
-            // Add the default targets
-            mTargets.add(Target.LIGHT_VIBRANT);
-            mTargets.add(Target.VIBRANT);
-            mTargets.add(Target.DARK_VIBRANT);
-            mTargets.add(Target.LIGHT_MUTED);
-            mTargets.add(Target.MUTED);
-            mTargets.add(Target.DARK_MUTED);
+            addDefaultTargets();
+        }
+
+        /**
+         * Construct a new {@link Builder} using the colors counted by a {@link ColorHistogram}.
+         * The histogram is read when {@link #generate()} is called, so pixels can be added to it
+         * in between.
+         */
+        public Builder(@NonNull ColorHistogram histogram) {
+            if (histogram == null) {
+                throw new IllegalArgumentException("ColorHistogram is not valid");
+            }
+            mFilters.add(DEFAULT_FILTER);
+            mHistogram = histogram;
+            mBitmap = null;
+            mSwatches = null;
+
+            addDefaultTargets();
         }
 
         /**
@@ -633,11 +659,21 @@ public final class Palette {
             mFilters.add(DEFAULT_FILTER);
             mSwatches = swatches;
             mBitmap = null;
+            mHistogram = null;
+        }
+
+        private void addDefaultTargets() {
+            mTargets.add(Target.LIGHT_VIBRANT);
+            mTargets.add(Target.VIBRANT);
+            mTargets.add(Target.DARK_VIBRANT);
+            mTargets.add(Target.LIGHT_MUTED);
+            mTargets.add(Target.MUTED);
+            mTargets.add(Target.DARK_MUTED);
         }
 
         /**
          * Set the maximum number of colors to use in the quantization step when using a
-         * {@link android.graphics.Bitmap} as the source.
+         * {@link android.graphics.Bitmap} or a {@link ColorHistogram} as the source.
          * <p>
          * Good values for depend on the source image type. For landscapes, good values are in
          * the range 10-16. For images which are largely made up of people's faces then this
@@ -771,12 +807,58 @@ public final class Palette {
             return this;
         }
 
+        /**
+         * Set an executor used to count the colors of large images in parallel when using a
+         * {@link android.graphics.Bitmap} as the source.
+         * <p>
+         * Images are only split between several tasks when they have enough pixels after being
+         * resized, which is not the case with the default {@link #resizeBitmapArea(int)}. The
+         * thread calling {@link #generate()} also counts colors, and counts the parts of the
+         * image which the executor has not started yet or rejects, so the executor can be shared
+         * with other work.
+         *
+         * @param executor the executor, or null to count colors on the calling thread.
+         */
+        @NonNull
+        public Builder setExecutor(@Nullable Executor executor) {
+            mExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Set a cache of the palettes generated when using a {@link android.graphics.Bitmap} as
+         * the source. If the cache has a palette generated from the same bitmap with the same
+         * configuration, {@link #generate()} returns it instead of generating a new one.
+         *
+         * @param cache the cache, or null to always generate a new palette.
+         * @see PaletteCache
+         */
+        @NonNull
+        public Builder setCache(@Nullable PaletteCache cache) {
+            mCache = cache;
+            return this;
+        }
+
         /**
          * Generate and return the {@link Palette} synchronously.
          */
         @NonNull
         public Palette generate() {
             List<Swatch> swatches;
+            List<Target> targets = mTargets;
+            final PaletteCache cache = mCache;
+            PaletteCache.Key cacheKey = null;
+
+            if (mBitmap != null && cache != null) {
+                cacheKey = new PaletteCache.Key(mBitmap, mMaxColors, mResizeArea,
+                        mResizeMaxDimension, mRegion, mFilters, mTargets);
+                final Palette cached = cache.get(cacheKey);
+                if (cached != null) {
+                    return cached;
+                }
+                // The cached palette must not see the targets later added to this builder
+                targets = new ArrayList<>(mTargets);
+            }
 
             if (mBitmap != null) {
                 // We have a Bitmap so we need to use quantization to reduce the number of colors
@@ -799,9 +881,9 @@ public final class Palette {
 
                 // Now generate a quantizer from the Bitmap
                 final ColorCutQuantizer quantizer = new ColorCutQuantizer(
-                        getPixelsFromBitmap(bitmap),
+                        ColorCutQuantizer.buildHistogram(getPixelsFromBitmap(bitmap), mExecutor),
                         mMaxColors,
-                        mFilters.isEmpty() ? null : mFilters.toArray(new Filter[mFilters.size()]));
+                        getFilters());
 
                 // If created a new bitmap, recycle it
                 if (bitmap != mBitmap) {
@@ -809,19 +891,29 @@ public final class Palette {
                 }
 
                 swatches = quantizer.getQuantizedColors();
+            } else if (mHistogram != null) {
+                // The colors have already been counted, so we only need the quantization
+                final ColorCutQuantizer quantizer = new ColorCutQuantizer(
+                        mHistogram.copyHistogram(),
+                        mMaxColors,
+                        getFilters());
+                swatches = quantizer.getQuantizedColors();
             } else if (mSwatches != null) {
                 // Else we're using the provided swatches
                 swatches = mSwatches;
             } else {
-                // The constructors enforce either a bitmap or swatches are present.
+                // The constructors enforce either a bitmap, a histogram or swatches are present.
                 throw new AssertionError();
             }
 
             // Now create a Palette instance
-            final Palette p = new Palette(swatches, mTargets);
+            final Palette p = new Palette(swatches, targets);
             // And make it generate itself
             p.generate();
 
+            if (cache != null && cacheKey != null) {
+                cache.put(cacheKey, p);
+            }
             return p;
         }
 
@@ -859,6 +951,11 @@ public final class Palette {
             }.executeOnExecutor(android.os.AsyncTask.THREAD_POOL_EXECUTOR, mBitmap);
         }
 
+        @Nullable
+        private Filter[] getFilters() {
+            return mFilters.isEmpty() ? null : mFilters.toArray(new Filter[mFilters.size()]);
+        }
+
         private int[] getPixelsFromBitmap(Bitmap bitmap) {
             final int bitmapWidth = bitmap.getWidth();
             final int bitmapHeight = bitmap.getHeight();
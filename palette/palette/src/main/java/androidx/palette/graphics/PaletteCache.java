@@ -0,0 +1,168 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A bounded cache of generated {@link Palette}s, which can be shared by several
+ * {@link Palette.Builder}s with {@link Palette.Builder#setCache(PaletteCache)}.
+ * <p>
+ * Palettes are cached per bitmap, using {@link Bitmap#getGenerationId()}, and per configuration
+ * of the builder: its maximum color count, resize value, region, filters and targets. Filters
+ * and targets are compared with {@link Object#equals(Object)}, so the same instances must be
+ * used for palettes to be found in the cache. When the bitmap's pixels are modified, its
+ * generation ID changes, so a new palette is generated.
+ * <p>
+ * This class is thread safe. The least recently used palettes are evicted once the cache
+ * holds the maximum number of palettes.
+ */
+public final class PaletteCache {
+
+    private final LruCache<Key, Palette> mCache;
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxSize the maximum number of palettes in the cache
+     */
+    public PaletteCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        mCache = new LruCache<>(maxSize);
+    }
+
+    /**
+     * Removes all of the palettes from the cache.
+     */
+    public void evictAll() {
+        mCache.evictAll();
+    }
+
+    /**
+     * Returns the number of palettes in the cache.
+     */
+    public int size() {
+        return mCache.size();
+    }
+
+    /**
+     * Returns the maximum number of palettes in the cache.
+     */
+    public int maxSize() {
+        return mCache.maxSize();
+    }
+
+    /**
+     * Returns the number of times a palette was found in the cache.
+     */
+    public int hitCount() {
+        return mCache.hitCount();
+    }
+
+    /**
+     * Returns the number of times a palette was not found in the cache and was generated.
+     */
+    public int missCount() {
+        return mCache.missCount();
+    }
+
+    @Nullable
+    Palette get(@NonNull Key key) {
+        return mCache.get(key);
+    }
+
+    void put(@NonNull Key key, @NonNull Palette palette) {
+        mCache.put(key, palette);
+    }
+
+    /**
+     * The bitmap and builder configuration a palette was generated from.
+     */
+    static final class Key {
+        private final int mGenerationId;
+        private final int mWidth;
+        private final int mHeight;
+        private final int mMaxColors;
+        private final int mResizeArea;
+        private final int mResizeMaxDimension;
+        @Nullable private final Rect mRegion;
+        private final Object[] mFilters;
+        private final Object[] mTargets;
+        private final int mHashCode;
+
+        Key(@NonNull Bitmap bitmap, int maxColors, int resizeArea, int resizeMaxDimension,
+                @Nullable Rect region, @NonNull List<Palette.Filter> filters,
+                @NonNull List<Target> targets) {
+            mGenerationId = bitmap.getGenerationId();
+            mWidth = bitmap.getWidth();
+            mHeight = bitmap.getHeight();
+            mMaxColors = maxColors;
+            mResizeArea = resizeArea;
+            mResizeMaxDimension = resizeMaxDimension;
+            mRegion = region == null ? null : new Rect(region);
+            mFilters = filters.toArray();
+            mTargets = targets.toArray();
+
+            int hashCode = mGenerationId;
+            hashCode = 31 * hashCode + mWidth;
+            hashCode = 31 * hashCode + mHeight;
+            hashCode = 31 * hashCode + mMaxColors;
+            hashCode = 31 * hashCode + mResizeArea;
+            hashCode = 31 * hashCode + mResizeMaxDimension;
+            hashCode = 31 * hashCode + (mRegion == null ? 0 : mRegion.hashCode());
+            hashCode = 31 * hashCode + Arrays.hashCode(mFilters);
+            hashCode = 31 * hashCode + Arrays.hashCode(mTargets);
+            mHashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return mGenerationId == key.mGenerationId
+                    && mWidth == key.mWidth
+                    && mHeight == key.mHeight
+                    && mMaxColors == key.mMaxColors
+                    && mResizeArea == key.mResizeArea
+                    && mResizeMaxDimension == key.mResizeMaxDimension
+                    && (mRegion == null ? key.mRegion == null : mRegion.equals(key.mRegion))
+                    && Arrays.equals(mFilters, key.mFilters)
+                    && Arrays.equals(mTargets, key.mTargets);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.benchmark
+
+import android.os.Build
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.room.Database
+import androidx.room.Entity
+import androidx.room.InvalidationTracker
+import androidx.room.PrimaryKey
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import androidx.test.filters.SdkSuppress
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlin.concurrent.thread
+
+/**
+ * Notifies [observerCount] observers while other threads keep adding and removing observers, as
+ * Flow collectors subscribing to DAO queries do.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+@SdkSuppress(minSdkVersion = Build.VERSION_CODES.JELLY_BEAN)
+class InvalidationTrackerFanOutBenchmark(
+    private val observerCount: Int,
+    private val registeringThreads: Int
+) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context = ApplicationProvider.getApplicationContext() as android.content.Context
+
+    private lateinit var db: TestDatabase
+
+    private val running = AtomicBoolean()
+
+    private val threads = mutableListOf<Thread>()
+
+    @Before
+    fun setup() {
+        db = Room.inMemoryDatabaseBuilder(context, TestDatabase::class.java).build()
+        repeat(observerCount) {
+            db.invalidationTracker.addObserver(NoOpObserver())
+        }
+        running.set(true)
+        repeat(registeringThreads) {
+            threads += thread {
+                while (running.get()) {
+                    val observer = NoOpObserver()
+                    db.invalidationTracker.addObserver(observer)
+                    db.invalidationTracker.removeObserver(observer)
+                }
+            }
+        }
+    }
+
+    @After
+    fun teardown() {
+        running.set(false)
+        threads.forEach { it.join() }
+        db.close()
+    }
+
+    @Test
+    fun notifyObservers() {
+        benchmarkRule.measureRepeated {
+            db.invalidationTracker.notifyObserversByTableNames("Item")
+        }
+    }
+
+    class NoOpObserver : InvalidationTracker.Observer("Item") {
+        override fun onInvalidated(tables: MutableSet<String>) {}
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "observers={0}, registeringThreads={1}")
+        fun data(): List<Array<Any>> = listOf(
+            arrayOf(100, 0),
+            arrayOf(1000, 0),
+            arrayOf(1000, 2)
+        )
+    }
+
+    @Database(entities = [Item::class], version = 1, exportSchema = false)
+    abstract class TestDatabase : RoomDatabase()
+
+    @Entity
+    data class Item(@PrimaryKey val id: Int)
+}
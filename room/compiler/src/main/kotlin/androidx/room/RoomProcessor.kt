@@ -20,8 +20,10 @@ import androidx.room.compiler.processing.XProcessingEnv
 import androidx.room.processor.Context
 import androidx.room.processor.ProcessorErrors
 import androidx.room.util.SimpleJavaVersion
+import androidx.room.verifier.VerifierConnectionPool
 import androidx.room.vo.Warning
 import com.google.auto.common.BasicAnnotationProcessor
+import javax.annotation.processing.RoundEnvironment
 import javax.lang.model.SourceVersion
 
 /**
@@ -44,6 +46,12 @@ class RoomProcessor : BasicAnnotationProcessor() {
         )
     }
 
+    override fun postRound(roundEnv: RoundEnvironment) {
+        if (roundEnv.processingOver()) {
+            VerifierConnectionPool.closeAll()
+        }
+    }
+
     override fun getSupportedOptions(): MutableSet<String> {
         val supportedOptions = Context.ARG_OPTIONS.toMutableSet()
         // x processing is a cheap wrapper so it is fine to re-create.
@@ -43,7 +43,12 @@ data class ParsedQuery(
     val inputs: List<TerminalNode>,
     val tables: Set<Table>, // pairs of table name and alias
     val syntaxErrors: List<String>,
-    val runtimeQueryPlaceholder: Boolean
+    val runtimeQueryPlaceholder: Boolean,
+    /**
+     * True if all result columns are listed explicitly (no `*` or `table.*`), hence the order of
+     * the columns in the result does not depend on the schema.
+     */
+    val explicitProjection: Boolean = false
 ) {
     companion object {
         val STARTS_WITH_NUMBER = "^\\?[0-9]".toRegex()
@@ -34,6 +34,7 @@ class QueryVisitor(
     // table name alias mappings
     private val tableNames = mutableSetOf<Table>()
     private val withClauseNames = mutableSetOf<String>()
+    private var hasStarProjection = false
     private val queryType: QueryType
 
     init {
@@ -78,10 +79,20 @@ class QueryVisitor(
             inputs = bindingExpressions.sortedBy { it.sourceInterval.a },
             tables = tableNames,
             syntaxErrors = syntaxErrors,
-            runtimeQueryPlaceholder = forRuntimeQuery
+            runtimeQueryPlaceholder = forRuntimeQuery,
+            explicitProjection = queryType == QueryType.SELECT && !hasStarProjection
         )
     }
 
+    override fun visitResult_column(ctx: SQLiteParser.Result_columnContext): Void? {
+        // includes the projections of sub queries too, which is fine since it is only used to
+        // decide whether we know the order of the result columns
+        if (ctx.text == "*" || ctx.table_name() != null) {
+            hasStarProjection = true
+        }
+        return super.visitResult_column(ctx)
+    }
+
     override fun visitCommon_table_expression(
         ctx: SQLiteParser.Common_table_expressionContext
     ): Void? {
@@ -171,7 +171,8 @@ class Context private constructor(
 
     enum class BooleanProcessorOptions(val argName: String, private val defaultValue: Boolean) {
         INCREMENTAL("room.incremental", true),
-        EXPAND_PROJECTION("room.expandProjection", false);
+        EXPAND_PROJECTION("room.expandProjection", false),
+        STATIC_COLUMN_INDICES("room.staticColumnIndices", false);
 
         /**
          * Returns the value of this option passed through the [XProcessingEnv]. If the value
@@ -94,6 +94,11 @@ import androidx.room.solver.types.TypeConverter
 import androidx.room.vo.ShortcutQueryParameter
 import com.google.common.annotations.VisibleForTesting
 import com.google.common.collect.ImmutableList
+import com.squareup.javapoet.ArrayTypeName
+import com.squareup.javapoet.ParameterizedTypeName
+import com.squareup.javapoet.TypeName
+import com.squareup.javapoet.TypeVariableName
+import com.squareup.javapoet.WildcardTypeName
 import java.util.LinkedList
 
 @Suppress("PLATFORM_CLASS_MAPPED_TO_KOTLIN")
@@ -110,14 +115,21 @@ class TypeAdapterStore private constructor(
     /**
      * first converter has the highest priority
      */
-    private val typeConverters: List<TypeConverter>
+    private val typeConverters: List<TypeConverter>,
+    /**
+     * Resolved converter paths, keyed by the input and output type names of the search. Shared
+     * between copies of the store since they have the same converters.
+     */
+    private val typeConverterCache: MutableMap<TypeConverterCacheKey, TypeConverter?> =
+        mutableMapOf()
 ) {
 
     companion object {
         fun copy(context: Context, store: TypeAdapterStore): TypeAdapterStore {
             return TypeAdapterStore(context = context,
                     columnTypeAdapters = store.columnTypeAdapters,
-                    typeConverters = store.typeConverters)
+                    typeConverters = store.typeConverters,
+                    typeConverterCache = store.typeConverterCache)
         }
 
         fun create(context: Context, vararg extras: Any): TypeAdapterStore {
@@ -437,7 +449,8 @@ class TypeAdapterStore private constructor(
                             context = subContext,
                             info = resultInfo,
                             pojo = pojo,
-                            out = typeMirror)
+                            out = typeMirror,
+                            explicitProjection = query.explicitProjection)
                 }
             } else {
                 Pair(null, null)
@@ -531,6 +544,29 @@ class TypeAdapterStore private constructor(
         if (inputs.isEmpty()) {
             return null
         }
+        val key = TypeConverterCacheKey(
+            inputs = inputs.map { it.typeName },
+            outputs = outputs.map { it.typeName }
+        )
+        if (!key.identifiesTypes()) {
+            return searchTypeConverter(inputs, outputs)
+        }
+        if (typeConverterCache.containsKey(key)) {
+            return typeConverterCache[key]
+        }
+        return searchTypeConverter(inputs, outputs).also {
+            typeConverterCache[key] = it
+        }
+    }
+
+    /**
+     * Does a breadth first search over the registered converters to find the shortest path from
+     * one of the inputs to one of the outputs. Use [findTypeConverter] which memoizes results.
+     */
+    private fun searchTypeConverter(
+        inputs: List<XType>,
+        outputs: List<XType>
+    ): TypeConverter? {
         inputs.forEach { input ->
             if (outputs.any { output -> input.isSameType(output) }) {
                 return NoOpConverter(input)
@@ -600,4 +636,29 @@ class TypeAdapterStore private constructor(
             }
         }
     }
+
+    /**
+     * Key for memoized converter searches. Type names are used instead of [XType]s since the
+     * latter do not define equality.
+     */
+    private data class TypeConverterCacheKey(
+        val inputs: List<TypeName>,
+        val outputs: List<TypeName>
+    ) {
+        /**
+         * Whether equal keys always have the same types. Type variables and wildcards are only
+         * named, e.g. `T` from two declarations are different types with the same name, so
+         * searches involving them are not memoized.
+         */
+        fun identifiesTypes(): Boolean {
+            return inputs.all { it.identifiesType() } && outputs.all { it.identifiesType() }
+        }
+
+        private fun TypeName.identifiesType(): Boolean = when (this) {
+            is TypeVariableName, is WildcardTypeName -> false
+            is ParameterizedTypeName -> typeArguments.all { it.identifiesType() }
+            is ArrayTypeName -> componentType.identifiesType()
+            else -> true
+        }
+    }
 }
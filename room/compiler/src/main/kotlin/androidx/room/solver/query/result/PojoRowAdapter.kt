@@ -22,6 +22,7 @@ import androidx.room.ext.S
 import androidx.room.ext.T
 import androidx.room.compiler.processing.XType
 import androidx.room.processor.Context
+import androidx.room.processor.Context.BooleanProcessorOptions
 import androidx.room.processor.ProcessorErrors
 import androidx.room.solver.CodeGenScope
 import androidx.room.verifier.QueryResultInfo
@@ -39,16 +40,24 @@ import stripNonJava
  * Creates the entity from the given info.
  * <p>
  * The info comes from the query processor so we know about the order of columns in the result etc.
+ * <p>
+ * If [explicitProjection] is true, the order of the columns in the info is the same as the order
+ * at runtime, in which case the column indices can be written as constants when the
+ * `room.staticColumnIndices` option is set.
  */
 class PojoRowAdapter(
     context: Context,
     private val info: QueryResultInfo?,
     val pojo: Pojo,
-    out: XType
+    out: XType,
+    explicitProjection: Boolean = false
 ) : RowAdapter(out) {
     val mapping: Mapping
     val relationCollectors: List<RelationCollector>
 
+    // column name to its index in the result, only for the columns that appear once.
+    private val staticColumnIndices: Map<String, Int>
+
     init {
 
         // toMutableList documentation is not clear if it copies so lets be safe.
@@ -97,6 +106,17 @@ class PojoRowAdapter(
         }
         relationCollectors = RelationCollector.createCollectors(context, pojo.relations)
 
+        staticColumnIndices = if (info != null && explicitProjection &&
+            BooleanProcessorOptions.STATIC_COLUMN_INDICES.getValue(context.processingEnv)
+        ) {
+            info.columns.withIndex()
+                .groupBy({ it.value.name }, { it.index })
+                .filterValues { it.size == 1 }
+                .mapValues { it.value.first() }
+        } else {
+            emptyMap()
+        }
+
         mapping = Mapping(
             matchedFields = matchedFields,
             unusedColumns = unusedColumns,
@@ -118,16 +138,25 @@ class PojoRowAdapter(
     override fun onCursorReady(cursorVarName: String, scope: CodeGenScope) {
         mapping.fieldsWithIndices = mapping.matchedFields.map {
             val indexVar = scope.getTmpVar("_cursorIndexOf${it.name.stripNonJava().capitalize()}")
-            val indexMethod = if (info == null) {
-                "getColumnIndex"
+            val staticIndex = staticColumnIndices[it.columnName]
+            if (staticIndex != null) {
+                // no need to look up the index by name, we know where the column is.
+                scope.builder().addStatement(
+                    "final $T $L = $L",
+                    TypeName.INT, indexVar, staticIndex
+                )
             } else {
-                "getColumnIndexOrThrow"
+                val indexMethod = if (info == null) {
+                    "getColumnIndex"
+                } else {
+                    "getColumnIndexOrThrow"
+                }
+                scope.builder().addStatement(
+                    "final $T $L = $T.$L($L, $S)",
+                    TypeName.INT, indexVar, RoomTypeNames.CURSOR_UTIL, indexMethod, cursorVarName,
+                    it.columnName
+                )
             }
-            scope.builder().addStatement(
-                "final $T $L = $T.$L($L, $S)",
-                TypeName.INT, indexVar, RoomTypeNames.CURSOR_UTIL, indexMethod, cursorVarName,
-                it.columnName
-            )
             FieldWithIndex(field = it, indexVar = indexVar, alwaysExists = info != null)
         }
         if (relationCollectors.isNotEmpty()) {
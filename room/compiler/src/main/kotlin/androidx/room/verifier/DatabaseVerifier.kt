@@ -25,25 +25,52 @@ import androidx.room.vo.FtsEntity
 import androidx.room.vo.FtsOptions
 import androidx.room.vo.Warning
 import columnInfo
+import org.apache.commons.codec.digest.DigestUtils
 import org.sqlite.JDBC
 import org.sqlite.SQLiteJDBCLoader
 import java.io.File
 import java.sql.Connection
 import java.sql.SQLException
+import java.util.concurrent.locks.ReentrantLock
 import java.util.regex.Pattern
+import kotlin.concurrent.withLock
 
 /**
  * Builds an in-memory version of the database and verifies the queries against it.
  * This class is also used to resolve the return types.
  */
 class DatabaseVerifier private constructor(
-    val connection: Connection,
+    connection: Connection,
     val context: Context,
     entities: List<Entity>,
-    views: List<DatabaseView>
+    views: List<DatabaseView>,
+    private val schema: Schema,
+    schemaCreated: Boolean
 ) {
     val entitiesAndViews: List<EntityOrView> = entities + views
 
+    /**
+     * True if the schema could be created without any errors, hence connections can be shared
+     * with other verifiers of the same schema.
+     */
+    private var poolable = true
+
+    /**
+     * The connection with the schema of this database, cleared by [closeConnection] once it is
+     * released so that it cannot be used while another verifier has it.
+     */
+    @Volatile
+    private var openConnection: Connection? = connection
+
+    val connection: Connection
+        get() = checkNotNull(openConnection) { "The verification connection is closed." }
+
+    /**
+     * Guards [connection]. When it is busy, [analyze] uses another connection with the same
+     * schema so that independent queries can be analyzed concurrently.
+     */
+    private val connectionLock = ReentrantLock()
+
     companion object {
         private const val CONNECTION_URL = "jdbc:sqlite::memory:"
 
@@ -104,8 +131,17 @@ class DatabaseVerifier private constructor(
             views: List<DatabaseView>
         ): DatabaseVerifier? {
             try {
-                val connection = JDBC.createConnection(CONNECTION_URL, java.util.Properties())
-                return DatabaseVerifier(connection, context, entities, views)
+                val schema = Schema.create(entities, views)
+                val pooled = VerifierConnectionPool.acquire(schema.hash)
+                val connection = pooled ?: createConnection()
+                return DatabaseVerifier(
+                    connection = connection,
+                    context = context,
+                    entities = entities,
+                    views = views,
+                    schema = schema,
+                    schemaCreated = pooled != null
+                )
             } catch (ex: Exception) {
                 context.logger.w(
                     Warning.CANNOT_CREATE_VERIFICATION_DATABASE, element,
@@ -114,53 +150,78 @@ class DatabaseVerifier private constructor(
                 return null
             }
         }
+
+        private fun createConnection() =
+            JDBC.createConnection(CONNECTION_URL, java.util.Properties())
+
+        private fun stripLocalizeCollations(sql: String) =
+            COLLATE_LOCALIZED_UNICODE_PATTERN.matcher(sql).replaceAll(" COLLATE NOCASE")
     }
 
     init {
-        entities.forEach { entity ->
-            val stmt = connection.createStatement()
-            val createTableQuery = if (entity is FtsEntity &&
-                !FtsOptions.defaultTokenizers.contains(entity.ftsOptions.tokenizer)
-            ) {
-                // Custom FTS tokenizer used, use create statement without custom tokenizer
-                // since the DB used for verification probably doesn't have the tokenizer.
-                entity.getCreateTableQueryWithoutTokenizer()
-            } else {
-                entity.createTableQuery
-            }
-            try {
-                stmt.executeUpdate(stripLocalizeCollations(createTableQuery))
-            } catch (e: SQLException) {
-                context.logger.e(entity.element, "${e.message}")
-            }
-            entity.indices.forEach {
-                stmt.executeUpdate(it.createQuery(entity.tableName))
+        if (!schemaCreated) {
+            schema.statements.forEach { statement ->
+                try {
+                    connection.createStatement().executeUpdate(statement.sql)
+                } catch (e: SQLException) {
+                    // index creation errors are unexpected, keep failing verifier creation
+                    val element = statement.element ?: throw e
+                    poolable = false
+                    context.logger.e(element, "${e.message}")
+                }
             }
         }
-        views.forEach { view ->
-            val stmt = connection.createStatement()
+    }
+
+    fun analyze(sql: String): QueryResultInfo {
+        return withConnection { connection ->
             try {
-                stmt.executeUpdate(stripLocalizeCollations(view.createViewQuery))
-            } catch (e: SQLException) {
-                context.logger.e(view.element, "${e.message}")
+                val stmt = connection.prepareStatement(stripLocalizeCollations(sql))
+                QueryResultInfo(stmt.columnInfo())
+            } catch (ex: SQLException) {
+                QueryResultInfo(emptyList(), ex)
             }
         }
     }
 
-    fun analyze(sql: String): QueryResultInfo {
-        return try {
-            val stmt = connection.prepareStatement(stripLocalizeCollations(sql))
-            QueryResultInfo(stmt.columnInfo())
-        } catch (ex: SQLException) {
-            QueryResultInfo(emptyList(), ex)
+    /**
+     * Runs the given block with a connection that has the schema of this database. If the main
+     * [connection] is being used by another thread, an idle connection of the same schema is
+     * used instead.
+     */
+    private fun <T> withConnection(block: (Connection) -> T): T {
+        if (!poolable) {
+            // we cannot re-create an erroneous schema silently, share the one connection
+            return connectionLock.withLock { block(connection) }
+        }
+        if (connectionLock.tryLock()) {
+            try {
+                return block(connection)
+            } finally {
+                connectionLock.unlock()
+            }
+        }
+        checkNotNull(openConnection) { "The verification connection is closed." }
+        val extra = VerifierConnectionPool.acquire(schema.hash) ?: createConnection().also {
+            schema.create(it)
+        }
+        try {
+            return block(extra)
+        } finally {
+            VerifierConnectionPool.release(schema.hash, extra)
         }
     }
 
-    private fun stripLocalizeCollations(sql: String) =
-        COLLATE_LOCALIZED_UNICODE_PATTERN.matcher(sql).replaceAll(" COLLATE NOCASE")
-
     fun closeConnection(context: Context) {
+        val connection = connectionLock.withLock {
+            openConnection.also { openConnection = null }
+        } ?: return
         if (!connection.isClosed) {
+            if (poolable) {
+                // keep it around for the next verification of the same schema
+                VerifierConnectionPool.release(schema.hash, connection)
+                return
+            }
             try {
                 connection.close()
             } catch (t: Throwable) {
@@ -169,4 +230,54 @@ class DatabaseVerifier private constructor(
             }
         }
     }
+
+    /**
+     * The DDL statements of a database, in the order they need to be executed.
+     */
+    private class Schema(val statements: List<Statement>) {
+        val hash: String = DigestUtils.sha256Hex(statements.joinToString(";\n") { it.sql })
+
+        /**
+         * Creates the schema in the given connection, which must be known to succeed.
+         */
+        fun create(connection: Connection) {
+            statements.forEach {
+                connection.createStatement().executeUpdate(it.sql)
+            }
+        }
+
+        companion object {
+            fun create(entities: List<Entity>, views: List<DatabaseView>): Schema {
+                val statements = arrayListOf<Statement>()
+                entities.forEach { entity ->
+                    val createTableQuery = if (entity is FtsEntity &&
+                        !FtsOptions.defaultTokenizers.contains(entity.ftsOptions.tokenizer)
+                    ) {
+                        // Custom FTS tokenizer used, use create statement without custom tokenizer
+                        // since the DB used for verification probably doesn't have the tokenizer.
+                        entity.getCreateTableQueryWithoutTokenizer()
+                    } else {
+                        entity.createTableQuery
+                    }
+                    statements.add(
+                        Statement(stripLocalizeCollations(createTableQuery), entity.element)
+                    )
+                    entity.indices.forEach {
+                        statements.add(Statement(it.createQuery(entity.tableName), null))
+                    }
+                }
+                views.forEach { view ->
+                    statements.add(
+                        Statement(stripLocalizeCollations(view.createViewQuery), view.element)
+                    )
+                }
+                return Schema(statements)
+            }
+        }
+    }
+
+    /**
+     * A single DDL statement and the element to report its errors on, if any.
+     */
+    private class Statement(val sql: String, val element: XElement?)
 }
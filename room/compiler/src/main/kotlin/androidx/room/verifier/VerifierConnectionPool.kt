@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.verifier
+
+import java.sql.Connection
+
+/**
+ * Keeps idle in-memory verification connections whose schema has already been created, keyed by
+ * the hash of the schema's DDL statements.
+ *
+ * Databases with the same schema, and the extra connections used to analyze queries concurrently,
+ * can then re-use a connection instead of re-creating the same tables, indices and views over and
+ * over again. The idle connections are closed with [closeAll] when processing ends.
+ *
+ * Only connections whose schema was created without any errors should be released into the pool,
+ * otherwise the errors would not be reported for the databases that later acquire them.
+ */
+internal object VerifierConnectionPool {
+    /**
+     * Maximum number of idle connections kept in the pool, across all schemas.
+     */
+    private const val MAX_IDLE_CONNECTIONS = 16
+
+    // access order so that we evict the least recently used schema first
+    private val idleConnections = LinkedHashMap<String, MutableList<Connection>>(
+        16, 0.75f, true
+    )
+
+    private var idleCount = 0
+
+    /**
+     * Returns an idle connection that already has the schema with the given hash or null if
+     * there is none.
+     */
+    fun acquire(schemaHash: String): Connection? {
+        synchronized(this) {
+            val connections = idleConnections[schemaHash] ?: return null
+            val connection = connections.removeAt(connections.size - 1)
+            if (connections.isEmpty()) {
+                idleConnections.remove(schemaHash)
+            }
+            idleCount--
+            return connection
+        }
+    }
+
+    /**
+     * Releases the given connection into the pool. If the pool is full, connections of the least
+     * recently used schema are closed.
+     */
+    fun release(schemaHash: String, connection: Connection) {
+        val evicted = arrayListOf<Connection>()
+        synchronized(this) {
+            idleConnections.getOrPut(schemaHash) { arrayListOf() }.add(connection)
+            idleCount++
+            val iterator = idleConnections.values.iterator()
+            while (idleCount > MAX_IDLE_CONNECTIONS && iterator.hasNext()) {
+                val connections = iterator.next()
+                evicted.addAll(connections)
+                idleCount -= connections.size
+                iterator.remove()
+            }
+        }
+        close(evicted)
+    }
+
+    /**
+     * Closes all the idle connections.
+     */
+    fun closeAll() {
+        val idle = arrayListOf<Connection>()
+        synchronized(this) {
+            idleConnections.values.forEach { idle.addAll(it) }
+            idleConnections.clear()
+            idleCount = 0
+        }
+        close(idle)
+    }
+
+    private fun close(connections: List<Connection>) {
+        // close outside the lock, closing may need to wait for the native side
+        connections.forEach {
+            try {
+                it.close()
+            } catch (ignored: Throwable) {
+            }
+        }
+    }
+}
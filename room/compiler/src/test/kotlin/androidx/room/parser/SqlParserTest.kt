@@ -52,6 +52,26 @@ class SqlParserTest {
         )
     }
 
+    @Test
+    fun explicitProjection() {
+        assertThat(SqlParser.parse("SELECT id, name FROM users").explicitProjection, `is`(true))
+        assertThat(
+            SqlParser.parse("SELECT u.id AS uid FROM (SELECT id FROM users) u")
+                .explicitProjection,
+            `is`(true)
+        )
+        assertThat(SqlParser.parse("SELECT * FROM users").explicitProjection, `is`(false))
+        assertThat(SqlParser.parse("SELECT u.* FROM users u").explicitProjection, `is`(false))
+        assertThat(
+            SqlParser.parse("SELECT id FROM (SELECT * FROM users)").explicitProjection,
+            `is`(false)
+        )
+        assertThat(
+            SqlParser.parse("DELETE FROM users where id > 3").explicitProjection,
+            `is`(false)
+        )
+    }
+
     @Test
     fun updateQuery() {
         val parsed = SqlParser.parse("UPDATE users set name = :name where id = :id")
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.solver
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.room.processor.Context
+import com.squareup.javapoet.TypeName
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+/**
+ * Converter searches, as done for each column and query parameter of a database.
+ *
+ * Run as a regular test with `-Pandroidx.benchmark.enable` to measure, otherwise each benchmark
+ * only runs once.
+ */
+@RunWith(JUnit4::class)
+class TypeAdapterStoreBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val testHelper = TypeAdapterStoreTest()
+
+    /**
+     * The first search of a pair of types, which walks the converter graph.
+     */
+    @Test
+    fun findTypeConverter_firstSearch() {
+        testHelper.singleRun { invocation ->
+            val context = Context(invocation.processingEnv)
+            val converters = testHelper.pointTypeConverters(invocation.processingEnv)
+            val pointType = invocation.processingEnv.requireType("foo.bar.Point")
+            val intType = invocation.processingEnv.requireType(TypeName.INT)
+            benchmarkRule.measureRepeated {
+                val store = runWithTimingDisabled {
+                    TypeAdapterStore.create(context, converters)
+                }
+                store.findTypeConverter(pointType, intType)
+            }
+        }.compilesWithoutError()
+    }
+
+    /**
+     * A search of a pair of types that was already searched, as for the columns of several
+     * entities that have the same types.
+     */
+    @Test
+    fun findTypeConverter_repeatedSearch() {
+        testHelper.singleRun { invocation ->
+            val context = Context(invocation.processingEnv)
+            val store = TypeAdapterStore.create(context,
+                    testHelper.pointTypeConverters(invocation.processingEnv))
+            val pointType = invocation.processingEnv.requireType("foo.bar.Point")
+            val intType = invocation.processingEnv.requireType(TypeName.INT)
+            benchmarkRule.measureRepeated {
+                store.findTypeConverter(pointType, intType)
+            }
+        }.compilesWithoutError()
+    }
+}
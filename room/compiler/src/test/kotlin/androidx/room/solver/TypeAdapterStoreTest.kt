@@ -156,6 +156,75 @@ class TypeAdapterStoreTest {
         }.compilesWithoutError()
     }
 
+    @Test
+    fun testTypeConverterSearchIsMemoized() {
+        singleRun { invocation ->
+            val context = Context(invocation.processingEnv)
+            val store = TypeAdapterStore.create(context,
+                    pointTypeConverters(invocation.processingEnv))
+            val pointType = invocation.processingEnv.requireType("foo.bar.Point")
+            val intType = invocation.processingEnv.requireType(TypeName.INT)
+            val first = store.findTypeConverter(pointType, intType)
+            assertThat(first, notNullValue())
+            // same search should not create a new composite converter
+            assertThat(store.findTypeConverter(pointType, intType), `is`(first))
+            // copies share the converters hence can share the resolved paths
+            val copy = TypeAdapterStore.copy(context, store)
+            assertThat(copy.findTypeConverter(pointType, intType), `is`(first))
+            // misses are memoized as well
+            val stringType = invocation.processingEnv.requireType("java.lang.String")
+            assertThat(store.findTypeConverter(pointType, stringType), nullValue())
+            assertThat(store.findTypeConverter(pointType, stringType), nullValue())
+        }.compilesWithoutError()
+    }
+
+    @Test
+    fun testTypeConverterSearchIsNotMemoizedForTypeVariables() {
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(listOf(JavaFileObjects.forSourceString("foo.bar.First",
+                        """
+                        package foo.bar;
+                        import androidx.room.*;
+                        @Entity
+                        public class First<T> {
+                            public T value;
+                        }
+                        """
+                ), JavaFileObjects.forSourceString("foo.bar.Second",
+                        """
+                        package foo.bar;
+                        public class Second<T> {
+                            public T value;
+                        }
+                        """
+                )))
+                .processedWith(TestProcessor.builder()
+                        .forAnnotations(Entity::class)
+                        .nextRunHandler { invocation ->
+                            val env = invocation.processingEnv
+                            // both are named T but are different types
+                            val firstT = env.requireTypeElement("foo.bar.First")
+                                    .getAllFieldsIncludingPrivateSupers().single().type
+                            val secondT = env.requireTypeElement("foo.bar.Second")
+                                    .getAllFieldsIncludingPrivateSupers().single().type
+                            val intType = env.requireType(TypeName.INT)
+                            val store = TypeAdapterStore.create(Context(env),
+                                    object : TypeConverter(firstT, intType) {
+                                        override fun convert(
+                                            inputVarName: String,
+                                            outputVarName: String,
+                                            scope: CodeGenScope
+                                        ) {
+                                        }
+                                    })
+                            assertThat(store.findTypeConverter(firstT, intType), notNullValue())
+                            assertThat(store.findTypeConverter(secondT, intType), nullValue())
+                            true
+                        }
+                        .build())
+                .compilesWithoutError()
+    }
+
     @Test
     fun testDate() {
         singleRun { (processingEnv) ->
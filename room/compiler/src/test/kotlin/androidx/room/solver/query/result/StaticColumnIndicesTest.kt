@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.solver.query.result
+
+import COMMON
+import androidx.room.RoomProcessor
+import com.google.common.truth.Truth.assertThat
+import com.google.testing.compile.CompilationSubject
+import com.google.testing.compile.Compiler
+import com.google.testing.compile.JavaFileObjects
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+/**
+ * Tests the column indices written by [PojoRowAdapter] with the `room.staticColumnIndices`
+ * option.
+ */
+@RunWith(JUnit4::class)
+class StaticColumnIndicesTest {
+
+    @Test
+    fun explicitProjection() {
+        val source = generatedDao("SELECT uid, name, ageColumn FROM User", "UserInfo")
+        assertThat(source).contains("final int _cursorIndexOfUid = 0;")
+        assertThat(source).contains("final int _cursorIndexOfName = 1;")
+        assertThat(source).contains("final int _cursorIndexOfAgeColumn = 2;")
+        assertThat(source).doesNotContain("getColumnIndexOrThrow")
+    }
+
+    @Test
+    fun explicitProjection_optionDisabled() {
+        val source = generatedDao(
+            "SELECT uid, name, ageColumn FROM User", "UserInfo",
+            staticColumnIndices = false
+        )
+        assertThat(source).contains(lookup("uid"))
+        assertThat(source).contains(lookup("name"))
+        assertThat(source).contains(lookup("ageColumn"))
+    }
+
+    @Test
+    fun starProjection() {
+        val source = generatedDao("SELECT * FROM User", "UserInfo")
+        assertThat(source).contains(lookup("uid"))
+        assertThat(source).contains(lookup("name"))
+        assertThat(source).contains(lookup("ageColumn"))
+    }
+
+    @Test
+    fun tableStarProjection() {
+        val source = generatedDao("SELECT u.* FROM User u", "UserInfo")
+        assertThat(source).contains(lookup("uid"))
+        assertThat(source).contains(lookup("name"))
+        assertThat(source).contains(lookup("ageColumn"))
+    }
+
+    @Test
+    fun duplicateColumn() {
+        // name is in the result twice, so its index is not known, but uid's is
+        val source = generatedDao("SELECT name, uid, name FROM User", "UserInfo")
+        assertThat(source).contains(lookup("name"))
+        assertThat(source).contains("final int _cursorIndexOfUid = 1;")
+    }
+
+    private fun lookup(column: String) =
+        "final int _cursorIndexOf${column.capitalize()} = " +
+            "CursorUtil.getColumnIndexOrThrow(_cursor, \"$column\");"
+
+    /**
+     * Compiles a DAO with the given query and returns the source of its implementation.
+     */
+    private fun generatedDao(
+        query: String,
+        resultType: String,
+        staticColumnIndices: Boolean = true
+    ): String {
+        val userInfo = JavaFileObjects.forSourceString(
+            "foo.bar.UserInfo",
+            """
+            package foo.bar;
+            public class UserInfo {
+                public int uid;
+                public String name;
+                public int ageColumn;
+            }
+            """
+        )
+        val dao = JavaFileObjects.forSourceString(
+            "foo.bar.MyDao",
+            """
+            package foo.bar;
+            import androidx.room.*;
+            import java.util.List;
+            @Dao
+            public interface MyDao {
+                @Query("$query")
+                List<$resultType> query();
+            }
+            """
+        )
+        val db = JavaFileObjects.forSourceString(
+            "foo.bar.MyDb",
+            """
+            package foo.bar;
+            import androidx.room.*;
+            @Database(entities = {User.class}, version = 1, exportSchema = false)
+            public abstract class MyDb extends RoomDatabase {
+                abstract MyDao getDao();
+            }
+            """
+        )
+        val compilation = Compiler.javac()
+            .withProcessors(RoomProcessor())
+            .withOptions("-Aroom.staticColumnIndices=$staticColumnIndices")
+            .compile(userInfo, dao, db, COMMON.USER)
+        CompilationSubject.assertThat(compilation).succeeded()
+        return compilation.generatedSourceFile("foo.bar.MyDao_Impl").get()
+            .getCharContent(true).toString()
+    }
+}
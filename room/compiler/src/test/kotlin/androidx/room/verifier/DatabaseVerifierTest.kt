@@ -43,8 +43,12 @@ import com.squareup.javapoet.TypeName
 import org.hamcrest.CoreMatchers.`is`
 import org.hamcrest.CoreMatchers.containsString
 import org.hamcrest.CoreMatchers.hasItem
+import org.hamcrest.CoreMatchers.not
 import org.hamcrest.CoreMatchers.notNullValue
+import org.hamcrest.CoreMatchers.nullValue
+import org.hamcrest.CoreMatchers.sameInstance
 import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Assert.fail
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.junit.runners.Parameterized
@@ -52,6 +56,8 @@ import org.mockito.Mockito.doReturn
 import org.mockito.Mockito.mock
 import simpleRun
 import java.sql.Connection
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
 
 @RunWith(Parameterized::class)
 class DatabaseVerifierTest(private val useLocalizedCollation: Boolean) {
@@ -241,6 +247,77 @@ class DatabaseVerifierTest(private val useLocalizedCollation: Boolean) {
         }.failsToCompile().withErrorContaining("default value of column [name]")
     }
 
+    @Test
+    fun reuseConnectionOfSameSchema() {
+        simpleRun { invocation ->
+            val first = createVerifier(invocation)
+            val connection = first.connection
+            first.closeConnection(invocation.context)
+            assertThat(connection.isClosed, `is`(false))
+            val second = createVerifier(invocation)
+            assertThat(second.connection, sameInstance(connection))
+            assertThat(
+                second.analyze("select id, lastName from User").columns.map { it.name },
+                `is`(listOf("id", "lastName"))
+            )
+            second.closeConnection(invocation.context)
+        }.compilesWithoutError()
+    }
+
+    @Test
+    fun closeConnectionOnlyReleasesItOnce() {
+        simpleRun { invocation ->
+            val first = createVerifier(invocation)
+            first.closeConnection(invocation.context)
+            val second = createVerifier(invocation)
+            val connection = second.connection
+            // must not release the connection again, the second verifier has it now
+            first.closeConnection(invocation.context)
+            val third = createVerifier(invocation)
+            assertThat(third.connection, not(sameInstance(connection)))
+            try {
+                first.analyze("select * from User")
+                fail("analyze should fail after the connection is closed")
+            } catch (expected: IllegalStateException) {
+            }
+            second.closeConnection(invocation.context)
+            third.closeConnection(invocation.context)
+        }.compilesWithoutError()
+    }
+
+    @Test
+    fun closeIdleConnections() {
+        simpleRun { invocation ->
+            val verifier = createVerifier(invocation)
+            val connection = verifier.connection
+            verifier.closeConnection(invocation.context)
+            VerifierConnectionPool.closeAll()
+            assertThat(connection.isClosed, `is`(true))
+        }.compilesWithoutError()
+    }
+
+    @Test
+    fun analyzeConcurrently() {
+        simpleRun { invocation ->
+            val verifier = createVerifier(invocation)
+            val executor = Executors.newFixedThreadPool(4)
+            try {
+                val results = (0 until 20).map { index ->
+                    executor.submit(Callable {
+                        verifier.analyze("select id as id$index from User")
+                    })
+                }.map { it.get() }
+                results.forEachIndexed { index, info ->
+                    assertThat(info.error, nullValue())
+                    assertThat(info.columns.map { it.name }, `is`(listOf("id$index")))
+                }
+            } finally {
+                executor.shutdown()
+            }
+            verifier.closeConnection(invocation.context)
+        }.compilesWithoutError()
+    }
+
     private fun validQueryTest(sql: String, cb: (QueryResultInfo) -> Unit) {
         simpleRun { invocation ->
             val verifier = createVerifier(invocation)
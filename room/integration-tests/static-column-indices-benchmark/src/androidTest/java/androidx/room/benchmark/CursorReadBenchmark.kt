@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.benchmark
+
+import android.os.Build
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.room.Dao
+import androidx.room.Database
+import androidx.room.Entity
+import androidx.room.Insert
+import androidx.room.PrimaryKey
+import androidx.room.Query
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import androidx.test.filters.SdkSuppress
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Compares reading rows with column indices looked up by name (star projection) against constant
+ * column indices (explicit projection, with the room.staticColumnIndices option).
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+@SdkSuppress(minSdkVersion = Build.VERSION_CODES.JELLY_BEAN)
+class CursorReadBenchmark(private val sampleSize: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private lateinit var db: TestDatabase
+
+    @Before
+    fun setup() {
+        db = Room.inMemoryDatabaseBuilder(
+            ApplicationProvider.getApplicationContext(),
+            TestDatabase::class.java
+        ).build()
+        db.getItemDao().insert(List(sampleSize) { i ->
+            Item(i, "name$i", "description$i", i * 2L, i / 2.0)
+        })
+    }
+
+    @After
+    fun tearDown() {
+        db.close()
+    }
+
+    @Test
+    fun columnIndicesByName() {
+        val dao = db.getItemDao()
+        benchmarkRule.measureRepeated {
+            assertEquals(sampleSize, dao.getAllByName().size)
+        }
+    }
+
+    @Test
+    fun staticColumnIndices() {
+        val dao = db.getItemDao()
+        benchmarkRule.measureRepeated {
+            assertEquals(sampleSize, dao.getAllStatic().size)
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "sampleSize={0}")
+        fun data() = arrayOf(1, 100, 1000)
+    }
+
+    @Database(entities = [Item::class], version = 1, exportSchema = false)
+    abstract class TestDatabase : RoomDatabase() {
+        abstract fun getItemDao(): ItemDao
+    }
+
+    @Entity
+    data class Item(
+        @PrimaryKey val id: Int,
+        val name: String,
+        val description: String,
+        val timestamp: Long,
+        val score: Double
+    )
+
+    @Dao
+    interface ItemDao {
+        @Insert
+        fun insert(items: List<Item>)
+
+        @Query("SELECT * FROM Item")
+        fun getAllByName(): List<Item>
+
+        @Query("SELECT id, name, description, timestamp, score FROM Item")
+        fun getAllStatic(): List<Item>
+    }
+}
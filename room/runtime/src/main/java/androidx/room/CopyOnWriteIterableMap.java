@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Thread safe map for observer lists, which are iterated far more often than they are modified.
+ * <p>
+ * Like {@link androidx.arch.core.internal.SafeIterableMap}, entries are iterated in insertion order and the map can be
+ * modified during iterations. Iterations do not lock: each one walks the immutable snapshot of
+ * the entries taken when it started, so it does not see the entries added or removed after.
+ * Modifications copy the entries and are serialized.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+class CopyOnWriteIterableMap<K, V> implements Iterable<Map.Entry<K, V>> {
+    private static final Object[] EMPTY = new Object[0];
+
+    private final Object mLock = new Object();
+    // guarded by mLock, for lookups when modifying
+    private final HashMap<K, V> mMap = new HashMap<>();
+    // immutable, replaced on each modification
+    private volatile Object[] mEntries = EMPTY;
+
+    /**
+     * If the specified key is not already associated
+     * with a value, associates it with the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param v   value to be associated with the specified key
+     * @return the previous value associated with the specified key,
+     * or {@code null} if there was no mapping for the key
+     */
+    @Nullable
+    public V putIfAbsent(@NonNull K key, @NonNull V v) {
+        synchronized (mLock) {
+            V current = mMap.get(key);
+            if (current != null) {
+                return current;
+            }
+            mMap.put(key, v);
+            Object[] entries = mEntries;
+            Object[] newEntries = new Object[entries.length + 1];
+            System.arraycopy(entries, 0, newEntries, 0, entries.length);
+            newEntries[entries.length] = new AbstractMap.SimpleImmutableEntry<>(key, v);
+            mEntries = newEntries;
+            return null;
+        }
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with the specified key,
+     * or {@code null} if there was no mapping for the key
+     */
+    @Nullable
+    public V remove(@NonNull K key) {
+        synchronized (mLock) {
+            V removed = mMap.remove(key);
+            if (removed == null) {
+                return null;
+            }
+            Object[] entries = mEntries;
+            Object[] newEntries = new Object[entries.length - 1];
+            int index = 0;
+            for (Object entry : entries) {
+                if (!key.equals(entryAt(entry).getKey())) {
+                    newEntries[index++] = entry;
+                }
+            }
+            mEntries = newEntries;
+            return removed;
+        }
+    }
+
+    /**
+     * Returns the value associated with the given key.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if there is no mapping for the key
+     */
+    @Nullable
+    public V get(@NonNull K key) {
+        synchronized (mLock) {
+            return mMap.get(key);
+        }
+    }
+
+    /**
+     * @return the number of elements in this map
+     */
+    public int size() {
+        return mEntries.length;
+    }
+
+    /**
+     * Returns an iterator over the entries of this map at the time of the call, in insertion
+     * order. The iterator does not support removal.
+     *
+     * @return an iterator
+     */
+    @NonNull
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        final Object[] entries = mEntries;
+        return new Iterator<Map.Entry<K, V>>() {
+            private int mIndex;
+
+            @Override
+            public boolean hasNext() {
+                return mIndex < entries.length;
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+                if (mIndex >= entries.length) {
+                    throw new NoSuchElementException();
+                }
+                return entryAt(entries[mIndex++]);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    Map.Entry<K, V> entryAt(Object entry) {
+        return (Map.Entry<K, V>) entry;
+    }
+}
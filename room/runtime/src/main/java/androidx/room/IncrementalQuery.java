@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A list query whose result can be updated by re-fetching only the rows that changed.
+ * <p>
+ * Items of the result are identified by the {@code rowid} of the row they are read from, which is
+ * the primary key for tables with an {@code INTEGER PRIMARY KEY}. When that table, returned by
+ * {@link #getTableName()}, changes, {@link #loadByRowIds(Set)} is called with the {@code rowid}s
+ * of the inserted, updated and deleted rows instead of running the whole query again. Changes to
+ * any other observed table, e.g. one the query joins with, run the whole query again.
+ *
+ * @param <T> The type of the items in the result.
+ * @see InvalidationTracker#createIncrementalLiveData(String[], boolean, IncrementalQuery)
+ */
+public abstract class IncrementalQuery<T> {
+    /**
+     * Returns the name of the table the items of the result are read from. The {@code rowid}s
+     * returned by {@link #getRowId(Object)} must be the ones of this table and it must be one of
+     * the observed tables.
+     *
+     * @return The name of the table of the items.
+     */
+    @NonNull
+    public abstract String getTableName();
+
+    /**
+     * Runs the whole query.
+     *
+     * @return All items of the result.
+     */
+    @WorkerThread
+    @NonNull
+    public abstract List<T> loadAll();
+
+    /**
+     * Runs the query only for the given rows, e.g. by adding a {@code rowid IN (...)} constraint
+     * to it. Rows that were deleted or that do not match the query anymore must not be returned.
+     *
+     * @param rowIds The {@code rowid}s of the changed rows.
+     * @return The items of the changed rows that are still part of the result.
+     */
+    @WorkerThread
+    @NonNull
+    public abstract List<T> loadByRowIds(@NonNull Set<Long> rowIds);
+
+    /**
+     * Returns the {@code rowid} of the row the given item is read from.
+     *
+     * @param item An item of the result.
+     * @return The {@code rowid} of the item.
+     */
+    public abstract long getRowId(@NonNull T item);
+
+    /**
+     * Returns the order of the items in the result, used to position changed items. It must be
+     * consistent with the {@code ORDER BY} clause of the query.
+     * <p>
+     * By default there is no order, changed items keep their position and new items are added
+     * to the end of the result.
+     *
+     * @return The comparator of the items or {@code null} if the result is not ordered.
+     */
+    @Nullable
+    public Comparator<? super T> getComparator() {
+        return null;
+    }
+}
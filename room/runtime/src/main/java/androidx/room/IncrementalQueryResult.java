@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The result of an {@link IncrementalQuery} along with the changes since the previous result.
+ *
+ * @param <T> The type of the items in the result.
+ */
+public final class IncrementalQueryResult<T> {
+    private final List<T> mItems;
+    private final boolean mFullReload;
+    private final Set<Long> mInsertedRowIds;
+    private final Set<Long> mUpdatedRowIds;
+    private final Set<Long> mRemovedRowIds;
+
+    IncrementalQueryResult(List<T> items, boolean fullReload, Set<Long> insertedRowIds,
+            Set<Long> updatedRowIds, Set<Long> removedRowIds) {
+        mItems = Collections.unmodifiableList(items);
+        mFullReload = fullReload;
+        mInsertedRowIds = Collections.unmodifiableSet(insertedRowIds);
+        mUpdatedRowIds = Collections.unmodifiableSet(updatedRowIds);
+        mRemovedRowIds = Collections.unmodifiableSet(removedRowIds);
+    }
+
+    /**
+     * @return All items of the result.
+     */
+    @NonNull
+    public List<T> getItems() {
+        return mItems;
+    }
+
+    /**
+     * Returns true if the whole query was run again, in which case the changes are not known and
+     * the sets of inserted, updated and removed rows are empty.
+     *
+     * @return True if this result is not derived from the previous one.
+     */
+    public boolean isFullReload() {
+        return mFullReload;
+    }
+
+    /**
+     * @return The {@code rowid}s of the items that were added to the result.
+     */
+    @NonNull
+    public Set<Long> getInsertedRowIds() {
+        return mInsertedRowIds;
+    }
+
+    /**
+     * @return The {@code rowid}s of the items that were re-fetched and replaced in the result.
+     */
+    @NonNull
+    public Set<Long> getUpdatedRowIds() {
+        return mUpdatedRowIds;
+    }
+
+    /**
+     * @return The {@code rowid}s of the items that were removed from the result.
+     */
+    @NonNull
+    public Set<Long> getRemovedRowIds() {
+        return mRemovedRowIds;
+    }
+}
@@ -49,6 +49,11 @@ class InvalidationLiveDataContainer {
                 tableNames);
     }
 
+    <T> LiveData<IncrementalQueryResult<T>> createIncremental(String[] tableNames,
+            boolean inTransaction, IncrementalQuery<T> query) {
+        return new RoomIncrementalLiveData<>(mDatabase, this, inTransaction, query, tableNames);
+    }
+
     void onActive(LiveData liveData) {
         mLiveDataSet.add(liveData);
     }
@@ -27,7 +27,6 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
-import androidx.arch.core.internal.SafeIterableMap;
 import androidx.lifecycle.LiveData;
 import androidx.sqlite.db.SimpleSQLiteQuery;
 import androidx.sqlite.db.SupportSQLiteDatabase;
@@ -82,6 +81,30 @@ public class InvalidationTracker {
     static final String SELECT_UPDATED_TABLES_SQL = "SELECT * FROM " + UPDATE_TABLE_NAME
             + " WHERE " + INVALIDATED_COLUMN_NAME + " = 1;";
 
+    private static final String ROW_UPDATE_TABLE_NAME = "room_row_modification_log";
+
+    private static final String ROW_ID_COLUMN_NAME = "row_id";
+
+    private static final String CREATE_ROW_TRACKING_TABLE_SQL = "CREATE TEMP TABLE IF NOT EXISTS "
+            + ROW_UPDATE_TABLE_NAME + "(" + TABLE_ID_COLUMN_NAME + " INTEGER NOT NULL, "
+            + ROW_ID_COLUMN_NAME + " INTEGER NOT NULL, "
+            + "PRIMARY KEY(" + TABLE_ID_COLUMN_NAME + ", " + ROW_ID_COLUMN_NAME + "))";
+
+    /**
+     * If more rows than this are modified between two refreshes, {@link RowObserver}s are not
+     * told which rows changed and should treat the whole table as invalidated.
+     */
+    @VisibleForTesting
+    static final int MAX_TRACKED_ROW_CHANGES = 1000;
+
+    @VisibleForTesting
+    static final String SELECT_UPDATED_ROWS_SQL = "SELECT " + TABLE_ID_COLUMN_NAME + ", "
+            + ROW_ID_COLUMN_NAME + " FROM " + ROW_UPDATE_TABLE_NAME
+            + " LIMIT " + (MAX_TRACKED_ROW_CHANGES + 1);
+
+    @VisibleForTesting
+    static final String RESET_UPDATED_ROWS_SQL = "DELETE FROM " + ROW_UPDATE_TABLE_NAME;
+
     @NonNull
     final HashMap<String, Integer> mTableIdLookup;
     final String[] mTableNames;
@@ -101,12 +124,21 @@ public class InvalidationTracker {
 
     private ObservedTableTracker mObservedTableTracker;
 
+    // tables that have row triggers for RowObservers
+    private ObservedTableTracker mRowTrackedTableTracker;
+
+    // set once row triggers are first synced, row changes are only queried afterwards.
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    volatile boolean mRowTrackingEnabled = false;
+
     private final InvalidationLiveDataContainer mInvalidationLiveDataContainer;
 
-    // should be accessed with synchronization only.
+    // notifications iterate over a snapshot without locking, so observers can be added and
+    // removed while they run. An observer removed during a notification may still receive it.
     @VisibleForTesting
     @SuppressLint("RestrictedApi")
-    final SafeIterableMap<Observer, ObserverWrapper> mObserverMap = new SafeIterableMap<>();
+    final CopyOnWriteIterableMap<Observer, ObserverWrapper> mObserverMap =
+            new CopyOnWriteIterableMap<>();
 
     private MultiInstanceInvalidationClient mMultiInstanceInvalidationClient;
 
@@ -133,6 +165,7 @@ public class InvalidationTracker {
             Map<String, Set<String>> viewTables, String... tableNames) {
         mDatabase = database;
         mObservedTableTracker = new ObservedTableTracker(tableNames.length);
+        mRowTrackedTableTracker = new ObservedTableTracker(tableNames.length);
         mTableIdLookup = new HashMap<>();
         mViewTables = viewTables;
         mInvalidationLiveDataContainer = new InvalidationLiveDataContainer(mDatabase);
@@ -238,6 +271,59 @@ public class InvalidationTracker {
         }
     }
 
+    private static void appendRowTriggerName(StringBuilder builder, String tableName,
+            String triggerType) {
+        builder.append("`")
+                .append("room_row_modification_trigger_")
+                .append(tableName)
+                .append("_")
+                .append(triggerType)
+                .append("`");
+    }
+
+    private void stopTrackingRows(SupportSQLiteDatabase writableDb, int tableId) {
+        final String tableName = mTableNames[tableId];
+        StringBuilder stringBuilder = new StringBuilder();
+        for (String trigger : TRIGGERS) {
+            stringBuilder.setLength(0);
+            stringBuilder.append("DROP TRIGGER IF EXISTS ");
+            appendRowTriggerName(stringBuilder, tableName, trigger);
+            writableDb.execSQL(stringBuilder.toString());
+        }
+    }
+
+    private void startTrackingRows(SupportSQLiteDatabase writableDb, int tableId) {
+        writableDb.execSQL(CREATE_ROW_TRACKING_TABLE_SQL);
+        final String tableName = mTableNames[tableId];
+        StringBuilder stringBuilder = new StringBuilder();
+        for (String trigger : TRIGGERS) {
+            stringBuilder.setLength(0);
+            stringBuilder.append("CREATE TEMP TRIGGER IF NOT EXISTS ");
+            appendRowTriggerName(stringBuilder, tableName, trigger);
+            stringBuilder.append(" AFTER ")
+                    .append(trigger)
+                    .append(" ON `")
+                    .append(tableName)
+                    .append("` BEGIN");
+            // an update may change the rowid so we log both the old and the new one
+            if (!"INSERT".equals(trigger)) {
+                appendRowLogInsert(stringBuilder, tableId, "OLD");
+            }
+            if (!"DELETE".equals(trigger)) {
+                appendRowLogInsert(stringBuilder, tableId, "NEW");
+            }
+            stringBuilder.append(" END");
+            writableDb.execSQL(stringBuilder.toString());
+        }
+    }
+
+    private static void appendRowLogInsert(StringBuilder builder, int tableId, String row) {
+        builder.append(" INSERT OR IGNORE INTO ")
+                .append(ROW_UPDATE_TABLE_NAME)
+                .append(" VALUES(").append(tableId).append(", ")
+                .append(row).append(".rowid);");
+    }
+
     /**
      * Adds the given observer to the observers list and it will be notified if any table it
      * observes changes.
@@ -267,11 +353,15 @@ public class InvalidationTracker {
             tableIds[i] = tableId;
         }
         ObserverWrapper wrapper = new ObserverWrapper(observer, tableIds, tableNames);
-        ObserverWrapper currentObserver;
-        synchronized (mObserverMap) {
-            currentObserver = mObserverMap.putIfAbsent(observer, wrapper);
+        ObserverWrapper currentObserver = mObserverMap.putIfAbsent(observer, wrapper);
+        if (currentObserver != null) {
+            return;
         }
-        if (currentObserver == null && mObservedTableTracker.onAdded(tableIds)) {
+        boolean needsSync = mObservedTableTracker.onAdded(tableIds);
+        if (observer instanceof RowObserver) {
+            needsSync |= mRowTrackedTableTracker.onAdded(tableIds);
+        }
+        if (needsSync) {
             syncTriggers();
         }
     }
@@ -317,7 +407,11 @@ public class InvalidationTracker {
     @SuppressWarnings("unused")
     @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
     public void addWeakObserver(Observer observer) {
-        addObserver(new WeakObserver(this, observer));
+        if (observer instanceof RowObserver) {
+            addObserver(new WeakRowObserver(this, (RowObserver) observer));
+        } else {
+            addObserver(new WeakObserver(this, observer));
+        }
     }
 
     /**
@@ -329,11 +423,15 @@ public class InvalidationTracker {
     @SuppressWarnings("WeakerAccess")
     @WorkerThread
     public void removeObserver(@NonNull final Observer observer) {
-        ObserverWrapper wrapper;
-        synchronized (mObserverMap) {
-            wrapper = mObserverMap.remove(observer);
+        ObserverWrapper wrapper = mObserverMap.remove(observer);
+        if (wrapper == null) {
+            return;
+        }
+        boolean needsSync = mObservedTableTracker.onRemoved(wrapper.mTableIds);
+        if (observer instanceof RowObserver) {
+            needsSync |= mRowTrackedTableTracker.onRemoved(wrapper.mTableIds);
         }
-        if (wrapper != null && mObservedTableTracker.onRemoved(wrapper.mTableIds)) {
+        if (needsSync) {
             syncTriggers();
         }
     }
@@ -360,6 +458,7 @@ public class InvalidationTracker {
         public void run() {
             final Lock closeLock = mDatabase.getCloseLock();
             Set<Integer> invalidatedTableIds = null;
+            Map<Integer, Set<Long>> changedRowIds = null;
             closeLock.lock();
             try {
 
@@ -379,13 +478,19 @@ public class InvalidationTracker {
                     return;
                 }
 
-                if (mDatabase.mWriteAheadLoggingEnabled) {
+                final boolean trackRows = mRowTrackingEnabled;
+                if (mDatabase.mWriteAheadLoggingEnabled || trackRows) {
                     // This transaction has to be on the underlying DB rather than the RoomDatabase
                     // in order to avoid a recursive loop after endTransaction.
+                    // Row changes must be read in the same transaction as the table changes so
+                    // that none of them is dropped before being dispatched.
                     SupportSQLiteDatabase db = mDatabase.getOpenHelper().getWritableDatabase();
                     db.beginTransaction();
                     try {
                         invalidatedTableIds = checkUpdatedTable();
+                        if (trackRows && !invalidatedTableIds.isEmpty()) {
+                            changedRowIds = checkUpdatedRows(db);
+                        }
                         db.setTransactionSuccessful();
                     } finally {
                         db.endTransaction();
@@ -401,10 +506,9 @@ public class InvalidationTracker {
                 closeLock.unlock();
             }
             if (invalidatedTableIds != null && !invalidatedTableIds.isEmpty()) {
-                synchronized (mObserverMap) {
-                    for (Map.Entry<Observer, ObserverWrapper> entry : mObserverMap) {
-                        entry.getValue().notifyByTableInvalidStatus(invalidatedTableIds);
-                    }
+                for (Map.Entry<Observer, ObserverWrapper> entry : mObserverMap) {
+                    entry.getValue().notifyByTableInvalidStatus(invalidatedTableIds,
+                            changedRowIds);
                 }
             }
         }
@@ -426,6 +530,35 @@ public class InvalidationTracker {
             }
             return invalidatedTableIds;
         }
+
+        /**
+         * Returns the ids of the rows changed per table id, or null if there are too many.
+         */
+        @Nullable
+        private Map<Integer, Set<Long>> checkUpdatedRows(SupportSQLiteDatabase db) {
+            HashMap<Integer, Set<Long>> changedRowIds = new HashMap<>();
+            int count = 0;
+            Cursor cursor = mDatabase.query(new SimpleSQLiteQuery(SELECT_UPDATED_ROWS_SQL));
+            //noinspection TryFinallyCanBeTryWithResources
+            try {
+                while (cursor.moveToNext()) {
+                    final int tableId = cursor.getInt(0);
+                    Set<Long> rowIds = changedRowIds.get(tableId);
+                    if (rowIds == null) {
+                        rowIds = new HashSet<>();
+                        changedRowIds.put(tableId, rowIds);
+                    }
+                    rowIds.add(cursor.getLong(1));
+                    count++;
+                }
+            } finally {
+                cursor.close();
+            }
+            if (count > 0) {
+                db.execSQL(RESET_UPDATED_ROWS_SQL);
+            }
+            return count > MAX_TRACKED_ROW_CHANGES ? null : changedRowIds;
+        }
     };
 
     /**
@@ -467,11 +600,9 @@ public class InvalidationTracker {
     @RestrictTo(RestrictTo.Scope.LIBRARY)
     @VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
     public void notifyObserversByTableNames(String... tables) {
-        synchronized (mObserverMap) {
-            for (Map.Entry<Observer, ObserverWrapper> entry : mObserverMap) {
-                if (!entry.getKey().isRemote()) {
-                    entry.getValue().notifyByTableNames(tables);
-                }
+        for (Map.Entry<Observer, ObserverWrapper> entry : mObserverMap) {
+            if (!entry.getKey().isRemote()) {
+                entry.getValue().notifyByTableNames(tables);
             }
         }
     }
@@ -491,27 +622,50 @@ public class InvalidationTracker {
                     // there is a potential race condition where another mSyncTriggers runnable
                     // can start running right after we get the tables list to sync.
                     final int[] tablesToSync = mObservedTableTracker.getTablesToSync();
-                    if (tablesToSync == null) {
+                    final int[] rowTablesToSync = mRowTrackedTableTracker.getTablesToSync();
+                    if (tablesToSync == null && rowTablesToSync == null) {
                         return;
                     }
-                    final int limit = tablesToSync.length;
                     database.beginTransaction();
                     try {
-                        for (int tableId = 0; tableId < limit; tableId++) {
-                            switch (tablesToSync[tableId]) {
-                                case ObservedTableTracker.ADD:
-                                    startTrackingTable(database, tableId);
-                                    break;
-                                case ObservedTableTracker.REMOVE:
-                                    stopTrackingTable(database, tableId);
-                                    break;
+                        if (tablesToSync != null) {
+                            final int limit = tablesToSync.length;
+                            for (int tableId = 0; tableId < limit; tableId++) {
+                                switch (tablesToSync[tableId]) {
+                                    case ObservedTableTracker.ADD:
+                                        startTrackingTable(database, tableId);
+                                        break;
+                                    case ObservedTableTracker.REMOVE:
+                                        stopTrackingTable(database, tableId);
+                                        break;
+                                }
+                            }
+                        }
+                        if (rowTablesToSync != null) {
+                            final int limit = rowTablesToSync.length;
+                            for (int tableId = 0; tableId < limit; tableId++) {
+                                switch (rowTablesToSync[tableId]) {
+                                    case ObservedTableTracker.ADD:
+                                        startTrackingRows(database, tableId);
+                                        break;
+                                    case ObservedTableTracker.REMOVE:
+                                        stopTrackingRows(database, tableId);
+                                        break;
+                                }
                             }
                         }
                         database.setTransactionSuccessful();
                     } finally {
                         database.endTransaction();
                     }
-                    mObservedTableTracker.onSyncCompleted();
+                    if (tablesToSync != null) {
+                        mObservedTableTracker.onSyncCompleted();
+                    }
+                    if (rowTablesToSync != null) {
+                        // the row log table exists now, it can be queried on refresh.
+                        mRowTrackingEnabled = true;
+                        mRowTrackedTableTracker.onSyncCompleted();
+                    }
                 } finally {
                     closeLock.unlock();
                 }
@@ -581,6 +735,30 @@ public class InvalidationTracker {
                 validateAndResolveTableNames(tableNames), inTransaction, computeFunction);
     }
 
+    /**
+     * Creates a LiveData that runs the given query once and then, for every other invalidation
+     * of the database, only re-fetches the rows that changed to update the previous result.
+     * Only changes to the table of the query are applied row by row, changes to any other of the
+     * given tables run the whole query again.
+     * <p>
+     * Holds a strong reference to the created LiveData as long as it is active.
+     *
+     * @param tableNames    The list of tables to observe, which must include the table of the
+     *                      query
+     * @param inTransaction True if the query should be run in a transaction, false otherwise.
+     * @param query         The query that calculates the value
+     * @param <T>           The type of the items in the result
+     * @return A new LiveData that updates the result of the given query when the given list of
+     * tables invalidates.
+     */
+    @NonNull
+    public <T> LiveData<IncrementalQueryResult<T>> createIncrementalLiveData(
+            @NonNull String[] tableNames, boolean inTransaction,
+            @NonNull IncrementalQuery<T> query) {
+        return mInvalidationLiveDataContainer.createIncremental(
+                validateAndResolveTableNames(tableNames), inTransaction, query);
+    }
+
     /**
      * Wraps an observer and keeps the table information.
      * <p>
@@ -614,6 +792,19 @@ public class InvalidationTracker {
          * @param invalidatedTablesIds The table ids of the tables that are invalidated.
          */
         void notifyByTableInvalidStatus(Set<Integer> invalidatedTablesIds) {
+            notifyByTableInvalidStatus(invalidatedTablesIds, null);
+        }
+
+        /**
+         * Notifies the underlying {@link #mObserver} if any of the observed tables are invalidated
+         * based on the given invalid status set. {@link RowObserver}s also receive the ids of the
+         * changed rows, if they are known for all of the invalidated tables.
+         *
+         * @param invalidatedTablesIds The table ids of the tables that are invalidated.
+         * @param changedRowIds        The ids of the changed rows per table id, or null if unknown.
+         */
+        void notifyByTableInvalidStatus(Set<Integer> invalidatedTablesIds,
+                @Nullable Map<Integer, Set<Long>> changedRowIds) {
             Set<String> invalidatedTables = null;
             final int size = mTableIds.length;
             for (int index = 0; index < size; index++) {
@@ -630,7 +821,28 @@ public class InvalidationTracker {
                     }
                 }
             }
-            if (invalidatedTables != null) {
+            if (invalidatedTables == null) {
+                return;
+            }
+            if (changedRowIds != null && mObserver instanceof RowObserver) {
+                Map<String, Set<Long>> observedChangedRowIds = new HashMap<>();
+                for (int index = 0; index < size; index++) {
+                    final int tableId = mTableIds[index];
+                    if (!invalidatedTablesIds.contains(tableId)) {
+                        continue;
+                    }
+                    Set<Long> rowIds = changedRowIds.get(tableId);
+                    if (rowIds == null) {
+                        // rows were not tracked for this change, e.g. triggers were just added.
+                        observedChangedRowIds = null;
+                        break;
+                    }
+                    observedChangedRowIds.put(mTableNames[index],
+                            Collections.unmodifiableSet(rowIds));
+                }
+                ((RowObserver) mObserver).onRowsInvalidated(invalidatedTables,
+                        observedChangedRowIds);
+            } else {
                 mObserver.onInvalidated(invalidatedTables);
             }
         }
@@ -713,6 +925,50 @@ public class InvalidationTracker {
         }
     }
 
+    /**
+     * An observer that is also told which rows of the observed tables changed, identified by their
+     * {@code rowid}.
+     * <p>
+     * The changed rows are tracked with additional triggers that are only added for tables that
+     * are observed by a {@code RowObserver}. Rows are not always known, e.g. when the tables are
+     * invalidated by another process or when too many rows changed at once, in which case
+     * {@link #onRowsInvalidated(Set, Map)} receives {@code null} and the whole tables should be
+     * considered changed.
+     */
+    public abstract static class RowObserver extends Observer {
+        /**
+         * Observes the given list of tables and views. For views, the ids of the rows of the
+         * underlying tables are reported.
+         *
+         * @param tables The list of tables or views to observe for changes.
+         */
+        public RowObserver(@NonNull String[] tables) {
+            super(tables);
+        }
+
+        /**
+         * Called when the observed tables are invalidated without information about the rows,
+         * calls {@link #onRowsInvalidated(Set, Map)} with {@code null} rows.
+         *
+         * @param tables A set of invalidated tables.
+         */
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            onRowsInvalidated(tables, null);
+        }
+
+        /**
+         * Called when one of the observed tables is invalidated in the database.
+         *
+         * @param tables        A set of invalidated tables.
+         * @param changedRowIds The {@code rowid}s of the inserted, updated or deleted rows for
+         *                      each of the invalidated tables or {@code null} if they are not
+         *                      known.
+         */
+        public abstract void onRowsInvalidated(@NonNull Set<String> tables,
+                @Nullable Map<String, Set<Long>> changedRowIds);
+    }
+
     /**
      * Keeps a list of tables we should observe. Invalidation tracker lazily syncs this list w/
      * triggers in the database.
@@ -849,4 +1105,31 @@ public class InvalidationTracker {
             }
         }
     }
+
+    /**
+     * A {@link RowObserver} wrapper that keeps a weak reference to the given object.
+     * <p>
+     * This class will automatically unsubscribe when the wrapped observer goes out of memory.
+     */
+    static class WeakRowObserver extends RowObserver {
+        final InvalidationTracker mTracker;
+        final WeakReference<RowObserver> mDelegateRef;
+
+        WeakRowObserver(InvalidationTracker tracker, RowObserver delegate) {
+            super(delegate.mTables);
+            mTracker = tracker;
+            mDelegateRef = new WeakReference<>(delegate);
+        }
+
+        @Override
+        public void onRowsInvalidated(@NonNull Set<String> tables,
+                @Nullable Map<String, Set<Long>> changedRowIds) {
+            final RowObserver observer = mDelegateRef.get();
+            if (observer == null) {
+                mTracker.removeObserver(this);
+            } else {
+                observer.onRowsInvalidated(tables, changedRowIds);
+            }
+        }
+    }
 }
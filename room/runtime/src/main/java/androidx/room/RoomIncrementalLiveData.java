@@ -0,0 +1,320 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import android.annotation.SuppressLint;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.lifecycle.LiveData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link RoomTrackingLiveData} counterpart for {@link IncrementalQuery}s.
+ * <p>
+ * It observes the changed rows of its tables and, once it has a result, only re-fetches the
+ * changed rows of the query's table to patch the previous result. It falls back to running the
+ * whole query if the changed rows are not known or if any other observed table changed, since the
+ * {@code rowid}s of those tables do not identify items of the result.
+ *
+ * @param <T> The type of the items in the result.
+ */
+class RoomIncrementalLiveData<T> extends LiveData<IncrementalQueryResult<T>> {
+    /**
+     * If more rows than this change before the result is refreshed, the whole query runs again.
+     */
+    @VisibleForTesting
+    static final int MAX_PENDING_ROW_CHANGES = 1000;
+
+    @SuppressWarnings("WeakerAccess")
+    final RoomDatabase mDatabase;
+
+    @SuppressWarnings("WeakerAccess")
+    final boolean mInTransaction;
+
+    @SuppressWarnings("WeakerAccess")
+    final IncrementalQuery<T> mQuery;
+
+    private final String mTableName;
+
+    private final InvalidationLiveDataContainer mContainer;
+
+    @SuppressWarnings("WeakerAccess")
+    final InvalidationTracker.RowObserver mObserver;
+
+    @SuppressWarnings("WeakerAccess")
+    final AtomicBoolean mInvalid = new AtomicBoolean(true);
+
+    @SuppressWarnings("WeakerAccess")
+    final AtomicBoolean mComputing = new AtomicBoolean(false);
+
+    @SuppressWarnings("WeakerAccess")
+    final AtomicBoolean mRegisteredObserver = new AtomicBoolean(false);
+
+    // guarded by mPendingLock
+    private final Object mPendingLock = new Object();
+    private Set<Long> mPendingRowIds = new HashSet<>();
+    private boolean mPendingFullReload = true;
+
+    // only accessed while holding mComputing
+    @Nullable
+    private List<T> mItems;
+
+    @SuppressWarnings("WeakerAccess")
+    final Runnable mRefreshRunnable = new Runnable() {
+        @WorkerThread
+        @Override
+        public void run() {
+            if (mRegisteredObserver.compareAndSet(false, true)) {
+                mDatabase.getInvalidationTracker().addWeakObserver(mObserver);
+            }
+            boolean computed;
+            do {
+                computed = false;
+                // compute can happen only in 1 thread but no reason to lock others.
+                if (mComputing.compareAndSet(false, true)) {
+                    // as long as it is invalid, keep computing.
+                    try {
+                        IncrementalQueryResult<T> value = null;
+                        while (mInvalid.compareAndSet(true, false)) {
+                            computed = true;
+                            try {
+                                value = compute();
+                            } catch (Exception e) {
+                                throw new RuntimeException("Exception while computing database"
+                                        + " live data.", e);
+                            }
+                        }
+                        if (computed) {
+                            postValue(value);
+                        }
+                    } finally {
+                        // release compute lock
+                        mComputing.set(false);
+                    }
+                }
+                // check invalid after releasing compute lock, see RoomTrackingLiveData.
+            } while (computed && mInvalid.get());
+        }
+    };
+
+    @SuppressWarnings("WeakerAccess")
+    final Runnable mInvalidationRunnable = new Runnable() {
+        @MainThread
+        @Override
+        public void run() {
+            boolean isActive = hasActiveObservers();
+            if (mInvalid.compareAndSet(false, true)) {
+                if (isActive) {
+                    getQueryExecutor().execute(mRefreshRunnable);
+                }
+            }
+        }
+    };
+
+    @SuppressLint("RestrictedApi")
+    RoomIncrementalLiveData(
+            RoomDatabase database,
+            InvalidationLiveDataContainer container,
+            boolean inTransaction,
+            IncrementalQuery<T> query,
+            String[] tableNames) {
+        mDatabase = database;
+        mInTransaction = inTransaction;
+        mQuery = query;
+        mTableName = findTableName(query.getTableName(), tableNames);
+        mContainer = container;
+        mObserver = new InvalidationTracker.RowObserver(tableNames) {
+            @Override
+            public void onRowsInvalidated(@NonNull Set<String> tables,
+                    @Nullable Map<String, Set<Long>> changedRowIds) {
+                onRowsChanged(changedRowIds);
+                ArchTaskExecutor.getInstance().executeOnMainThread(mInvalidationRunnable);
+            }
+        };
+    }
+
+    private static String findTableName(String tableName, String[] tableNames) {
+        for (String observed : tableNames) {
+            if (observed.equalsIgnoreCase(tableName)) {
+                return observed;
+            }
+        }
+        throw new IllegalArgumentException("The table of the incremental query, " + tableName
+                + ", is not one of the observed tables.");
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    void onRowsChanged(@Nullable Map<String, Set<Long>> changedRowIds) {
+        synchronized (mPendingLock) {
+            if (mPendingFullReload) {
+                return;
+            }
+            if (changedRowIds == null) {
+                mPendingFullReload = true;
+                mPendingRowIds.clear();
+                return;
+            }
+            for (Map.Entry<String, Set<Long>> entry : changedRowIds.entrySet()) {
+                if (!mTableName.equalsIgnoreCase(entry.getKey())) {
+                    // rowids of other tables do not identify items, e.g. a joined row changed.
+                    mPendingFullReload = true;
+                    mPendingRowIds.clear();
+                    return;
+                }
+                mPendingRowIds.addAll(entry.getValue());
+            }
+            if (mPendingRowIds.size() > MAX_PENDING_ROW_CHANGES) {
+                mPendingFullReload = true;
+                mPendingRowIds.clear();
+            }
+        }
+    }
+
+    @WorkerThread
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    IncrementalQueryResult<T> compute() throws Exception {
+        final boolean fullReload;
+        final Set<Long> rowIds;
+        synchronized (mPendingLock) {
+            fullReload = mPendingFullReload || mItems == null;
+            rowIds = mPendingRowIds;
+            mPendingFullReload = false;
+            mPendingRowIds = new HashSet<>();
+        }
+        final List<T> previous = mItems;
+        IncrementalQueryResult<T> result = runQuery(new Callable<IncrementalQueryResult<T>>() {
+            @Override
+            public IncrementalQueryResult<T> call() {
+                if (fullReload) {
+                    return new IncrementalQueryResult<>(mQuery.loadAll(), true,
+                            Collections.<Long>emptySet(), Collections.<Long>emptySet(),
+                            Collections.<Long>emptySet());
+                }
+                if (rowIds.isEmpty()) {
+                    return new IncrementalQueryResult<>(previous, false,
+                            Collections.<Long>emptySet(), Collections.<Long>emptySet(),
+                            Collections.<Long>emptySet());
+                }
+                return patch(mQuery, previous, rowIds, mQuery.loadByRowIds(rowIds));
+            }
+        });
+        mItems = result.getItems();
+        return result;
+    }
+
+    private IncrementalQueryResult<T> runQuery(Callable<IncrementalQueryResult<T>> query)
+            throws Exception {
+        if (mInTransaction) {
+            return mDatabase.runInTransaction(query);
+        } else {
+            return query.call();
+        }
+    }
+
+    /**
+     * Replaces the items of the changed rows in the previous result with the re-fetched ones.
+     *
+     * @param query         The query, to identify and order items.
+     * @param previous      The previous result.
+     * @param changedRowIds The rows that changed since the previous result.
+     * @param fetched       The items of the changed rows that are still part of the result.
+     * @return The updated result.
+     */
+    @VisibleForTesting
+    static <T> IncrementalQueryResult<T> patch(IncrementalQuery<T> query, List<T> previous,
+            Set<Long> changedRowIds, List<T> fetched) {
+        final Map<Long, T> fetchedByRowId = new HashMap<>(fetched.size());
+        for (T item : fetched) {
+            fetchedByRowId.put(query.getRowId(item), item);
+        }
+        final Set<Long> inserted = new HashSet<>(fetchedByRowId.keySet());
+        final Set<Long> updated = new HashSet<>();
+        final Set<Long> removed = new HashSet<>();
+        final Comparator<? super T> comparator = query.getComparator();
+        final List<T> items = new ArrayList<>(previous.size() + fetched.size());
+        for (T item : previous) {
+            final long rowId = query.getRowId(item);
+            if (!changedRowIds.contains(rowId)) {
+                items.add(item);
+                continue;
+            }
+            final T replacement = fetchedByRowId.get(rowId);
+            if (replacement == null) {
+                removed.add(rowId);
+                continue;
+            }
+            inserted.remove(rowId);
+            updated.add(rowId);
+            if (comparator == null) {
+                // no order, keep it where it was
+                items.add(replacement);
+            }
+        }
+        for (T item : fetched) {
+            final long rowId = query.getRowId(item);
+            if (comparator != null) {
+                if (inserted.contains(rowId) || updated.contains(rowId)) {
+                    int index = Collections.binarySearch(items, item, comparator);
+                    if (index < 0) {
+                        index = -index - 1;
+                    }
+                    items.add(index, item);
+                }
+            } else if (inserted.contains(rowId)) {
+                items.add(item);
+            }
+        }
+        return new IncrementalQueryResult<>(items, false, inserted, updated, removed);
+    }
+
+    @Override
+    protected void onActive() {
+        super.onActive();
+        mContainer.onActive(this);
+        getQueryExecutor().execute(mRefreshRunnable);
+    }
+
+    @Override
+    protected void onInactive() {
+        super.onInactive();
+        mContainer.onInactive(this);
+    }
+
+    Executor getQueryExecutor() {
+        if (mInTransaction) {
+            return mDatabase.getTransactionExecutor();
+        } else {
+            return mDatabase.getQueryExecutor();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+@RunWith(JUnit4.class)
+public class CopyOnWriteIterableMapTest {
+    @Test
+    public void testPut() {
+        CopyOnWriteIterableMap<Integer, Integer> map = new CopyOnWriteIterableMap<>();
+        map.putIfAbsent(10, 20);
+        map.putIfAbsent(20, 40);
+        assertThat(map.putIfAbsent(5, 10), is((Integer) null));
+        assertThat(map.putIfAbsent(10, 30), is(20));
+        assertThat(map.get(10), is(20));
+        assertThat(map.size(), is(3));
+    }
+
+    @Test
+    public void testRemove() {
+        CopyOnWriteIterableMap<Integer, Integer> map = mapOf(1, 2, 3);
+        assertThat(map.remove(2), is(2));
+        assertThat(map.remove(2), nullValue());
+        assertThat(map.get(2), nullValue());
+        assertThat(keys(map), is(Arrays.asList(1, 3)));
+    }
+
+    @Test
+    public void testInsertionOrder() {
+        CopyOnWriteIterableMap<Integer, Integer> map = mapOf(3, 1, 2);
+        assertThat(keys(map), is(Arrays.asList(3, 1, 2)));
+    }
+
+    @Test
+    public void testModificationsDuringIteration() {
+        CopyOnWriteIterableMap<Integer, Integer> map = mapOf(1, 2, 3);
+        List<Integer> keys = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : map) {
+            keys.add(entry.getKey());
+            map.remove(3);
+            map.putIfAbsent(4, 4);
+        }
+        // the iteration sees the entries at the time it started
+        assertThat(keys, is(Arrays.asList(1, 2, 3)));
+        assertThat(keys(map), is(Arrays.asList(1, 2, 4)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIteratorRemove() {
+        Iterator<Map.Entry<Integer, Integer>> iterator = mapOf(1).iterator();
+        iterator.next();
+        iterator.remove();
+    }
+
+    @Test
+    public void testConcurrentPuts() throws InterruptedException {
+        final CopyOnWriteIterableMap<Integer, Integer> map = new CopyOnWriteIterableMap<>();
+        final int threadCount = 4;
+        final int perThread = 250;
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            final int offset = t * perThread;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        map.putIfAbsent(offset + i, i);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        assertThat(map.size(), is(threadCount * perThread));
+    }
+
+    private static CopyOnWriteIterableMap<Integer, Integer> mapOf(Integer... keys) {
+        CopyOnWriteIterableMap<Integer, Integer> map = new CopyOnWriteIterableMap<>();
+        for (Integer key : keys) {
+            map.putIfAbsent(key, key);
+        }
+        return map;
+    }
+
+    private static List<Integer> keys(CopyOnWriteIterableMap<Integer, Integer> map) {
+        List<Integer> keys = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : map) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+}
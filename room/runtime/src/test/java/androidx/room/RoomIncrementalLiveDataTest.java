@@ -0,0 +1,365 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.when;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.arch.core.executor.JunitTaskExecutorRule;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+@RunWith(JUnit4.class)
+public class RoomIncrementalLiveDataTest {
+    private static final int ITEM_TABLE_ID = 0;
+    private static final int TAG_TABLE_ID = 1;
+
+    private InvalidationTracker mTracker;
+    @Mock
+    private RoomDatabase mRoomDatabase;
+    @Mock
+    private SupportSQLiteDatabase mSqliteDb;
+    @Mock
+    private SupportSQLiteOpenHelper mOpenHelper;
+    @Rule
+    public JunitTaskExecutorRule mTaskExecutorRule = new JunitTaskExecutorRule(1, true);
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        final SupportSQLiteStatement statement = mock(SupportSQLiteStatement.class);
+        doReturn(statement).when(mSqliteDb)
+                .compileStatement(eq(InvalidationTracker.RESET_UPDATED_TABLES_SQL));
+        doReturn(mSqliteDb).when(mOpenHelper).getWritableDatabase();
+        doReturn(true).when(mRoomDatabase).isOpen();
+        doReturn(ArchTaskExecutor.getIOThreadExecutor()).when(mRoomDatabase).getQueryExecutor();
+        doReturn(new ReentrantLock()).when(mRoomDatabase).getCloseLock();
+        doReturn(mOpenHelper).when(mRoomDatabase).getOpenHelper();
+        mTracker = new InvalidationTracker(mRoomDatabase, new HashMap<String, String>(),
+                new HashMap<String, Set<String>>(), "Item", "Tag");
+        mTracker.internalInit(mSqliteDb);
+        doReturn(mTracker).when(mRoomDatabase).getInvalidationTracker();
+        reset(mSqliteDb);
+    }
+
+    @Test
+    public void rowChangesOfQueryTable_patchResult() throws InterruptedException {
+        ItemQuery query = new ItemQuery(1L, 2L, 3L);
+        RoomIncrementalLiveData<Long> liveData = createLiveData(query, "Item", "Tag");
+        refreshLiveData(liveData);
+        assertThat(liveData.getValue().isFullReload(), is(true));
+        assertThat(liveData.getValue().getItems(), is(Arrays.asList(1L, 2L, 3L)));
+
+        query.mRows = Arrays.asList(1L, 3L, 4L);
+        changeRows(ITEM_TABLE_ID, 2L, 4L);
+        refreshLiveData(liveData);
+        IncrementalQueryResult<Long> result = liveData.getValue();
+        assertThat(result.isFullReload(), is(false));
+        assertThat(result.getItems(), is(Arrays.asList(1L, 3L, 4L)));
+        assertThat(result.getInsertedRowIds(), is(set(4L)));
+        assertThat(result.getRemovedRowIds(), is(set(2L)));
+        assertThat(query.mLoadAllCount, is(1));
+        assertThat(query.mLoadedRowIds, is(set(2L, 4L)));
+    }
+
+    @Test
+    public void rowChangesOfOtherTable_reloadResult() throws InterruptedException {
+        ItemQuery query = new ItemQuery(1L, 2L, 3L);
+        RoomIncrementalLiveData<Long> liveData = createLiveData(query, "Item", "Tag");
+        refreshLiveData(liveData);
+
+        // rowid 2 of the tag table is not the item with rowid 2
+        changeRows(TAG_TABLE_ID, 2L);
+        refreshLiveData(liveData);
+        assertThat(liveData.getValue().isFullReload(), is(true));
+        assertThat(query.mLoadAllCount, is(2));
+        assertThat(query.mLoadedRowIds, is(nullValue()));
+    }
+
+    @Test
+    public void rowChangesOfBothTables_reloadResult() throws InterruptedException {
+        ItemQuery query = new ItemQuery(1L, 2L, 3L);
+        RoomIncrementalLiveData<Long> liveData = createLiveData(query, "Item", "Tag");
+        refreshLiveData(liveData);
+
+        changeRows(new int[]{ITEM_TABLE_ID, TAG_TABLE_ID}, new long[]{1L, 3L});
+        refreshLiveData(liveData);
+        assertThat(liveData.getValue().isFullReload(), is(true));
+        assertThat(query.mLoadAllCount, is(2));
+        assertThat(query.mLoadedRowIds, is(nullValue()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void queryTableNotObserved() {
+        createLiveData(new ItemQuery(), "Tag");
+    }
+
+    @Test
+    public void patch_unordered() {    @Test
+    public void patch_unordered() {
+        IncrementalQueryResult<Long> result = RoomIncrementalLiveData.patch(
+                new LongQuery(false),
+                Arrays.asList(1L, 2L, 3L),
+                set(2L, 3L, 4L),
+                Arrays.asList(2L, 4L));
+        assertThat(result.getItems(), is(Arrays.asList(1L, 2L, 4L)));
+        assertThat(result.isFullReload(), is(false));
+        assertThat(result.getInsertedRowIds(), is(set(4L)));
+        assertThat(result.getUpdatedRowIds(), is(set(2L)));
+        assertThat(result.getRemovedRowIds(), is(set(3L)));
+    }
+
+    @Test
+    public void patch_ordered() {
+        IncrementalQueryResult<Long> result = RoomIncrementalLiveData.patch(
+                new LongQuery(true),
+                Arrays.asList(1L, 3L, 5L),
+                set(1L, 2L, 4L),
+                Arrays.asList(1L, 2L, 4L));
+        assertThat(result.getItems(), is(Arrays.asList(1L, 2L, 3L, 4L, 5L)));
+        assertThat(result.getInsertedRowIds(), is(set(2L, 4L)));
+        assertThat(result.getUpdatedRowIds(), is(set(1L)));
+        assertThat(result.getRemovedRowIds(), is(Collections.<Long>emptySet()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private RoomIncrementalLiveData<Long> createLiveData(ItemQuery query, String... tableNames) {
+        return (RoomIncrementalLiveData<Long>) mTracker.createIncrementalLiveData(tableNames,
+                false, query);
+    }
+
+    private void refreshLiveData(RoomIncrementalLiveData<Long> liveData)
+            throws InterruptedException {
+        // there are no observers so it is refreshed directly rather than when invalidated.
+        liveData.mRefreshRunnable.run();
+        drainTasks();
+    }
+
+    private void changeRows(int tableId, long... rowIds) throws InterruptedException {
+        int[] tableIds = new int[rowIds.length];
+        Arrays.fill(tableIds, tableId);
+        changeRows(tableIds, rowIds);
+    }
+
+    /**
+     * Makes the tracker see the given rows as changed on its next refresh and runs it.
+     */
+    private void changeRows(final int[] tableIds, final long[] rowIds)
+            throws InterruptedException {
+        // mockito does not like multi-threaded access so make sure background tasks are done.
+        drainTasks();
+        final Cursor tablesCursor = createCursor(distinct(tableIds), new long[0]);
+        final Cursor rowsCursor = createCursor(tableIds, rowIds);
+        doReturn(tablesCursor).when(mRoomDatabase).query(argThat(
+                new ArgumentMatcher<SimpleSQLiteQuery>() {
+                    @Override
+                    public boolean matches(SimpleSQLiteQuery argument) {
+                        return argument.getSql().equals(
+                                InvalidationTracker.SELECT_UPDATED_TABLES_SQL);
+                    }
+                }));
+        doReturn(rowsCursor).when(mRoomDatabase).query(argThat(
+                new ArgumentMatcher<SimpleSQLiteQuery>() {
+                    @Override
+                    public boolean matches(SimpleSQLiteQuery argument) {
+                        return argument.getSql().equals(
+                                InvalidationTracker.SELECT_UPDATED_ROWS_SQL);
+                    }
+                }));
+        mTracker.refreshVersionsAsync();
+        drainTasks();
+    }
+
+    private static int[] distinct(int[] values) {
+        List<Integer> distinct = new ArrayList<>();
+        for (int value : values) {
+            if (!distinct.contains(value)) {
+                distinct.add(value);
+            }
+        }
+        int[] result = new int[distinct.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = distinct.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a cursor of (table id, rowid) rows, rowids are only read from the row log.
+     */
+    private static Cursor createCursor(final int[] tableIds, final long[] rowIds) {
+        Cursor cursor = mock(Cursor.class);
+        final AtomicInteger index = new AtomicInteger(-1);
+        when(cursor.moveToNext()).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                return index.addAndGet(1) < tableIds.length;
+            }
+        });
+        when(cursor.getInt(anyInt())).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                return tableIds[index.intValue()];
+            }
+        });
+        when(cursor.getLong(anyInt())).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) {
+                return rowIds[index.intValue()];
+            }
+        });
+        return cursor;
+    }
+
+    private void drainTasks() throws InterruptedException {
+        mTaskExecutorRule.drainTasks(200);
+    }
+
+    private static Set<Long> set(Long... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    /**
+     * An unordered query of the {@code Item} table whose items are their own row ids.
+     */
+    private static class ItemQuery extends IncrementalQuery<Long> {
+        List<Long> mRows;
+        int mLoadAllCount;
+        @Nullable
+        Set<Long> mLoadedRowIds;
+
+        ItemQuery(Long... rows) {
+            mRows = Arrays.asList(rows);
+        }
+
+        @NonNull
+        @Override
+        public String getTableName() {
+            return "item";
+        }
+
+        @NonNull
+        @Override
+        public List<Long> loadAll() {
+            mLoadAllCount++;
+            return new ArrayList<>(mRows);
+        }
+
+        @NonNull
+        @Override
+        public List<Long> loadByRowIds(@NonNull Set<Long> rowIds) {
+            mLoadedRowIds = new HashSet<>(rowIds);
+            List<Long> result = new ArrayList<>();
+            for (Long row : mRows) {
+                if (rowIds.contains(row)) {
+                    result.add(row);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public long getRowId(@NonNull Long item) {
+            return item;
+        }
+    }
+
+    /**
+     * A query whose items are their own row ids.
+     */
+    private static class LongQuery extends IncrementalQuery<Long> {
+        private final boolean mOrdered;
+
+        LongQuery(boolean ordered) {
+            mOrdered = ordered;
+        }
+
+        @NonNull
+        @Override
+        public String getTableName() {
+            return "long";
+        }
+
+        @NonNull
+        @Override
+        public List<Long> loadAll() {
+            throw new UnsupportedOperationException();
+        }
+
+        @NonNull
+        @Override
+        public List<Long> loadByRowIds(@NonNull Set<Long> rowIds) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getRowId(@NonNull Long item) {
+            return item;
+        }
+
+        @Nullable
+        @Override
+        public Comparator<? super Long> getComparator() {
+            if (!mOrdered) {
+                return null;
+            }
+            return new Comparator<Long>() {
+                @Override
+                public int compare(Long first, Long second) {
+                    return first.compareTo(second);
+                }
+            };
+        }
+    }
+}
@@ -24,6 +24,7 @@ import android.content.Context;
 import android.content.SharedPreferences;
 
 import androidx.test.core.app.ApplicationProvider;
+import androidx.test.filters.SdkSuppress;
 import androidx.test.filters.SmallTest;
 
 import com.google.crypto.tink.KeysetHandle;
@@ -45,6 +46,8 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
 import java.security.KeyStore;
 
 @SmallTest
@@ -85,6 +88,9 @@ public class EncryptedFileTest {
         dataFile = new File(mContext.getFilesDir(), "tink_test_file");
         dataFile.delete();
 
+        dataFile = new File(mContext.getFilesDir(), "seekable_file");
+        dataFile.delete();
+
         // Delete MasterKeys
         KeyStore keyStore = KeyStore.getInstance("AndroidKeyStore");
         keyStore.load(null);
@@ -170,6 +176,50 @@ public class EncryptedFileTest {
 
     }
 
+    @SdkSuppress(minSdkVersion = 24)
+    @Test
+    public void testSeekableByteChannel() throws Exception {
+        final String fileName = "seekable_file";
+        // Several 4KB segments.
+        byte[] fileContent = new byte[20000];
+        for (int i = 0; i < fileContent.length; i++) {
+            fileContent[i] = (byte) i;
+        }
+
+        EncryptedFile encryptedFile = new EncryptedFile.Builder(mContext,
+                new File(mContext.getFilesDir(), fileName), mMasterKey,
+                EncryptedFile.FileEncryptionScheme.AES256_GCM_HKDF_4KB)
+                .build();
+        OutputStream outputStream = encryptedFile.openFileOutput();
+        outputStream.write(fileContent);
+        outputStream.close();
+
+        SeekableByteChannel channel = encryptedFile.openSeekableByteChannel();
+        Assert.assertEquals(fileContent.length, channel.size());
+
+        // Across two segments.
+        ByteBuffer buffer = ByteBuffer.allocate(200);
+        channel.position(4000);
+        while (buffer.hasRemaining()) {
+            channel.read(buffer);
+        }
+        for (int i = 0; i < buffer.capacity(); i++) {
+            Assert.assertEquals(fileContent[4000 + i], buffer.get(i));
+        }
+
+        // The end of the file, then backwards.
+        buffer.clear();
+        channel.position(fileContent.length - 100);
+        Assert.assertEquals(100, channel.read(buffer));
+        Assert.assertEquals(-1, channel.read(buffer));
+        Assert.assertEquals(fileContent[fileContent.length - 1], buffer.get(99));
+        buffer.clear();
+        channel.position(0);
+        channel.read(buffer);
+        Assert.assertEquals(fileContent[0], buffer.get(0));
+        channel.close();
+    }
+
     @Test
     public void testWriteReadEncryptedFileWithAlias() throws Exception {
         final String fileContent = "Don't tell anyone...";
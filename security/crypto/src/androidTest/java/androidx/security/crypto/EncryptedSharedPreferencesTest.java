@@ -348,6 +348,47 @@ public class EncryptedSharedPreferencesTest {
                 sharedPreferences.getAll().size());
     }
 
+    @Test
+    public void testValueCache() throws Exception {
+        SharedPreferences sharedPreferences = EncryptedSharedPreferences
+                .create(mContext,
+                        PREFS_FILE,
+                        mMasterKey,
+                        EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                        EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM,
+                        1024);
+
+        sharedPreferences.edit()
+                .putString("StringTest", "first")
+                .putInt("IntTest", 1)
+                .commit();
+        Assert.assertEquals("first", sharedPreferences.getString("StringTest", null));
+        Assert.assertEquals(1, sharedPreferences.getInt("IntTest", 0));
+
+        // Changed values are decrypted again.
+        sharedPreferences.edit().putString("StringTest", "second").apply();
+        Assert.assertEquals("second", sharedPreferences.getString("StringTest", null));
+
+        sharedPreferences.edit().remove("IntTest").commit();
+        Assert.assertEquals(0, sharedPreferences.getInt("IntTest", 0));
+        Assert.assertFalse(sharedPreferences.contains("IntTest"));
+
+        // Returned sets can be modified without changing the cached value.
+        Set<String> stringSet = new ArraySet<>();
+        stringSet.add("value");
+        sharedPreferences.edit().putStringSet("StringSetTest", stringSet).commit();
+        sharedPreferences.getStringSet("StringSetTest", null).clear();
+        Assert.assertEquals(stringSet, sharedPreferences.getStringSet("StringSetTest", null));
+
+        Map<String, ?> all = sharedPreferences.getAll();
+        Assert.assertEquals(2, all.size());
+        Assert.assertEquals("second", all.get("StringTest"));
+
+        sharedPreferences.edit().clear().commit();
+        Assert.assertNull(sharedPreferences.getString("StringTest", null));
+        Assert.assertEquals(0, sharedPreferences.getAll().size());
+    }
+
     @Test
     public void testWriteSharedPrefsTink() throws Exception {
         String tinkTestPrefs = "TinkTestPrefs";
@@ -22,8 +22,10 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.os.Build;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
 
 import com.google.crypto.tink.KeyTemplate;
 import com.google.crypto.tink.KeysetHandle;
@@ -40,6 +42,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.security.GeneralSecurityException;
 
 /**
@@ -61,6 +64,9 @@ import java.security.GeneralSecurityException;
  *
  *  // read the encrypted file
  *  FileInputStream encryptedInputStream = encryptedFile.openFileInput();
+ *
+ *  // or read parts of it, from API 24
+ *  SeekableByteChannel encryptedChannel = encryptedFile.openSeekableByteChannel();
  * </pre>
  */
 public final class EncryptedFile {
@@ -252,6 +258,42 @@ public final class EncryptedFile {
         return new EncryptedFileInputStream(fileInputStream.getFD(), decryptingStream);
     }
 
+    /**
+     * Opens a read only channel that reads encrypted files based on the previous settings.
+     *
+     * Unlike the stream returned by {@link #openFileInput()}, the channel can be positioned
+     * anywhere in the file without decrypting what comes before: it only decrypts the segments
+     * it reads data from.
+     *
+     * Please ensure that the same master key and keyset are  used to decrypt or it
+     * will cause failures.
+     *
+     * @return The channel to read previously encrypted data.
+     * @throws GeneralSecurityException when a bad master key or keyset has been used
+     * @throws IOException              when the file was not found
+     */
+    @RequiresApi(Build.VERSION_CODES.N)
+    @NonNull
+    public SeekableByteChannel openSeekableByteChannel()
+            throws GeneralSecurityException, IOException {
+        if (!mFile.exists()) {
+            throw new IOException("file doesn't exist: " + mFile.getName());
+        }
+        // Closing the decrypting channel closes the file channel, which closes the stream.
+        FileChannel fileChannel = new FileInputStream(mFile).getChannel();
+        boolean opened = false;
+        try {
+            SeekableByteChannel decryptingChannel = mStreamingAead.newSeekableDecryptingChannel(
+                    fileChannel, mFile.getName().getBytes(UTF_8));
+            opened = true;
+            return decryptingChannel;
+        } finally {
+            if (!opened) {
+                fileChannel.close();
+            }
+        }
+    }
+
     /**
      * Encrypted file output stream
      */
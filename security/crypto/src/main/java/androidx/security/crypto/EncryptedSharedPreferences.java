@@ -24,9 +24,11 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Pair;
 
+import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.collection.ArraySet;
+import androidx.collection.LruCache;
 
 import com.google.crypto.tink.Aead;
 import com.google.crypto.tink.DeterministicAead;
@@ -66,6 +68,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *  // use the shared preferences and editor as you normally would
  *  SharedPreferences.Editor editor = sharedPreferences.edit();
  * </pre>
+ *
+ * <p>Preferences that are read often can be kept decrypted in memory by passing a cache size to
+ * {@link #create(Context, String, MasterKey, PrefKeyEncryptionScheme, PrefValueEncryptionScheme,
+ * int)}, so that they are not decrypted again until they change.
  */
 public final class EncryptedSharedPreferences implements SharedPreferences {
 
@@ -76,6 +82,9 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
 
     private static final String NULL_VALUE = "__NULL__";
 
+    // Number of encrypted keys kept in memory, they are computed for every read and write.
+    private static final int KEY_CACHE_SIZE = 64;
+
     final SharedPreferences mSharedPreferences;
     final List<OnSharedPreferenceChangeListener> mListeners;
     final String mFileName;
@@ -84,17 +93,63 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
     final Aead mValueAead;
     final DeterministicAead mKeyDeterministicAead;
 
+    // Encrypted keys, by plain text key.
+    final LruCache<String, String> mEncryptedKeys = new LruCache<>(KEY_CACHE_SIZE);
+
+    // Decrypted values by encrypted key, or null if values are not cached.
+    @Nullable
+    final LruCache<String, DecryptedValue> mDecryptedValues;
+    final Object mCacheLock = new Object();
+    // Incremented when values are invalidated, guarded by mCacheLock.
+    int mCacheGeneration;
+    // Invalidates the decrypted values written by other instances. Held here as
+    // SharedPreferences only keeps weak references to its listeners.
+    @Nullable
+    final OnSharedPreferenceChangeListener mCacheInvalidator;
+
     EncryptedSharedPreferences(@NonNull String name,
             @NonNull String masterKeyAlias,
             @NonNull SharedPreferences sharedPreferences,
             @NonNull Aead aead,
             @NonNull DeterministicAead deterministicAead) {
+        this(name, masterKeyAlias, sharedPreferences, aead, deterministicAead, 0);
+    }
+
+    EncryptedSharedPreferences(@NonNull String name,
+            @NonNull String masterKeyAlias,
+            @NonNull SharedPreferences sharedPreferences,
+            @NonNull Aead aead,
+            @NonNull DeterministicAead deterministicAead,
+            int valueCacheSizeBytes) {
+        if (valueCacheSizeBytes < 0) {
+            throw new IllegalArgumentException("valueCacheSizeBytes must not be negative.");
+        }
         mFileName = name;
         mSharedPreferences = sharedPreferences;
         mMasterKeyAlias = masterKeyAlias;
         mValueAead = aead;
         mKeyDeterministicAead = deterministicAead;
         mListeners = new ArrayList<>();
+        if (valueCacheSizeBytes > 0) {
+            mDecryptedValues = new LruCache<String, DecryptedValue>(valueCacheSizeBytes) {
+                @Override
+                protected int sizeOf(@NonNull String encryptedKey,
+                        @NonNull DecryptedValue decryptedValue) {
+                    return decryptedValue.mSize;
+                }
+            };
+            mCacheInvalidator = new OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences sharedPreferences,
+                        String encryptedKey) {
+                    invalidateDecryptedValue(encryptedKey);
+                }
+            };
+            mSharedPreferences.registerOnSharedPreferenceChangeListener(mCacheInvalidator);
+        } else {
+            mDecryptedValues = null;
+            mCacheInvalidator = null;
+        }
     }
 
     /**
@@ -117,7 +172,39 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
             @NonNull PrefValueEncryptionScheme prefValueEncryptionScheme)
             throws GeneralSecurityException, IOException {
         return create(fileName, masterKey.getKeyAlias(), context,
-                prefKeyEncryptionScheme, prefValueEncryptionScheme);
+                prefKeyEncryptionScheme, prefValueEncryptionScheme, 0);
+    }
+
+    /**
+     * Opens an instance of encrypted SharedPreferences that keeps the values it reads decrypted
+     * in memory.
+     *
+     * <p>Cached values are decrypted again only after they are changed or evicted, which avoids
+     * decrypting the preferences that are read often. They stay in the memory of the process
+     * in plain text, up to {@code valueCacheSizeBytes}. Values changed by another instance for
+     * the same file are decrypted again once its change listeners have been notified.
+     *
+     * @param fileName                  The name of the file to open; can not contain path
+     *                                  separators.
+     * @param masterKey                 The master key to use.
+     * @param prefKeyEncryptionScheme   The scheme to use for encrypting keys.
+     * @param prefValueEncryptionScheme The scheme to use for encrypting values.
+     * @param valueCacheSizeBytes       The approximate size of the decrypted keys and values
+     *                                  kept in memory, 0 to not keep any.
+     * @return The SharedPreferences instance that encrypts all data.
+     * @throws GeneralSecurityException when a bad master key or keyset has been attempted
+     * @throws IOException              when fileName can not be used
+     */
+    @NonNull
+    public static SharedPreferences create(@NonNull Context context,
+            @NonNull String fileName,
+            @NonNull MasterKey masterKey,
+            @NonNull PrefKeyEncryptionScheme prefKeyEncryptionScheme,
+            @NonNull PrefValueEncryptionScheme prefValueEncryptionScheme,
+            @IntRange(from = 0) int valueCacheSizeBytes)
+            throws GeneralSecurityException, IOException {
+        return create(fileName, masterKey.getKeyAlias(), context,
+                prefKeyEncryptionScheme, prefValueEncryptionScheme, valueCacheSizeBytes);
     }
 
     /**
@@ -143,6 +230,17 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
             @NonNull PrefKeyEncryptionScheme prefKeyEncryptionScheme,
             @NonNull PrefValueEncryptionScheme prefValueEncryptionScheme)
             throws GeneralSecurityException, IOException {
+        return create(fileName, masterKeyAlias, context, prefKeyEncryptionScheme,
+                prefValueEncryptionScheme, 0);
+    }
+
+    private static SharedPreferences create(@NonNull String fileName,
+            @NonNull String masterKeyAlias,
+            @NonNull Context context,
+            @NonNull PrefKeyEncryptionScheme prefKeyEncryptionScheme,
+            @NonNull PrefValueEncryptionScheme prefValueEncryptionScheme,
+            int valueCacheSizeBytes)
+            throws GeneralSecurityException, IOException {
         TinkConfig.register();
 
         final Context applicationContext = context.getApplicationContext();
@@ -162,7 +260,7 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
 
         return new EncryptedSharedPreferences(fileName, masterKeyAlias,
                 applicationContext.getSharedPreferences(fileName, Context.MODE_PRIVATE), aead,
-                daead);
+                daead, valueCacheSizeBytes);
     }
 
     /**
@@ -217,6 +315,8 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
         private final EncryptedSharedPreferences mEncryptedSharedPreferences;
         private final SharedPreferences.Editor mEditor;
         private final List<String> mKeysChanged;
+        // Encrypted keys put or removed, whose decrypted values are invalidated on commit.
+        private final List<String> mEncryptedKeysChanged;
         private AtomicBoolean mClearRequested = new AtomicBoolean(false);
 
         Editor(EncryptedSharedPreferences encryptedSharedPreferences,
@@ -224,6 +324,7 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
             mEncryptedSharedPreferences = encryptedSharedPreferences;
             mEditor = editor;
             mKeysChanged = new CopyOnWriteArrayList<>();
+            mEncryptedKeysChanged = new CopyOnWriteArrayList<>();
         }
 
         @Override
@@ -315,7 +416,9 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
             if (mEncryptedSharedPreferences.isReservedKey(key)) {
                 throw new SecurityException(key + " is a reserved key for the encryption keyset.");
             }
-            mEditor.remove(mEncryptedSharedPreferences.encryptKey(key));
+            String encryptedKey = mEncryptedSharedPreferences.encryptKey(key);
+            mEditor.remove(encryptedKey);
+            mEncryptedKeysChanged.add(encryptedKey);
             mKeysChanged.remove(key);
             return this;
         }
@@ -336,6 +439,7 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
             try {
                 return mEditor.commit();
             } finally {
+                invalidateDecryptedValues();
                 notifyListeners();
                 mKeysChanged.clear();
             }
@@ -345,6 +449,7 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
         public void apply() {
             clearKeysIfNeeded();
             mEditor.apply();
+            invalidateDecryptedValues();
             notifyListeners();
             mKeysChanged.clear();
         }
@@ -356,7 +461,9 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
                 for (String key : mEncryptedSharedPreferences.getAll().keySet()) {
                     if (!mKeysChanged.contains(key)
                             && !mEncryptedSharedPreferences.isReservedKey(key)) {
-                        mEditor.remove(mEncryptedSharedPreferences.encryptKey(key));
+                        String encryptedKey = mEncryptedSharedPreferences.encryptKey(key);
+                        mEditor.remove(encryptedKey);
+                        mEncryptedKeysChanged.add(encryptedKey);
                     }
                 }
             }
@@ -374,11 +481,23 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
                 Pair<String, String> encryptedPair = mEncryptedSharedPreferences
                         .encryptKeyValuePair(key, value);
                 mEditor.putString(encryptedPair.first, encryptedPair.second);
+                mEncryptedKeysChanged.add(encryptedPair.first);
             } catch (GeneralSecurityException ex) {
                 throw new SecurityException("Could not encrypt data: " + ex.getMessage(), ex);
             }
         }
 
+        /**
+         * Invalidates the changed values once the underlying editor has written them, values
+         * read before are not cached.
+         */
+        private void invalidateDecryptedValues() {
+            for (String encryptedKey : mEncryptedKeysChanged) {
+                mEncryptedSharedPreferences.invalidateDecryptedValue(encryptedKey);
+            }
+            mEncryptedKeysChanged.clear();
+        }
+
         private void notifyListeners() {
             for (OnSharedPreferenceChangeListener listener :
                     mEncryptedSharedPreferences.mListeners) {
@@ -394,12 +513,21 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
     @Override
     @NonNull
     public Map<String, ?> getAll() {
+        int generation = getCacheGeneration();
         Map<String, ? super Object> allEntries = new HashMap<>();
         for (Map.Entry<String, ?> entry : mSharedPreferences.getAll().entrySet()) {
-            if (!isReservedKey(entry.getKey())) {
-                String decryptedKey = decryptKey(entry.getKey());
-                allEntries.put(decryptedKey,
-                        getDecryptedObject(decryptedKey));
+            String encryptedKey = entry.getKey();
+            if (isReservedKey(encryptedKey)) {
+                continue;
+            }
+            DecryptedValue decryptedValue = getCachedValue(encryptedKey);
+            if (decryptedValue == null && entry.getValue() instanceof String) {
+                // Decrypt the value read with the others rather than reading it again by key.
+                decryptedValue = decryptValue(encryptedKey, decryptKey(encryptedKey),
+                        (String) entry.getValue(), generation);
+            }
+            if (decryptedValue != null) {
+                allEntries.put(decryptedValue.mKey, decryptedValue.getValue());
             }
         }
         return allEntries;
@@ -477,6 +605,36 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
         mListeners.remove(listener);
     }
 
+    /**
+     * A decrypted key and value.
+     */
+    static final class DecryptedValue {
+        @Nullable
+        final String mKey;
+        @Nullable
+        final Object mValue;
+        // Approximate size in memory, in bytes.
+        final int mSize;
+
+        DecryptedValue(@Nullable String key, @Nullable Object value, int size) {
+            mKey = key;
+            mValue = value;
+            mSize = size;
+        }
+
+        /**
+         * @return the value, sets are copied as callers may modify them
+         */
+        @SuppressWarnings("unchecked")
+        @Nullable
+        Object getValue() {
+            if (mValue instanceof ArraySet) {
+                return new ArraySet<>((ArraySet<String>) mValue);
+            }
+            return mValue;
+        }
+    }
+
     /**
      * Internal enum to set the type of encrypted data.
      */
@@ -524,73 +682,145 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
         if (key == null) {
             key = NULL_VALUE;
         }
-        Object returnValue = null;
-        try {
-            String encryptedKey = encryptKey(key);
+        String encryptedKey = encryptKey(key);
+        DecryptedValue decryptedValue = getCachedValue(encryptedKey);
+        if (decryptedValue == null) {
+            int generation = getCacheGeneration();
             String encryptedValue = mSharedPreferences.getString(encryptedKey, null);
             if (encryptedValue != null) {
-                byte[] cipherText = Base64.decode(encryptedValue, Base64.DEFAULT);
-                byte[] value = mValueAead.decrypt(cipherText, encryptedKey.getBytes(UTF_8));
-                ByteBuffer buffer = ByteBuffer.wrap(value);
-                buffer.position(0);
-                int typeId = buffer.getInt();
-                EncryptedType type = EncryptedType.fromId(typeId);
-                switch (type) {
-                    case STRING:
-                        int stringLength = buffer.getInt();
-                        ByteBuffer stringSlice = buffer.slice();
-                        buffer.limit(stringLength);
-                        String stringValue = UTF_8.decode(stringSlice).toString();
-                        if (stringValue.equals(NULL_VALUE)) {
-                            returnValue = null;
-                        } else {
-                            returnValue = stringValue;
-                        }
-                        break;
-                    case INT:
-                        returnValue = buffer.getInt();
-                        break;
-                    case LONG:
-                        returnValue = buffer.getLong();
-                        break;
-                    case FLOAT:
-                        returnValue = buffer.getFloat();
-                        break;
-                    case BOOLEAN:
-                        returnValue = buffer.get() != (byte) 0;
-                        break;
-                    case STRING_SET:
-                        ArraySet<String> stringSet = new ArraySet<>();
-                        while (buffer.hasRemaining()) {
-                            int subStringLength = buffer.getInt();
-                            ByteBuffer subStringSlice = buffer.slice();
-                            subStringSlice.limit(subStringLength);
-                            buffer.position(buffer.position() + subStringLength);
-                            stringSet.add(UTF_8.decode(subStringSlice).toString());
-                        }
-                        if (stringSet.size() == 1 && NULL_VALUE.equals(stringSet.valueAt(0))) {
-                            returnValue = null;
-                        } else {
-                            returnValue = stringSet;
-                        }
-                        break;
-                }
+                decryptedValue = decryptValue(encryptedKey, key, encryptedValue, generation);
             }
+        }
+        return decryptedValue != null ? decryptedValue.getValue() : null;
+    }
+
+    /**
+     * Decrypts a value and caches it if values are cached.
+     *
+     * @param encryptedKey   the encrypted key of the value
+     * @param key            the plain text key of the value
+     * @param encryptedValue the value, as stored
+     * @param generation     the cache generation when the value was read, the value is not
+     *                       cached if it was invalidated since
+     */
+    private DecryptedValue decryptValue(String encryptedKey, String key, String encryptedValue,
+            int generation) {
+        Object returnValue = null;
+        byte[] value;
+        try {
+            byte[] cipherText = Base64.decode(encryptedValue, Base64.DEFAULT);
+            value = mValueAead.decrypt(cipherText, encryptedKey.getBytes(UTF_8));
         } catch (GeneralSecurityException ex) {
             throw new SecurityException("Could not decrypt value. " + ex.getMessage(), ex);
         }
-        return returnValue;
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        buffer.position(0);
+        int typeId = buffer.getInt();
+        EncryptedType type = EncryptedType.fromId(typeId);
+        switch (type) {
+            case STRING:
+                int stringLength = buffer.getInt();
+                ByteBuffer stringSlice = buffer.slice();
+                buffer.limit(stringLength);
+                String stringValue = UTF_8.decode(stringSlice).toString();
+                if (stringValue.equals(NULL_VALUE)) {
+                    returnValue = null;
+                } else {
+                    returnValue = stringValue;
+                }
+                break;
+            case INT:
+                returnValue = buffer.getInt();
+                break;
+            case LONG:
+                returnValue = buffer.getLong();
+                break;
+            case FLOAT:
+                returnValue = buffer.getFloat();
+                break;
+            case BOOLEAN:
+                returnValue = buffer.get() != (byte) 0;
+                break;
+            case STRING_SET:
+                ArraySet<String> stringSet = new ArraySet<>();
+                while (buffer.hasRemaining()) {
+                    int subStringLength = buffer.getInt();
+                    ByteBuffer subStringSlice = buffer.slice();
+                    subStringSlice.limit(subStringLength);
+                    buffer.position(buffer.position() + subStringLength);
+                    stringSet.add(UTF_8.decode(subStringSlice).toString());
+                }
+                if (stringSet.size() == 1 && NULL_VALUE.equals(stringSet.valueAt(0))) {
+                    returnValue = null;
+                } else {
+                    returnValue = stringSet;
+                }
+                break;
+        }
+        if (NULL_VALUE.equals(key)) {
+            key = null;
+        }
+        DecryptedValue decryptedValue = new DecryptedValue(key, returnValue,
+                value.length + 2 * (encryptedKey.length() + (key != null ? key.length() : 0)));
+        if (mDecryptedValues != null) {
+            synchronized (mCacheLock) {
+                if (generation == mCacheGeneration) {
+                    mDecryptedValues.put(encryptedKey, decryptedValue);
+                }
+            }
+        }
+        return decryptedValue;
+    }
+
+    @Nullable
+    private DecryptedValue getCachedValue(String encryptedKey) {
+        return mDecryptedValues != null ? mDecryptedValues.get(encryptedKey) : null;
+    }
+
+    private int getCacheGeneration() {
+        if (mDecryptedValues == null) {
+            return 0;
+        }
+        synchronized (mCacheLock) {
+            return mCacheGeneration;
+        }
+    }
+
+    /**
+     * Removes a decrypted value from the cache, and prevents the values read before from being
+     * cached.
+     *
+     * @param encryptedKey the encrypted key of the value, or null to remove all the values
+     */
+    void invalidateDecryptedValue(@Nullable String encryptedKey) {
+        if (mDecryptedValues == null) {
+            return;
+        }
+        synchronized (mCacheLock) {
+            mCacheGeneration++;
+            if (encryptedKey == null) {
+                mDecryptedValues.evictAll();
+            } else {
+                mDecryptedValues.remove(encryptedKey);
+            }
+        }
     }
 
     String encryptKey(String key) {
         if (key == null) {
             key = NULL_VALUE;
         }
+        String encryptedKey = mEncryptedKeys.get(key);
+        if (encryptedKey != null) {
+            return encryptedKey;
+        }
         try {
             byte[] encryptedKeyBytes = mKeyDeterministicAead.encryptDeterministically(
                     key.getBytes(UTF_8),
                     mFileName.getBytes());
-            return Base64.encode(encryptedKeyBytes);
+            encryptedKey = Base64.encode(encryptedKeyBytes);
+            mEncryptedKeys.put(key, encryptedKey);
+            return encryptedKey;
         } catch (GeneralSecurityException ex) {
             throw new SecurityException("Could not encrypt key. " + ex.getMessage(), ex);
         }
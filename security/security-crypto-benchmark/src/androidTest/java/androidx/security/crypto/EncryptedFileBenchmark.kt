@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.security.crypto
+
+import android.content.Context
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.test.filters.SdkSuppress
+import com.google.crypto.tink.KeysetHandle
+import com.google.crypto.tink.StreamingAead
+import com.google.crypto.tink.config.TinkConfig
+import com.google.crypto.tink.streamingaead.AesGcmHkdfStreamingKeyManager
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+import java.nio.ByteBuffer
+import kotlin.random.Random
+
+/**
+ * Reads [READ_SIZE] bytes at random positions of a [FILE_SIZE] encrypted file, as a media player
+ * seeking in it does.
+ *
+ * The keyset is generated in memory instead of being stored in preferences and wrapped by the
+ * Android Keystore, so that only the decryption of the file is measured.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class EncryptedFileBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+
+    private lateinit var file: File
+    private lateinit var encryptedFile: EncryptedFile
+
+    private val random = Random(0)
+
+    @Before
+    fun setup() {
+        TinkConfig.register()
+        val streamingAead =
+            KeysetHandle.generateNew(AesGcmHkdfStreamingKeyManager.aes256GcmHkdf4KBTemplate())
+                .getPrimitive(StreamingAead::class.java)
+        file = File(context.filesDir, "benchmark_file")
+        file.delete()
+        encryptedFile = EncryptedFile(file, "benchmark", streamingAead, context)
+        encryptedFile.openFileOutput().use {
+            it.write(random.nextBytes(FILE_SIZE))
+        }
+    }
+
+    @After
+    fun teardown() {
+        file.delete()
+    }
+
+    /**
+     * Skipping to the position decrypts everything before it.
+     */
+    @Test
+    fun randomRead_stream() {
+        val buffer = ByteArray(READ_SIZE)
+        benchmarkRule.measureRepeated {
+            encryptedFile.openFileInput().use {
+                var toSkip = random.nextInt(FILE_SIZE - READ_SIZE).toLong()
+                while (toSkip > 0) {
+                    toSkip -= it.skip(toSkip)
+                }
+                var read = 0
+                while (read < READ_SIZE) {
+                    read += it.read(buffer, read, READ_SIZE - read)
+                }
+            }
+        }
+    }
+
+    /**
+     * Only the segments holding the data are decrypted.
+     */
+    @SdkSuppress(minSdkVersion = 24)
+    @Test
+    fun randomRead_channel() {
+        val buffer = ByteBuffer.allocate(READ_SIZE)
+        benchmarkRule.measureRepeated {
+            encryptedFile.openSeekableByteChannel().use {
+                it.position(random.nextInt(FILE_SIZE - READ_SIZE).toLong())
+                buffer.clear()
+                while (buffer.hasRemaining()) {
+                    it.read(buffer)
+                }
+            }
+        }
+    }
+
+    companion object {
+        private const val FILE_SIZE = 16 * 1024 * 1024
+        private const val READ_SIZE = 4 * 1024
+    }
+}
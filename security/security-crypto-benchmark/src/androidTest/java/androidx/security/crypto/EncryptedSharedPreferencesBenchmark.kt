@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.security.crypto
+
+import android.content.Context
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import com.google.crypto.tink.Aead
+import com.google.crypto.tink.DeterministicAead
+import com.google.crypto.tink.KeysetHandle
+import com.google.crypto.tink.aead.AesGcmKeyManager
+import com.google.crypto.tink.config.TinkConfig
+import com.google.crypto.tink.daead.AesSivKeyManager
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Reads [PREF_COUNT] preferences, with and without the decrypted value cache.
+ *
+ * The keysets are generated in memory instead of being stored in the file and wrapped by the
+ * Android Keystore, so that only the encryption of the preferences is measured.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class EncryptedSharedPreferencesBenchmark(private val valueCacheSizeBytes: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+
+    private lateinit var preferences: EncryptedSharedPreferences
+
+    @Before
+    fun setup() {
+        TinkConfig.register()
+        val aead = KeysetHandle.generateNew(AesGcmKeyManager.aes256GcmTemplate())
+            .getPrimitive(Aead::class.java)
+        val deterministicAead = KeysetHandle.generateNew(AesSivKeyManager.aes256SivTemplate())
+            .getPrimitive(DeterministicAead::class.java)
+        val sharedPreferences = context.getSharedPreferences(FILE_NAME, Context.MODE_PRIVATE)
+        sharedPreferences.edit().clear().commit()
+        preferences = EncryptedSharedPreferences(
+            FILE_NAME, "benchmark", sharedPreferences, aead, deterministicAead,
+            valueCacheSizeBytes
+        )
+        val editor = preferences.edit()
+        for (i in 0 until PREF_COUNT) {
+            editor.putString("string$i", "value of the preference number $i")
+            editor.putInt("int$i", i)
+        }
+        editor.commit()
+    }
+
+    @After
+    fun teardown() {
+        context.getSharedPreferences(FILE_NAME, Context.MODE_PRIVATE).edit().clear().commit()
+    }
+
+    @Test
+    fun getString() {
+        benchmarkRule.measureRepeated {
+            for (i in 0 until PREF_COUNT) {
+                preferences.getString("string$i", null)
+            }
+        }
+    }
+
+    @Test
+    fun getInt() {
+        benchmarkRule.measureRepeated {
+            for (i in 0 until PREF_COUNT) {
+                preferences.getInt("int$i", 0)
+            }
+        }
+    }
+
+    @Test
+    fun getAll() {
+        benchmarkRule.measureRepeated {
+            preferences.all
+        }
+    }
+
+    companion object {
+        private const val FILE_NAME = "benchmark_prefs"
+        private const val PREF_COUNT = 50
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "valueCacheSizeBytes={0}")
+        fun data(): List<Array<Any>> = listOf(arrayOf(0), arrayOf(64 * 1024))
+    }
+}
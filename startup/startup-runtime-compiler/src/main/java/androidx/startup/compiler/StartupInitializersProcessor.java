@@ -0,0 +1,242 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup.compiler;
+
+import androidx.annotation.NonNull;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates the {@code androidx.startup.InitializerTable} of the class annotated with
+ * {@code androidx.startup.StartupInitializers}, which creates the listed {@code Initializer}s
+ * with their constructors.
+ */
+@SupportedAnnotationTypes({StartupInitializersProcessor.STARTUP_INITIALIZERS})
+public class StartupInitializersProcessor extends AbstractProcessor {
+
+    static final String STARTUP_INITIALIZERS = "androidx.startup.StartupInitializers";
+
+    private static final String PACKAGE = "androidx.startup";
+    private static final ClassName INITIALIZER = ClassName.get(PACKAGE, "Initializer");
+    private static final ClassName INITIALIZER_TABLE = ClassName.get(PACKAGE, "InitializerTable");
+    // Must match InitializerTable.GENERATED_CLASS_NAME.
+    private static final ClassName GENERATED_TABLE =
+            ClassName.get(PACKAGE, "GeneratedInitializerTable");
+    private static final ClassName NON_NULL = ClassName.get("androidx.annotation", "NonNull");
+    private static final ClassName NULLABLE = ClassName.get("androidx.annotation", "Nullable");
+
+    // Class<? extends Initializer<?>>
+    private static final TypeName COMPONENT = ParameterizedTypeName.get(
+            ClassName.get(Class.class),
+            WildcardTypeName.subtypeOf(ParameterizedTypeName.get(INITIALIZER,
+                    WildcardTypeName.subtypeOf(Object.class))));
+
+    private boolean mGenerated;
+
+    @Override
+    @NonNull
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(
+            @NonNull Set<? extends TypeElement> set,
+            @NonNull RoundEnvironment roundEnvironment) {
+        if (set.isEmpty()) return true;
+        TypeElement annotation =
+                processingEnv.getElementUtils().getTypeElement(STARTUP_INITIALIZERS);
+        for (Element element : roundEnvironment.getElementsAnnotatedWith(annotation)) {
+            if (mGenerated) {
+                error("Only one class can be annotated with @StartupInitializers", element);
+                continue;
+            }
+            mGenerated = true;
+            process(element, findAnnotationMirror(element, annotation));
+        }
+        return true;
+    }
+
+    private void process(@NonNull Element element, @NonNull AnnotationMirror mirror) {
+        Set<TypeElement> components = new LinkedHashSet<>();
+        int parallelism = 0;
+        boolean complete = false;
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror)
+                .entrySet()) {
+            String name = entry.getKey().getSimpleName().toString();
+            if (name.equals("value")) {
+                @SuppressWarnings("unchecked")
+                List<? extends AnnotationValue> values =
+                        (List<? extends AnnotationValue>) entry.getValue().getValue();
+                for (AnnotationValue value : values) {
+                    // javac already reported the values that are not classes.
+                    if (!(value.getValue() instanceof DeclaredType)) continue;
+                    TypeElement component =
+                            (TypeElement) ((DeclaredType) value.getValue()).asElement();
+                    if (isValid(component, element)) {
+                        components.add(component);
+                    }
+                }
+            } else if (name.equals("parallelism")) {
+                parallelism = (Integer) entry.getValue().getValue();
+                if (parallelism < 0) {
+                    error("parallelism cannot be negative", element);
+                }
+            } else if (name.equals("complete")) {
+                complete = (Boolean) entry.getValue().getValue();
+            }
+        }
+        try {
+            JavaFile.builder(PACKAGE, createTable(components, parallelism, complete,
+                    element))
+                    .build()
+                    .writeTo(processingEnv.getFiler());
+        } catch (IOException exception) {
+            error("Failed to write " + GENERATED_TABLE + ": " + exception.getMessage(), element);
+        }
+    }
+
+    private TypeSpec createTable(@NonNull Set<TypeElement> components, int parallelism,
+            boolean complete, @NonNull Element element) {
+        CodeBlock.Builder componentList = CodeBlock.builder()
+                .addStatement("$T<$T> components = new $T<>($L)", List.class, COMPONENT,
+                        ArrayList.class, components.size());
+        CodeBlock.Builder create = CodeBlock.builder();
+        for (TypeElement component : components) {
+            ClassName className = ClassName.get(component);
+            componentList.addStatement("components.add($T.class)", className);
+            create.beginControlFlow("if (component == $T.class)", className)
+                    .addStatement("return new $T()", className)
+                    .endControlFlow();
+        }
+        return TypeSpec.classBuilder(GENERATED_TABLE)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addSuperinterface(INITIALIZER_TABLE)
+                .addOriginatingElement(element)
+                .addMethod(MethodSpec.methodBuilder("getComponents")
+                        .addAnnotation(Override.class)
+                        .addAnnotation(NON_NULL)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(ParameterizedTypeName.get(ClassName.get(List.class), COMPONENT))
+                        .addCode(componentList.build())
+                        .addStatement("return components")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("getParallelism")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(TypeName.INT)
+                        .addStatement("return $L", parallelism)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("isComplete")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(TypeName.BOOLEAN)
+                        .addStatement("return $L", complete)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("create")
+                        .addAnnotation(Override.class)
+                        .addAnnotation(NULLABLE)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(ParameterizedTypeName.get(INITIALIZER,
+                                WildcardTypeName.subtypeOf(Object.class)))
+                        .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class),
+                                WildcardTypeName.subtypeOf(Object.class)), "component")
+                        .addCode(create.build())
+                        .addStatement("return null")
+                        .build())
+                .build();
+    }
+
+    /**
+     * Checks that a component is an {@code Initializer} the generated table can construct.
+     */
+    private boolean isValid(@NonNull TypeElement component, @NonNull Element element) {
+        Types types = processingEnv.getTypeUtils();
+        TypeElement initializer =
+                processingEnv.getElementUtils().getTypeElement(INITIALIZER.toString());
+        if (!types.isAssignable(types.erasure(component.asType()),
+                types.erasure(initializer.asType()))) {
+            error(component + " is not an Initializer", element);
+            return false;
+        }
+        if (component.getKind() != ElementKind.CLASS
+                || component.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(component + " cannot be instantiated", element);
+            return false;
+        }
+        if (!component.getModifiers().contains(Modifier.PUBLIC)
+                || (component.getNestingKind().isNested()
+                && !component.getModifiers().contains(Modifier.STATIC))) {
+            error(component + " must be a public top level or static class", element);
+            return false;
+        }
+        for (ExecutableElement constructor
+                : ElementFilter.constructorsIn(component.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()
+                    && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        error(component + " must have a public no-argument constructor", element);
+        return false;
+    }
+
+    private AnnotationMirror findAnnotationMirror(@NonNull Element element,
+            @NonNull TypeElement annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().asElement().equals(annotation)) {
+                return mirror;
+            }
+        }
+        throw new IllegalStateException("No @StartupInitializers on " + element);
+    }
+
+    private void error(@NonNull String message, @NonNull Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
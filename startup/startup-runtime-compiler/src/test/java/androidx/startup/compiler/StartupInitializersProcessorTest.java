@@ -0,0 +1,201 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup.compiler;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Test;
+
+import javax.tools.JavaFileObject;
+
+public class StartupInitializersProcessorTest {
+
+    // Stand-ins for the startup-runtime classes, which are Android libraries.
+    private static final JavaFileObject CONTEXT = JavaFileObjects.forSourceString(
+            "android.content.Context",
+            "package android.content;\n"
+                    + "public class Context {}\n");
+    private static final JavaFileObject INITIALIZER = JavaFileObjects.forSourceString(
+            "androidx.startup.Initializer",
+            "package androidx.startup;\n"
+                    + "import android.content.Context;\n"
+                    + "import java.util.List;\n"
+                    + "public interface Initializer<T> {\n"
+                    + "  T create(Context context);\n"
+                    + "  List<Class<? extends Initializer<?>>> dependencies();\n"
+                    + "}\n");
+    private static final JavaFileObject INITIALIZER_TABLE = JavaFileObjects.forSourceString(
+            "androidx.startup.InitializerTable",
+            "package androidx.startup;\n"
+                    + "import java.util.List;\n"
+                    + "public interface InitializerTable {\n"
+                    + "  List<Class<? extends Initializer<?>>> getComponents();\n"
+                    + "  int getParallelism();\n"
+                    + "  boolean isComplete();\n"
+                    + "  Initializer<?> create(Class<?> component);\n"
+                    + "}\n");
+    private static final JavaFileObject STARTUP_INITIALIZERS = JavaFileObjects.forSourceString(
+            "androidx.startup.StartupInitializers",
+            "package androidx.startup;\n"
+                    + "public @interface StartupInitializers {\n"
+                    + "  Class<? extends Initializer<?>>[] value();\n"
+                    + "  int parallelism() default 0;\n"
+                    + "  boolean complete() default false;\n"
+                    + "}\n");
+
+    private static final String IMPORTS = "package com.example;\n"
+            + "import android.content.Context;\n"
+            + "import androidx.startup.Initializer;\n"
+            + "import androidx.startup.StartupInitializers;\n"
+            + "import java.util.Collections;\n"
+            + "import java.util.List;\n";
+
+    private static final String FIRST = "public static class First"
+            + " implements Initializer<String> {\n"
+            + "  public String create(Context context) { return \"first\"; }\n"
+            + "  public List<Class<? extends Initializer<?>>> dependencies() {\n"
+            + "    return Collections.emptyList();\n"
+            + "  }\n"
+            + "}\n";
+
+    @Test
+    public void testGeneratesTable() {
+        Compilation compilation = compile(
+                "@StartupInitializers(value = {First.class, Second.class}, parallelism = 2)",
+                FIRST
+                        + "public static class Second implements Initializer<Integer> {\n"
+                        + "  public Integer create(Context context) { return 2; }\n"
+                        + "  public List<Class<? extends Initializer<?>>> dependencies() {\n"
+                        + "    return Collections.<Class<? extends Initializer<?>>>"
+                        + "singletonList(First.class);\n"
+                        + "  }\n"
+                        + "}\n");
+        CompilationSubject.assertThat(compilation).succeededWithoutWarnings();
+        CompilationSubject.assertThat(compilation)
+                .generatedSourceFile("androidx.startup.GeneratedInitializerTable")
+                .contentsAsUtf8String()
+                .contains("components.add(App.First.class);\n"
+                        + "    components.add(App.Second.class);");
+        CompilationSubject.assertThat(compilation)
+                .generatedSourceFile("androidx.startup.GeneratedInitializerTable")
+                .contentsAsUtf8String()
+                .contains("if (component == App.Second.class) {\n"
+                        + "      return new App.Second();\n"
+                        + "    }");
+        CompilationSubject.assertThat(compilation)
+                .generatedSourceFile("androidx.startup.GeneratedInitializerTable")
+                .contentsAsUtf8String()
+                .contains("return 2;");
+        CompilationSubject.assertThat(compilation)
+                .generatedSourceFile("androidx.startup.GeneratedInitializerTable")
+                .contentsAsUtf8String()
+                .contains("return false;");
+    }
+
+    @Test
+    public void testCompleteTable() {
+        Compilation compilation = compile(
+                "@StartupInitializers(value = First.class, complete = true)",
+                FIRST);
+        CompilationSubject.assertThat(compilation).succeededWithoutWarnings();
+        CompilationSubject.assertThat(compilation)
+                .generatedSourceFile("androidx.startup.GeneratedInitializerTable")
+                .contentsAsUtf8String()
+                .contains("public boolean isComplete() {\n"
+                        + "    return true;\n"
+                        + "  }");
+    }
+
+    @Test
+    public void testInterface() {
+        Compilation compilation = compile(
+                "@StartupInitializers(First.class)",
+                "public interface First extends Initializer<String> {}\n");
+        CompilationSubject.assertThat(compilation).hadErrorContaining("cannot be instantiated");
+    }
+
+    @Test
+    public void testAbstract() {
+        Compilation compilation = compile(
+                "@StartupInitializers(First.class)",
+                "public abstract static class First implements Initializer<String> {}\n");
+        CompilationSubject.assertThat(compilation).hadErrorContaining("cannot be instantiated");
+    }
+
+    @Test
+    public void testNotPublic() {
+        Compilation compilation = compile(
+                "@StartupInitializers(First.class)",
+                FIRST.replace("public static class", "static class"));
+        CompilationSubject.assertThat(compilation).hadErrorContaining(
+                "must be a public top level or static class");
+    }
+
+    @Test
+    public void testNoDefaultConstructor() {
+        Compilation compilation = compile(
+                "@StartupInitializers(First.class)",
+                FIRST.replace("public String create",
+                        "public First(String name) {}\n  public String create"));
+        CompilationSubject.assertThat(compilation).hadErrorContaining(
+                "must have a public no-argument constructor");
+    }
+
+    @Test
+    public void testNegativeParallelism() {
+        Compilation compilation = compile(
+                "@StartupInitializers(value = First.class, parallelism = -1)",
+                FIRST);
+        CompilationSubject.assertThat(compilation).hadErrorContaining(
+                "parallelism cannot be negative");
+    }
+
+    @Test
+    public void testMultipleAnnotatedClasses() {
+        JavaFileObject other = JavaFileObjects.forSourceString("com.example.Other",
+                IMPORTS
+                        + "@StartupInitializers(App.First.class)\n"
+                        + "public class Other {}\n");
+        Compilation compilation = compile(
+                "@StartupInitializers(First.class)",
+                FIRST,
+                other);
+        CompilationSubject.assertThat(compilation).hadErrorContaining(
+                "Only one class can be annotated with @StartupInitializers");
+    }
+
+    /**
+     * Compiles the class {@code App}, with the given annotation and members.
+     */
+    private Compilation compile(String annotation, String members, JavaFileObject... sources) {
+        JavaFileObject app = JavaFileObjects.forSourceString("com.example.App",
+                IMPORTS + annotation + "\npublic class App {\n" + members + "}\n");
+        JavaFileObject[] all = new JavaFileObject[sources.length + 5];
+        all[0] = CONTEXT;
+        all[1] = INITIALIZER;
+        all[2] = INITIALIZER_TABLE;
+        all[3] = STARTUP_INITIALIZERS;
+        all[4] = app;
+        System.arraycopy(sources, 0, all, 5, sources.length);
+        return Compiler.javac()
+                .withProcessors(new StartupInitializersProcessor())
+                .compile(all);
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@file:Suppress("UnstableApiUsage")
+
+package androidx.startup.lint
+
+import com.android.SdkConstants.ANDROID_URI
+import com.android.SdkConstants.ATTR_NAME
+import com.android.SdkConstants.ATTR_VALUE
+import com.android.SdkConstants.TAG_BOOL
+import com.android.SdkConstants.TAG_META_DATA
+import com.android.resources.ResourceFolderType
+import com.android.tools.lint.client.api.UElementHandler
+import com.android.tools.lint.detector.api.Category
+import com.android.tools.lint.detector.api.Context
+import com.android.tools.lint.detector.api.Detector
+import com.android.tools.lint.detector.api.Implementation
+import com.android.tools.lint.detector.api.Issue
+import com.android.tools.lint.detector.api.JavaContext
+import com.android.tools.lint.detector.api.Location
+import com.android.tools.lint.detector.api.Scope
+import com.android.tools.lint.detector.api.Severity
+import com.android.tools.lint.detector.api.SourceCodeScanner
+import com.android.tools.lint.detector.api.XmlContext
+import com.android.tools.lint.detector.api.XmlScanner
+import com.intellij.psi.PsiClass
+import com.intellij.psi.PsiClassType
+import org.jetbrains.uast.UClass
+import org.jetbrains.uast.UClassLiteralExpression
+import org.jetbrains.uast.UElement
+import org.jetbrains.uast.toUElement
+import org.jetbrains.uast.visitor.AbstractUastVisitor
+import org.w3c.dom.Element
+import java.util.EnumSet
+
+/**
+ * A [Detector] which checks the class annotated with `StartupInitializers`: the listed
+ * `Initializer`s must come after their dependencies, the generated table must be enabled with the
+ * `androidx_startup_generated_table` resource, and a complete list must include every
+ * `<meta-data>` entry of the merged `AndroidManifest.xml`.
+ */
+class StartupInitializersDetector : Detector(), SourceCodeScanner, XmlScanner {
+    // the class annotated with StartupInitializers, if any
+    private var annotated: AnnotatedClass? = null
+    // the Initializers of the visited <meta-data> elements
+    private val metadata = mutableSetOf<String>()
+    private var tableEnabled = false
+
+    companion object {
+        private const val STARTUP_INITIALIZERS = "androidx.startup.StartupInitializers"
+        private const val TABLE_RESOURCE = "androidx_startup_generated_table"
+
+        private val IMPLEMENTATION = Implementation(
+            StartupInitializersDetector::class.java,
+            EnumSet.of(Scope.JAVA_FILE, Scope.MANIFEST, Scope.RESOURCE_FILE)
+        )
+
+        val ORDER_ISSUE = Issue.create(
+            id = "StartupInitializersOrder",
+            briefDescription = "Initializer listed before its dependency",
+            explanation = """
+                The Initializers listed with @StartupInitializers are initialized in order, \
+                so each one must be listed after the Initializers it depends on.
+            """,
+            androidSpecific = true,
+            category = Category.CORRECTNESS,
+            severity = Severity.ERROR,
+            implementation = IMPLEMENTATION
+        )
+
+        val TABLE_RESOURCE_ISSUE = Issue.create(
+            id = "StartupInitializersTableDisabled",
+            briefDescription = "Generated Initializer table not enabled",
+            explanation = """
+                The table generated for @StartupInitializers is only loaded when the \
+                `androidx_startup_generated_table` boolean resource is set to `true`.
+            """,
+            androidSpecific = true,
+            category = Category.CORRECTNESS,
+            severity = Severity.ERROR,
+            implementation = IMPLEMENTATION
+        )
+
+        val INCOMPLETE_ISSUE = Issue.create(
+            id = "StartupInitializersIncomplete",
+            briefDescription = "Complete @StartupInitializers misses a <meta-data> Initializer",
+            explanation = """
+                When @StartupInitializers is complete, the <meta-data> entries of the \
+                AndroidManifest.xml file are not read at startup, so it must list all of them.
+            """,
+            androidSpecific = true,
+            category = Category.CORRECTNESS,
+            severity = Severity.ERROR,
+            implementation = IMPLEMENTATION
+        )
+    }
+
+    override fun getApplicableUastTypes(): List<Class<out UElement>> = listOf(UClass::class.java)
+
+    override fun createUastHandler(context: JavaContext) = object : UElementHandler() {
+        override fun visitClass(node: UClass) {
+            val annotation = node.findAnnotation(STARTUP_INITIALIZERS) ?: return
+            val components = mutableListOf<PsiClass>()
+            annotation.findDeclaredAttributeValue("value")?.accept(
+                object : AbstractUastVisitor() {
+                    override fun visitClassLiteralExpression(
+                        node: UClassLiteralExpression
+                    ): Boolean {
+                        (node.type as? PsiClassType)?.resolve()?.let { components += it }
+                        return true
+                    }
+                })
+            val location = context.getLocation(annotation)
+            val names = components.map { it.qualifiedName }
+            components.forEachIndexed { index, component ->
+                for (dependency in dependencies(component)) {
+                    if (names.indexOf(dependency) > index) {
+                        context.report(
+                            issue = ORDER_ISSUE,
+                            location = location,
+                            message = "${component.qualifiedName} is listed before its " +
+                                    "dependency $dependency"
+                        )
+                    }
+                }
+            }
+            val complete = annotation.findDeclaredAttributeValue("complete")?.evaluate() == true
+            annotated = AnnotatedClass(names.filterNotNull().toSet(), complete, location)
+        }
+    }
+
+    /**
+     * Returns the Initializers returned by the `dependencies()` method of the given
+     * Initializer, when its source is available.
+     */
+    private fun dependencies(component: PsiClass): Set<String> {
+        val method = component.findMethodsByName("dependencies", false).firstOrNull {
+            it.parameterList.parametersCount == 0
+        } ?: return emptySet()
+        val dependencies = mutableSetOf<String>()
+        method.toUElement()?.accept(object : AbstractUastVisitor() {
+            override fun visitClassLiteralExpression(node: UClassLiteralExpression): Boolean {
+                (node.type as? PsiClassType)?.resolve()?.qualifiedName?.let {
+                    dependencies += it
+                }
+                return true
+            }
+        })
+        return dependencies
+    }
+
+    override fun appliesTo(folderType: ResourceFolderType) =
+        folderType == ResourceFolderType.VALUES
+
+    override fun getApplicableElements() = listOf(TAG_META_DATA, TAG_BOOL)
+
+    override fun visitElement(context: XmlContext, element: Element) {
+        if (element.tagName == TAG_BOOL) {
+            if (element.getAttribute(ATTR_NAME) == TABLE_RESOURCE &&
+                element.textContent.trim() == "true"
+            ) {
+                tableEnabled = true
+            }
+        } else if (isInitializerMetadata(element)) {
+            metadata += element.getAttributeNS(ANDROID_URI, ATTR_NAME)
+        }
+    }
+
+    override fun afterCheckRootProject(context: Context) {
+        val annotated = annotated ?: return
+        if (!tableEnabled) {
+            context.report(
+                issue = TABLE_RESOURCE_ISSUE,
+                location = annotated.location,
+                message = "Set the `$TABLE_RESOURCE` boolean resource to `true` to load the " +
+                        "generated Initializer table"
+            )
+        }
+        if (annotated.complete) {
+            for (name in manifestInitializers(context)) {
+                if (name !in annotated.components) {
+                    context.report(
+                        issue = INCOMPLETE_ISSUE,
+                        location = annotated.location,
+                        message = "$name has a <meta-data> entry but is not listed"
+                    )
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the Initializers of the merged manifest, which includes the entries of the
+     * libraries, or of the visited manifests if it is not available.
+     */
+    private fun manifestInitializers(context: Context): Set<String> {
+        val manifest = context.mainProject.mergedManifest ?: return metadata
+        val initializers = mutableSetOf<String>()
+        val elements = manifest.getElementsByTagName(TAG_META_DATA)
+        for (i in 0 until elements.length) {
+            val element = elements.item(i) as Element
+            if (isInitializerMetadata(element)) {
+                initializers += element.getAttributeNS(ANDROID_URI, ATTR_NAME)
+            }
+        }
+        return initializers
+    }
+
+    private fun isInitializerMetadata(element: Element): Boolean {
+        val value = element.getAttributeNS(ANDROID_URI, ATTR_VALUE)
+        return value == "androidx.startup" || value == "@string/androidx_startup"
+    }
+
+    private class AnnotatedClass(
+        val components: Set<String>,
+        val complete: Boolean,
+        val location: Location
+    )
+}
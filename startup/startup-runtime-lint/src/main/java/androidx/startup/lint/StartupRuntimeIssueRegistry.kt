@@ -31,6 +31,9 @@ class StartupRuntimeIssueRegistry : IssueRegistry() {
     override val issues: List<Issue>
         get() = listOf(
             InitializerConstructorDetector.ISSUE,
-            EnsureInitializerMetadataDetector.ISSUE
+            EnsureInitializerMetadataDetector.ISSUE,
+            StartupInitializersDetector.ORDER_ISSUE,
+            StartupInitializersDetector.TABLE_RESOURCE_ISSUE,
+            StartupInitializersDetector.INCOMPLETE_ISSUE
         )
 }
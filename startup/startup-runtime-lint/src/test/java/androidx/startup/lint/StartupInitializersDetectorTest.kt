@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup.lint
+
+import androidx.startup.lint.Stubs.INITIALIZER
+import androidx.startup.lint.Stubs.STARTUP_INITIALIZERS
+import androidx.startup.lint.Stubs.TEST_INITIALIZER_2
+import androidx.startup.lint.Stubs.TEST_INITIALIZER_WITH_DEPENDENCIES
+import com.android.tools.lint.checks.infrastructure.TestFile
+import com.android.tools.lint.checks.infrastructure.TestFiles.java
+import com.android.tools.lint.checks.infrastructure.TestFiles.manifest
+import com.android.tools.lint.checks.infrastructure.TestFiles.xml
+import com.android.tools.lint.checks.infrastructure.TestLintTask.lint
+import org.junit.Test
+
+class StartupInitializersDetectorTest {
+    private val issues = arrayOf(
+        StartupInitializersDetector.ORDER_ISSUE,
+        StartupInitializersDetector.TABLE_RESOURCE_ISSUE,
+        StartupInitializersDetector.INCOMPLETE_ISSUE
+    )
+
+    private val tableResource = xml(
+        "res/values/startup.xml",
+        """
+            <resources>
+                <bool name="androidx_startup_generated_table">true</bool>
+            </resources>
+        """
+    ).indented()
+
+    private val manifest = manifest(
+        """
+            <manifest xmlns:android="http://schemas.android.com/apk/res/android"
+                xmlns:tools="http://schemas.android.com/tools"
+                package="com.example">
+                <application>
+                    <provider
+                        android:name="androidx.startup.InitializationProvider"
+                        android:authorities="com.example.androidx-startup"
+                        android:exported="false"
+                        tools:node="merge">
+                        <meta-data
+                            android:name="com.example.TestInitializer"
+                            android:value="androidx.startup" />
+                    </provider>
+                </application>
+            </manifest>
+        """
+    ).indented()
+
+    private fun app(initializers: String, complete: Boolean = false): TestFile = java(
+        "com/example/App.java",
+        """
+            package com.example;
+
+            import androidx.startup.StartupInitializers;
+
+            @StartupInitializers(value = {$initializers}, complete = $complete)
+            class App {
+            }
+        """
+    ).indented().within("src")
+
+    @Test
+    fun testFailureWhenDependencyIsListedLater() {
+        lint()
+            .files(
+                INITIALIZER,
+                STARTUP_INITIALIZERS,
+                TEST_INITIALIZER_WITH_DEPENDENCIES,
+                TEST_INITIALIZER_2,
+                tableResource,
+                app("TestInitializer.class, SecondInitializer.class")
+            )
+            .issues(*issues)
+            .run()
+            .expectErrorCount(1)
+            .expectContains("com.example.TestInitializer is listed before its dependency")
+    }
+
+    @Test
+    fun testSuccessWhenDependencyIsListedFirst() {
+        lint()
+            .files(
+                INITIALIZER,
+                STARTUP_INITIALIZERS,
+                TEST_INITIALIZER_WITH_DEPENDENCIES,
+                TEST_INITIALIZER_2,
+                tableResource,
+                app("SecondInitializer.class, TestInitializer.class")
+            )
+            .issues(*issues)
+            .run()
+            .expectClean()
+    }
+
+    @Test
+    fun testFailureWhenTableIsNotEnabled() {
+        lint()
+            .files(
+                INITIALIZER,
+                STARTUP_INITIALIZERS,
+                TEST_INITIALIZER_2,
+                app("SecondInitializer.class")
+            )
+            .issues(*issues)
+            .run()
+            .expectErrorCount(1)
+            .expectContains("[StartupInitializersTableDisabled]")
+    }
+
+    @Test
+    fun testFailureWhenCompleteListMissesMetadata() {
+        lint()
+            .files(
+                INITIALIZER,
+                STARTUP_INITIALIZERS,
+                TEST_INITIALIZER_WITH_DEPENDENCIES,
+                TEST_INITIALIZER_2,
+                tableResource,
+                manifest,
+                app("SecondInitializer.class", complete = true)
+            )
+            .issues(*issues)
+            .run()
+            .expectErrorCount(1)
+            .expectContains("com.example.TestInitializer has a <meta-data> entry")
+    }
+
+    @Test
+    fun testSuccessWhenCompleteListHasMetadata() {
+        lint()
+            .files(
+                INITIALIZER,
+                STARTUP_INITIALIZERS,
+                TEST_INITIALIZER_WITH_DEPENDENCIES,
+                TEST_INITIALIZER_2,
+                tableResource,
+                manifest,
+                app("SecondInitializer.class, TestInitializer.class", complete = true)
+            )
+            .issues(*issues)
+            .run()
+            .expectClean()
+    }
+}
@@ -78,6 +78,22 @@ object Stubs {
         """
     ).indented().within("src")
 
+    /**
+     * The StartupInitializers annotation.
+     */
+    val STARTUP_INITIALIZERS: TestFile = java(
+        "androidx/startup/StartupInitializers.java",
+        """
+            package androidx.startup;
+
+            public @interface StartupInitializers {
+                Class<? extends Initializer<?>>[] value();
+                boolean complete() default false;
+                int parallelism() default 0;
+            }
+        """
+    ).indented().within("src")
+
     /**
      * The Initializer.
      */
@@ -6,3 +6,8 @@
 }
 
 -assumenosideeffects class androidx.startup.StartupLogger
+
+# The table generated for StartupInitializers is loaded by name.
+-keep class androidx.startup.GeneratedInitializerTable {
+    <init>();
+}
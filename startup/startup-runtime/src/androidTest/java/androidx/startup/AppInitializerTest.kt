@@ -22,12 +22,16 @@ import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.MediumTest
 import org.hamcrest.CoreMatchers.`is`
 import org.hamcrest.CoreMatchers.containsString
+import org.hamcrest.CoreMatchers.not
+import org.junit.Assert.assertFalse
 import org.junit.Assert.assertThat
 import org.junit.Assert.assertTrue
 import org.junit.Assert.fail
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
 
 @RunWith(AndroidJUnit4::class)
 @MediumTest
@@ -66,6 +70,178 @@ class AppInitializerTest {
         assertTrue(appInitializer.isEagerlyInitialized(InitializerNoDependencies::class.java))
     }
 
+    @Test
+    fun parallelInitialization() {
+        ParallelInitializer(appInitializer).initialize(
+            listOf(MainThreadInitializerWithDependency::class.java),
+            2
+        )
+        assertThat(appInitializer.mInitialized.size, `is`(3))
+        assertThat(
+            appInitializer.mInitialized[MainThreadInitializerWithDependency::class.java],
+            `is`<Any>(Thread.currentThread())
+        )
+        val timings = appInitializer.initializationTimings
+        assertTrue(timings.getDurationNanos(InitializerNoDependencies::class.java) >= 0)
+        assertThat(
+            timings.criticalPath,
+            `is`(
+                listOf(
+                    InitializerNoDependencies::class.java,
+                    InitializerWithDependency::class.java,
+                    MainThreadInitializerWithDependency::class.java
+                )
+            )
+        )
+    }
+
+    @Test
+    fun manifestParallelInitialization() {
+        // The test manifest sets androidx.startup.parallelism
+        appInitializer.discoverAndInitialize()
+        assertThat(appInitializer.mDiscovered.size, `is`(2))
+        assertThat(appInitializer.mInitialized.size, `is`(4))
+        assertThat(
+            appInitializer.mInitialized[MainThreadInitializerWithDependency::class.java],
+            `is`<Any>(Thread.currentThread())
+        )
+        val thread = appInitializer.mInitialized[BackgroundThreadInitializer::class.java] as Thread
+        assertThat(thread, not(Thread.currentThread()))
+        assertTrue(thread.name.startsWith("Startup-"))
+    }
+
+    @Test
+    fun initializeComponentWaitsForParallelCreation() {
+        val started = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val creations = AtomicInteger()
+        val initializer = object : Initializer<Unit> {
+            override fun create(context: Context) {
+                creations.incrementAndGet()
+                started.countDown()
+                release.await()
+            }
+
+            override fun dependencies(): List<Class<out Initializer<*>>> = emptyList()
+        }
+        val creating = Thread {
+            appInitializer.create(InitializerNoDependencies::class.java, initializer)
+        }
+        creating.start()
+        started.await()
+        val initializing = Thread {
+            appInitializer.initializeComponent(InitializerNoDependencies::class.java)
+        }
+        initializing.start()
+        initializing.join(100)
+        assertTrue(initializing.isAlive)
+        release.countDown()
+        creating.join()
+        initializing.join()
+        assertThat(creations.get(), `is`(1))
+        assertThat(appInitializer.mInitialized.size, `is`(1))
+        assertFalse(appInitializer.mCreating.containsKey(InitializerNoDependencies::class.java))
+    }
+
+    @Test
+    fun parallelInitializationWithCyclicDependencies() {
+        try {
+            ParallelInitializer(appInitializer).initialize(
+                listOf(CyclicDependencyInitializer::class.java),
+                2
+            )
+            fail()
+        } catch (exception: StartupException) {
+            assertThat(exception.localizedMessage, containsString("Cycle detected."))
+        }
+    }
+
+    @Test
+    fun generatedTable() {
+        val created = mutableListOf<Class<*>>()
+        val table = object : InitializerTable {
+            override fun getComponents(): List<Class<out Initializer<*>>> =
+                listOf(InitializerWithDependency::class.java)
+
+            override fun getParallelism() = 0
+
+            override fun isComplete() = false
+
+            override fun create(component: Class<*>): Initializer<*>? {
+                created.add(component)
+                return when (component) {
+                    InitializerNoDependencies::class.java -> InitializerNoDependencies()
+                    InitializerWithDependency::class.java -> InitializerWithDependency()
+                    else -> null
+                }
+            }
+        }
+        val tableInitializer = AppInitializer(context, table)
+        tableInitializer.discoverAndInitialize()
+        // The test manifest also lists BackgroundThreadInitializer and
+        // MainThreadInitializerWithDependency, which the table doesn't create.
+        assertThat(tableInitializer.mDiscovered.size, `is`(3))
+        assertThat(tableInitializer.mInitialized.size, `is`(4))
+        assertThat(created.size, `is`(4))
+        assertTrue(tableInitializer.isEagerlyInitialized(InitializerWithDependency::class.java))
+    }
+
+    @Test
+    fun generatedTableWithManifestOnlyInitializers() {
+        val table = object : InitializerTable {
+            override fun getComponents(): List<Class<out Initializer<*>>> =
+                listOf(InitializerNoDependencies::class.java)
+
+            override fun getParallelism() = 0
+
+            override fun isComplete() = false
+
+            override fun create(component: Class<*>): Initializer<*>? {
+                return when (component) {
+                    InitializerNoDependencies::class.java -> InitializerNoDependencies()
+                    else -> null
+                }
+            }
+        }
+        val tableInitializer = AppInitializer(context, table)
+        tableInitializer.discoverAndInitialize()
+        assertTrue(tableInitializer.isEagerlyInitialized(BackgroundThreadInitializer::class.java))
+        assertTrue(
+            tableInitializer.isEagerlyInitialized(MainThreadInitializerWithDependency::class.java)
+        )
+        assertThat(tableInitializer.mInitialized.size, `is`(4))
+        // The parallelism of the table wins over the one of the manifest.
+        assertThat(
+            tableInitializer.mInitialized[BackgroundThreadInitializer::class.java],
+            `is`<Any>(Thread.currentThread())
+        )
+    }
+
+    @Test
+    fun completeGeneratedTable() {
+        val table = object : InitializerTable {
+            override fun getComponents(): List<Class<out Initializer<*>>> =
+                listOf(InitializerNoDependencies::class.java)
+
+            override fun getParallelism() = 0
+
+            override fun isComplete() = true
+
+            override fun create(component: Class<*>): Initializer<*>? {
+                return when (component) {
+                    InitializerNoDependencies::class.java -> InitializerNoDependencies()
+                    else -> null
+                }
+            }
+        }
+        val tableInitializer = AppInitializer(context, table)
+        tableInitializer.discoverAndInitialize()
+        // The <meta-data> entries of the test manifest are not read
+        assertThat(tableInitializer.mDiscovered.size, `is`(1))
+        assertThat(tableInitializer.mInitialized.size, `is`(1))
+        assertTrue(tableInitializer.isEagerlyInitialized(InitializerNoDependencies::class.java))
+    }
+
     @Test
     fun initializationWithCyclicDependencies() {
         try {
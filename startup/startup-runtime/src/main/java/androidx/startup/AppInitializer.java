@@ -25,8 +25,10 @@ import android.content.pm.ProviderInfo;
 import android.os.Bundle;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.tracing.Trace;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -37,6 +39,17 @@ import java.util.Set;
  * An {@link AppInitializer} can be used to initialize all discovered [ComponentInitializer]s.
  * <br/>
  * The discovery mechanism is via `<meta-data>` entries in the merged `AndroidManifest.xml`.
+ * <br/>
+ * Discovered [ComponentInitializer]s are initialized one after another on the main thread.
+ * To initialize the ones that do not depend on each other in parallel, set the number of
+ * background threads to use with a `androidx.startup.parallelism` integer `<meta-data>` entry
+ * on the `InitializationProvider`. Only the {@link MainThreadInitializer}s are then created on
+ * the main thread.
+ * <br/>
+ * When {@link Initializer}s are also listed with {@link StartupInitializers}, the table
+ * generated at build time creates them without reflection and sets the parallelism. They are
+ * initialized before the ones only listed by the `<meta-data>` entries, which are not read at all
+ * if the table is complete.
  */
 @SuppressWarnings("WeakerAccess")
 public final class AppInitializer {
@@ -44,6 +57,9 @@ public final class AppInitializer {
     // Tracing
     private static final String SECTION_NAME = "Startup";
 
+    // The number of threads initializing discovered components in parallel, if set.
+    private static final String PARALLELISM = "androidx.startup.parallelism";
+
     /**
      * The {@link AppInitializer} instance.
      */
@@ -63,15 +79,54 @@ public final class AppInitializer {
     @NonNull
     final Context mContext;
 
+    /**
+     * The time spent in {@link Initializer#create(Context)} by component, guarded by sLock.
+     */
+    @NonNull
+    final Map<Class<?>, Long> mDurations;
+
+    /**
+     * The dependencies of the initialized components, guarded by sLock.
+     */
+    @NonNull
+    final Map<Class<?>, List<Class<? extends Initializer<?>>>> mDependencies;
+
+    /**
+     * The components being created by {@link #create(Class, Initializer)} and the threads
+     * creating them, guarded by sLock.
+     */
+    @NonNull
+    final Map<Class<?>, Thread> mCreating;
+
+    /**
+     * The table generated for {@link StartupInitializers}, if any.
+     */
+    @Nullable
+    final InitializerTable mTable;
+
     /**
      * Creates an instance of {@link AppInitializer}
      *
      * @param context The application context
      */
     AppInitializer(@NonNull Context context) {
+        this(context, loadTable(context));
+    }
+
+    /**
+     * Creates an instance of {@link AppInitializer}
+     *
+     * @param context The application context
+     * @param table   The table of {@link Initializer}s generated at build time, if any
+     */
+    AppInitializer(@NonNull Context context, @Nullable InitializerTable table) {
+        mTable = table;
         mContext = context.getApplicationContext();
         mDiscovered = new HashSet<>();
         mInitialized = new HashMap<>();
+        mDurations = new HashMap<>();
+        mDependencies = new HashMap<>();
+        mCreating = new HashMap<>();
     }
 
     /**
@@ -115,6 +170,19 @@ public final class AppInitializer {
         return mDiscovered.contains(component);
     }
 
+    /**
+     * Returns the time spent creating each {@link Initializer} initialized so far, and the
+     * critical path of their dependency graph.
+     *
+     * @return The {@link InitializationTimings}
+     */
+    @NonNull
+    public InitializationTimings getInitializationTimings() {
+        synchronized (sLock) {
+            return new InitializationTimings(mDurations, mDependencies);
+        }
+    }
+
     @NonNull
     @SuppressWarnings({"unchecked", "TypeParameterUnusedInFormals"})
     <T> T doInitialize(
@@ -133,12 +201,12 @@ public final class AppInitializer {
                     );
                     throw new IllegalStateException(message);
                 }
+                awaitCreation(component);
                 Object result;
                 if (!mInitialized.containsKey(component)) {
                     initializing.add(component);
                     try {
-                        Object instance = component.getDeclaredConstructor().newInstance();
-                        Initializer<?> initializer = (Initializer<?>) instance;
+                        Initializer<?> initializer = instantiate(component);
                         List<Class<? extends Initializer<?>>> dependencies =
                                 initializer.dependencies();
 
@@ -152,12 +220,16 @@ public final class AppInitializer {
                         if (StartupLogger.DEBUG) {
                             StartupLogger.i(String.format("Initializing %s", component.getName()));
                         }
+                        long start = System.nanoTime();
                         result = initializer.create(mContext);
+                        long duration = System.nanoTime() - start;
                         if (StartupLogger.DEBUG) {
                             StartupLogger.i(String.format("Initialized %s", component.getName()));
                         }
                         initializing.remove(component);
                         mInitialized.put(component, result);
+                        mDurations.put(component, duration);
+                        mDependencies.put(component, dependencies);
                     } catch (Throwable throwable) {
                         throw new StartupException(throwable);
                     }
@@ -171,10 +243,120 @@ public final class AppInitializer {
         }
     }
 
+    /**
+     * Creates a component whose dependencies are initialized, unless it already is.
+     * <br/>
+     * Unlike {@link #doInitialize(Class, Set)}, the lock is not held while the component is
+     * created, so that several components can be created at the same time. The component is
+     * marked as being created instead, and the other threads initializing it wait for it.
+     *
+     * @param component   The {@link Initializer} class
+     * @param initializer The {@link Initializer} instance
+     */
+    void create(
+            @NonNull Class<? extends Initializer<?>> component,
+            @NonNull Initializer<?> initializer) {
+        synchronized (sLock) {
+            awaitCreation(component);
+            if (mInitialized.containsKey(component)) {
+                return;
+            }
+            mCreating.put(component, Thread.currentThread());
+        }
+        boolean isTracingEnabled = Trace.isEnabled();
+        try {
+            if (isTracingEnabled) {
+                Trace.beginSection(component.getSimpleName());
+            }
+            if (StartupLogger.DEBUG) {
+                StartupLogger.i(String.format("Initializing %s", component.getName()));
+            }
+            long start = System.nanoTime();
+            Object result = initializer.create(mContext);
+            long duration = System.nanoTime() - start;
+            if (StartupLogger.DEBUG) {
+                StartupLogger.i(String.format("Initialized %s", component.getName()));
+            }
+            synchronized (sLock) {
+                mInitialized.put(component, result);
+                mDurations.put(component, duration);
+                mDependencies.put(component, initializer.dependencies());
+            }
+        } finally {
+            synchronized (sLock) {
+                mCreating.remove(component);
+                sLock.notifyAll();
+            }
+            if (isTracingEnabled) {
+                Trace.endSection();
+            }
+        }
+    }
+
+    /**
+     * Waits until no other thread is creating the component with
+     * {@link #create(Class, Initializer)}. Must be called with sLock held.
+     */
+    private void awaitCreation(@NonNull Class<?> component) {
+        try {
+            Thread creator;
+            while ((creator = mCreating.get(component)) != null) {
+                if (creator == Thread.currentThread()) {
+                    String message = String.format(
+                            "Cannot initialize %s. Cycle detected.", component.getName()
+                    );
+                    throw new IllegalStateException(message);
+                }
+                sLock.wait();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new StartupException(exception);
+        }
+    }
+
+    /**
+     * Creates an instance of an {@link Initializer}, without reflection if it is in the
+     * generated table.
+     */
+    @NonNull
+    Initializer<?> instantiate(@NonNull Class<? extends Initializer<?>> component)
+            throws Exception {
+        if (mTable != null) {
+            Initializer<?> initializer = mTable.create(component);
+            if (initializer != null) {
+                return initializer;
+            }
+        }
+        return component.getDeclaredConstructor().newInstance();
+    }
+
+    boolean isInitialized(@NonNull Class<?> component) {
+        synchronized (sLock) {
+            return mInitialized.containsKey(component);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     void discoverAndInitialize() {
         try {
             Trace.beginSection(SECTION_NAME);
+            List<Class<? extends Initializer<?>>> components = new ArrayList<>();
+            // The names of the components of the table, whose classes are already loaded.
+            Set<String> tableComponents = new HashSet<>();
+            int parallelism = 0;
+            if (mTable != null) {
+                for (Class<? extends Initializer<?>> component : mTable.getComponents()) {
+                    components.add(component);
+                    tableComponents.add(component.getName());
+                }
+                mDiscovered.addAll(components);
+                parallelism = mTable.getParallelism();
+                if (mTable.isComplete()) {
+                    initialize(components, parallelism);
+                    return;
+                }
+            }
             ComponentName provider = new ComponentName(mContext.getPackageName(),
                     InitializationProvider.class.getName());
             ProviderInfo providerInfo = mContext.getPackageManager()
@@ -182,9 +364,14 @@ public final class AppInitializer {
             Bundle metadata = providerInfo.metaData;
             String startup = mContext.getString(R.string.androidx_startup);
             if (metadata != null) {
-                Set<Class<?>> initializing = new HashSet<>();
+                if (mTable == null) {
+                    parallelism = metadata.getInt(PARALLELISM, 0);
+                }
                 Set<String> keys = metadata.keySet();
                 for (String key : keys) {
+                    if (PARALLELISM.equals(key) || tableComponents.contains(key)) {
+                        continue;
+                    }
                     String value = metadata.getString(key, null);
                     if (startup.equals(value)) {
                         Class<?> clazz = Class.forName(key);
@@ -195,15 +382,46 @@ public final class AppInitializer {
                             if (StartupLogger.DEBUG) {
                                 StartupLogger.i(String.format("Discovered %s", key));
                             }
-                            doInitialize(component, initializing);
+                            components.add(component);
                         }
                     }
                 }
             }
+            initialize(components, parallelism);
         } catch (PackageManager.NameNotFoundException | ClassNotFoundException exception) {
             throw new StartupException(exception);
         } finally {
             Trace.endSection();
         }
     }
+
+    private void initialize(@NonNull List<Class<? extends Initializer<?>>> components,
+            int parallelism) {
+        if (parallelism > 0) {
+            new ParallelInitializer(this).initialize(components, parallelism);
+        } else {
+            Set<Class<?>> initializing = new HashSet<>();
+            for (Class<? extends Initializer<?>> component : components) {
+                doInitialize(component, initializing);
+            }
+        }
+    }
+
+    @Nullable
+    private static InitializerTable loadTable(@NonNull Context context) {
+        // Only set by the applications using StartupInitializers, so that the others do not look
+        // up a class that does not exist.
+        if (!context.getResources().getBoolean(R.bool.androidx_startup_generated_table)) {
+            return null;
+        }
+        try {
+            return (InitializerTable) Class.forName(InitializerTable.GENERATED_CLASS_NAME)
+                    .newInstance();
+        } catch (ClassNotFoundException exception) {
+            throw new StartupException("androidx_startup_generated_table is set but no class is "
+                    + "annotated with StartupInitializers", exception);
+        } catch (IllegalAccessException | InstantiationException exception) {
+            throw new StartupException(exception);
+        }
+    }
 }
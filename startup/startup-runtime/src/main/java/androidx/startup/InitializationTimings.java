@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The time spent creating each {@link Initializer} initialized by an {@link AppInitializer}.
+ * <br/>
+ * The critical path is the chain of dependent {@link Initializer}s whose creation took the
+ * longest in total. When initializing in parallel, startup cannot take less than that.
+ */
+public final class InitializationTimings {
+
+    private final Map<Class<?>, Long> mDurations;
+    private final List<Class<? extends Initializer<?>>> mCriticalPath;
+    private final long mCriticalPathNanos;
+
+    /**
+     * @param durations    The time spent in {@link Initializer#create(android.content.Context)},
+     *                     in nanoseconds, by component
+     * @param dependencies The dependencies of each component
+     */
+    InitializationTimings(@NonNull Map<Class<?>, Long> durations,
+            @NonNull Map<Class<?>, List<Class<? extends Initializer<?>>>> dependencies) {
+        mDurations = new HashMap<>(durations);
+        // The longest chain ending at each component, and the dependency it goes through.
+        Map<Class<?>, Long> chainNanos = new HashMap<>();
+        Map<Class<?>, Class<? extends Initializer<?>>> previous = new HashMap<>();
+        Class<?> last = null;
+        long lastNanos = 0;
+        for (Class<?> component : mDurations.keySet()) {
+            long nanos = chainNanos(component, dependencies, chainNanos, previous);
+            if (last == null || nanos > lastNanos) {
+                last = component;
+                lastNanos = nanos;
+            }
+        }
+        List<Class<? extends Initializer<?>>> criticalPath = new ArrayList<>();
+        if (last != null) {
+            criticalPath.add(asInitializer(last));
+            Class<? extends Initializer<?>> component = previous.get(last);
+            while (component != null) {
+                criticalPath.add(component);
+                component = previous.get(component);
+            }
+            Collections.reverse(criticalPath);
+        }
+        mCriticalPath = Collections.unmodifiableList(criticalPath);
+        mCriticalPathNanos = lastNanos;
+    }
+
+    /**
+     * @param component The {@link Initializer} class
+     * @return The time spent in {@link Initializer#create(android.content.Context)} in
+     * nanoseconds, or <code>-1</code> if the {@link Initializer} was not initialized.
+     */
+    public long getDurationNanos(@NonNull Class<? extends Initializer<?>> component) {
+        Long duration = mDurations.get(component);
+        return duration != null ? duration : -1;
+    }
+
+    /**
+     * @return The {@link Initializer}s of the critical path, in initialization order.
+     */
+    @NonNull
+    public List<Class<? extends Initializer<?>>> getCriticalPath() {
+        return mCriticalPath;
+    }
+
+    /**
+     * @return The time spent creating the {@link Initializer}s of the critical path, in
+     * nanoseconds.
+     */
+    public long getCriticalPathNanos() {
+        return mCriticalPathNanos;
+    }
+
+    private long chainNanos(
+            @NonNull Class<?> component,
+            @NonNull Map<Class<?>, List<Class<? extends Initializer<?>>>> dependencies,
+            @NonNull Map<Class<?>, Long> chainNanos,
+            @NonNull Map<Class<?>, Class<? extends Initializer<?>>> previous) {
+        Long known = chainNanos.get(component);
+        if (known != null) {
+            return known;
+        }
+        long longestDependency = 0;
+        List<Class<? extends Initializer<?>>> componentDependencies = dependencies.get(component);
+        if (componentDependencies != null) {
+            for (Class<? extends Initializer<?>> dependency : componentDependencies) {
+                // Dependencies that were not recorded, e.g. already initialized, are skipped.
+                if (mDurations.containsKey(dependency)) {
+                    long nanos = chainNanos(dependency, dependencies, chainNanos, previous);
+                    if (!previous.containsKey(component) || nanos > longestDependency) {
+                        longestDependency = nanos;
+                        previous.put(component, dependency);
+                    }
+                }
+            }
+        }
+        long nanos = longestDependency + mDurations.get(component);
+        chainNanos.put(component, nanos);
+        return nanos;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Initializer<?>> asInitializer(@NonNull Class<?> component) {
+        return (Class<? extends Initializer<?>>) component;
+    }
+}
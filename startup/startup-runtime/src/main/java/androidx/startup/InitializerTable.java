@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import java.util.List;
+
+/**
+ * The {@link Initializer}s listed by {@link StartupInitializers}, generated by
+ * `startup-runtime-compiler` as {@link #GENERATED_CLASS_NAME}.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public interface InitializerTable {
+
+    /**
+     * The name of the generated table class.
+     */
+    String GENERATED_CLASS_NAME = "androidx.startup.GeneratedInitializerTable";
+
+    /**
+     * @return The {@link Initializer}s to initialize at startup, in the order they are listed by
+     * {@link StartupInitializers}.
+     */
+    @NonNull
+    List<Class<? extends Initializer<?>>> getComponents();
+
+    /**
+     * @return The number of background threads initializing them in parallel, or
+     * <code>0</code> to initialize them one after another.
+     */
+    int getParallelism();
+
+    /**
+     * @return <code>true</code> if the `<meta-data>` entries of the manifest do not need to be
+     * read, see {@link StartupInitializers#complete()}.
+     */
+    boolean isComplete();
+
+    /**
+     * Creates an {@link Initializer} with its constructor.
+     *
+     * @param component The {@link Initializer} class
+     * @return The {@link Initializer}, or <code>null</code> if it is not in the table
+     */
+    @Nullable
+    Initializer<?> create(@NonNull Class<?> component);
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Initializes a set of {@link Initializer}s and their dependencies in parallel.
+ * <br/>
+ * The dependency graph is built upfront. Each {@link Initializer} is created once all its
+ * dependencies are, on a fixed size pool of background threads, or on the calling thread if
+ * it is a {@link MainThreadInitializer}. The calling thread waits for all of them.
+ */
+final class ParallelInitializer {
+
+    // Added to the calling thread queue when all the nodes have run, or one failed.
+    private static final Node DONE = new Node(null, null);
+
+    private final AppInitializer mAppInitializer;
+    private final Map<Class<?>, Node> mNodes;
+    private final BlockingQueue<Node> mCallingThreadQueue;
+    private final AtomicInteger mRemaining;
+    private final AtomicInteger mThreadCount;
+
+    @Nullable
+    private volatile Throwable mFailure;
+    private ExecutorService mExecutor;
+
+    ParallelInitializer(@NonNull AppInitializer appInitializer) {
+        mAppInitializer = appInitializer;
+        mNodes = new HashMap<>();
+        mCallingThreadQueue = new LinkedBlockingQueue<>();
+        mRemaining = new AtomicInteger();
+        mThreadCount = new AtomicInteger();
+    }
+
+    /**
+     * Initializes the given {@link Initializer}s and their dependencies, except the ones that
+     * are already initialized.
+     *
+     * @param components  The {@link Initializer} classes to initialize
+     * @param parallelism The maximum number of {@link Initializer}s created at the same time on
+     *                    background threads
+     */
+    void initialize(@NonNull List<Class<? extends Initializer<?>>> components,
+            int parallelism) {
+        try {
+            Set<Class<?>> initializing = new HashSet<>();
+            for (Class<? extends Initializer<?>> component : components) {
+                if (!mAppInitializer.isInitialized(component)) {
+                    addNode(component, initializing);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw new StartupException(throwable);
+        }
+        if (mNodes.isEmpty()) {
+            return;
+        }
+        mRemaining.set(mNodes.size());
+        mExecutor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                return new Thread(runnable, "Startup-" + mThreadCount.incrementAndGet());
+            }
+        });
+        try {
+            for (Node node : mNodes.values()) {
+                if (node.mPendingDependencies.get() == 0) {
+                    schedule(node);
+                }
+            }
+            while (true) {
+                Node node = mCallingThreadQueue.take();
+                if (node == DONE) {
+                    break;
+                }
+                run(node);
+            }
+        } catch (InterruptedException exception) {
+            fail(exception);
+        } finally {
+            mExecutor.shutdown();
+        }
+        Throwable failure = mFailure;
+        if (failure instanceof StartupException) {
+            throw (StartupException) failure;
+        } else if (failure != null) {
+            throw new StartupException(failure);
+        }
+    }
+
+    private Node addNode(@NonNull Class<? extends Initializer<?>> component,
+            @NonNull Set<Class<?>> initializing) throws Exception {
+        Node node = mNodes.get(component);
+        if (node != null) {
+            return node;
+        }
+        if (initializing.contains(component)) {
+            String message = String.format(
+                    "Cannot initialize %s. Cycle detected.", component.getName()
+            );
+            throw new IllegalStateException(message);
+        }
+        initializing.add(component);
+        Initializer<?> initializer = mAppInitializer.instantiate(component);
+        node = new Node(component, initializer);
+        List<Class<? extends Initializer<?>>> dependencies = initializer.dependencies();
+        int pending = 0;
+        for (Class<? extends Initializer<?>> dependency : dependencies) {
+            if (!mAppInitializer.isInitialized(dependency)) {
+                addNode(dependency, initializing).mDependents.add(node);
+                pending++;
+            }
+        }
+        node.mPendingDependencies.set(pending);
+        initializing.remove(component);
+        mNodes.put(component, node);
+        return node;
+    }
+
+    void schedule(@NonNull final Node node) {
+        if (node.mInitializer instanceof MainThreadInitializer) {
+            mCallingThreadQueue.add(node);
+            return;
+        }
+        try {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ParallelInitializer.this.run(node);
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            // The initialization already failed.
+        }
+    }
+
+    void run(@NonNull Node node) {
+        if (mFailure != null) {
+            return;
+        }
+        try {
+            mAppInitializer.create(node.mComponent, node.mInitializer);
+        } catch (Throwable throwable) {
+            fail(throwable);
+            return;
+        }
+        for (Node dependent : node.mDependents) {
+            if (dependent.mPendingDependencies.decrementAndGet() == 0) {
+                schedule(dependent);
+            }
+        }
+        if (mRemaining.decrementAndGet() == 0) {
+            mCallingThreadQueue.add(DONE);
+        }
+    }
+
+    private void fail(@NonNull Throwable throwable) {
+        synchronized (this) {
+            if (mFailure != null) {
+                return;
+            }
+            mFailure = throwable;
+        }
+        mCallingThreadQueue.add(DONE);
+    }
+
+    /**
+     * An {@link Initializer} of the graph.
+     */
+    static final class Node {
+        final Class<? extends Initializer<?>> mComponent;
+        final Initializer<?> mInitializer;
+        // Initialized after this one.
+        final List<Node> mDependents = new ArrayList<>();
+        final AtomicInteger mPendingDependencies = new AtomicInteger();
+
+        Node(Class<? extends Initializer<?>> component, Initializer<?> initializer) {
+            mComponent = component;
+            mInitializer = initializer;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lists the {@link Initializer}s to initialize at startup, so that they are discovered at build
+ * time and created without reflection.
+ * <br/>
+ * Requires the `startup-runtime-compiler` annotation processor, which generates a table that
+ * creates the {@link Initializer}s with their constructors, and the
+ * `androidx_startup_generated_table` boolean resource set to `true`, which tells
+ * {@link AppInitializer} to load the table. The {@link Initializer}s are initialized in the
+ * listed order, so the dependencies of an {@link Initializer} should be listed before it. Unless
+ * the list is {@link #complete()}, the ones only listed by the `<meta-data>` entries of the merged
+ * `AndroidManifest.xml`, e.g. by libraries, are initialized after them. Only one class of an
+ * application can be annotated.
+ * <br/>
+ * The `startup-runtime-lint` checks report a missing resource, dependencies listed after their
+ * dependents, and `<meta-data>` entries missing from a complete list.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface StartupInitializers {
+
+    /**
+     * @return The {@link Initializer}s to initialize at startup. The dependencies they declare
+     * in {@link Initializer#dependencies()} can be listed too, so that they are also created
+     * without reflection.
+     */
+    Class<? extends Initializer<?>>[] value();
+
+    /**
+     * @return The number of background threads initializing the {@link Initializer}s in
+     * parallel, or <code>0</code> to initialize them one after another on the main thread.
+     */
+    int parallelism() default 0;
+
+    /**
+     * @return <code>true</code> if {@link #value()} lists all the {@link Initializer}s of the
+     * application, including the ones of the `<meta-data>` entries of the merged
+     * `AndroidManifest.xml`, which are then not read at startup.
+     */
+    boolean complete() default false;
+}
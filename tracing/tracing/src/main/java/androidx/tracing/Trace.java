@@ -21,6 +21,7 @@ import android.os.Build;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -35,6 +36,8 @@ import java.lang.reflect.Method;
  * tracing of events that occur across multiple processes.
  * <p>For information about using the Systrace tool, read <a
  * href="{@docRoot}studio/profile/systrace/">Overview of system tracing</a>.
+ * <p>The trace events can also be recorded in the process, without system tracing, with a
+ * {@link TraceRecorder} set with {@link #setRecorder(TraceRecorder)}.
  */
 public final class Trace {
 
@@ -45,6 +48,17 @@ public final class Trace {
     private static Method sAsyncTraceBeginMethod;
     private static Method sAsyncTraceEndMethod;
     private static Method sTraceCounterMethod;
+    private static volatile TraceRecorder sRecorder;
+
+    /**
+     * Sets the recorder of the trace events of the process, which records them in addition to
+     * the system trace.
+     *
+     * @param recorder The recorder, or {@code null} to stop recording.
+     */
+    public static void setRecorder(@Nullable TraceRecorder recorder) {
+        sRecorder = recorder;
+    }
 
     /**
      * Checks whether or not tracing is currently enabled. This is useful to avoid intermediate
@@ -53,10 +67,14 @@ public final class Trace {
      * recommended to use this to prevent creating any temporary objects that would then be
      * passed to those methods to reduce runtime cost when tracing isn't enabled.
      *
-     * @return true if tracing is currently enabled, false otherwise
+     * @return true if tracing is currently enabled or a {@link TraceRecorder} is set, false
+     * otherwise
      */
     @SuppressLint("NewApi")
     public static boolean isEnabled() {
+        if (sRecorder != null) {
+            return true;
+        }
         try {
             if (sIsTagEnabledMethod == null) {
                 return android.os.Trace.isEnabled();
@@ -77,6 +95,10 @@ public final class Trace {
      * @param label The name of the code section to appear in the trace.
      */
     public static void beginSection(@NonNull String label) {
+        TraceRecorder recorder = sRecorder;
+        if (recorder != null) {
+            recorder.record(TraceRecorder.BEGIN, label, 0);
+        }
         if (Build.VERSION.SDK_INT >= 18) {
             TraceApi18Impl.beginSection(label);
         }
@@ -90,6 +112,10 @@ public final class Trace {
      * thread.
      */
     public static void endSection() {
+        TraceRecorder recorder = sRecorder;
+        if (recorder != null) {
+            recorder.record(TraceRecorder.END, "", 0);
+        }
         if (Build.VERSION.SDK_INT >= 18) {
             TraceApi18Impl.endSection();
         }
@@ -107,6 +133,10 @@ public final class Trace {
      */
     @SuppressLint("NewApi")
     public static void beginAsyncSection(@NonNull String methodName, int cookie) {
+        TraceRecorder recorder = sRecorder;
+        if (recorder != null) {
+            recorder.record(TraceRecorder.ASYNC_BEGIN, methodName, cookie);
+        }
         try {
             if (sAsyncTraceBeginMethod == null) {
                 TraceApi29Impl.beginAsyncSection(methodName, cookie);
@@ -127,6 +157,10 @@ public final class Trace {
      */
     @SuppressLint("NewApi")
     public static void endAsyncSection(@NonNull String methodName, int cookie) {
+        TraceRecorder recorder = sRecorder;
+        if (recorder != null) {
+            recorder.record(TraceRecorder.ASYNC_END, methodName, cookie);
+        }
         try {
             if (sAsyncTraceEndMethod == null) {
                 TraceApi29Impl.endAsyncSection(methodName, cookie);
@@ -145,6 +179,10 @@ public final class Trace {
      */
     @SuppressLint("NewApi")
     public static void setCounter(@NonNull String counterName, int counterValue) {
+        TraceRecorder recorder = sRecorder;
+        if (recorder != null) {
+            recorder.record(TraceRecorder.COUNTER, counterName, counterValue);
+        }
         try {
             if (sTraceCounterMethod == null) {
                 TraceApi29Impl.setCounter(counterName, counterValue);
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.tracing;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the trace events of the process in memory, without system tracing.
+ *
+ * <p>Once set with {@link Trace#setRecorder(TraceRecorder)}, the events written with
+ * {@link Trace} are also recorded. Each thread records in its own ring buffer, without locking:
+ * an event stores the index of its interned name, a value and a timestamp. When a buffer is
+ * full, the oldest events of the thread are overwritten.
+ *
+ * <p>{@link #writeTo(Writer)} drains the recorded events in the Chrome JSON trace format, which
+ * can be opened with Perfetto (<a href="https://ui.perfetto.dev">ui.perfetto.dev</a>) or
+ * {@code chrome://tracing}.
+ *
+ * <p>The recorder does not depend on the Android framework and can be used in JVM tests.
+ */
+public final class TraceRecorder {
+
+    static final byte BEGIN = 0;
+    static final byte END = 1;
+    static final byte ASYNC_BEGIN = 2;
+    static final byte ASYNC_END = 3;
+    static final byte COUNTER = 4;
+
+    private final int mCapacity;
+    private final long mStartNanos = System.nanoTime();
+
+    private final ConcurrentHashMap<String, Integer> mNameIds = new ConcurrentHashMap<>();
+    // guarded by mNameIds, the names in the order of their ids
+    private final ArrayList<String> mNames = new ArrayList<>();
+
+    private final CopyOnWriteArrayList<ThreadBuffer> mBuffers = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<ThreadBuffer> mThreadBuffer = new ThreadLocal<>();
+
+    // guarded by mBuffers
+    private long mDroppedEvents;
+
+    /**
+     * Creates a recorder.
+     *
+     * @param eventsPerThread The number of events kept for each thread, rounded up to a power
+     *                        of 2. An event uses 17 bytes.
+     */
+    public TraceRecorder(int eventsPerThread) {
+        if (eventsPerThread <= 0) {
+            throw new IllegalArgumentException("eventsPerThread must be positive");
+        }
+        mCapacity = Integer.highestOneBit(eventsPerThread) == eventsPerThread
+                ? eventsPerThread : Integer.highestOneBit(eventsPerThread) << 1;
+    }
+
+    /**
+     * Writes the events recorded since the last call in the Chrome JSON trace format, and
+     * removes them from the recorder.
+     *
+     * @param writer The writer of the trace. It is not closed.
+     * @throws IOException If the trace cannot be written.
+     */
+    public void writeTo(@NonNull Writer writer) throws IOException {
+        synchronized (mBuffers) {
+            writer.write("{\"traceEvents\":[");
+            boolean first = true;
+            Events events = new Events(mCapacity);
+            for (Iterator<ThreadBuffer> iterator = mBuffers.iterator(); iterator.hasNext(); ) {
+                ThreadBuffer buffer = iterator.next();
+                boolean alive = buffer.mThread.isAlive();
+                mDroppedEvents += buffer.drain(events);
+                if (!alive) {
+                    // Nothing is recorded after the thread is dead.
+                    mBuffers.remove(buffer);
+                }
+                // Copied after the events, so that it has all their names.
+                String[] names;
+                synchronized (mNameIds) {
+                    names = mNames.toArray(new String[0]);
+                }
+                first = writeThreadName(writer, buffer, first);
+                for (int i = events.mStart; i < events.mEnd; i++) {
+                    writer.write(",\n");
+                    byte type = events.mTypes[i];
+                    writeEvent(writer, buffer.mThreadId, type,
+                            type == END ? null : names[events.mNameIds[i]], events.mValues[i],
+                            events.mTimestamps[i]);
+                }
+            }
+            writer.write("],\"displayTimeUnit\":\"ns\"}\n");
+            writer.flush();
+        }
+    }
+
+    /**
+     * Returns the number of events that were overwritten by newer ones before they could be
+     * written by {@link #writeTo(Writer)}.
+     *
+     * @return The number of events dropped by this recorder.
+     */
+    public long getDroppedEventCount() {
+        synchronized (mBuffers) {
+            return mDroppedEvents;
+        }
+    }
+
+    void record(byte type, @NonNull String name, int value) {
+        long timestamp = System.nanoTime();
+        ThreadBuffer buffer = mThreadBuffer.get();
+        if (buffer == null) {
+            buffer = new ThreadBuffer(Thread.currentThread(), mCapacity);
+            mThreadBuffer.set(buffer);
+            mBuffers.add(buffer);
+        }
+        buffer.write(type, type == END ? 0 : intern(name), value, timestamp);
+    }
+
+    private int intern(@NonNull String name) {
+        Integer id = mNameIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (mNameIds) {
+            id = mNameIds.get(name);
+            if (id == null) {
+                id = mNames.size();
+                mNames.add(name);
+                mNameIds.put(name, id);
+            }
+            return id;
+        }
+    }
+
+    private boolean writeThreadName(Writer writer, ThreadBuffer buffer, boolean first)
+            throws IOException {
+        if (!first) {
+            writer.write(",\n");
+        }
+        writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":0,\"tid\":");
+        writer.write(Long.toString(buffer.mThreadId));
+        writer.write(",\"args\":{\"name\":");
+        writeString(writer, buffer.mThread.getName());
+        writer.write("}}");
+        return false;
+    }
+
+    private void writeEvent(Writer writer, long threadId, byte type, String name, int value,
+            long timestamp) throws IOException {
+        writer.write("{\"ph\":\"");
+        switch (type) {
+            case BEGIN:
+                writer.write("B");
+                break;
+            case END:
+                writer.write("E");
+                break;
+            case ASYNC_BEGIN:
+                writer.write("b");
+                break;
+            case ASYNC_END:
+                writer.write("e");
+                break;
+            default:
+                writer.write("C");
+                break;
+        }
+        writer.write("\",\"pid\":0,\"tid\":");
+        writer.write(Long.toString(threadId));
+        writer.write(",\"ts\":");
+        // in microseconds
+        long nanos = timestamp - mStartNanos;
+        writer.write(Long.toString(nanos / 1000));
+        writer.write('.');
+        writer.write(Long.toString(1000 + Math.abs(nanos % 1000)), 1, 3);
+        if (type != END) {
+            writer.write(",\"name\":");
+            writeString(writer, name);
+        }
+        if (type == ASYNC_BEGIN || type == ASYNC_END) {
+            writer.write(",\"cat\":\"async\",\"id\":");
+            writer.write(Integer.toString(value));
+        } else if (type == COUNTER) {
+            writer.write(",\"args\":{\"value\":");
+            writer.write(Integer.toString(value));
+            writer.write('}');
+        }
+        writer.write('}');
+    }
+
+    private static void writeString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+    /**
+     * The events of a thread. Only the thread writes, and the writes are published by
+     * {@link #mWriteIndex}. A reader that copies events can race with the writer overwriting
+     * them, so it checks the index again after copying and discards the overwritten events.
+     */
+    private static final class ThreadBuffer {
+        final Thread mThread;
+        final long mThreadId;
+
+        private final int mMask;
+        private final long[] mTimestamps;
+        private final int[] mNameIds;
+        private final int[] mValues;
+        private final byte[] mTypes;
+
+        // index of the next event to write, never wraps
+        private final AtomicLong mWriteIndex = new AtomicLong();
+        // only accessed by the writer
+        private long mNextIndex;
+        // guarded by the buffers of the recorder
+        private long mReadIndex;
+
+        ThreadBuffer(Thread thread, int capacity) {
+            mThread = thread;
+            mThreadId = thread.getId();
+            mMask = capacity - 1;
+            mTimestamps = new long[capacity];
+            mNameIds = new int[capacity];
+            mValues = new int[capacity];
+            mTypes = new byte[capacity];
+        }
+
+        void write(byte type, int nameId, int value, long timestamp) {
+            long index = mNextIndex++;
+            int slot = (int) index & mMask;
+            mTypes[slot] = type;
+            mNameIds[slot] = nameId;
+            mValues[slot] = value;
+            mTimestamps[slot] = timestamp;
+            // ordered store, cheaper than a volatile one
+            mWriteIndex.lazySet(index + 1);
+        }
+
+        /**
+         * Copies the events written since the last call into {@code events}.
+         *
+         * @return The number of events overwritten before they could be copied.
+         */
+        long drain(Events events) {
+            long end = mWriteIndex.get();
+            long start = Math.max(mReadIndex, end - mTimestamps.length);
+            long dropped = start - mReadIndex;
+            int size = 0;
+            for (long index = start; index < end; index++) {
+                int slot = (int) index & mMask;
+                events.mTypes[size] = mTypes[slot];
+                events.mNameIds[size] = mNameIds[slot];
+                events.mValues[size] = mValues[slot];
+                events.mTimestamps[size] = mTimestamps[slot];
+                size++;
+            }
+            // The events the writer has overwritten while they were copied are not valid,
+            // including the one it may be writing.
+            long overwritten = Math.max(0, mWriteIndex.get() + 1 - mTimestamps.length - start);
+            overwritten = Math.min(overwritten, size);
+            events.mStart = (int) overwritten;
+            events.mEnd = size;
+            mReadIndex = end;
+            return dropped + overwritten;
+        }
+    }
+
+    /**
+     * Events copied out of a {@link ThreadBuffer}.
+     */
+    private static final class Events {
+        final long[] mTimestamps;
+        final int[] mNameIds;
+        final int[] mValues;
+        final byte[] mTypes;
+        // the valid events
+        int mStart;
+        int mEnd;
+
+        Events(int capacity) {
+            mTimestamps = new long[capacity];
+            mNameIds = new int[capacity];
+            mValues = new int[capacity];
+            mTypes = new byte[capacity];
+        }
+    }
+}
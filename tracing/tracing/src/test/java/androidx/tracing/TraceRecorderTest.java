@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@RunWith(JUnit4.class)
+public final class TraceRecorderTest {
+
+    @After
+    public void tearDown() {
+        Trace.setRecorder(null);
+    }
+
+    @Test
+    public void recordsTraceEvents() throws IOException {
+        TraceRecorder recorder = new TraceRecorder(16);
+        Trace.setRecorder(recorder);
+        assertTrue(Trace.isEnabled());
+        Trace.beginSection("section");
+        Trace.endSection();
+        Trace.beginAsyncSection("async", 5099);
+        Trace.endAsyncSection("async", 5099);
+        Trace.setCounter("counter", 42);
+
+        String trace = write(recorder);
+        assertTrue(trace.startsWith("{\"traceEvents\":["));
+        long tid = Thread.currentThread().getId();
+        assertTrue(trace.contains(
+                "{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":0,\"tid\":" + tid));
+        assertEquals(5, count(trace, "\"tid\":" + tid + ",\"ts\":"));
+        assertTrue(trace.contains("\"name\":\"section\"}"));
+        assertTrue(trace.contains("{\"ph\":\"E\""));
+        assertTrue(trace.contains("\"name\":\"async\",\"cat\":\"async\",\"id\":5099}"));
+        assertTrue(trace.contains("\"name\":\"counter\",\"args\":{\"value\":42}}"));
+        assertEquals(0, recorder.getDroppedEventCount());
+    }
+
+    @Test
+    public void drainsEvents() throws IOException {
+        TraceRecorder recorder = new TraceRecorder(16);
+        Trace.setRecorder(recorder);
+        Trace.beginSection("first");
+        Trace.endSection();
+        assertTrue(write(recorder).contains("first"));
+
+        Trace.beginSection("second");
+        Trace.endSection();
+        String trace = write(recorder);
+        assertFalse(trace.contains("first"));
+        assertTrue(trace.contains("second"));
+    }
+
+    @Test
+    public void overwritesOldestEvents() throws IOException {
+        TraceRecorder recorder = new TraceRecorder(8);
+        Trace.setRecorder(recorder);
+        for (int i = 0; i < 20; i++) {
+            Trace.setCounter("counter", i);
+        }
+        String trace = write(recorder);
+        assertFalse(trace.contains("{\"value\":11}"));
+        assertTrue(trace.contains("{\"value\":19}"));
+        int recorded = count(trace, "\"ph\":\"C\"");
+        assertEquals(20, recorded + recorder.getDroppedEventCount());
+    }
+
+    @Test
+    public void recordsThreads() throws Exception {
+        final TraceRecorder recorder = new TraceRecorder(1024);
+        Trace.setRecorder(recorder);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 100; j++) {
+                        Trace.beginSection("work");
+                        Trace.endSection();
+                    }
+                }
+            }, "worker-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        String trace = write(recorder);
+        for (Thread thread : threads) {
+            assertTrue(trace.contains("\"args\":{\"name\":\"" + thread.getName() + "\"}"));
+            assertEquals(200, count(trace, "\"tid\":" + thread.getId() + ",\"ts\":"));
+        }
+        // The buffers of the dead threads are released once drained.
+        assertEquals(0, count(write(recorder), "worker-"));
+    }
+
+    @Test
+    public void escapesNames() throws IOException {
+        TraceRecorder recorder = new TraceRecorder(16);
+        Trace.setRecorder(recorder);
+        Trace.beginSection("a \"quoted\\\" name\n");
+        Trace.endSection();
+        assertTrue(write(recorder).contains("\"name\":\"a \\\"quoted\\\\\\\" name\\u000a\""));
+    }
+
+    @Test
+    public void doesNotRecordWithoutRecorder() throws IOException {
+        TraceRecorder recorder = new TraceRecorder(16);
+        Trace.setRecorder(recorder);
+        Trace.setRecorder(null);
+        Trace.beginSection("section");
+        Trace.endSection();
+        assertFalse(write(recorder).contains("section"));
+    }
+
+    private static String write(TraceRecorder recorder) throws IOException {
+        StringWriter writer = new StringWriter();
+        recorder.writeTo(writer);
+        return writer.toString();
+    }
+
+    private static int count(String trace, String substring) {
+        Matcher matcher = Pattern.compile(Pattern.quote(substring)).matcher(trace);
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+}